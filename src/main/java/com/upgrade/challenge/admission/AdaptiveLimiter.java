@@ -0,0 +1,136 @@
+package com.upgrade.challenge.admission;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Concurrency limit of one class of requests adapted with AIMD: while the connection pools keep up it grows
+ * by about one each time a limit of requests completes, and it is cut by the backoff ratio when a request
+ * completes with a saturated pool, at most once per backoff interval.
+ * <p>
+ * The requests over the limit wait in a bounded queue for a while. The priority ones are admitted first and
+ * may go over the limit by a headroom, since they free capacity.
+ */
+class AdaptiveLimiter {
+
+	private final int minLimit;
+
+	private final int maxLimit;
+
+	private final double backoffRatio;
+
+	private final long backoffIntervalNanos;
+
+	private final int queueSize;
+
+	private final int priorityHeadroom;
+
+	private double limit;
+
+	private int inFlight;
+
+	private int waiting;
+
+	private int waitingPriority;
+
+	private long rejected;
+
+	private long lastBackoff;
+
+	AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit, double backoffRatio, long backoffIntervalMillis,
+			int queueSize, int priorityHeadroom) {
+		this.minLimit = Math.max(minLimit, 1);
+		this.maxLimit = Math.max(maxLimit, this.minLimit);
+		this.limit = Math.min(Math.max(initialLimit, this.minLimit), this.maxLimit);
+		this.backoffRatio = backoffRatio;
+		this.backoffIntervalNanos = TimeUnit.MILLISECONDS.toNanos(backoffIntervalMillis);
+		this.queueSize = queueSize;
+		this.priorityHeadroom = priorityHeadroom;
+		this.lastBackoff = nanoTime() - backoffIntervalNanos;
+	}
+
+	/**
+	 * Admit a request, waiting up to the given time if the limit is reached and the queue is not full.
+	 * Returns false if the request is rejected.
+	 * @param priority
+	 * @param maxWaitNanos
+	 */
+	synchronized boolean acquire(boolean priority, long maxWaitNanos) throws InterruptedException {
+		if (canRun(priority)) {
+			inFlight++;
+			return true;
+		}
+		if (maxWaitNanos <= 0 || waiting >= queueSize) {
+			rejected++;
+			return false;
+		}
+		waiting++;
+		if (priority) {
+			waitingPriority++;
+		}
+		try {
+			long deadline = nanoTime() + maxWaitNanos;
+			while (!canRun(priority)) {
+				long remaining = deadline - nanoTime();
+				if (remaining <= 0) {
+					rejected++;
+					return false;
+				}
+				TimeUnit.NANOSECONDS.timedWait(this, remaining);
+			}
+			inFlight++;
+			return true;
+		} finally {
+			waiting--;
+			if (priority) {
+				waitingPriority--;
+			}
+		}
+	}
+
+	/**
+	 * Release an admitted request and adapt the limit.
+	 * @param saturated whether a connection pool was saturated when the request completed
+	 */
+	synchronized void release(boolean saturated) {
+		int used = inFlight--;
+		if (saturated) {
+			long now = nanoTime();
+			if (now - lastBackoff >= backoffIntervalNanos) {
+				limit = Math.max(minLimit, limit * backoffRatio);
+				lastBackoff = now;
+			}
+		} else if (used >= limit / 2) {
+			// Only a limit in use grows, otherwise an idle service would reach the max.
+			limit = Math.min(maxLimit, limit + 1 / limit);
+		}
+		notifyAll();
+	}
+
+	synchronized int getLimit() {
+		return (int) limit;
+	}
+
+	synchronized int getInFlight() {
+		return inFlight;
+	}
+
+	synchronized int getWaiting() {
+		return waiting;
+	}
+
+	synchronized long getRejected() {
+		return rejected;
+	}
+
+	private boolean canRun(boolean priority) {
+		if (priority) {
+			return inFlight < (int) limit + priorityHeadroom;
+		}
+		return waitingPriority == 0 && inFlight < (int) limit;
+	}
+
+	long nanoTime() {
+		return System.nanoTime();
+	}
+
+}
@@ -0,0 +1,187 @@
+package com.upgrade.challenge.admission;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import com.upgrade.challenge.datasource.ShardRouting;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Admission control of the API in front of the connection pools: the reads and the writes get their own
+ * {@link AdaptiveLimiter}, which shrinks when the requests find a pool saturated (threads waiting for a
+ * connection, or most connections in use) and grows back while it keeps up. The requests over the limit
+ * are queued briefly and then shed, instead of waiting for a connection up to the pool timeout.
+ */
+@Component
+@ManagedResource(objectName = "volcano:type=AdmissionController")
+public class AdmissionController {
+
+	private static final String LIMIT_GAUGE = "volcano.admission.limit";
+	private static final String IN_FLIGHT_GAUGE = "volcano.admission.in_flight";
+	private static final String REJECTED_COUNTER = "volcano.admission.rejected";
+	private static final String CLASS_TAG = "class";
+
+	@Value("${volcano.admission_enabled:false}")
+	private boolean enabled;
+
+	@Value("${volcano.admission_read_limit:100}")
+	private int readLimit;
+
+	@Value("${volcano.admission_write_limit:50}")
+	private int writeLimit;
+
+	@Value("${volcano.admission_min_limit:4}")
+	private int minLimit;
+
+	@Value("${volcano.admission_max_limit:200}")
+	private int maxLimit;
+
+	@Value("${volcano.admission_backoff_ratio:0.9}")
+	private double backoffRatio;
+
+	@Value("${volcano.admission_backoff_interval_ms:100}")
+	private long backoffInterval;
+
+	@Value("${volcano.admission_queue_size:100}")
+	private int queueSize;
+
+	@Value("${volcano.admission_max_wait_ms:50}")
+	private long maxWait;
+
+	@Value("${volcano.admission_cancel_headroom:10}")
+	private int cancelHeadroom;
+
+	@Value("${volcano.admission_pool_usage_threshold:0.9}")
+	private double poolUsageThreshold;
+
+	@Autowired(required = false)
+	private List<HikariDataSource> pools = Collections.emptyList();
+
+	@Autowired
+	private ShardRouting shardRouting;
+
+	@Autowired
+	private ObjectProvider<MeterRegistry> meterRegistry;
+
+	private AdaptiveLimiter reads;
+
+	private AdaptiveLimiter writes;
+
+	@PostConstruct
+	public void initialize() {
+		reads = new AdaptiveLimiter(readLimit, minLimit, maxLimit, backoffRatio, backoffInterval, queueSize, 0);
+		writes = new AdaptiveLimiter(writeLimit, minLimit, maxLimit, backoffRatio, backoffInterval, queueSize,
+				cancelHeadroom);
+		meterRegistry.ifAvailable(registry -> {
+			register(registry, "read", reads);
+			register(registry, "write", writes);
+		});
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Admit a request, queuing it for a while if its limit is reached. Returns false if it is shed.
+	 * @param write
+	 * @param cancellation admitted before the other writes and over their limit by a headroom
+	 */
+	public boolean acquire(boolean write, boolean cancellation) {
+		try {
+			return limiter(write).acquire(cancellation, TimeUnit.MILLISECONDS.toNanos(maxWait));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	/**
+	 * Release an admitted request, adapting its limit to the state of the pools.
+	 * @param write
+	 */
+	public void release(boolean write) {
+		limiter(write).release(isPoolSaturated());
+	}
+
+	/**
+	 * Returns true if any pool, the shard ones included, has threads waiting for a connection or most of its
+	 * connections in use.
+	 */
+	boolean isPoolSaturated() {
+		return isAnySaturated(pools) || isAnySaturated(shardRouting.getShardPools());
+	}
+
+	private boolean isAnySaturated(List<HikariDataSource> pools) {
+		for (HikariDataSource pool : pools) {
+			HikariPoolMXBean bean = pool.getHikariPoolMXBean();
+			if (bean == null) {
+				// Not started yet.
+				continue;
+			}
+			if (bean.getThreadsAwaitingConnection() > 0
+					|| bean.getActiveConnections() >= poolUsageThreshold * pool.getMaximumPoolSize()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@ManagedAttribute
+	public int getReadLimit() {
+		return reads.getLimit();
+	}
+
+	@ManagedAttribute
+	public int getWriteLimit() {
+		return writes.getLimit();
+	}
+
+	@ManagedAttribute
+	public int getReadsInFlight() {
+		return reads.getInFlight();
+	}
+
+	@ManagedAttribute
+	public int getWritesInFlight() {
+		return writes.getInFlight();
+	}
+
+	@ManagedAttribute
+	public long getRejectedReads() {
+		return reads.getRejected();
+	}
+
+	@ManagedAttribute
+	public long getRejectedWrites() {
+		return writes.getRejected();
+	}
+
+	private AdaptiveLimiter limiter(boolean write) {
+		return write ? writes : reads;
+	}
+
+	private static void register(MeterRegistry registry, String requestClass, AdaptiveLimiter limiter) {
+		Gauge.builder(LIMIT_GAUGE, limiter, AdaptiveLimiter::getLimit).tag(CLASS_TAG, requestClass).register(registry);
+		Gauge.builder(IN_FLIGHT_GAUGE, limiter, AdaptiveLimiter::getInFlight).tag(CLASS_TAG, requestClass)
+				.register(registry);
+		FunctionCounter.builder(REJECTED_COUNTER, limiter, AdaptiveLimiter::getRejected).tag(CLASS_TAG, requestClass)
+				.register(registry);
+	}
+
+}
@@ -0,0 +1,31 @@
+package com.upgrade.challenge.campsite;
+
+import lombok.Getter;
+
+/**
+ * A campsite with its own capacity and stay rules, and the shard holding its bookings and occupation.
+ */
+@Getter
+public class Campsite {
+
+	/**
+	 * The campsite of the requests that do not name one.
+	 */
+	public static final long DEFAULT_ID = 1;
+
+	private final long id;
+
+	private final int maxCapacity;
+
+	private final int maxBookingDays;
+
+	private final int shard;
+
+	public Campsite(long id, int maxCapacity, int maxBookingDays, int shard) {
+		this.id = id;
+		this.maxCapacity = maxCapacity;
+		this.maxBookingDays = maxBookingDays;
+		this.shard = shard;
+	}
+
+}
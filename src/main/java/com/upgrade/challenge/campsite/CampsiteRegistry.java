@@ -0,0 +1,92 @@
+package com.upgrade.challenge.campsite;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import com.upgrade.challenge.datasource.ShardRouting;
+import com.upgrade.challenge.exception.CampsiteNotFoundException;
+import com.upgrade.challenge.validator.BookingValidator;
+
+/**
+ * The campsites listed in volcano.campsites. Each one takes its capacity, max stay and shard from
+ * volcano.campsite_{id}_max_guests_capacity, volcano.campsite_{id}_max_booking_days and volcano.campsite_{id}_shard,
+ * falling back to the global capacity and max stay, and to the first shard.
+ */
+@Component
+@ManagedResource(objectName = "volcano:type=CampsiteRegistry")
+public class CampsiteRegistry {
+
+	private static final String PROPERTY = "volcano.campsite_%d_%s";
+
+	private static final String INVALID_SHARD_EXCEPTION = "The shard %d of the campsite %d is not one of the %d shard(s).";
+
+	@Autowired
+	private Environment environment;
+
+	@Autowired
+	private BookingValidator validator;
+
+	@Autowired
+	private ShardRouting shardRouting;
+
+	@Value("${volcano.campsites:1}")
+	private List<Long> ids;
+
+	private Map<Long, Campsite> campsites;
+
+	@PostConstruct
+	public void initialize() {
+		Map<Long, Campsite> configuredCampsites = new LinkedHashMap<Long, Campsite>();
+		for (Long id : ids) {
+			int shard = property(id, "shard", 0);
+			if (shard < 0 || shard >= shardRouting.getShards()) {
+				throw new IllegalStateException(String.format(INVALID_SHARD_EXCEPTION, shard, id, shardRouting.getShards()));
+			}
+			configuredCampsites.put(id, new Campsite(id, property(id, "max_guests_capacity", validator.getMaxCapacity()),
+					property(id, "max_booking_days", validator.getMaxBookingDays()), shard));
+		}
+		campsites = Collections.unmodifiableMap(configuredCampsites);
+	}
+
+	/**
+	 * Returns the campsite with the given id, or the default one if null.
+	 * @param id
+	 */
+	public Campsite get(Long id) {
+		Long campsiteId = id == null ? Campsite.DEFAULT_ID : id;
+		Campsite campsite = campsites.get(campsiteId);
+		if (campsite == null) {
+			throw new CampsiteNotFoundException(campsiteId);
+		}
+		return campsite;
+	}
+
+	public Collection<Campsite> getAll() {
+		return campsites.values();
+	}
+
+	@ManagedAttribute
+	public String getCampsites() {
+		return campsites.values().stream().map(campsite -> String.format("%d (capacity %d, max %d days, shard %d)",
+				campsite.getId(), campsite.getMaxCapacity(), campsite.getMaxBookingDays(), campsite.getShard()))
+				.collect(Collectors.joining(", "));
+	}
+
+	private int property(Long id, String name, int defaultValue) {
+		return environment.getProperty(String.format(PROPERTY, id, name), Integer.class, defaultValue);
+	}
+
+}
@@ -0,0 +1,18 @@
+package com.upgrade.challenge.campsite;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a method to run on the shard of its {@link Campsite} argument, which is chosen before its
+ * transaction gets a connection.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Sharded {
+
+}
@@ -0,0 +1,41 @@
+package com.upgrade.challenge.campsite;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import com.upgrade.challenge.datasource.ShardRouting;
+
+/**
+ * Runs the {@link Sharded} methods on the shard of their campsite. It is ordered after the sequencer, which may
+ * hand the call to another thread, and before the retry and transaction advices, so every attempt of the
+ * transaction connects to the shard.
+ */
+@Aspect
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+public class ShardedAspect {
+
+	@Autowired
+	private ShardRouting shardRouting;
+
+	@Around("@annotation(com.upgrade.challenge.campsite.Sharded)")
+	public Object shard(ProceedingJoinPoint joinPoint) throws Throwable {
+		for (Object arg : joinPoint.getArgs()) {
+			if (arg instanceof Campsite) {
+				int previousShard = shardRouting.use(((Campsite) arg).getShard());
+				try {
+					return joinPoint.proceed();
+				} finally {
+					shardRouting.use(previousShard);
+				}
+			}
+		}
+		return joinPoint.proceed();
+	}
+
+}
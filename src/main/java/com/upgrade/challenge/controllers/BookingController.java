@@ -1,9 +1,15 @@
 package com.upgrade.challenge.controllers;
 
+import java.time.LocalDate;
+import java.util.List;
+
 import javax.validation.Valid;
 import javax.validation.constraints.Min;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -11,12 +17,25 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.upgrade.challenge.campsite.Campsite;
+import com.upgrade.challenge.campsite.CampsiteRegistry;
+import com.upgrade.challenge.model.BatchOperation;
+import com.upgrade.challenge.model.BatchOperationResult;
+import com.upgrade.challenge.model.BookingPage;
 import com.upgrade.challenge.model.BookingRequest;
 import com.upgrade.challenge.model.BookingResponse;
+import com.upgrade.challenge.model.ExportFormat;
+import com.upgrade.challenge.services.BookingBatchService;
+import com.upgrade.challenge.services.BookingGroupCommitter;
+import com.upgrade.challenge.services.BookingSearchService;
 import com.upgrade.challenge.services.BookingService;
+import com.upgrade.challenge.services.IdempotencyStore;
 
 @Validated
 @RestController
@@ -25,31 +44,106 @@ public class BookingController {
 	
 	@Autowired
 	private BookingService bookingService;
+
+	@Autowired
+	private BookingBatchService bookingBatchService;
+
+	@Autowired
+	private BookingGroupCommitter bookingGroupCommitter;
+
+	@Autowired
+	private BookingSearchService bookingSearchService;
+
+	@Autowired
+	private IdempotencyStore idempotencyStore;
+
+	@Autowired
+	private CampsiteRegistry campsiteRegistry;
 	
 	@GetMapping(path = "/{bookingId}")
 	public BookingResponse get(
-			@PathVariable(name = "bookingId", required = true) @Min(value = 1, message = "bookingId should be a positive number") Long bookingId) {
+			@PathVariable(name = "bookingId", required = true) @Min(value = 1, message = "bookingId should be a positive number") Long bookingId,
+			@RequestParam(name = "campsiteId", required = false) Long campsiteId) {
 
-		return bookingService.get(bookingId);
+		return bookingService.get(campsiteRegistry.get(campsiteId), bookingId);
+	}
+
+	@GetMapping(path = "/search", params = "email")
+	public BookingPage searchByEmail(@RequestParam(name = "email") String email,
+			@RequestParam(name = "campsiteId", required = false) Long campsiteId,
+			@RequestParam(name = "after", required = false) String after,
+			@RequestParam(name = "size", required = false) Integer size) {
+
+		return bookingSearchService.findByEmail(campsiteRegistry.get(campsiteId), email, after, size);
+	}
+
+	@GetMapping(path = "/search", params = { "from", "to" })
+	public BookingPage searchByStay(
+			@RequestParam(name = "from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+			@RequestParam(name = "to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+			@RequestParam(name = "campsiteId", required = false) Long campsiteId,
+			@RequestParam(name = "after", required = false) String after,
+			@RequestParam(name = "size", required = false) Integer size) {
+
+		return bookingSearchService.findByStay(campsiteRegistry.get(campsiteId), from, to, after, size);
+	}
+
+	@GetMapping(path = "/export")
+	public ResponseEntity<StreamingResponseBody> export(
+			@RequestParam(name = "from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+			@RequestParam(name = "to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+			@RequestParam(name = "campsiteId", required = false) Long campsiteId,
+			@RequestParam(name = "format", defaultValue = "ndjson") String format) {
+
+		Campsite campsite = campsiteRegistry.get(campsiteId);
+		ExportFormat exportFormat = ExportFormat.of(format);
+		return ResponseEntity.ok().header(HttpHeaders.CONTENT_TYPE, exportFormat.getContentType())
+				.body(output -> bookingSearchService.export(campsite, from, to, exportFormat, output));
 	}
 
 	@PostMapping(path= "/")
-	public BookingResponse book(@Valid @RequestBody BookingRequest booking) {
+	public BookingResponse book(@Valid @RequestBody BookingRequest booking,
+			@RequestHeader(name = IdempotencyStore.KEY_HEADER, required = false) String idempotencyKey) {
 		
-		return bookingService.add(booking);
+		Campsite campsite = campsiteRegistry.get(booking.getCampsiteId());
+		return idempotencyStore.execute(idempotencyKey, IdempotencyStore.request("book", booking), () -> {
+			if (bookingGroupCommitter.isEnabled()) {
+				return bookingGroupCommitter.add(campsite, booking);
+			}
+			return bookingService.add(campsite, booking);
+		});
+	}
+
+	@PostMapping(path= "/batch")
+	public List<BatchOperationResult> batch(@RequestBody List<BatchOperation> operations,
+			@RequestParam(name = "campsiteId", required = false) Long campsiteId) {
+
+		return bookingBatchService.execute(campsiteRegistry.get(campsiteId), operations);
 	}
 
 	@PutMapping(path= "/{bookingId}")
 	public BookingResponse edit(@PathVariable(name = "bookingId", required = true) @Min(value = 1, message = "bookingId should be a positive number") Long bookingId,
-			@Valid @RequestBody BookingRequest booking) {
+			@Valid @RequestBody BookingRequest booking,
+			@RequestParam(name = "campsiteId", required = false) Long campsiteId,
+			@RequestHeader(name = IdempotencyStore.KEY_HEADER, required = false) String idempotencyKey) {
 
-		return bookingService.edit(bookingId, booking);
+		// The campsite of the booking may come with the edited booking as well.
+		Campsite campsite = campsiteRegistry.get(campsiteId != null ? campsiteId : booking.getCampsiteId());
+		return idempotencyStore.execute(idempotencyKey,
+				IdempotencyStore.request("edit", campsite.getId(), bookingId, booking),
+				() -> bookingService.edit(campsite, bookingId, booking));
 	}
 
 	@DeleteMapping(path= "/{bookingId}")
-	public void cancel(@PathVariable(name= "bookingId", required = true) @Min(value = 1, message = "bookingId should be a positive number") Long bookingId) {
+	public void cancel(@PathVariable(name= "bookingId", required = true) @Min(value = 1, message = "bookingId should be a positive number") Long bookingId,
+			@RequestParam(name = "campsiteId", required = false) Long campsiteId,
+			@RequestHeader(name = IdempotencyStore.KEY_HEADER, required = false) String idempotencyKey) {
 		
-		bookingService.delete(bookingId);
+		Campsite campsite = campsiteRegistry.get(campsiteId);
+		idempotencyStore.execute(idempotencyKey, IdempotencyStore.request("cancel", campsite.getId(), bookingId), () -> {
+			bookingService.delete(campsite, bookingId);
+			return null;
+		});
 	}
 
 }
@@ -0,0 +1,55 @@
+package com.upgrade.challenge.controllers;
+
+import java.util.List;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.upgrade.challenge.campsite.CampsiteRegistry;
+import com.upgrade.challenge.model.CapacityOverrideRequest;
+import com.upgrade.challenge.model.dto.CapacityOverride;
+import com.upgrade.challenge.services.CapacityCalendar;
+
+@Validated
+@RestController
+@RequestMapping(path="/capacity")
+public class CapacityController {
+
+	@Autowired
+	private CapacityCalendar capacityCalendar;
+
+	@Autowired
+	private CampsiteRegistry campsiteRegistry;
+
+	@GetMapping(path="/")
+	public List<CapacityOverride> get(@RequestParam(name="campsiteId", required = false) Long campsiteId) {
+
+		return capacityCalendar.getOverrides(campsiteRegistry.get(campsiteId));
+	}
+
+	@PostMapping(path="/")
+	public CapacityOverride add(@Valid @RequestBody CapacityOverrideRequest capacityOverride,
+			@RequestParam(name="campsiteId", required = false) Long campsiteId) {
+
+		return capacityCalendar.add(campsiteRegistry.get(campsiteId), capacityOverride);
+	}
+
+	@DeleteMapping(path="/{overrideId}")
+	public void remove(@PathVariable(name="overrideId", required = true) @Min(value = 1, message = "overrideId should be a positive number") Long overrideId,
+			@RequestParam(name="campsiteId", required = false) Long campsiteId) {
+
+		capacityCalendar.remove(campsiteRegistry.get(campsiteId), overrideId);
+	}
+
+}
@@ -2,16 +2,27 @@ package com.upgrade.challenge.controllers;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import com.upgrade.challenge.campsite.Campsite;
+import com.upgrade.challenge.campsite.CampsiteRegistry;
+import com.upgrade.challenge.model.AvailableStay;
 import com.upgrade.challenge.model.DailyAvailability;
+import com.upgrade.challenge.services.AvailabilitySearchService;
+import com.upgrade.challenge.services.AvailabilityStreamService;
+import com.upgrade.challenge.services.CampsiteAvailabilityService;
 import com.upgrade.challenge.services.DailyAvailabilityService;
 
 @Validated
@@ -21,13 +32,62 @@ public class DailyAvailabilityController {
 
 	@Autowired
 	private DailyAvailabilityService dailyAvailabilityService;
+
+	@Autowired
+	private AvailabilityStreamService availabilityStreamService;
+
+	@Autowired
+	private AvailabilitySearchService availabilitySearchService;
+
+	@Autowired
+	private CampsiteAvailabilityService campsiteAvailabilityService;
+
+	@Autowired
+	private CampsiteRegistry campsiteRegistry;
 	
 	@GetMapping(path="/")
 	public List<DailyAvailability> get(
+			@RequestParam(name="from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+			@RequestParam(name="to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+			@RequestParam(name="campsiteId", required = false) Long campsiteId,
+			WebRequest request) {
+
+		Campsite campsite = campsiteRegistry.get(campsiteId);
+		// Answer 304 without building the availability when the client already has the current one.
+		Optional<String> tag = dailyAvailabilityService.getAvailabilityTag(campsite, from, to);
+		if (tag.isPresent() && request.checkNotModified(tag.get())) {
+			return null;
+		}
+		return dailyAvailabilityService.getAvailability(campsite, from, to);
+	}
+
+	@GetMapping(path="/campsites")
+	public Map<Long, List<DailyAvailability>> getCampsites(
+			@RequestParam(name="campsiteIds") List<Long> campsiteIds,
 			@RequestParam(name="from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
 			@RequestParam(name="to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
 
-		return dailyAvailabilityService.getAvailability(from, to);
+		return campsiteAvailabilityService.getAvailability(campsiteIds, from, to);
+	}
+
+	@GetMapping(path="/search")
+	public List<AvailableStay> search(
+			@RequestParam(name="nights") Integer nights,
+			@RequestParam(name="guests") Integer guests,
+			@RequestParam(name="near", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate near,
+			@RequestParam(name="size", required = false) Integer size,
+			@RequestParam(name="campsiteId", required = false) Long campsiteId) {
+
+		return availabilitySearchService.search(campsiteRegistry.get(campsiteId), nights, guests, near, size);
+	}
+
+	@GetMapping(path="/stream", produces=MediaType.TEXT_EVENT_STREAM_VALUE)
+	public SseEmitter stream(
+			@RequestParam(name="from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+			@RequestParam(name="to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+			@RequestParam(name="campsiteId", required = false) Long campsiteId) {
+
+		return availabilityStreamService.subscribe(campsiteRegistry.get(campsiteId), from, to);
 	}
 
 }
@@ -0,0 +1,75 @@
+package com.upgrade.challenge.controllers;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.upgrade.challenge.campsite.Campsite;
+import com.upgrade.challenge.campsite.CampsiteRegistry;
+import com.upgrade.challenge.model.BookingRequest;
+import com.upgrade.challenge.model.BookingResponse;
+import com.upgrade.challenge.model.HoldRequest;
+import com.upgrade.challenge.model.dto.Hold;
+import com.upgrade.challenge.services.HoldService;
+import com.upgrade.challenge.services.IdempotencyStore;
+
+@Validated
+@RestController
+@RequestMapping(path="/hold")
+public class HoldController {
+
+	@Autowired
+	private HoldService holdService;
+
+	@Autowired
+	private IdempotencyStore idempotencyStore;
+
+	@Autowired
+	private CampsiteRegistry campsiteRegistry;
+
+	@PostMapping(path= "/")
+	public Hold hold(@Valid @RequestBody HoldRequest hold,
+			@RequestHeader(name = IdempotencyStore.KEY_HEADER, required = false) String idempotencyKey) {
+
+		Campsite campsite = campsiteRegistry.get(hold.getCampsiteId());
+		return idempotencyStore.execute(idempotencyKey,
+				IdempotencyStore.request("hold", campsite.getId(), hold.getFromDay(), hold.getToDay(), hold.getGuests()),
+				() -> holdService.hold(campsite, hold));
+	}
+
+	@PostMapping(path= "/{holdId}/confirm")
+	public BookingResponse confirm(@PathVariable(name = "holdId", required = true) @Min(value = 1, message = "holdId should be a positive number") Long holdId,
+			@Valid @RequestBody BookingRequest booking,
+			@RequestParam(name = "campsiteId", required = false) Long campsiteId,
+			@RequestHeader(name = IdempotencyStore.KEY_HEADER, required = false) String idempotencyKey) {
+
+		// The campsite of the hold may come with the booking as well.
+		Campsite campsite = campsiteRegistry.get(campsiteId != null ? campsiteId : booking.getCampsiteId());
+		return idempotencyStore.execute(idempotencyKey,
+				IdempotencyStore.request("confirm", campsite.getId(), holdId, booking),
+				() -> holdService.confirm(campsite, holdId, booking));
+	}
+
+	@DeleteMapping(path= "/{holdId}")
+	public void cancel(@PathVariable(name = "holdId", required = true) @Min(value = 1, message = "holdId should be a positive number") Long holdId,
+			@RequestParam(name = "campsiteId", required = false) Long campsiteId,
+			@RequestHeader(name = IdempotencyStore.KEY_HEADER, required = false) String idempotencyKey) {
+
+		Campsite campsite = campsiteRegistry.get(campsiteId);
+		idempotencyStore.execute(idempotencyKey, IdempotencyStore.request("release", campsite.getId(), holdId), () -> {
+			holdService.cancel(campsite, holdId);
+			return null;
+		});
+	}
+
+}
@@ -0,0 +1,58 @@
+package com.upgrade.challenge.controllers;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.upgrade.challenge.campsite.CampsiteRegistry;
+import com.upgrade.challenge.model.WaitlistRequest;
+import com.upgrade.challenge.model.dto.WaitlistEntry;
+import com.upgrade.challenge.services.WaitlistMatcher;
+import com.upgrade.challenge.services.WaitlistService;
+
+@Validated
+@RestController
+@RequestMapping(path="/waitlist")
+public class WaitlistController {
+
+	@Autowired
+	private WaitlistService waitlistService;
+
+	@Autowired
+	private WaitlistMatcher waitlistMatcher;
+
+	@Autowired
+	private CampsiteRegistry campsiteRegistry;
+
+	@GetMapping(path = "/{entryId}")
+	public WaitlistEntry get(
+			@PathVariable(name = "entryId", required = true) @Min(value = 1, message = "entryId should be a positive number") Long entryId,
+			@RequestParam(name = "campsiteId", required = false) Long campsiteId) {
+
+		return waitlistService.get(campsiteRegistry.get(campsiteId), entryId);
+	}
+
+	@PostMapping(path= "/")
+	public WaitlistEntry add(@Valid @RequestBody WaitlistRequest waitlistRequest) {
+
+		return waitlistMatcher.add(campsiteRegistry.get(waitlistRequest.getCampsiteId()), waitlistRequest);
+	}
+
+	@DeleteMapping(path= "/{entryId}")
+	public void remove(@PathVariable(name = "entryId", required = true) @Min(value = 1, message = "entryId should be a positive number") Long entryId,
+			@RequestParam(name = "campsiteId", required = false) Long campsiteId) {
+
+		waitlistMatcher.remove(campsiteRegistry.get(campsiteId), entryId);
+	}
+
+}
@@ -0,0 +1,95 @@
+package com.upgrade.challenge.datasource;
+
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Decides whether the read-only work of the current thread may be served by the replica. It may unless the
+ * replica is disabled, the work is run {@link #onPrimary}, or the request carries a consistency token of a
+ * write the replica has not reached yet.
+ * <p>
+ * A token is the time of a committed write. The replica has reached it once it holds a heartbeat written
+ * on the primary after that time, as the replica applies the commits of the primary in order.
+ */
+@Component
+@ManagedResource(objectName = "volcano:type=ReadRouting")
+public class ReadRouting {
+
+	public static final String TOKEN_HEADER = "X-Consistency-Token";
+
+	@Value("${volcano.replica_enabled:false}")
+	private boolean enabled;
+
+	private final ThreadLocal<Boolean> primaryRequired = ThreadLocal.withInitial(() -> false);
+
+	private volatile long replicaHeartbeat;
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * The token to hand back to the client of a committed write.
+	 */
+	public String issueToken() {
+		return String.valueOf(System.currentTimeMillis());
+	}
+
+	/**
+	 * Read from the primary for the rest of the current request if the replica has not reached the token yet.
+	 * An invalid token is ignored.
+	 * @param token
+	 */
+	public void require(String token) {
+		try {
+			if (Long.parseLong(token.trim()) > replicaHeartbeat) {
+				primaryRequired.set(true);
+			}
+		} catch (NumberFormatException e) {
+			return;
+		}
+	}
+
+	public void clear() {
+		primaryRequired.remove();
+	}
+
+	/**
+	 * Run the reads of the action on the primary, for the data every later read depends on.
+	 * @param action
+	 */
+	public <T> T onPrimary(Supplier<T> action) {
+		boolean required = primaryRequired.get();
+		primaryRequired.set(true);
+		try {
+			return action.get();
+		} finally {
+			primaryRequired.set(required);
+		}
+	}
+
+	/**
+	 * Whether the read-only work of the current thread goes to the replica.
+	 */
+	public boolean readsFromReplica() {
+		return enabled && !primaryRequired.get();
+	}
+
+	/**
+	 * Record the last heartbeat read on the replica.
+	 * @param heartbeat
+	 */
+	public void replicaReached(long heartbeat) {
+		replicaHeartbeat = Math.max(replicaHeartbeat, heartbeat);
+	}
+
+	@ManagedAttribute
+	public long getReplicaHeartbeat() {
+		return replicaHeartbeat;
+	}
+
+}
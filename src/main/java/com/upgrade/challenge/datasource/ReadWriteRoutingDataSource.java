@@ -0,0 +1,29 @@
+package com.upgrade.challenge.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Sends the connections of the read-only transactions to the replica when the {@link ReadRouting} allows it,
+ * and every other connection to the primary. It has to be wrapped in a lazy connection proxy, as the
+ * transaction is only flagged read-only after its connection is requested.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+	public static final String PRIMARY = "primary";
+
+	public static final String REPLICA = "replica";
+
+	private final ReadRouting readRouting;
+
+	public ReadWriteRoutingDataSource(ReadRouting readRouting) {
+		this.readRouting = readRouting;
+	}
+
+	@Override
+	protected Object determineCurrentLookupKey() {
+		return TransactionSynchronizationManager.isCurrentTransactionReadOnly() && readRouting.readsFromReplica()
+				? REPLICA : PRIMARY;
+	}
+
+}
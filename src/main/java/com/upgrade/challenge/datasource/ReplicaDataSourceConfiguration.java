@@ -0,0 +1,76 @@
+package com.upgrade.challenge.datasource;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * With volcano.replica_enabled, replaces the single datasource by a primary pool, configured as before from
+ * spring.datasource, and a read-only replica pool, behind a datasource routing between them.
+ */
+@Configuration
+@ConditionalOnProperty(name = "volcano.replica_enabled", havingValue = "true")
+public class ReplicaDataSourceConfiguration {
+
+	public static final String PRIMARY_DATA_SOURCE = "primaryDataSource";
+
+	public static final String REPLICA_DATA_SOURCE = "replicaDataSource";
+
+	@Value("${volcano.replica_url}")
+	private String replicaUrl;
+
+	@Value("${volcano.replica_username:}")
+	private String replicaUsername;
+
+	@Value("${volcano.replica_password:}")
+	private String replicaPassword;
+
+	@Value("${volcano.replica_pool_size:100}")
+	private int replicaPoolSize;
+
+	@Bean(name = PRIMARY_DATA_SOURCE)
+	@ConfigurationProperties("spring.datasource.hikari")
+	public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+		return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+	}
+
+	@Bean(name = REPLICA_DATA_SOURCE)
+	public HikariDataSource replicaDataSource() {
+		HikariDataSource dataSource = new HikariDataSource();
+		dataSource.setJdbcUrl(replicaUrl);
+		dataSource.setUsername(replicaUsername);
+		dataSource.setPassword(replicaPassword);
+		dataSource.setMaximumPoolSize(replicaPoolSize);
+		dataSource.setReadOnly(true);
+		dataSource.setPoolName("VolcanoReplicaHikariCP");
+		return dataSource;
+	}
+
+	@Bean
+	@Primary
+	public DataSource dataSource(@Qualifier(PRIMARY_DATA_SOURCE) DataSource primary,
+			@Qualifier(REPLICA_DATA_SOURCE) DataSource replica, ReadRouting readRouting) {
+		Map<Object, Object> dataSources = new HashMap<Object, Object>();
+		dataSources.put(ReadWriteRoutingDataSource.PRIMARY, primary);
+		dataSources.put(ReadWriteRoutingDataSource.REPLICA, replica);
+		ReadWriteRoutingDataSource routingDataSource = new ReadWriteRoutingDataSource(readRouting);
+		routingDataSource.setTargetDataSources(dataSources);
+		routingDataSource.setDefaultTargetDataSource(primary);
+		routingDataSource.afterPropertiesSet();
+		return new LazyConnectionDataSourceProxy(routingDataSource);
+	}
+
+}
@@ -0,0 +1,76 @@
+package com.upgrade.challenge.datasource;
+
+import javax.annotation.PostConstruct;
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Writes the time on the primary and reads back on the replica the last time it received, which tells the
+ * {@link ReadRouting} how far the replica has caught up.
+ */
+@Component
+@ConditionalOnProperty(name = "volcano.replica_enabled", havingValue = "true")
+public class ReplicationHeartbeat {
+
+	private static final Logger logger = LoggerFactory.getLogger(ReplicationHeartbeat.class);
+
+	private static final long ID = 1;
+
+	private static final String UPDATE = "update replication_heartbeat set beat = ? where id = ?";
+
+	private static final String INSERT = "insert into replication_heartbeat (id, beat) values (?, ?)";
+
+	private static final String SELECT = "select beat from replication_heartbeat where id = ?";
+
+	@Autowired
+	@Qualifier(ReplicaDataSourceConfiguration.PRIMARY_DATA_SOURCE)
+	private DataSource primaryDataSource;
+
+	@Autowired
+	@Qualifier(ReplicaDataSourceConfiguration.REPLICA_DATA_SOURCE)
+	private DataSource replicaDataSource;
+
+	@Autowired
+	private ReadRouting readRouting;
+
+	private JdbcTemplate primary;
+
+	private JdbcTemplate replica;
+
+	@PostConstruct
+	public void initialize() {
+		primary = new JdbcTemplate(primaryDataSource);
+		replica = new JdbcTemplate(replicaDataSource);
+	}
+
+	@Scheduled(fixedDelayString = "${volcano.replica_heartbeat_ms:1000}")
+	public void beat() {
+		try {
+			long now = System.currentTimeMillis();
+			if (primary.update(UPDATE, now, ID) == 0) {
+				primary.update(INSERT, ID, now);
+			}
+		} catch (DataAccessException e) {
+			logger.warn("Could not write the replication heartbeat: {}", e.getMessage());
+		}
+		try {
+			Long beat = replica.queryForObject(SELECT, Long.class, ID);
+			if (beat != null) {
+				readRouting.replicaReached(beat);
+			}
+		} catch (DataAccessException e) {
+			// Until the replica holds a heartbeat, the reads with a token go to the primary.
+			logger.debug("Could not read the replication heartbeat: {}", e.getMessage());
+		}
+	}
+
+}
@@ -0,0 +1,109 @@
+package com.upgrade.challenge.datasource;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackages;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.data.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.JpaProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.orm.jpa.EntityManagerFactoryBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * With volcano.shard_urls, replaces the single datasource by a pool per shard behind a datasource routing
+ * between them. The first shard is configured as before from spring.datasource. The shards hold the same
+ * schema, which spring.jpa.hibernate.ddl-auto manages on every one of them. It cannot be combined with
+ * the read replica.
+ */
+@Configuration
+@ConditionalOnExpression("!'${volcano.shard_urls:}'.isEmpty() and !${volcano.replica_enabled:false}")
+public class ShardDataSourceConfiguration {
+
+	public static final String FIRST_SHARD_DATA_SOURCE = "firstShardDataSource";
+
+	public static final String SHARD_SCHEMAS = "shardSchemas";
+
+	@Value("${volcano.shard_username:}")
+	private String shardUsername;
+
+	@Value("${volcano.shard_password:}")
+	private String shardPassword;
+
+	@Value("${volcano.shard_pool_size:100}")
+	private int shardPoolSize;
+
+	private final List<HikariDataSource> shardDataSources = new ArrayList<HikariDataSource>();
+
+	@Bean(name = FIRST_SHARD_DATA_SOURCE)
+	@ConfigurationProperties("spring.datasource.hikari")
+	public HikariDataSource firstShardDataSource(DataSourceProperties properties) {
+		return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+	}
+
+	@Bean
+	@Primary
+	public DataSource dataSource(@Qualifier(FIRST_SHARD_DATA_SOURCE) DataSource firstShard, ShardRouting shardRouting) {
+		Map<Object, Object> dataSources = new HashMap<Object, Object>();
+		dataSources.put(0, firstShard);
+		String[] shardUrls = shardRouting.getShardUrls();
+		for (int i = 0; i < shardUrls.length; i++) {
+			HikariDataSource dataSource = new HikariDataSource();
+			dataSource.setJdbcUrl(shardUrls[i].trim());
+			dataSource.setUsername(shardUsername);
+			dataSource.setPassword(shardPassword);
+			dataSource.setMaximumPoolSize(shardPoolSize);
+			dataSource.setPoolName("VolcanoShard" + (i + 1) + "HikariCP");
+			shardDataSources.add(dataSource);
+			shardRouting.addShardPool(dataSource);
+			dataSources.put(i + 1, dataSource);
+		}
+		ShardRoutingDataSource routingDataSource = new ShardRoutingDataSource(shardRouting);
+		routingDataSource.setTargetDataSources(dataSources);
+		routingDataSource.setDefaultTargetDataSource(firstShard);
+		routingDataSource.afterPropertiesSet();
+		return routingDataSource;
+	}
+
+	/**
+	 * The schema of the shards after the first one, which the routing datasource creates the pools of.
+	 */
+	@Bean(name = SHARD_SCHEMAS)
+	public ShardSchemas shardSchemas(DataSource dataSource, EntityManagerFactoryBuilder builder,
+			JpaProperties jpaProperties, HibernateProperties hibernateProperties, BeanFactory beanFactory) {
+		return new ShardSchemas(builder,
+				hibernateProperties.determineHibernateProperties(jpaProperties.getProperties(),
+						new HibernateSettings().ddlAuto(() -> "none")),
+				AutoConfigurationPackages.get(beanFactory).toArray(new String[0]), shardDataSources);
+	}
+
+	/**
+	 * Every shard has its schema before the repositories are used.
+	 */
+	@Bean
+	public static EntityManagerFactoryDependsOnPostProcessor shardSchemasDependency() {
+		return new EntityManagerFactoryDependsOnPostProcessor(SHARD_SCHEMAS);
+	}
+
+	@PreDestroy
+	public void close() {
+		shardDataSources.forEach(HikariDataSource::close);
+	}
+
+}
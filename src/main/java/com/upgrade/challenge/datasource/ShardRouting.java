@@ -0,0 +1,78 @@
+package com.upgrade.challenge.datasource;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Holds the shard the connections of the current thread go to. The first shard is the datasource configured
+ * from spring.datasource, the others are the ones of volcano.shard_urls, in order. Without volcano.shard_urls
+ * every campsite is on the first shard and there is nothing to route.
+ */
+@Component
+public class ShardRouting {
+
+	@Value("${volcano.shard_urls:}")
+	private String[] shardUrls;
+
+	private final ThreadLocal<Integer> shard = ThreadLocal.withInitial(() -> 0);
+
+	private final List<HikariDataSource> shardPools = new CopyOnWriteArrayList<HikariDataSource>();
+
+	public int getShards() {
+		return shardUrls.length + 1;
+	}
+
+	/**
+	 * The urls of the shards after the first one.
+	 */
+	public String[] getShardUrls() {
+		return shardUrls;
+	}
+
+	/**
+	 * The pools of the shards after the first one, which are not beans as there is one per url.
+	 */
+	public List<HikariDataSource> getShardPools() {
+		return shardPools;
+	}
+
+	void addShardPool(HikariDataSource pool) {
+		shardPools.add(pool);
+	}
+
+	public int current() {
+		return shard.get();
+	}
+
+	/**
+	 * Send the next connections of the current thread to the given shard.
+	 * @param shard
+	 * @return the previous shard, to restore once done
+	 */
+	public int use(int shard) {
+		int previous = this.shard.get();
+		this.shard.set(shard);
+		return previous;
+	}
+
+	/**
+	 * Run the action with its connections on the given shard.
+	 * @param shard
+	 * @param action
+	 */
+	public <T> T onShard(int shard, Supplier<T> action) {
+		int previous = use(shard);
+		try {
+			return action.get();
+		} finally {
+			use(previous);
+		}
+	}
+
+}
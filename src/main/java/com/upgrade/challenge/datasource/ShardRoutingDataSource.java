@@ -0,0 +1,22 @@
+package com.upgrade.challenge.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * Sends each connection to the shard chosen by the {@link ShardRouting} of the requesting thread.
+ * The shard has to be chosen before the transaction starts, as the transaction keeps its connection.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+	private final ShardRouting shardRouting;
+
+	public ShardRoutingDataSource(ShardRouting shardRouting) {
+		this.shardRouting = shardRouting;
+	}
+
+	@Override
+	protected Object determineCurrentLookupKey() {
+		return shardRouting.current();
+	}
+
+}
@@ -0,0 +1,43 @@
+package com.upgrade.challenge.datasource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.orm.jpa.EntityManagerFactoryBuilder;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+
+/**
+ * Applies spring.jpa.hibernate.ddl-auto to the shards after the first one, which the entity manager factory of
+ * the application never bootstraps. Each of them gets an entity manager factory of its own, only used to create,
+ * update or validate its schema when built, and to drop it when closed with create-drop.
+ */
+public class ShardSchemas implements DisposableBean {
+
+	private final List<LocalContainerEntityManagerFactoryBean> entityManagerFactories = new ArrayList<LocalContainerEntityManagerFactoryBean>();
+
+	/**
+	 * @param builder
+	 * @param properties the Hibernate properties of the application, ddl-auto included
+	 * @param packages the packages of the entities
+	 * @param shards the datasources of the shards after the first one
+	 */
+	public ShardSchemas(EntityManagerFactoryBuilder builder, Map<String, Object> properties, String[] packages,
+			List<? extends DataSource> shards) {
+		for (int i = 0; i < shards.size(); i++) {
+			LocalContainerEntityManagerFactoryBean entityManagerFactory = builder.dataSource(shards.get(i))
+					.packages(packages).properties(properties).persistenceUnit("shard" + (i + 1)).build();
+			entityManagerFactory.afterPropertiesSet();
+			entityManagerFactories.add(entityManagerFactory);
+		}
+	}
+
+	@Override
+	public void destroy() {
+		entityManagerFactories.forEach(LocalContainerEntityManagerFactoryBean::destroy);
+	}
+
+}
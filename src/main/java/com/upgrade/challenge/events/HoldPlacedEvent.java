@@ -0,0 +1,25 @@
+package com.upgrade.challenge.events;
+
+import java.time.Instant;
+
+import lombok.Getter;
+
+/**
+ * Published when a hold is placed, or handed to the expiry before its time, to schedule its expiry.
+ */
+@Getter
+public class HoldPlacedEvent {
+
+	private final long campsiteId;
+
+	private final long holdId;
+
+	private final Instant expiresAt;
+
+	public HoldPlacedEvent(long campsiteId, long holdId, Instant expiresAt) {
+		this.campsiteId = campsiteId;
+		this.holdId = holdId;
+		this.expiresAt = expiresAt;
+	}
+
+}
@@ -0,0 +1,38 @@
+package com.upgrade.challenge.events;
+
+import java.time.LocalDate;
+
+import lombok.Getter;
+
+/**
+ * Published once a change of occupation has been committed and applied to the ledger.
+ */
+@Getter
+public class OccupationChangedEvent {
+
+	private final long campsiteId;
+
+	private final LocalDate from;
+
+	private final LocalDate to;
+
+	private final int guests;
+
+	/**
+	 * @param campsiteId
+	 * @param from first changed day
+	 * @param to day after the last changed day
+	 * @param guests positive when blocked, negative when released, 0 when the capacity of the days changed
+	 */
+	public OccupationChangedEvent(long campsiteId, LocalDate from, LocalDate to, int guests) {
+		this.campsiteId = campsiteId;
+		this.from = from;
+		this.to = to;
+		this.guests = guests;
+	}
+
+	public boolean overlaps(long otherCampsiteId, LocalDate otherFrom, LocalDate otherTo) {
+		return campsiteId == otherCampsiteId && from.isBefore(otherTo) && otherFrom.isBefore(to);
+	}
+
+}
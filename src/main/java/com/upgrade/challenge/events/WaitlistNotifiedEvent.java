@@ -0,0 +1,20 @@
+package com.upgrade.challenge.events;
+
+import com.upgrade.challenge.model.dto.WaitlistEntry;
+
+import lombok.Getter;
+
+/**
+ * Published when a waitlist entry is marked notified, for the guest to be told its stay became available
+ * once the transaction commits.
+ */
+@Getter
+public class WaitlistNotifiedEvent {
+
+	private final WaitlistEntry entry;
+
+	public WaitlistNotifiedEvent(WaitlistEntry entry) {
+		this.entry = entry;
+	}
+
+}
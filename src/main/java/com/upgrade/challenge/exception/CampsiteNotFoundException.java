@@ -0,0 +1,13 @@
+package com.upgrade.challenge.exception;
+
+public class CampsiteNotFoundException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final String MESSAGE = "Campsite not found for ID: %d";
+
+	public CampsiteNotFoundException(Long id) {
+		super(String.format(MESSAGE, id));
+	}
+
+}
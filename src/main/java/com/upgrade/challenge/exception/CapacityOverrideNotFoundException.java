@@ -0,0 +1,13 @@
+package com.upgrade.challenge.exception;
+
+public class CapacityOverrideNotFoundException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final String MESSAGE = "Capacity override not found for ID: %d";
+
+	public CapacityOverrideNotFoundException(Long id) {
+		super(String.format(MESSAGE, id));
+	}
+
+}
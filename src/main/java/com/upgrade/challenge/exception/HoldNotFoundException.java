@@ -0,0 +1,13 @@
+package com.upgrade.challenge.exception;
+
+public class HoldNotFoundException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final String MESSAGE = "Hold not found for ID: %d";
+
+	public HoldNotFoundException(Long id) {
+		super(String.format(MESSAGE, id));
+	}
+
+}
@@ -0,0 +1,15 @@
+package com.upgrade.challenge.exception;
+
+public class OverloadedException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public OverloadedException(String message, Throwable cause) {
+		super(message, cause);
+	}
+
+	public OverloadedException(String message) {
+		super(message);
+	}
+
+}
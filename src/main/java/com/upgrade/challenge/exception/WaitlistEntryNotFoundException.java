@@ -0,0 +1,13 @@
+package com.upgrade.challenge.exception;
+
+public class WaitlistEntryNotFoundException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final String MESSAGE = "Waitlist entry not found for ID: %d";
+
+	public WaitlistEntryNotFoundException(Long id) {
+		super(String.format(MESSAGE, id));
+	}
+
+}
@@ -0,0 +1,111 @@
+package com.upgrade.challenge.handlers;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.upgrade.challenge.admission.AdmissionController;
+
+/**
+ * Sheds the booking, hold, waitlist and availability requests that the {@link AdmissionController} does not
+ * admit with a 503 and a Retry-After, before they wait for a connection. The cancellations are admitted first.
+ * A request that goes async, as the streamed export, keeps its slot until its response is complete.
+ */
+@Component
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+	private static final String OVERLOADED_EXCEPTION = "Errors: The service is overloaded. Please try again later.";
+
+	@Autowired
+	private AdmissionController admissionController;
+
+	@Value("${volcano.admission_retry_after_seconds:1}")
+	private int retryAfter;
+
+	@Override
+	protected boolean shouldNotFilter(HttpServletRequest request) {
+		String path = request.getServletPath();
+		// The availability streams hold no connection while open.
+		return !admissionController.isEnabled() || !(path.startsWith("/booking") || path.startsWith("/hold")
+				|| path.startsWith("/waitlist") || path.startsWith("/availability"))
+				|| path.startsWith("/availability/stream");
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		HttpMethod method = HttpMethod.resolve(request.getMethod());
+		boolean write = method != HttpMethod.GET && method != HttpMethod.HEAD && method != HttpMethod.OPTIONS;
+		if (!admissionController.acquire(write, method == HttpMethod.DELETE)) {
+			response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+			response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+			response.getWriter().write(OVERLOADED_EXCEPTION);
+			return;
+		}
+		try {
+			filterChain.doFilter(request, response);
+		} finally {
+			if (request.isAsyncStarted()) {
+				request.getAsyncContext().addListener(new ReleaseListener(write));
+			} else {
+				admissionController.release(write);
+			}
+		}
+	}
+
+	/**
+	 * Releases the slot of an async request once, when it completes, fails or times out.
+	 */
+	private class ReleaseListener implements AsyncListener {
+
+		private final boolean write;
+
+		private final AtomicBoolean released = new AtomicBoolean();
+
+		private ReleaseListener(boolean write) {
+			this.write = write;
+		}
+
+		@Override
+		public void onComplete(AsyncEvent event) {
+			release();
+		}
+
+		@Override
+		public void onTimeout(AsyncEvent event) {
+			release();
+		}
+
+		@Override
+		public void onError(AsyncEvent event) {
+			release();
+		}
+
+		@Override
+		public void onStartAsync(AsyncEvent event) {
+			// Still the same request.
+		}
+
+		private void release() {
+			if (released.compareAndSet(false, true)) {
+				admissionController.release(write);
+			}
+		}
+
+	}
+
+}
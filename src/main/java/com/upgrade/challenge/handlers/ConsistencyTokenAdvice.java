@@ -0,0 +1,40 @@
+package com.upgrade.challenge.handlers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import com.upgrade.challenge.controllers.BookingController;
+import com.upgrade.challenge.datasource.ReadRouting;
+
+/**
+ * Hands a consistency token to the clients of the booking writes, once committed, to pass back in their next reads.
+ */
+@ControllerAdvice(assignableTypes = BookingController.class)
+public class ConsistencyTokenAdvice implements ResponseBodyAdvice<Object> {
+
+	@Autowired
+	private ReadRouting readRouting;
+
+	@Override
+	public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+		return readRouting.isEnabled();
+	}
+
+	@Override
+	public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+			Class<? extends HttpMessageConverter<?>> selectedConverterType, ServerHttpRequest request,
+			ServerHttpResponse response) {
+		if (request.getMethod() == HttpMethod.POST || request.getMethod() == HttpMethod.PUT) {
+			response.getHeaders().set(ReadRouting.TOKEN_HEADER, readRouting.issueToken());
+		}
+		return body;
+	}
+
+}
@@ -0,0 +1,41 @@
+package com.upgrade.challenge.handlers;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.upgrade.challenge.datasource.ReadRouting;
+
+/**
+ * Reads the requests carrying the consistency token of a write from the primary until the replica reaches it.
+ */
+@Component
+public class ConsistencyTokenFilter extends OncePerRequestFilter {
+
+	@Autowired
+	private ReadRouting readRouting;
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		String token = request.getHeader(ReadRouting.TOKEN_HEADER);
+		if (token == null || !readRouting.isEnabled()) {
+			filterChain.doFilter(request, response);
+			return;
+		}
+		readRouting.require(token);
+		try {
+			filterChain.doFilter(request, response);
+		} finally {
+			readRouting.clear();
+		}
+	}
+
+}
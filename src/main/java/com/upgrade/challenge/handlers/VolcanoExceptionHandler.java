@@ -21,7 +21,12 @@ import com.fasterxml.jackson.databind.exc.InvalidFormatException;
 import com.upgrade.challenge.exception.AvailabilityException;
 import com.upgrade.challenge.exception.BookingException;
 import com.upgrade.challenge.exception.BookingNotFoundException;
+import com.upgrade.challenge.exception.CampsiteNotFoundException;
+import com.upgrade.challenge.exception.CapacityOverrideNotFoundException;
+import com.upgrade.challenge.exception.HoldNotFoundException;
 import com.upgrade.challenge.exception.InputFormatException;
+import com.upgrade.challenge.exception.OverloadedException;
+import com.upgrade.challenge.exception.WaitlistEntryNotFoundException;
 
 @ControllerAdvice
 public class VolcanoExceptionHandler extends ResponseEntityExceptionHandler {
@@ -41,6 +46,26 @@ public class VolcanoExceptionHandler extends ResponseEntityExceptionHandler {
 		return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Errors: " + e.getMessage());
 	}
 	
+	@ExceptionHandler(CampsiteNotFoundException.class)
+	public ResponseEntity<?> handleCampsiteNotFoundException(CampsiteNotFoundException e) {
+		return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Errors: " + e.getMessage());
+	}
+	
+	@ExceptionHandler(CapacityOverrideNotFoundException.class)
+	public ResponseEntity<?> handleCapacityOverrideNotFoundException(CapacityOverrideNotFoundException e) {
+		return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Errors: " + e.getMessage());
+	}
+	
+	@ExceptionHandler(HoldNotFoundException.class)
+	public ResponseEntity<?> handleHoldNotFoundException(HoldNotFoundException e) {
+		return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Errors: " + e.getMessage());
+	}
+	
+	@ExceptionHandler(WaitlistEntryNotFoundException.class)
+	public ResponseEntity<?> handleWaitlistEntryNotFoundException(WaitlistEntryNotFoundException e) {
+		return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Errors: " + e.getMessage());
+	}
+	
 	@ExceptionHandler(BookingException.class)
 	public ResponseEntity<?> handleBookingException(BookingException e) {
 		return ResponseEntity.badRequest().body("Errors: " + e.getMessage());
@@ -66,6 +91,11 @@ public class VolcanoExceptionHandler extends ResponseEntityExceptionHandler {
 		return ResponseEntity.badRequest().body("Errors: " + e.getMessage());
 	}
 	
+	@ExceptionHandler(OverloadedException.class)
+	public ResponseEntity<?> handleOverloadedException(OverloadedException e) {
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Errors: " + e.getMessage());
+	}
+	
 	@ExceptionHandler(InvalidFormatException.class)
 	public ResponseEntity<?> handleInvalidFormatException(InvalidFormatException e) {
 		return ResponseEntity.badRequest().body("Errors: " + e.getMessage());
@@ -81,11 +111,14 @@ public class VolcanoExceptionHandler extends ResponseEntityExceptionHandler {
 		return ResponseEntity.badRequest().body("Errors: " + e.getMessage());
 	}
 	
+	/**
+	 * The messages are sorted, as the validator does not report the constraints in a fixed order.
+	 */
 	@Override
 	protected ResponseEntity<Object> handleMethodArgumentNotValid(MethodArgumentNotValidException ex,
 			HttpHeaders headers, HttpStatus status, WebRequest request) {
 		final String message = ex.getBindingResult().getAllErrors().stream().map(ObjectError::getDefaultMessage)
-				.collect(Collectors.joining(", "));
+				.sorted().collect(Collectors.joining(", "));
 		return ResponseEntity.badRequest().body("Errors: " + message);
 	}
 	
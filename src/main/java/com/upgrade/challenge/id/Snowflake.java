@@ -0,0 +1,67 @@
+package com.upgrade.challenge.id;
+
+/**
+ * Time ordered 64-bit ids allocated in memory: 41 bits of milliseconds since {@link #EPOCH}, 10 bits of node
+ * and 12 bits of sequence within the millisecond. The ids of different nodes never collide, and the ids of a
+ * node keep growing: when the sequence of a millisecond is exhausted or the clock goes back, the node keeps
+ * counting on the following milliseconds until the clock catches up.
+ */
+public class Snowflake {
+
+	/**
+	 * 2020-01-01T00:00:00Z, which leaves room for ids until 2089.
+	 */
+	public static final long EPOCH = 1577836800000L;
+
+	static final int NODE_BITS = 10;
+
+	static final int SEQUENCE_BITS = 12;
+
+	public static final long MAX_NODE = (1L << NODE_BITS) - 1;
+
+	static final long MAX_SEQUENCE = (1L << SEQUENCE_BITS) - 1;
+
+	private final long node;
+
+	private long lastTimestamp = -1;
+
+	private long sequence;
+
+	/**
+	 * @param node between 0 and {@link #MAX_NODE}, unique among the running instances
+	 */
+	public Snowflake(long node) {
+		if (node < 0 || node > MAX_NODE) {
+			throw new IllegalArgumentException(String.format("The node id should be between 0 and %d: %d", MAX_NODE, node));
+		}
+		this.node = node;
+	}
+
+	public synchronized long nextId() {
+		long timestamp = currentTimeMillis();
+		if (timestamp > lastTimestamp) {
+			sequence = 0;
+		} else {
+			timestamp = lastTimestamp;
+			sequence = (sequence + 1) & MAX_SEQUENCE;
+			if (sequence == 0) {
+				timestamp++;
+			}
+		}
+		lastTimestamp = timestamp;
+		return (timestamp - EPOCH) << (NODE_BITS + SEQUENCE_BITS) | node << SEQUENCE_BITS | sequence;
+	}
+
+	public static long timestampOf(long id) {
+		return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH;
+	}
+
+	public static long nodeOf(long id) {
+		return id >>> SEQUENCE_BITS & MAX_NODE;
+	}
+
+	long currentTimeMillis() {
+		return System.currentTimeMillis();
+	}
+
+}
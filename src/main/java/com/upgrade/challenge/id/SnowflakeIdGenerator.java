@@ -0,0 +1,59 @@
+package com.upgrade.challenge.id;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.Configurable;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hibernate generator of {@link Snowflake} ids, so the inserts neither wait for a sequence nor an identity
+ * column and can be batched. The node comes from the hibernate setting volcano.node_id, which Spring passes
+ * from spring.jpa.properties, and all the entities of a node share its {@link Snowflake}. It has no default,
+ * as two instances on the same node would allocate the same ids, so the startup fails when it is not set.
+ */
+public class SnowflakeIdGenerator implements IdentifierGenerator, Configurable {
+
+	public static final String STRATEGY = "com.upgrade.challenge.id.SnowflakeIdGenerator";
+
+	public static final String NODE_ID = "volcano.node_id";
+
+	private static final Logger logger = LoggerFactory.getLogger(SnowflakeIdGenerator.class);
+
+	private static final Map<Long, Snowflake> SNOWFLAKES = new ConcurrentHashMap<Long, Snowflake>();
+
+	private Snowflake snowflake;
+
+	@Override
+	public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+		Object node = serviceRegistry.getService(ConfigurationService.class).getSettings().get(NODE_ID);
+		if (node == null || node.toString().trim().isEmpty()) {
+			throw new MappingException(NODE_ID + " is not set, every instance running against the same database needs its own node id");
+		}
+		long nodeId;
+		try {
+			nodeId = Long.parseLong(node.toString().trim());
+		} catch (NumberFormatException e) {
+			throw new MappingException("Invalid " + NODE_ID + ": " + node, e);
+		}
+		snowflake = SNOWFLAKES.computeIfAbsent(nodeId, id -> {
+			logger.info("Allocating the ids of the node {}", id);
+			return new Snowflake(id);
+		});
+	}
+
+	@Override
+	public Serializable generate(SharedSessionContractImplementor session, Object object) {
+		return snowflake.nextId();
+	}
+
+}
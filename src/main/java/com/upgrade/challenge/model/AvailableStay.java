@@ -0,0 +1,30 @@
+package com.upgrade.challenge.model;
+
+import java.time.LocalDate;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * A stay that can be booked, with the fewest guests still available on any of its days.
+ */
+@Getter
+@Setter
+public class AvailableStay {
+
+	private LocalDate fromDay;
+
+	private LocalDate toDay;
+
+	private Integer availability;
+
+	public AvailableStay() {
+	}
+
+	public AvailableStay(LocalDate fromDay, LocalDate toDay, Integer availability) {
+		this.fromDay = fromDay;
+		this.toDay = toDay;
+		this.availability = availability;
+	}
+
+}
@@ -0,0 +1,35 @@
+package com.upgrade.challenge.model;
+
+import java.io.Serializable;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class BatchOperation implements Serializable {
+
+	private static final long serialVersionUID = -2875436914573284301L;
+
+	private BatchOperationType type;
+
+	/**
+	 * Required to edit or cancel a booking.
+	 */
+	private Long bookingId;
+
+	/**
+	 * Required to create or edit a booking.
+	 */
+	private BookingRequest booking;
+
+	public BatchOperation() {
+	}
+
+	public BatchOperation(BatchOperationType type, Long bookingId, BookingRequest booking) {
+		this.type = type;
+		this.bookingId = bookingId;
+		this.booking = booking;
+	}
+
+}
@@ -0,0 +1,57 @@
+package com.upgrade.challenge.model;
+
+import java.io.Serializable;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchOperationResult implements Serializable {
+
+	private static final long serialVersionUID = 4183725618237457023L;
+
+	private int index;
+
+	private BatchOperationType type;
+
+	private boolean success;
+
+	private BookingResponse booking;
+
+	private String error;
+
+	@JsonIgnore
+	private transient RuntimeException cause;
+
+	public BatchOperationResult() {
+	}
+
+	public BatchOperationResult(int index, BatchOperationType type) {
+		this.index = index;
+		this.type = type;
+	}
+
+	public void succeed(BookingResponse booking) {
+		this.success = true;
+		this.booking = booking;
+		this.error = null;
+	}
+
+	public void fail(String error) {
+		this.success = false;
+		this.booking = null;
+		this.error = error;
+		this.cause = null;
+	}
+
+	public void fail(RuntimeException cause) {
+		fail(cause.getMessage());
+		this.cause = cause;
+	}
+
+}
@@ -0,0 +1,20 @@
+package com.upgrade.challenge.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public enum BatchOperationType {
+
+	@JsonProperty("create")
+	CREATE,
+
+	@JsonProperty("edit")
+	EDIT,
+
+	@JsonProperty("cancel")
+	CANCEL;
+
+	public String getName() {
+		return name().toLowerCase();
+	}
+
+}
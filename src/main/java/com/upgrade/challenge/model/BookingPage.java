@@ -0,0 +1,33 @@
+package com.upgrade.challenge.model;
+
+import java.io.Serializable;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * A page of a booking search, with the cursor to pass as "after" to get the next one, if any.
+ */
+@Getter
+@Setter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BookingPage implements Serializable {
+
+	private static final long serialVersionUID = 5390141826270371862L;
+
+	private List<BookingResponse> bookings;
+
+	private String next;
+
+	public BookingPage() {
+	}
+
+	public BookingPage(List<BookingResponse> bookings, String next) {
+		this.bookings = bookings;
+		this.next = next;
+	}
+
+}
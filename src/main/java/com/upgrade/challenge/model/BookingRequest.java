@@ -9,15 +9,22 @@ import javax.validation.constraints.NotNull;
 
 import org.springframework.format.annotation.DateTimeFormat;
 
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
 
 @Getter
 @Setter
+@EqualsAndHashCode
 public class BookingRequest implements Serializable {
 	
 	private static final long serialVersionUID = -1373136681909845573L;
 
+	/**
+	 * The default campsite if not given.
+	 */
+	private Long campsiteId;
+
 	@NotNull(message = "fromDay is required")
 	@DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
 	private LocalDate fromDay;
@@ -13,6 +13,8 @@ public class BookingResponse implements Serializable {
 	private static final long serialVersionUID = -6984345757381817804L;
 
 	private Long id;
+
+	private Long campsiteId;
 	
 	private LocalDate fromDay;
 	
@@ -40,8 +42,15 @@ public class BookingResponse implements Serializable {
 		this.email = email;
 	}
 	
+	public BookingResponse(Long id, Long campsiteId, LocalDate fromDay, LocalDate toDay, Integer guests,
+			String firstName, String lastName, String email) {
+		this(id, fromDay, toDay, guests, firstName, lastName, email);
+		this.campsiteId = campsiteId;
+	}
+	
 	public BookingResponse(Long id, BookingRequest bookingRequest) {
 		this.id = id;
+		this.campsiteId = bookingRequest.getCampsiteId();
 		this.fromDay = bookingRequest.getFromDay();
 		this.toDay = bookingRequest.getToDay();
 		this.guests = bookingRequest.getGuests();
@@ -50,4 +59,9 @@ public class BookingResponse implements Serializable {
 		this.email = bookingRequest.getEmail();
 	}
 
+	public BookingResponse(Long id, Long campsiteId, BookingRequest bookingRequest) {
+		this(id, bookingRequest);
+		this.campsiteId = campsiteId;
+	}
+
 }
@@ -0,0 +1,35 @@
+package com.upgrade.challenge.model;
+
+import java.time.LocalDate;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+import org.springframework.format.annotation.DateTimeFormat;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class CapacityOverrideRequest {
+
+	@NotNull(message = "fromDay is required")
+	@DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+	private LocalDate fromDay;
+
+	/**
+	 * The first day back to the usual capacity.
+	 */
+	@NotNull(message = "toDay is required")
+	@DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+	private LocalDate toDay;
+
+	@NotNull(message = "capacity is required")
+	@Min(value = 0, message = "capacity should not be negative")
+	private Integer capacity;
+
+	public CapacityOverrideRequest() {
+	}
+
+}
@@ -0,0 +1,32 @@
+package com.upgrade.challenge.model;
+
+import com.upgrade.challenge.exception.InputFormatException;
+
+public enum ExportFormat {
+
+	NDJSON("application/x-ndjson"),
+
+	CSV("text/csv");
+
+	private static final String INVALID_FORMAT_EXCEPTION = "format should be ndjson or csv";
+
+	private final String contentType;
+
+	ExportFormat(String contentType) {
+		this.contentType = contentType;
+	}
+
+	public String getContentType() {
+		return contentType;
+	}
+
+	public static ExportFormat of(String format) {
+		for (ExportFormat exportFormat : values()) {
+			if (exportFormat.name().equalsIgnoreCase(format)) {
+				return exportFormat;
+			}
+		}
+		throw new InputFormatException(INVALID_FORMAT_EXCEPTION);
+	}
+
+}
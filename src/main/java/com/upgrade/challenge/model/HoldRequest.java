@@ -0,0 +1,37 @@
+package com.upgrade.challenge.model;
+
+import java.time.LocalDate;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+import org.springframework.format.annotation.DateTimeFormat;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class HoldRequest {
+
+	/**
+	 * The default campsite if not given.
+	 */
+	private Long campsiteId;
+
+	@NotNull(message = "fromDay is required")
+	@DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+	private LocalDate fromDay;
+
+	@NotNull(message = "toDay is required")
+	@DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+	private LocalDate toDay;
+
+	@NotNull(message = "guests is required")
+	@Min(value = 1, message = "guests should be a positive number")
+	private Integer guests;
+
+	public HoldRequest() {
+	}
+
+}
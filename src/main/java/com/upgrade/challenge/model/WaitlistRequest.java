@@ -0,0 +1,22 @@
+package com.upgrade.challenge.model;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@EqualsAndHashCode(callSuper = true)
+public class WaitlistRequest extends BookingRequest {
+
+	private static final long serialVersionUID = 4127006911722617436L;
+
+	/**
+	 * Book the stay as soon as it is available, instead of being notified.
+	 */
+	private boolean autoBook;
+
+	public WaitlistRequest() {
+	}
+
+}
@@ -0,0 +1,25 @@
+package com.upgrade.challenge.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public enum WaitlistStatus {
+
+	/**
+	 * Waiting for the stay to become available.
+	 */
+	@JsonProperty("waiting")
+	WAITING,
+
+	/**
+	 * Booked on behalf of the guest.
+	 */
+	@JsonProperty("booked")
+	BOOKED,
+
+	/**
+	 * Told the stay became available, to book it.
+	 */
+	@JsonProperty("notified")
+	NOTIFIED;
+
+}
@@ -5,9 +5,14 @@ import java.time.LocalDate;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.persistence.Version;
 
+import org.hibernate.annotations.GenericGenerator;
+
+import com.upgrade.challenge.id.SnowflakeIdGenerator;
 import com.upgrade.challenge.model.BookingRequest;
 import com.upgrade.challenge.model.BookingResponse;
 
@@ -17,11 +22,17 @@ import lombok.Setter;
 @Getter
 @Setter
 @Entity
+@Table(indexes = { @Index(name = "idx_booking_email", columnList = "campsiteId, email, id"),
+		@Index(name = "idx_booking_from_day", columnList = "campsiteId, fromDay, id") })
 public class Booking {
 	
 	@Id
-	@GeneratedValue(strategy = GenerationType.AUTO)
+	@GeneratedValue(generator = "snowflake")
+	@GenericGenerator(name = "snowflake", strategy = SnowflakeIdGenerator.STRATEGY)
 	private Long id;
+
+	@Column(nullable = false)
+	private Long campsiteId;
 	
 	@Column
 	private LocalDate fromDay;
@@ -40,10 +51,16 @@ public class Booking {
 	
 	@Column
 	private String email;
+
+	// An edit only writes the occupation of the days it changes, so two edits or an edit and a cancel of the same
+	// booking can touch disjoint days: the version makes the later of them fail and retry on the stored booking.
+	@Version
+	private Long version;
 	
 	public Booking() {}
 
-	public Booking(BookingRequest bookingRequest) {
+	public Booking(Long campsiteId, BookingRequest bookingRequest) {
+		this.campsiteId = campsiteId;
 		this.fromDay = bookingRequest.getFromDay();
 		this.toDay = bookingRequest.getToDay();
 		this.guests = bookingRequest.getGuests();
@@ -54,6 +71,7 @@ public class Booking {
 
 	public Booking(BookingResponse bookingResponse) {
 		this.id = bookingResponse.getId();
+		this.campsiteId = bookingResponse.getCampsiteId();
 		this.fromDay = bookingResponse.getFromDay();
 		this.toDay = bookingResponse.getToDay();
 		this.guests = bookingResponse.getGuests();
@@ -0,0 +1,55 @@
+package com.upgrade.challenge.model.dto;
+
+import java.time.LocalDate;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+import org.hibernate.annotations.GenericGenerator;
+
+import com.upgrade.challenge.id.SnowflakeIdGenerator;
+import com.upgrade.challenge.model.CapacityOverrideRequest;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * The capacity of a campsite between fromDay (inclusive) and toDay (exclusive), replacing its usual capacity.
+ */
+@Getter
+@Setter
+@Entity
+@Table(indexes = @Index(name = "idx_capacity_override_campsite", columnList = "campsiteId, id"))
+public class CapacityOverride {
+
+	@Id
+	@GeneratedValue(generator = "snowflake")
+	@GenericGenerator(name = "snowflake", strategy = SnowflakeIdGenerator.STRATEGY)
+	private Long id;
+
+	@Column(nullable = false)
+	private Long campsiteId;
+
+	@Column(nullable = false)
+	private LocalDate fromDay;
+
+	@Column(nullable = false)
+	private LocalDate toDay;
+
+	@Column(nullable = false)
+	private Integer capacity;
+
+	public CapacityOverride() {}
+
+	public CapacityOverride(Long campsiteId, CapacityOverrideRequest request) {
+		this.campsiteId = campsiteId;
+		this.fromDay = request.getFromDay();
+		this.toDay = request.getToDay();
+		this.capacity = request.getCapacity();
+	}
+
+}
@@ -5,11 +5,16 @@ import java.time.LocalDate;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
 import javax.persistence.Version;
 
+import org.hibernate.annotations.GenericGenerator;
+
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.upgrade.challenge.campsite.Campsite;
+import com.upgrade.challenge.id.SnowflakeIdGenerator;
 
 import lombok.Getter;
 import lombok.Setter;
@@ -17,13 +22,18 @@ import lombok.Setter;
 @Getter
 @Setter
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_daily_occupation_campsite_date", columnNames = { "campsiteId", "date" }))
 public class DailyOccupation {
 
 	@Id
-	@GeneratedValue(strategy = GenerationType.AUTO)
-	private Integer id;
+	@GeneratedValue(generator = "snowflake")
+	@GenericGenerator(name = "snowflake", strategy = SnowflakeIdGenerator.STRATEGY)
+	private Long id;
+
+	@Column(nullable = false)
+	private Long campsiteId;
 	
-	@Column(unique = true)
+	@Column
 	private LocalDate date;
 	
 	@Column
@@ -35,7 +45,15 @@ public class DailyOccupation {
 
 	public DailyOccupation() {}
 	
+	/**
+	 * The occupation of a day of the default campsite.
+	 */
 	public DailyOccupation(LocalDate date, Integer guests) {
+		this(Campsite.DEFAULT_ID, date, guests);
+	}
+
+	public DailyOccupation(Long campsiteId, LocalDate date, Integer guests) {
+		this.campsiteId = campsiteId;
 		this.date = date;
 		this.guests = guests;
 	}
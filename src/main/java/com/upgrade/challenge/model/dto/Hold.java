@@ -0,0 +1,69 @@
+package com.upgrade.challenge.model.dto;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.persistence.Version;
+
+import org.hibernate.annotations.GenericGenerator;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.upgrade.challenge.id.SnowflakeIdGenerator;
+import com.upgrade.challenge.model.HoldRequest;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Guests of a campsite between fromDay (inclusive) and toDay (exclusive) blocked until expiresAt, while the
+ * booking is being completed. The version keeps the expiry from releasing a hold that is being confirmed.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "booking_hold", indexes = { @Index(name = "idx_booking_hold_campsite", columnList = "campsiteId, id"),
+		@Index(name = "idx_booking_hold_expires_at", columnList = "campsiteId, expiresAt") })
+public class Hold {
+
+	@Id
+	@GeneratedValue(generator = "snowflake")
+	@GenericGenerator(name = "snowflake", strategy = SnowflakeIdGenerator.STRATEGY)
+	private Long id;
+
+	@Column(nullable = false)
+	private Long campsiteId;
+
+	@Column(nullable = false)
+	private LocalDate fromDay;
+
+	@Column(nullable = false)
+	private LocalDate toDay;
+
+	@Column(nullable = false)
+	private Integer guests;
+
+	// Truncated to milliseconds when placed, so the expiry returned is the one stored and compared by the queries.
+	@Column(nullable = false)
+	private Instant expiresAt;
+
+	@JsonIgnore
+	@Version
+	private Integer version;
+
+	public Hold() {}
+
+	public Hold(Long campsiteId, HoldRequest request, Instant expiresAt) {
+		this.campsiteId = campsiteId;
+		this.fromDay = request.getFromDay();
+		this.toDay = request.getToDay();
+		this.guests = request.getGuests();
+		this.expiresAt = expiresAt;
+	}
+
+}
@@ -0,0 +1,24 @@
+package com.upgrade.challenge.model.dto;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Single row the primary updates every heartbeat, read on the replica to measure how far it has caught up.
+ */
+@Getter
+@Setter
+@Entity
+public class ReplicationHeartbeat {
+
+	@Id
+	private Long id;
+
+	@Column
+	private long beat;
+
+}
@@ -0,0 +1,108 @@
+package com.upgrade.challenge.model.dto;
+
+import java.time.LocalDate;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.persistence.Version;
+
+import org.hibernate.annotations.GenericGenerator;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.upgrade.challenge.id.SnowflakeIdGenerator;
+import com.upgrade.challenge.model.BookingRequest;
+import com.upgrade.challenge.model.WaitlistRequest;
+import com.upgrade.challenge.model.WaitlistStatus;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * A stay of a campsite waited for until it becomes available, served in the order the entries were added.
+ * The version keeps an entry from being served twice.
+ */
+@Getter
+@Setter
+@Entity
+@Table(indexes = @Index(name = "idx_waitlist_entry_status", columnList = "campsiteId, status, fromDay"))
+public class WaitlistEntry {
+
+	@Id
+	@GeneratedValue(generator = "snowflake")
+	@GenericGenerator(name = "snowflake", strategy = SnowflakeIdGenerator.STRATEGY)
+	private Long id;
+
+	@Column(nullable = false)
+	private Long campsiteId;
+
+	@Column(nullable = false)
+	private LocalDate fromDay;
+
+	@Column(nullable = false)
+	private LocalDate toDay;
+
+	@Column(nullable = false)
+	private Integer guests;
+
+	@Column
+	private String firstName;
+
+	@Column
+	private String lastName;
+
+	@Column
+	private String email;
+
+	@Column(nullable = false)
+	private boolean autoBook;
+
+	@Enumerated(EnumType.STRING)
+	@Column(nullable = false)
+	private WaitlistStatus status;
+
+	/**
+	 * The booking made for the entry, once booked.
+	 */
+	@Column
+	private Long bookingId;
+
+	@JsonIgnore
+	@Version
+	private Integer version;
+
+	public WaitlistEntry() {}
+
+	public WaitlistEntry(Long campsiteId, WaitlistRequest request) {
+		this.campsiteId = campsiteId;
+		this.fromDay = request.getFromDay();
+		this.toDay = request.getToDay();
+		this.guests = request.getGuests();
+		this.firstName = request.getFirstName();
+		this.lastName = request.getLastName();
+		this.email = request.getEmail();
+		this.autoBook = request.isAutoBook();
+		this.status = WaitlistStatus.WAITING;
+	}
+
+	/**
+	 * The booking of the waited stay.
+	 */
+	public BookingRequest toBookingRequest() {
+		BookingRequest bookingRequest = new BookingRequest();
+		bookingRequest.setCampsiteId(campsiteId);
+		bookingRequest.setFromDay(fromDay);
+		bookingRequest.setToDay(toDay);
+		bookingRequest.setGuests(guests);
+		bookingRequest.setFirstName(firstName);
+		bookingRequest.setLastName(lastName);
+		bookingRequest.setEmail(email);
+		return bookingRequest;
+	}
+
+}
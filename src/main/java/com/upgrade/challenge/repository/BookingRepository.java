@@ -1,11 +1,87 @@
 package com.upgrade.challenge.repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.upgrade.challenge.model.BookingResponse;
 import com.upgrade.challenge.model.dto.Booking;
 
 @Repository
 public interface BookingRepository extends CrudRepository<Booking, Long> {
 
+	/**
+	 * Rows fetched per round trip by the exports.
+	 */
+	String EXPORT_FETCH_SIZE = "500";
+
+	/**
+	 * Find the booking with the given id if it belongs to the campsite.
+	 * @param id
+	 * @param campsiteId
+	 */
+	Optional<Booking> findByIdAndCampsiteId(Long id, Long campsiteId);
+
+	/**
+	 * Find the bookings of the campsite with the given ids.
+	 * @param ids
+	 * @param campsiteId
+	 */
+	List<Booking> findAllByIdInAndCampsiteId(Collection<Long> ids, Long campsiteId);
+
+	/**
+	 * Find the bookings of an email in a campsite with an id greater than the given one, ordered by id.
+	 * @param campsiteId
+	 * @param email
+	 * @param afterId
+	 * @param pageable the max bookings to return
+	 */
+	@Query("select b from Booking b where b.campsiteId = :campsiteId and b.email = :email and b.id > :afterId order by b.id")
+	List<Booking> findByEmailAfter(@Param("campsiteId") Long campsiteId, @Param("email") String email,
+			@Param("afterId") Long afterId, Pageable pageable);
+
+	/**
+	 * Find the bookings of a campsite staying between from (inclusive) and to (exclusive) that come after the given
+	 * arrival and id, ordered by arrival and id. The arrivals are bounded from firstFromDay so that the index is used.
+	 * @param campsiteId
+	 * @param from
+	 * @param to
+	 * @param firstFromDay the earliest arrival of a booking staying on from
+	 * @param afterFromDay
+	 * @param afterId
+	 * @param pageable the max bookings to return
+	 */
+	@Query("select b from Booking b where b.campsiteId = :campsiteId and b.fromDay >= :firstFromDay and b.fromDay < :to"
+			+ " and b.toDay > :from and (b.fromDay > :afterFromDay or (b.fromDay = :afterFromDay and b.id > :afterId))"
+			+ " order by b.fromDay, b.id")
+	List<Booking> findStaysAfter(@Param("campsiteId") Long campsiteId, @Param("from") LocalDate from, @Param("to") LocalDate to,
+			@Param("firstFromDay") LocalDate firstFromDay, @Param("afterFromDay") LocalDate afterFromDay,
+			@Param("afterId") Long afterId, Pageable pageable);
+
+	/**
+	 * Stream the bookings of a campsite staying between from (inclusive) and to (exclusive), ordered by arrival
+	 * and id, as they are fetched. It has to be consumed and closed within a transaction.
+	 * @param campsiteId
+	 * @param from
+	 * @param to
+	 * @param firstFromDay the earliest arrival of a booking staying on from
+	 */
+	@QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE))
+	@Query("select new com.upgrade.challenge.model.BookingResponse(b.id, b.campsiteId, b.fromDay, b.toDay, b.guests,"
+			+ " b.firstName, b.lastName, b.email) from Booking b where b.campsiteId = :campsiteId"
+			+ " and b.fromDay >= :firstFromDay and b.fromDay < :to and b.toDay > :from order by b.fromDay, b.id")
+	Stream<BookingResponse> streamStays(@Param("campsiteId") Long campsiteId, @Param("from") LocalDate from, @Param("to") LocalDate to,
+			@Param("firstFromDay") LocalDate firstFromDay);
+
 }
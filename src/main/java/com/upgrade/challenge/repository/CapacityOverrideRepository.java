@@ -0,0 +1,27 @@
+package com.upgrade.challenge.repository;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+
+import com.upgrade.challenge.model.dto.CapacityOverride;
+
+@Repository
+public interface CapacityOverrideRepository extends CrudRepository<CapacityOverride, Long> {
+
+	/**
+	 * Find the capacity overrides of a campsite in the order they were created.
+	 * @param campsiteId
+	 */
+	List<CapacityOverride> findAllByCampsiteIdOrderByIdAsc(Long campsiteId);
+
+	/**
+	 * Find the capacity override with the given id if it belongs to the campsite.
+	 * @param id
+	 * @param campsiteId
+	 */
+	Optional<CapacityOverride> findByIdAndCampsiteId(Long id, Long campsiteId);
+
+}
@@ -1,9 +1,16 @@
 package com.upgrade.challenge.repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
+import javax.persistence.LockModeType;
+
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.upgrade.challenge.model.dto.DailyOccupation;
@@ -12,26 +19,85 @@ import com.upgrade.challenge.model.dto.DailyOccupation;
 public interface DailyOccupationRepository extends CrudRepository<DailyOccupation, Long>{
 
 	/**
-	 * Returns true if there is any date with not enough availability for the amount of guests.
+	 * Returns true if there is any date of the campsite with not enough availability for the amount of guests.
+	 * @param campsiteId
 	 * @param from
 	 * @param to
 	 * @param guests
 	 */
-	Boolean existsByDateBetweenAndGuestsGreaterThan(LocalDate from, LocalDate to, Integer guests);
+	Boolean existsByCampsiteIdAndDateBetweenAndGuestsGreaterThan(Long campsiteId, LocalDate from, LocalDate to, Integer guests);
 
 	/**
-	 * Find the Daily Availability for a date interval.
+	 * Find the Daily Availability of a campsite for a date interval.
+	 * @param campsiteId
 	 * @param from
 	 * @param to
 	 */
-	List<DailyOccupation> findAllByDateBetween(LocalDate from, LocalDate to);
+	List<DailyOccupation> findAllByCampsiteIdAndDateBetween(Long campsiteId, LocalDate from, LocalDate to);
 
 	/**
-	 * Find the Daily Availability for a date interval ordered by date asc.
+	 * Find the Daily Availability of a campsite for a date interval ordered by date asc.
+	 * @param campsiteId
 	 * @param from
 	 * @param to
 	 * @return
 	 */
-	List<DailyOccupation> findAllByDateBetweenOrderByDateAsc(LocalDate from, LocalDate to);
+	List<DailyOccupation> findAllByCampsiteIdAndDateBetweenOrderByDateAsc(Long campsiteId, LocalDate from, LocalDate to);
+
+	/**
+	 * Find the Daily Availability of several campsites for a date interval ordered by campsite and date asc.
+	 * @param campsiteIds
+	 * @param from
+	 * @param to
+	 */
+	List<DailyOccupation> findAllByCampsiteIdInAndDateBetweenOrderByCampsiteIdAscDateAsc(Collection<Long> campsiteIds,
+			LocalDate from, LocalDate to);
+
+	/**
+	 * Count the days of a date interval of a campsite that already have an occupation row.
+	 * @param campsiteId
+	 * @param from
+	 * @param to
+	 */
+	long countByCampsiteIdAndDateBetween(Long campsiteId, LocalDate from, LocalDate to);
+
+	/**
+	 * Lock the occupation rows of a date interval of a campsite in date order, until the end of the transaction.
+	 * Returns their ids.
+	 * @param campsiteId
+	 * @param from
+	 * @param to
+	 */
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("select d.id from DailyOccupation d where d.campsiteId = :campsiteId and d.date between :from and :to order by d.date")
+	List<Long> lock(@Param("campsiteId") Long campsiteId, @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+	/**
+	 * Add the guests to every day of the interval of the campsite that can still hold them.
+	 * Returns the amount of updated days, which is lower than the days of the interval if any of them is full.
+	 * @param campsiteId
+	 * @param from
+	 * @param to
+	 * @param guests
+	 * @param maxGuests the maximum occupation a day can have before adding the guests
+	 */
+	@Modifying
+	@Query("update DailyOccupation d set d.guests = d.guests + :guests, d.version = d.version + 1"
+			+ " where d.campsiteId = :campsiteId and d.date between :from and :to and d.guests <= :maxGuests")
+	int reserve(@Param("campsiteId") Long campsiteId, @Param("from") LocalDate from, @Param("to") LocalDate to,
+			@Param("guests") Integer guests, @Param("maxGuests") Integer maxGuests);
+
+	/**
+	 * Remove the guests from every day of the interval of the campsite.
+	 * @param campsiteId
+	 * @param from
+	 * @param to
+	 * @param guests
+	 */
+	@Modifying
+	@Query("update DailyOccupation d set d.guests = d.guests - :guests, d.version = d.version + 1"
+			+ " where d.campsiteId = :campsiteId and d.date between :from and :to")
+	int release(@Param("campsiteId") Long campsiteId, @Param("from") LocalDate from, @Param("to") LocalDate to,
+			@Param("guests") Integer guests);
 
 }
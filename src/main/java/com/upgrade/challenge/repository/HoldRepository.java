@@ -0,0 +1,48 @@
+package com.upgrade.challenge.repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.upgrade.challenge.model.dto.Hold;
+
+@Repository
+public interface HoldRepository extends CrudRepository<Hold, Long> {
+
+	/**
+	 * Find the hold with the given id if it belongs to the campsite.
+	 * @param id
+	 * @param campsiteId
+	 */
+	Optional<Hold> findByIdAndCampsiteId(Long id, Long campsiteId);
+
+	/**
+	 * Find the holds of the campsite with the given ids.
+	 * @param ids
+	 * @param campsiteId
+	 */
+	List<Hold> findAllByIdInAndCampsiteId(Collection<Long> ids, Long campsiteId);
+
+	/**
+	 * Find every hold of the campsite.
+	 * @param campsiteId
+	 */
+	List<Hold> findAllByCampsiteId(Long campsiteId);
+
+	/**
+	 * Find the ids of the holds of the campsite expired before the given instant, the oldest first.
+	 * @param campsiteId
+	 * @param before
+	 * @param pageable
+	 */
+	@Query("select h.id from Hold h where h.campsiteId = :campsiteId and h.expiresAt < :before order by h.expiresAt")
+	List<Long> findIdsExpiredBefore(@Param("campsiteId") Long campsiteId, @Param("before") Instant before, Pageable pageable);
+
+}
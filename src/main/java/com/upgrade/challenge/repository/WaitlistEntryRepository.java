@@ -0,0 +1,31 @@
+package com.upgrade.challenge.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+
+import com.upgrade.challenge.model.WaitlistStatus;
+import com.upgrade.challenge.model.dto.WaitlistEntry;
+
+@Repository
+public interface WaitlistEntryRepository extends CrudRepository<WaitlistEntry, Long> {
+
+	/**
+	 * Find the waitlist entry with the given id if it belongs to the campsite.
+	 * @param id
+	 * @param campsiteId
+	 */
+	Optional<WaitlistEntry> findByIdAndCampsiteId(Long id, Long campsiteId);
+
+	/**
+	 * Find the entries of the campsite in the given status arriving after the given day.
+	 * @param campsiteId
+	 * @param status
+	 * @param day
+	 */
+	List<WaitlistEntry> findAllByCampsiteIdAndStatusAndFromDayAfter(Long campsiteId, WaitlistStatus status, LocalDate day);
+
+}
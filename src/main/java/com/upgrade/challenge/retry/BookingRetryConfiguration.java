@@ -0,0 +1,103 @@
+package com.upgrade.challenge.retry;
+
+import java.sql.BatchUpdateException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.retry.RetryListener;
+import org.springframework.retry.backoff.NoBackOffPolicy;
+import org.springframework.retry.interceptor.RetryInterceptorBuilder;
+import org.springframework.retry.interceptor.RetryOperationsInterceptor;
+import org.springframework.retry.policy.SimpleRetryPolicy;
+import org.springframework.retry.support.RetryTemplate;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Retry interceptor of the booking operations, referenced by name from their {@code @Retryable}.
+ * "immediate" retries the max attempts without pause, "adaptive" backs off with decorrelated jitter
+ * within a time budget and allows fewer attempts when the recent conflict rate is high.
+ */
+@Configuration
+public class BookingRetryConfiguration {
+
+	public static final String INTERCEPTOR = "bookingRetryInterceptor";
+
+	private static final String IMMEDIATE_POLICY = "immediate";
+
+	@Value("${volcano.retry_policy:immediate}")
+	private String policy;
+
+	@Value("${volcano.retry_max_attempts:10}")
+	private int maxAttempts;
+
+	@Value("${volcano.retry_min_attempts:5}")
+	private int minAttempts;
+
+	@Value("${volcano.retry_initial_backoff_ms:5}")
+	private long initialBackOff;
+
+	@Value("${volcano.retry_max_backoff_ms:200}")
+	private long maxBackOff;
+
+	@Value("${volcano.retry_time_budget_ms:10000}")
+	private long timeBudget;
+
+	@Value("${volcano.retry_conflict_rate_threshold:0.5}")
+	private double conflictRateThreshold;
+
+	@Value("${volcano.retry_conflict_window_seconds:10}")
+	private int conflictWindowSeconds;
+
+	/**
+	 * A named interceptor does not get the listeners spring-retry applies to the annotated methods, so they are set here.
+	 */
+	@Autowired(required = false)
+	private List<RetryListener> listeners = Collections.emptyList();
+
+	@Autowired
+	private ObjectProvider<MeterRegistry> meterRegistry;
+
+	@Bean(name = INTERCEPTOR)
+	public RetryOperationsInterceptor bookingRetryInterceptor() {
+		RetryTemplate retryTemplate = new RollbackFailureRetryTemplate();
+		if (IMMEDIATE_POLICY.equalsIgnoreCase(policy)) {
+			retryTemplate.setRetryPolicy(new SimpleRetryPolicy(maxAttempts, retryableExceptions()));
+			retryTemplate.setBackOffPolicy(new NoBackOffPolicy());
+		} else {
+			ConflictAwareRetryPolicy retryPolicy = new ConflictAwareRetryPolicy(retryableExceptions(), minAttempts,
+					maxAttempts, timeBudget, conflictRateThreshold, conflictWindowSeconds);
+			retryTemplate.setRetryPolicy(retryPolicy);
+			retryTemplate.setBackOffPolicy(new DecorrelatedJitterBackOffPolicy(initialBackOff, maxBackOff));
+			meterRegistry.ifAvailable(registry -> {
+				Gauge.builder("volcano.booking.retry.limit", retryPolicy, ConflictAwareRetryPolicy::getCurrentMaxAttempts)
+						.register(registry);
+				Gauge.builder("volcano.booking.retry.conflict_rate", retryPolicy, ConflictAwareRetryPolicy::getConflictRate)
+						.register(registry);
+			});
+		}
+		retryTemplate.setListeners(listeners.toArray(new RetryListener[listeners.size()]));
+		return RetryInterceptorBuilder.stateless().retryOperations(retryTemplate).build();
+	}
+
+	private static Map<Class<? extends Throwable>, Boolean> retryableExceptions() {
+		Map<Class<? extends Throwable>, Boolean> retryableExceptions = new HashMap<Class<? extends Throwable>, Boolean>();
+		retryableExceptions.put(BatchUpdateException.class, true);
+		retryableExceptions.put(DataIntegrityViolationException.class, true);
+		retryableExceptions.put(ObjectOptimisticLockingFailureException.class, true);
+		retryableExceptions.put(PessimisticLockingFailureException.class, true);
+		return retryableExceptions;
+	}
+
+}
@@ -0,0 +1,113 @@
+package com.upgrade.challenge.retry;
+
+import java.util.Map;
+
+import org.springframework.classify.BinaryExceptionClassifier;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.RetryPolicy;
+import org.springframework.retry.context.RetryContextSupport;
+
+/**
+ * Retries the conflicts within a time budget, up to a number of attempts that shrinks from the max
+ * to the min as the share of conflicting attempts of the last seconds grows from the threshold to 1.
+ * When a date is hot, fewer attempts are spent on calls that are likely to conflict again.
+ */
+public class ConflictAwareRetryPolicy implements RetryPolicy {
+
+	private final BinaryExceptionClassifier retryableClassifier;
+
+	private final int minAttempts;
+
+	private final int maxAttempts;
+
+	private final long timeBudget;
+
+	private final double conflictRateThreshold;
+
+	private final ConflictWindow conflictWindow;
+
+	/**
+	 * @param retryableExceptions the conflicts to retry
+	 * @param minAttempts attempts allowed when every attempt conflicts
+	 * @param maxAttempts attempts allowed without conflicts
+	 * @param timeBudget max milliseconds from the first attempt to start another one
+	 * @param conflictRateThreshold share of conflicting attempts from which fewer attempts are allowed
+	 * @param windowSeconds seconds over which the conflict rate is measured
+	 */
+	public ConflictAwareRetryPolicy(Map<Class<? extends Throwable>, Boolean> retryableExceptions, int minAttempts,
+			int maxAttempts, long timeBudget, double conflictRateThreshold, int windowSeconds) {
+		this(retryableExceptions, minAttempts, maxAttempts, timeBudget, conflictRateThreshold, new ConflictWindow(windowSeconds));
+	}
+
+	ConflictAwareRetryPolicy(Map<Class<? extends Throwable>, Boolean> retryableExceptions, int minAttempts,
+			int maxAttempts, long timeBudget, double conflictRateThreshold, ConflictWindow conflictWindow) {
+		this.retryableClassifier = new BinaryExceptionClassifier(retryableExceptions, false);
+		this.minAttempts = Math.max(minAttempts, 1);
+		this.maxAttempts = Math.max(maxAttempts, this.minAttempts);
+		this.timeBudget = timeBudget;
+		this.conflictRateThreshold = conflictRateThreshold;
+		this.conflictWindow = conflictWindow;
+	}
+
+	@Override
+	public boolean canRetry(RetryContext context) {
+		Throwable throwable = context.getLastThrowable();
+		if (throwable == null) {
+			return true;
+		}
+		if (!retryableClassifier.classify(throwable)) {
+			return false;
+		}
+		if (System.currentTimeMillis() - ((BudgetRetryContext) context).start > timeBudget) {
+			return false;
+		}
+		return context.getRetryCount() < getCurrentMaxAttempts();
+	}
+
+	@Override
+	public RetryContext open(RetryContext parent) {
+		conflictWindow.call();
+		return new BudgetRetryContext(parent);
+	}
+
+	@Override
+	public void close(RetryContext context) {
+	}
+
+	@Override
+	public void registerThrowable(RetryContext context, Throwable throwable) {
+		((BudgetRetryContext) context).registerThrowable(throwable);
+		if (throwable != null && retryableClassifier.classify(throwable)) {
+			conflictWindow.conflict();
+		}
+	}
+
+	/**
+	 * The attempts allowed to a call starting now.
+	 */
+	public int getCurrentMaxAttempts() {
+		double excess = getConflictRate() - conflictRateThreshold;
+		double pressure = excess <= 0 ? 0 : conflictRateThreshold >= 1 ? 1 : excess / (1 - conflictRateThreshold);
+		return (int) Math.round(maxAttempts - (maxAttempts - minAttempts) * pressure);
+	}
+
+	/**
+	 * Share of the recent attempts that ended with a conflict.
+	 */
+	public double getConflictRate() {
+		return conflictWindow.rate();
+	}
+
+	private static class BudgetRetryContext extends RetryContextSupport {
+
+		private static final long serialVersionUID = 1L;
+
+		private final long start = System.currentTimeMillis();
+
+		private BudgetRetryContext(RetryContext parent) {
+			super(parent);
+		}
+
+	}
+
+}
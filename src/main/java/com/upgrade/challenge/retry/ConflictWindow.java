@@ -0,0 +1,70 @@
+package com.upgrade.challenge.retry;
+
+/**
+ * Calls and conflicting attempts of the last seconds, kept in one bucket per second.
+ */
+class ConflictWindow {
+
+	/**
+	 * Attempts below which the window is too small to tell a conflict rate.
+	 */
+	static final int MIN_ATTEMPTS = 20;
+
+	private final long[] seconds;
+
+	private final long[] calls;
+
+	private final long[] conflicts;
+
+	/**
+	 * @param windowSeconds number of seconds taken into account
+	 */
+	ConflictWindow(int windowSeconds) {
+		int length = Math.max(windowSeconds, 1);
+		seconds = new long[length];
+		calls = new long[length];
+		conflicts = new long[length];
+	}
+
+	synchronized void call() {
+		calls[bucket()]++;
+	}
+
+	synchronized void conflict() {
+		conflicts[bucket()]++;
+	}
+
+	/**
+	 * Share of the attempts of the window that ended with a conflict, each call being a first attempt
+	 * and each conflict causing one more. 0 while there are too few attempts.
+	 */
+	synchronized double rate() {
+		long now = currentSecond();
+		long totalCalls = 0;
+		long totalConflicts = 0;
+		for (int i = 0; i < seconds.length; i++) {
+			if (now - seconds[i] < seconds.length) {
+				totalCalls += calls[i];
+				totalConflicts += conflicts[i];
+			}
+		}
+		long attempts = totalCalls + totalConflicts;
+		return attempts < MIN_ATTEMPTS ? 0 : (double) totalConflicts / attempts;
+	}
+
+	private int bucket() {
+		long now = currentSecond();
+		int bucket = (int) (now % seconds.length);
+		if (seconds[bucket] != now) {
+			seconds[bucket] = now;
+			calls[bucket] = 0;
+			conflicts[bucket] = 0;
+		}
+		return bucket;
+	}
+
+	long currentSecond() {
+		return System.currentTimeMillis() / 1000;
+	}
+
+}
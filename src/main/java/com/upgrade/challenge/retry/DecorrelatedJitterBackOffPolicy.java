@@ -0,0 +1,75 @@
+package com.upgrade.challenge.retry;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.backoff.BackOffContext;
+import org.springframework.retry.backoff.BackOffInterruptedException;
+import org.springframework.retry.backoff.BackOffPolicy;
+import org.springframework.retry.backoff.Sleeper;
+import org.springframework.retry.backoff.ThreadWaitSleeper;
+
+/**
+ * Exponential back off with decorrelated jitter: each pause is drawn between the initial interval and three
+ * times the previous pause, capped by the max interval. Contending calls spread over time instead of
+ * retrying against the same rows in lockstep.
+ */
+public class DecorrelatedJitterBackOffPolicy implements BackOffPolicy {
+
+	private final long initialInterval;
+
+	private final long maxInterval;
+
+	private Sleeper sleeper = new ThreadWaitSleeper();
+
+	/**
+	 * @param initialInterval min pause in milliseconds
+	 * @param maxInterval max pause in milliseconds
+	 */
+	public DecorrelatedJitterBackOffPolicy(long initialInterval, long maxInterval) {
+		this.initialInterval = Math.max(initialInterval, 1);
+		this.maxInterval = Math.max(maxInterval, this.initialInterval);
+	}
+
+	@Override
+	public BackOffContext start(RetryContext context) {
+		return new JitterBackOffContext(initialInterval);
+	}
+
+	@Override
+	public void backOff(BackOffContext backOffContext) throws BackOffInterruptedException {
+		JitterBackOffContext context = (JitterBackOffContext) backOffContext;
+		context.interval = nextInterval(context.interval);
+		try {
+			sleeper.sleep(context.interval);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new BackOffInterruptedException("Thread interrupted while sleeping", e);
+		}
+	}
+
+	public void setSleeper(Sleeper sleeper) {
+		this.sleeper = sleeper;
+	}
+
+	long nextInterval(long previousInterval) {
+		long upper = Math.min(maxInterval, previousInterval * 3);
+		if (upper <= initialInterval) {
+			return initialInterval;
+		}
+		return ThreadLocalRandom.current().nextLong(initialInterval, upper + 1);
+	}
+
+	private static class JitterBackOffContext implements BackOffContext {
+
+		private static final long serialVersionUID = 1L;
+
+		private long interval;
+
+		private JitterBackOffContext(long interval) {
+			this.interval = interval;
+		}
+
+	}
+
+}
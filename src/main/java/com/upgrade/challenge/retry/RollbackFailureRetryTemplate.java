@@ -0,0 +1,33 @@
+package com.upgrade.challenge.retry;
+
+import org.springframework.retry.ExhaustedRetryException;
+import org.springframework.retry.RecoveryCallback;
+import org.springframework.retry.RetryCallback;
+import org.springframework.retry.RetryState;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.transaction.TransactionSystemException;
+
+/**
+ * Retry template that sees the exception failing an attempt even when the rollback that follows fails too.
+ * The pool closes a connection whose statement timed out, as H2 reports its lock timeouts, so the rollback
+ * of the attempt fails and the transaction manager throws its own exception carrying the conflict. The
+ * closed connection is rolled back by the DB, so the conflict is rethrown to be retried like any other.
+ */
+public class RollbackFailureRetryTemplate extends RetryTemplate {
+
+	@Override
+	protected <T, E extends Throwable> T doExecute(RetryCallback<T, E> retryCallback,
+			RecoveryCallback<T> recoveryCallback, RetryState state) throws E, ExhaustedRetryException {
+		return super.doExecute(context -> {
+			try {
+				return retryCallback.doWithRetry(context);
+			} catch (TransactionSystemException e) {
+				if (e.getApplicationException() instanceof RuntimeException) {
+					throw (RuntimeException) e.getApplicationException();
+				}
+				throw e;
+			}
+		}, recoveryCallback, state);
+	}
+
+}
@@ -0,0 +1,265 @@
+package com.upgrade.challenge.sequencer;
+
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import com.upgrade.challenge.exception.OverloadedException;
+
+/**
+ * Single writer per date stripe: the days are grouped in stripes of consecutive days, each stripe is owned by one
+ * consumer thread draining a bounded queue, and the booking mutations run on the consumer of the days they touch.
+ * The mutations of the same days are then applied one after the other, so they do not collide on the occupation rows.
+ * The stripes of a campsite are shifted by its id, so the same days of consecutive campsites go to different
+ * consumers.
+ * <p>
+ * A mutation touching several stripes is queued on all of them at once, in stripe order, and runs on the first one
+ * once the others have reached it and wait for it. As these mutations are queued under a lock, every queue holds them
+ * in the same order and they cannot wait for each other.
+ * <p>
+ * A caller waits at most volcano.sequencer_offer_timeout_ms for room in a queue and volcano.sequencer_timeout_ms for
+ * for its result, then gets an {@link OverloadedException} if the command has not started yet, and the command is
+ * skipped. A command already running is waited for, as it may commit.
+ */
+@Component
+@ManagedResource(objectName = "volcano:type=OccupationSequencer")
+public class OccupationSequencer {
+
+	@Value("${volcano.sequencer_enabled:false}")
+	private boolean enabled;
+
+	@Value("${volcano.sequencer_stripes:4}")
+	private int stripes;
+
+	@Value("${volcano.sequencer_stripe_days:7}")
+	private int stripeDays;
+
+	@Value("${volcano.sequencer_queue_size:1024}")
+	private int queueSize;
+
+	@Value("${volcano.sequencer_offer_timeout_ms:100}")
+	private long offerTimeoutMs;
+
+	@Value("${volcano.sequencer_timeout_ms:10000}")
+	private long timeoutMs;
+
+	private static final String QUEUE_FULL_EXCEPTION = "Too many booking operations on these days, please try again later.";
+
+	private static final String TIMEOUT_EXCEPTION = "The booking operation took too long, please try again later.";
+
+	private Consumer[] consumers;
+
+	private final Object crossStripeLock = new Object();
+
+	/**
+	 * A mutation run by a consumer.
+	 */
+	@FunctionalInterface
+	public interface Command<T> {
+
+		T execute() throws Throwable;
+
+	}
+
+	@PostConstruct
+	public void initialize() {
+		if (!enabled) {
+			return;
+		}
+		consumers = new Consumer[stripes];
+		for (int i = 0; i < stripes; i++) {
+			consumers[i] = new Consumer(queueSize);
+			Thread thread = new Thread(consumers[i], "occupation-sequencer-" + i);
+			thread.setDaemon(true);
+			consumers[i].thread = thread;
+			thread.start();
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		if (consumers == null) {
+			return;
+		}
+		for (Consumer consumer : consumers) {
+			consumer.thread.interrupt();
+		}
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Run the command on the consumer of the days of the given stays of the campsite, from (inclusive) to
+	 * (exclusive), after the commands queued before on any of these days, and wait for its result. Without days, or
+	 * when called by a command already running on a consumer, it runs in the caller.
+	 * @param campsiteId
+	 * @param stays
+	 * @param command
+	 */
+	public <T> T execute(long campsiteId, List<LocalDate[]> stays, Command<T> command) throws Throwable {
+		if (!enabled || isConsumer(Thread.currentThread())) {
+			return command.execute();
+		}
+		SortedSet<Integer> indexes = stripesOf(campsiteId, stays);
+		if (indexes.isEmpty()) {
+			return command.execute();
+		}
+		CompletableFuture<T> result = new CompletableFuture<T>();
+		AtomicBoolean started = new AtomicBoolean();
+		Iterator<Integer> iterator = indexes.iterator();
+		Consumer first = consumers[iterator.next()];
+		if (!iterator.hasNext()) {
+			offer(first, () -> complete(result, started, command));
+		} else {
+			CountDownLatch arrived = new CountDownLatch(indexes.size() - 1);
+			CountDownLatch done = new CountDownLatch(1);
+			synchronized (crossStripeLock) {
+				offer(first, () -> {
+					if (await(arrived)) {
+						complete(result, started, command);
+					} else if (started.compareAndSet(false, true)) {
+						result.completeExceptionally(new InterruptedException());
+					}
+					done.countDown();
+				});
+				try {
+					while (iterator.hasNext()) {
+						offer(consumers[iterator.next()], () -> {
+							arrived.countDown();
+							await(done);
+						});
+					}
+				} catch (OverloadedException | InterruptedException e) {
+					// The stripes left out will never arrive: the first one is released and skips the command.
+					started.set(true);
+					result.completeExceptionally(e);
+					while (arrived.getCount() > 0) {
+						arrived.countDown();
+					}
+					throw e;
+				}
+			}
+		}
+		try {
+			try {
+				return result.get(timeoutMs, TimeUnit.MILLISECONDS);
+			} catch (TimeoutException e) {
+				// A command not started yet is skipped, a running one may commit and is waited for.
+				if (started.compareAndSet(false, true)) {
+					result.completeExceptionally(new OverloadedException(TIMEOUT_EXCEPTION, e));
+				}
+				return result.get();
+			}
+		} catch (ExecutionException e) {
+			throw e.getCause();
+		}
+	}
+
+	@ManagedAttribute
+	public int getQueuedCommands() {
+		if (consumers == null) {
+			return 0;
+		}
+		int queued = 0;
+		for (Consumer consumer : consumers) {
+			queued += consumer.queue.size();
+		}
+		return queued;
+	}
+
+	/**
+	 * The stripes of the days of the stays of the campsite, stopping as soon as all of them are touched.
+	 */
+	SortedSet<Integer> stripesOf(long campsiteId, List<LocalDate[]> stays) {
+		SortedSet<Integer> indexes = new TreeSet<Integer>();
+		for (LocalDate[] stay : stays) {
+			for (long day = stay[0].toEpochDay(); day < stay[1].toEpochDay() && indexes.size() < stripes; day++) {
+				indexes.add((int) Math.floorMod(Math.floorDiv(day, (long) stripeDays) + campsiteId, (long) stripes));
+			}
+		}
+		return indexes;
+	}
+
+	private boolean isConsumer(Thread thread) {
+		for (Consumer consumer : consumers) {
+			if (consumer.thread == thread) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void offer(Consumer consumer, Runnable task) throws InterruptedException {
+		if (!consumer.queue.offer(task, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+			throw new OverloadedException(QUEUE_FULL_EXCEPTION);
+		}
+	}
+
+	/**
+	 * Run the command unless its caller gave up on it before it started.
+	 */
+	private static <T> void complete(CompletableFuture<T> result, AtomicBoolean started, Command<T> command) {
+		if (!started.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			result.complete(command.execute());
+		} catch (Throwable e) {
+			result.completeExceptionally(e);
+		}
+	}
+
+	private static boolean await(CountDownLatch latch) {
+		try {
+			latch.await();
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	private static class Consumer implements Runnable {
+
+		private final BlockingQueue<Runnable> queue;
+
+		private Thread thread;
+
+		private Consumer(int queueSize) {
+			this.queue = new ArrayBlockingQueue<Runnable>(queueSize);
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (!Thread.currentThread().isInterrupted()) {
+					queue.take().run();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,31 @@
+package com.upgrade.challenge.sequencer;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a booking mutation to run on the {@link OccupationSequencer} when it is enabled, routed by the stays
+ * of its arguments: the dates of a {@link com.upgrade.challenge.model.BookingRequest} and the stored dates
+ * of a booking id, or of every operation of a list of {@link com.upgrade.challenge.model.BatchOperation}.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Sequenced {
+
+	/**
+	 * What the ids of the arguments, a single one or a collection of them, identify.
+	 */
+	enum Ids {
+		BOOKINGS, HOLDS, WAITLIST_ENTRIES
+	}
+
+	/**
+	 * The ids are routed by the stored stays of the bookings, holds or waitlist entries they identify.
+	 */
+	Ids ids() default Ids.BOOKINGS;
+
+}
@@ -0,0 +1,176 @@
+package com.upgrade.challenge.sequencer;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import com.upgrade.challenge.campsite.Campsite;
+import com.upgrade.challenge.datasource.ShardRouting;
+import com.upgrade.challenge.model.BatchOperation;
+import com.upgrade.challenge.model.BatchOperationType;
+import com.upgrade.challenge.model.BookingRequest;
+import com.upgrade.challenge.model.HoldRequest;
+import com.upgrade.challenge.model.dto.Booking;
+import com.upgrade.challenge.model.dto.Hold;
+import com.upgrade.challenge.repository.BookingRepository;
+import com.upgrade.challenge.repository.HoldRepository;
+import com.upgrade.challenge.repository.WaitlistEntryRepository;
+
+/**
+ * Hands the {@link Sequenced} methods to the {@link OccupationSequencer}. It is ordered before the sharding,
+ * retry and transaction advices, so the whole retried transaction runs on the consumer of its days.
+ */
+@Aspect
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 2)
+public class SequencedAspect {
+
+	@Autowired
+	private OccupationSequencer sequencer;
+
+	@Autowired
+	private BookingRepository bookingRepository;
+
+	@Autowired
+	private HoldRepository holdRepository;
+
+	@Autowired
+	private WaitlistEntryRepository waitlistEntryRepository;
+
+	@Autowired
+	private ShardRouting shardRouting;
+
+	@Around("@annotation(sequenced)")
+	public Object sequence(ProceedingJoinPoint joinPoint, Sequenced sequenced) throws Throwable {
+		if (!sequencer.isEnabled()) {
+			return joinPoint.proceed();
+		}
+		Object[] args = joinPoint.getArgs();
+		return sequencer.execute(campsiteIdOf(args), sequenced.ids() == Sequenced.Ids.BOOKINGS ? staysOf(args)
+				: storedStaysOf(args, sequenced.ids()), joinPoint::proceed);
+	}
+
+	/**
+	 * The campsite of the arguments, whose stripes the stays go to.
+	 */
+	private static long campsiteIdOf(Object[] args) {
+		for (Object arg : args) {
+			if (arg instanceof Campsite) {
+				return ((Campsite) arg).getId();
+			}
+		}
+		return Campsite.DEFAULT_ID;
+	}
+
+	private List<LocalDate[]> staysOf(Object[] args) {
+		List<LocalDate[]> stays = new ArrayList<LocalDate[]>();
+		Campsite campsite = null;
+		for (Object arg : args) {
+			if (arg instanceof Campsite) {
+				campsite = (Campsite) arg;
+			}
+		}
+		for (Object arg : args) {
+			if (arg instanceof BookingRequest) {
+				BookingRequest bookingRequest = (BookingRequest) arg;
+				if (bookingRequest.getFromDay() != null && bookingRequest.getToDay() != null) {
+					stays.add(new LocalDate[] { bookingRequest.getFromDay(), bookingRequest.getToDay() });
+				}
+			} else if (arg instanceof HoldRequest) {
+				HoldRequest holdRequest = (HoldRequest) arg;
+				if (holdRequest.getFromDay() != null && holdRequest.getToDay() != null) {
+					stays.add(new LocalDate[] { holdRequest.getFromDay(), holdRequest.getToDay() });
+				}
+			} else if (arg instanceof Long && campsite != null) {
+				Long bookingId = (Long) arg;
+				long campsiteId = campsite.getId();
+				shardRouting.onShard(campsite.getShard(), () -> bookingRepository.findByIdAndCampsiteId(bookingId, campsiteId))
+						.ifPresent(booking -> stays.add(new LocalDate[] { booking.getFromDay(), booking.getToDay() }));
+			} else if (arg instanceof List && campsite != null) {
+				stays.addAll(staysOf(campsite, (List<?>) arg));
+			}
+		}
+		return stays;
+	}
+
+	/**
+	 * The stays of the holds or waitlist entries of the ids of the arguments.
+	 */
+	private List<LocalDate[]> storedStaysOf(Object[] args, Sequenced.Ids ids) {
+		List<LocalDate[]> stays = new ArrayList<LocalDate[]>();
+		Campsite campsite = null;
+		Set<Long> storedIds = new HashSet<Long>();
+		for (Object arg : args) {
+			if (arg instanceof Campsite) {
+				campsite = (Campsite) arg;
+			} else if (arg instanceof Long) {
+				storedIds.add((Long) arg);
+			} else if (arg instanceof Collection) {
+				for (Object element : (Collection<?>) arg) {
+					if (element instanceof Long) {
+						storedIds.add((Long) element);
+					}
+				}
+			}
+		}
+		if (campsite == null || storedIds.isEmpty()) {
+			return stays;
+		}
+		long campsiteId = campsite.getId();
+		if (ids == Sequenced.Ids.HOLDS) {
+			for (Hold hold : shardRouting.onShard(campsite.getShard(),
+					() -> holdRepository.findAllByIdInAndCampsiteId(storedIds, campsiteId))) {
+				stays.add(new LocalDate[] { hold.getFromDay(), hold.getToDay() });
+			}
+		} else {
+			for (Long entryId : storedIds) {
+				shardRouting.onShard(campsite.getShard(), () -> waitlistEntryRepository.findByIdAndCampsiteId(entryId, campsiteId))
+						.ifPresent(entry -> stays.add(new LocalDate[] { entry.getFromDay(), entry.getToDay() }));
+			}
+		}
+		return stays;
+	}
+
+	/**
+	 * The stays of a batch: the dates of the bookings created or edited, and the stored dates of the bookings
+	 * edited or cancelled, read at once.
+	 */
+	private List<LocalDate[]> staysOf(Campsite campsite, List<?> operations) {
+		List<LocalDate[]> stays = new ArrayList<LocalDate[]>();
+		Set<Long> bookingIds = new HashSet<Long>();
+		for (Object element : operations) {
+			if (!(element instanceof BatchOperation)) {
+				continue;
+			}
+			BatchOperation operation = (BatchOperation) element;
+			BookingRequest bookingRequest = operation.getBooking();
+			if (operation.getType() != BatchOperationType.CANCEL && bookingRequest != null
+					&& bookingRequest.getFromDay() != null && bookingRequest.getToDay() != null) {
+				stays.add(new LocalDate[] { bookingRequest.getFromDay(), bookingRequest.getToDay() });
+			}
+			if (operation.getType() != BatchOperationType.CREATE && operation.getBookingId() != null) {
+				bookingIds.add(operation.getBookingId());
+			}
+		}
+		if (!bookingIds.isEmpty()) {
+			long campsiteId = campsite.getId();
+			for (Booking booking : shardRouting.onShard(campsite.getShard(),
+					() -> bookingRepository.findAllByIdInAndCampsiteId(bookingIds, campsiteId))) {
+				stays.add(new LocalDate[] { booking.getFromDay(), booking.getToDay() });
+			}
+		}
+		return stays;
+	}
+
+}
@@ -0,0 +1,190 @@
+package com.upgrade.challenge.services;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import com.upgrade.challenge.events.OccupationChangedEvent;
+import com.upgrade.challenge.model.DailyAvailability;
+
+/**
+ * Bounded LRU cache of the availability lists already built for a date interval of a campsite.
+ * Entries overlapping a committed change of occupation are evicted as soon as the change is announced.
+ */
+@Component
+@ManagedResource(objectName = "volcano:type=AvailabilityCache")
+public class AvailabilityCache {
+
+	@Value("${volcano.availability_cache_size:256}")
+	private int maxEntries;
+
+	private Map<List<Object>, CachedAvailability> entries;
+
+	private final AtomicLong generation = new AtomicLong();
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder misses = new LongAdder();
+
+	private final LongAdder evictions = new LongAdder();
+
+	private final LongAdder invalidations = new LongAdder();
+
+	@PostConstruct
+	public void initialize() {
+		entries = new LinkedHashMap<List<Object>, CachedAvailability>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<List<Object>, CachedAvailability> eldest) {
+				if (size() > maxEntries) {
+					evictions.increment();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Returns the cached availability of the campsite between from (inclusive) and to (exclusive), if any.
+	 * @param campsiteId
+	 * @param from
+	 * @param to
+	 */
+	public Optional<List<DailyAvailability>> get(long campsiteId, LocalDate from, LocalDate to) {
+		CachedAvailability cached;
+		synchronized (entries) {
+			cached = entries.get(key(campsiteId, from, to));
+		}
+		if (cached == null) {
+			misses.increment();
+			return Optional.empty();
+		}
+		hits.increment();
+		return Optional.of(cached.availability);
+	}
+
+	/**
+	 * The generation to pass to {@link #put} by a reader about to build an availability list,
+	 * so the list is discarded if the occupation changes while it is built.
+	 */
+	public long generation() {
+		return generation.get();
+	}
+
+	/**
+	 * Cache the availability unless a change of occupation was announced after the given generation.
+	 * @param campsiteId
+	 * @param from
+	 * @param to
+	 * @param availability
+	 * @param readGeneration
+	 */
+	public void put(long campsiteId, LocalDate from, LocalDate to, List<DailyAvailability> availability, long readGeneration) {
+		if (maxEntries <= 0) {
+			return;
+		}
+		CachedAvailability cached = new CachedAvailability(campsiteId, from, to, Collections.unmodifiableList(availability));
+		synchronized (entries) {
+			if (generation.get() == readGeneration) {
+				entries.put(key(campsiteId, from, to), cached);
+			}
+		}
+	}
+
+	@EventListener
+	public void onOccupationChanged(OccupationChangedEvent event) {
+		synchronized (entries) {
+			generation.incrementAndGet();
+			Iterator<CachedAvailability> iterator = entries.values().iterator();
+			while (iterator.hasNext()) {
+				CachedAvailability cached = iterator.next();
+				if (event.overlaps(cached.campsiteId, cached.from, cached.to)) {
+					iterator.remove();
+					invalidations.increment();
+				}
+			}
+		}
+	}
+
+	@ManagedOperation
+	public void clear() {
+		synchronized (entries) {
+			generation.incrementAndGet();
+			entries.clear();
+		}
+	}
+
+	@ManagedAttribute
+	public int getSize() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	@ManagedAttribute
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+
+	@ManagedAttribute
+	public long getHits() {
+		return hits.sum();
+	}
+
+	@ManagedAttribute
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	@ManagedAttribute
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	@ManagedAttribute
+	public long getInvalidations() {
+		return invalidations.sum();
+	}
+
+	private static List<Object> key(long campsiteId, LocalDate from, LocalDate to) {
+		return Arrays.asList(campsiteId, from, to);
+	}
+
+	private static class CachedAvailability {
+
+		private final long campsiteId;
+
+		private final LocalDate from;
+
+		private final LocalDate to;
+
+		private final List<DailyAvailability> availability;
+
+		private CachedAvailability(long campsiteId, LocalDate from, LocalDate to, List<DailyAvailability> availability) {
+			this.campsiteId = campsiteId;
+			this.from = from;
+			this.to = to;
+			this.availability = availability;
+		}
+
+	}
+
+}
@@ -0,0 +1,130 @@
+package com.upgrade.challenge.services;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.upgrade.challenge.campsite.Campsite;
+import com.upgrade.challenge.campsite.Sharded;
+import com.upgrade.challenge.exception.InputFormatException;
+import com.upgrade.challenge.model.AvailableStay;
+import com.upgrade.challenge.model.DailyAvailability;
+import com.upgrade.challenge.validator.BookingValidator;
+
+/**
+ * Finds the bookable stays of a length closest to a date. The availability of every day a stay may cover is
+ * read once, and the fewest guests available along each stay is computed in a single pass with a sliding
+ * window minimum, so every arrival is checked without a query or a scan of its own.
+ */
+@Service
+public class AvailabilitySearchService {
+
+	@Autowired
+	private DailyAvailabilityService dailyAvailabilityService;
+
+	@Autowired
+	private BookingValidator validator;
+
+	@Value("${volcano.availability_search_size:5}")
+	private int defaultSize;
+
+	@Value("${volcano.availability_search_max_size:31}")
+	private int maxSize;
+
+	private static final String INVALID_NIGHTS_EXCEPTION = "nights should be between 1 and %d";
+
+	private static final String INVALID_GUESTS_EXCEPTION = "guests should be a positive number";
+
+	private static final String INVALID_SIZE_EXCEPTION = "size should be between 1 and %d";
+
+	/**
+	 * Returns the stays of the given nights that can hold the guests, closest first to the requested optional
+	 * arrival, the earliest first when as close. Without it, the stays are the earliest ones.
+	 * @param campsite
+	 * @param nights
+	 * @param guests
+	 * @param near
+	 * @param size the max stays to return
+	 */
+	@Sharded
+	public List<AvailableStay> search(Campsite campsite, int nights, int guests, LocalDate near, Integer size) {
+		if (nights < 1 || nights > campsite.getMaxBookingDays()) {
+			throw new InputFormatException(String.format(INVALID_NIGHTS_EXCEPTION, campsite.getMaxBookingDays()));
+		}
+		if (guests < 1) {
+			throw new InputFormatException(INVALID_GUESTS_EXCEPTION);
+		}
+		validator.validateGuestsInput(guests, campsite.getMaxCapacity());
+		int maxStays = size(size);
+
+		// The arrivals the validator accepts, and every day their stays cover.
+		LocalDate now = LocalDate.now();
+		LocalDate firstArrival = now.plusDays(Math.max(validator.getMinimumDaysAheadOfArrival(), 1));
+		LocalDate lastArrival = now.plusMonths(validator.getMonthsUpToBooking());
+		List<DailyAvailability> availability = dailyAvailabilityService.getAvailability(campsite, firstArrival,
+				lastArrival.plusDays(nights));
+		int[] minAvailability = windowMinimum(availability, nights);
+
+		long target = near == null ? 0 : ChronoUnit.DAYS.between(firstArrival, near);
+		int arrivals = minAvailability.length;
+		// Walk the arrivals outwards from the closest one to the target.
+		int after = (int) Math.max(0, Math.min(target, arrivals));
+		int before = after - 1;
+		List<AvailableStay> stays = new ArrayList<AvailableStay>(maxStays);
+		while (stays.size() < maxStays && (before >= 0 || after < arrivals)) {
+			int arrival;
+			if (after >= arrivals || (before >= 0 && target - before <= after - target)) {
+				arrival = before--;
+			} else {
+				arrival = after++;
+			}
+			if (minAvailability[arrival] >= guests) {
+				LocalDate fromDay = firstArrival.plusDays(arrival);
+				stays.add(new AvailableStay(fromDay, fromDay.plusDays(nights), minAvailability[arrival]));
+			}
+		}
+		return stays;
+	}
+
+	/**
+	 * The fewest guests available along each window of the given days, for every window that fits in the
+	 * availability. A deque keeps the days that can still be the minimum of a later window, in increasing
+	 * order of availability, so each day is added and removed once.
+	 */
+	static int[] windowMinimum(List<DailyAvailability> availability, int days) {
+		int[] minimum = new int[Math.max(availability.size() - days + 1, 0)];
+		Deque<Integer> candidates = new ArrayDeque<Integer>();
+		for (int day = 0; day < availability.size(); day++) {
+			int available = availability.get(day).getAvailability();
+			while (!candidates.isEmpty() && availability.get(candidates.peekLast()).getAvailability() >= available) {
+				candidates.pollLast();
+			}
+			candidates.addLast(day);
+			if (candidates.peekFirst() <= day - days) {
+				candidates.pollFirst();
+			}
+			if (day >= days - 1) {
+				minimum[day - days + 1] = availability.get(candidates.peekFirst()).getAvailability();
+			}
+		}
+		return minimum;
+	}
+
+	private int size(Integer size) {
+		if (size == null) {
+			return defaultSize;
+		}
+		if (size < 1 || size > maxSize) {
+			throw new InputFormatException(String.format(INVALID_SIZE_EXCEPTION, maxSize));
+		}
+		return size;
+	}
+
+}
@@ -0,0 +1,302 @@
+package com.upgrade.challenge.services;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.upgrade.challenge.campsite.Campsite;
+import com.upgrade.challenge.campsite.CampsiteRegistry;
+import com.upgrade.challenge.datasource.ReadRouting;
+import com.upgrade.challenge.datasource.ShardRouting;
+import com.upgrade.challenge.events.OccupationChangedEvent;
+import com.upgrade.challenge.exception.OverloadedException;
+import com.upgrade.challenge.model.DailyAvailability;
+
+/**
+ * Streams the availability of a date interval of a campsite as Server-Sent Events: a "snapshot" event with every day
+ * when subscribing, then "delta" events with only the days changed by each committed booking operation.
+ * Each subscriber keeps at most one pending availability per day, so a slow consumer gets the changes
+ * coalesced instead of queued, and a consumer that cannot be written to is dropped.
+ * <p>
+ * The committing thread only hands the change over: the changes of a campsite are read and queued by the sender
+ * threads one at a time, in the order they were announced, so the availability read for a change never replaces
+ * the one read for a later change.
+ */
+@Service
+public class AvailabilityStreamService {
+
+	private static final Logger logger = LoggerFactory.getLogger(AvailabilityStreamService.class);
+
+	private static final String SNAPSHOT_EVENT = "snapshot";
+
+	private static final String DELTA_EVENT = "delta";
+
+	@Autowired
+	private DailyAvailabilityService dailyAvailabilityService;
+
+	@Autowired
+	private ReadRouting readRouting;
+
+	@Autowired
+	private ShardRouting shardRouting;
+
+	@Autowired
+	private CampsiteRegistry campsites;
+
+	@Value("${volcano.stream_max_subscribers:10000}")
+	private int maxSubscribers;
+
+	@Value("${volcano.stream_timeout_minutes:30}")
+	private long timeoutMinutes;
+
+	@Value("${volcano.stream_threads:4}")
+	private int threads;
+
+	private final List<Subscriber> subscribers = new CopyOnWriteArrayList<Subscriber>();
+
+	/**
+	 * The slots taken, reserved before the subscriber is registered so concurrent subscribes cannot exceed the limit.
+	 */
+	private final AtomicInteger slots = new AtomicInteger();
+
+	private final Map<Long, CampsiteChanges> changes = new ConcurrentHashMap<Long, CampsiteChanges>();
+
+	private ThreadPoolExecutor sender;
+
+	@PostConstruct
+	public void initialize() {
+		AtomicInteger threadNumber = new AtomicInteger();
+		sender = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+				runnable -> {
+					Thread thread = new Thread(runnable, "availability-stream-" + threadNumber.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		sender.shutdownNow();
+		subscribers.forEach(subscriber -> subscriber.emitter.complete());
+	}
+
+	/**
+	 * Subscribe to the availability of the campsite between the requested optional dates, completed as in
+	 * {@link DailyAvailabilityService#getAvailability}.
+	 * @param campsite
+	 * @param from
+	 * @param to
+	 */
+	public SseEmitter subscribe(Campsite campsite, LocalDate from, LocalDate to) {
+		LocalDate[] dates = dailyAvailabilityService.resolveDates(from, to);
+		if (slots.incrementAndGet() > maxSubscribers) {
+			slots.decrementAndGet();
+			throw new OverloadedException("Too many availability subscribers, please try again later.");
+		}
+		Subscriber subscriber = new Subscriber(campsite.getId(), dates[0], dates[1],
+				new SseEmitter(TimeUnit.MINUTES.toMillis(timeoutMinutes)));
+		subscriber.emitter.onCompletion(() -> remove(subscriber));
+		subscriber.emitter.onTimeout(() -> remove(subscriber));
+		subscriber.emitter.onError(e -> remove(subscriber));
+		// Registered before reading the snapshot so no change is missed, and marked as sending
+		// so the deltas wait until the snapshot is out.
+		subscriber.sending.set(true);
+		subscribers.add(subscriber);
+		try {
+			subscriber.emitter.send(SseEmitter.event().name(SNAPSHOT_EVENT)
+					.data(dailyAvailabilityService.getAvailability(campsite, dates[0], dates[1]), MediaType.APPLICATION_JSON));
+		} catch (IOException e) {
+			drop(subscriber, e);
+			return subscriber.emitter;
+		} catch (RuntimeException e) {
+			remove(subscriber);
+			throw e;
+		}
+		subscriber.sending.set(false);
+		schedule(subscriber);
+		return subscriber.emitter;
+	}
+
+	/**
+	 * Queue the change for the sender threads if a subscriber watches any of its days.
+	 * @param event
+	 */
+	@EventListener
+	public void onOccupationChanged(OccupationChangedEvent event) {
+		if (subscribers.stream().noneMatch(subscriber -> event.overlaps(subscriber.campsiteId, subscriber.from, subscriber.to))) {
+			return;
+		}
+		CampsiteChanges campsiteChanges = changes.computeIfAbsent(event.getCampsiteId(), id -> new CampsiteChanges());
+		campsiteChanges.events.add(event);
+		schedule(campsiteChanges);
+	}
+
+	public int getSubscribers() {
+		return subscribers.size();
+	}
+
+	private void schedule(CampsiteChanges campsiteChanges) {
+		if (campsiteChanges.events.isEmpty() || !campsiteChanges.applying.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			sender.execute(() -> apply(campsiteChanges));
+		} catch (RejectedExecutionException e) {
+			campsiteChanges.applying.set(false);
+		}
+	}
+
+	private void apply(CampsiteChanges campsiteChanges) {
+		for (OccupationChangedEvent event = campsiteChanges.events.poll(); event != null;
+				event = campsiteChanges.events.poll()) {
+			try {
+				apply(event);
+			} catch (RuntimeException e) {
+				logger.warn("Could not stream the availability change of the campsite {}: {}", event.getCampsiteId(),
+						e.getMessage());
+			}
+		}
+		campsiteChanges.applying.set(false);
+		// Changes queued after the last poll.
+		schedule(campsiteChanges);
+	}
+
+	private void apply(OccupationChangedEvent event) {
+		LocalDate from = null;
+		LocalDate to = null;
+		for (Subscriber subscriber : subscribers) {
+			if (event.overlaps(subscriber.campsiteId, subscriber.from, subscriber.to)) {
+				from = from == null || subscriber.from.isBefore(from) ? subscriber.from : from;
+				to = to == null || subscriber.to.isAfter(to) ? subscriber.to : to;
+			}
+		}
+		if (from == null) {
+			return;
+		}
+		// The availability of the changed days is read once and shared by every subscriber, from the primary
+		// as the replica may not have the change yet. Every change is applied to the ledger before being
+		// announced, so the read of the last change sees all the announced ones.
+		Campsite campsite = campsites.get(event.getCampsiteId());
+		LocalDate changedFrom = event.getFrom().isAfter(from) ? event.getFrom() : from;
+		LocalDate changedTo = event.getTo().isBefore(to) ? event.getTo() : to;
+		List<DailyAvailability> changedDays = shardRouting.onShard(campsite.getShard(), () -> readRouting
+				.onPrimary(() -> dailyAvailabilityService.loadAvailability(campsite, changedFrom, changedTo)));
+		for (Subscriber subscriber : subscribers) {
+			if (event.overlaps(subscriber.campsiteId, subscriber.from, subscriber.to)) {
+				for (DailyAvailability day : changedDays) {
+					if (!day.getDate().isBefore(subscriber.from) && day.getDate().isBefore(subscriber.to)) {
+						subscriber.pending.put(day.getDate(), day.getAvailability());
+					}
+				}
+				schedule(subscriber);
+			}
+		}
+	}
+
+	private void schedule(Subscriber subscriber) {
+		if (subscriber.pending.isEmpty() || !subscriber.sending.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			sender.execute(() -> send(subscriber));
+		} catch (RejectedExecutionException e) {
+			subscriber.sending.set(false);
+		}
+	}
+
+	private void send(Subscriber subscriber) {
+		List<DailyAvailability> delta = new ArrayList<DailyAvailability>();
+		for (Map.Entry<LocalDate, Integer> day = subscriber.pending.pollFirstEntry(); day != null;
+				day = subscriber.pending.pollFirstEntry()) {
+			delta.add(new DailyAvailability(day.getKey(), day.getValue()));
+		}
+		try {
+			subscriber.emitter.send(SseEmitter.event().name(DELTA_EVENT).data(delta, MediaType.APPLICATION_JSON));
+		} catch (IOException | IllegalStateException e) {
+			drop(subscriber, e);
+			return;
+		}
+		subscriber.sending.set(false);
+		// Changes coalesced while this delta was being written.
+		schedule(subscriber);
+	}
+
+	private void drop(Subscriber subscriber, Exception cause) {
+		logger.debug("Dropping availability subscriber: {}", cause.getMessage());
+		remove(subscriber);
+		subscriber.emitter.completeWithError(cause);
+	}
+
+	/**
+	 * Unregister the subscriber and release its slot, once whichever of the completion, timeout, error or drop
+	 * comes first.
+	 * @param subscriber
+	 */
+	private void remove(Subscriber subscriber) {
+		if (subscriber.removed.compareAndSet(false, true)) {
+			subscribers.remove(subscriber);
+			slots.decrementAndGet();
+		}
+	}
+
+	/**
+	 * The changes of a campsite waiting to be read, applied by one sender thread at a time.
+	 */
+	private static class CampsiteChanges {
+
+		private final ConcurrentLinkedQueue<OccupationChangedEvent> events = new ConcurrentLinkedQueue<OccupationChangedEvent>();
+
+		private final AtomicBoolean applying = new AtomicBoolean();
+
+	}
+
+	private static class Subscriber {
+
+		private final long campsiteId;
+
+		private final LocalDate from;
+
+		private final LocalDate to;
+
+		private final SseEmitter emitter;
+
+		private final ConcurrentSkipListMap<LocalDate, Integer> pending = new ConcurrentSkipListMap<LocalDate, Integer>();
+
+		private final AtomicBoolean sending = new AtomicBoolean();
+
+		private final AtomicBoolean removed = new AtomicBoolean();
+
+		private Subscriber(long campsiteId, LocalDate from, LocalDate to, SseEmitter emitter) {
+			this.campsiteId = campsiteId;
+			this.from = from;
+			this.to = to;
+			this.emitter = emitter;
+		}
+
+	}
+
+}
@@ -0,0 +1,258 @@
+package com.upgrade.challenge.services;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.transaction.Transactional;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.retry.annotation.Retryable;
+import org.springframework.stereotype.Service;
+
+import com.upgrade.challenge.campsite.Campsite;
+import com.upgrade.challenge.campsite.Sharded;
+import com.upgrade.challenge.exception.AvailabilityException;
+import com.upgrade.challenge.exception.BookingException;
+import com.upgrade.challenge.exception.BookingNotFoundException;
+import com.upgrade.challenge.exception.InputFormatException;
+import com.upgrade.challenge.model.BatchOperation;
+import com.upgrade.challenge.model.BatchOperationResult;
+import com.upgrade.challenge.model.BatchOperationType;
+import com.upgrade.challenge.model.BookingRequest;
+import com.upgrade.challenge.model.BookingResponse;
+import com.upgrade.challenge.model.dto.Booking;
+import com.upgrade.challenge.repository.BookingRepository;
+import com.upgrade.challenge.retry.BookingRetryConfiguration;
+import com.upgrade.challenge.sequencer.Sequenced;
+import com.upgrade.challenge.validator.BookingValidator;
+
+/**
+ * Creates, edits and cancels several bookings of a campsite in a single transaction. The occupation of the dates of
+ * the whole batch is loaded once and every operation is checked and applied against it in memory, so an
+ * operation that fails gets its error in the results without aborting the rest of the batch.
+ * <p>
+ * The versioned rows are used whatever volcano.reservation_mode: a conditional update failing midway may have
+ * reserved some of its days, and only the rollback of the whole batch would release them.
+ */
+@Service
+public class BookingBatchService {
+
+	@Autowired
+	private BookingRepository bookingRepository;
+
+	@Autowired
+	private DailyAvailabilityService dailyAvailabilityService;
+
+	@Autowired
+	private BookingValidator validator;
+
+	@Autowired
+	private Validator beanValidator;
+
+	@Value("${volcano.batch_max_operations:100}")
+	private int maxOperations;
+
+	private static final String MAX_OPERATIONS_EXCEPTION = "A batch can hold max %d operations.";
+
+	private static final String MISSING_TYPE_EXCEPTION = "type is required";
+
+	private static final String MISSING_BOOKING_ID_EXCEPTION = "bookingId is required to %s a booking";
+
+	private static final String MISSING_BOOKING_EXCEPTION = "booking is required to %s a booking";
+
+	private static final String NO_AVAILABILITY_EXCEPTION = "There is no availability for the selected dates - From: %s, To: %s and %s guest(s)."
+			+ " Please try again with differents dates.";
+
+	@Transactional
+	@Sequenced
+	@Sharded
+	@Retryable(interceptor = BookingRetryConfiguration.INTERCEPTOR)
+	public List<BatchOperationResult> execute(Campsite campsite, List<BatchOperation> operations) {
+		if (operations.size() > maxOperations) {
+			throw new InputFormatException(String.format(MAX_OPERATIONS_EXCEPTION, maxOperations));
+		}
+		List<BatchOperationResult> results = new ArrayList<BatchOperationResult>(operations.size());
+		List<Integer> validOperations = new ArrayList<Integer>();
+		for (int i = 0; i < operations.size(); i++) {
+			BatchOperationResult result = new BatchOperationResult(i, operations.get(i).getType());
+			results.add(result);
+			try {
+				validate(campsite, operations.get(i));
+				validOperations.add(i);
+			} catch (BookingException | InputFormatException e) {
+				result.fail(e);
+			}
+		}
+
+		Map<Long, Booking> storedBookings = findStoredBookings(campsite, operations, validOperations);
+		// Only the operations on bookings that are not found leave the batch without dates.
+		LocalDate[] dates = span(operations, validOperations, storedBookings);
+		OccupationWorkingSet workingSet = dates == null ? null
+				: dailyAvailabilityService.loadWorkingSet(campsite, dates[0], dates[1]);
+		List<Booking> createdBookings = new ArrayList<Booking>();
+		List<BatchOperationResult> createdResults = new ArrayList<BatchOperationResult>();
+		Set<Booking> editedBookings = new LinkedHashSet<Booking>();
+		List<Booking> cancelledBookings = new ArrayList<Booking>();
+		for (int i : validOperations) {
+			BatchOperation operation = operations.get(i);
+			BatchOperationResult result = results.get(i);
+			try {
+				switch (operation.getType()) {
+				case CREATE:
+					BookingRequest request = operation.getBooking();
+					block(workingSet, request.getFromDay(), request.getToDay(), request.getGuests(), null);
+					createdBookings.add(new Booking(campsite.getId(), request));
+					createdResults.add(result);
+					break;
+				case EDIT:
+					Booking editedBooking = stored(storedBookings, operation);
+					BookingRequest edition = operation.getBooking();
+					block(workingSet, edition.getFromDay(), edition.getToDay(), edition.getGuests(), editedBooking);
+					copy(edition, editedBooking);
+					editedBookings.add(editedBooking);
+					result.succeed(response(editedBooking));
+					break;
+				case CANCEL:
+					Booking cancelledBooking = stored(storedBookings, operation);
+					workingSet.add(cancelledBooking.getFromDay(), cancelledBooking.getToDay(), -cancelledBooking.getGuests());
+					storedBookings.remove(cancelledBooking.getId());
+					editedBookings.remove(cancelledBooking);
+					cancelledBookings.add(cancelledBooking);
+					result.succeed(response(cancelledBooking));
+					break;
+				}
+			} catch (BookingException | BookingNotFoundException | AvailabilityException e) {
+				result.fail(e);
+			}
+		}
+
+		if (workingSet != null) {
+			dailyAvailabilityService.saveWorkingSet(workingSet);
+		}
+		bookingRepository.saveAll(editedBookings);
+		bookingRepository.deleteAll(cancelledBookings);
+		Iterable<Booking> savedBookings = bookingRepository.saveAll(createdBookings);
+		int created = 0;
+		for (Booking savedBooking : savedBookings) {
+			createdResults.get(created++).succeed(response(savedBooking));
+		}
+		return results;
+	}
+
+	/**
+	 * The checks that do not depend on the stored bookings nor the occupation.
+	 */
+	private void validate(Campsite campsite, BatchOperation operation) {
+		if (operation.getType() == null) {
+			throw new InputFormatException(MISSING_TYPE_EXCEPTION);
+		}
+		String name = operation.getType().getName();
+		if (operation.getType() != BatchOperationType.CREATE && operation.getBookingId() == null) {
+			throw new InputFormatException(String.format(MISSING_BOOKING_ID_EXCEPTION, name));
+		}
+		if (operation.getType() == BatchOperationType.CANCEL) {
+			return;
+		}
+		if (operation.getBooking() == null) {
+			throw new InputFormatException(String.format(MISSING_BOOKING_EXCEPTION, name));
+		}
+		Set<ConstraintViolation<BookingRequest>> violations = beanValidator.validate(operation.getBooking());
+		if (!violations.isEmpty()) {
+			throw new InputFormatException(violations.stream().map(ConstraintViolation::getMessage)
+					.sorted().collect(Collectors.joining(", ")));
+		}
+		validator.validateDatesInput(operation.getBooking().getFromDay(), operation.getBooking().getToDay(), true,
+				campsite.getMaxBookingDays());
+		validator.validateGuestsInput(operation.getBooking().getGuests(), campsite.getMaxCapacity());
+	}
+
+	private Map<Long, Booking> findStoredBookings(Campsite campsite, List<BatchOperation> operations,
+			List<Integer> validOperations) {
+		Set<Long> bookingIds = new HashSet<Long>();
+		for (int i : validOperations) {
+			if (operations.get(i).getBookingId() != null) {
+				bookingIds.add(operations.get(i).getBookingId());
+			}
+		}
+		Map<Long, Booking> storedBookings = new HashMap<Long, Booking>();
+		if (!bookingIds.isEmpty()) {
+			bookingRepository.findAllByIdInAndCampsiteId(bookingIds, campsite.getId()).forEach(booking -> storedBookings.put(booking.getId(), booking));
+		}
+		return storedBookings;
+	}
+
+	/**
+	 * Returns the first (inclusive) and last (exclusive) dates touched by the batch, or null if there is none.
+	 */
+	private LocalDate[] span(List<BatchOperation> operations, List<Integer> validOperations, Map<Long, Booking> storedBookings) {
+		LocalDate[] dates = null;
+		for (int i : validOperations) {
+			BatchOperation operation = operations.get(i);
+			if (operation.getBooking() != null && operation.getType() != BatchOperationType.CANCEL) {
+				dates = extend(dates, operation.getBooking().getFromDay(), operation.getBooking().getToDay());
+			}
+			Booking storedBooking = storedBookings.get(operation.getBookingId());
+			if (storedBooking != null && operation.getType() != BatchOperationType.CREATE) {
+				dates = extend(dates, storedBooking.getFromDay(), storedBooking.getToDay());
+			}
+		}
+		return dates;
+	}
+
+	private static LocalDate[] extend(LocalDate[] dates, LocalDate from, LocalDate to) {
+		if (dates == null) {
+			return new LocalDate[] { from, to };
+		}
+		return new LocalDate[] { from.isBefore(dates[0]) ? from : dates[0], to.isAfter(dates[1]) ? to : dates[1] };
+	}
+
+	private Booking stored(Map<Long, Booking> storedBookings, BatchOperation operation) {
+		Booking booking = storedBookings.get(operation.getBookingId());
+		if (booking == null) {
+			throw new BookingNotFoundException(operation.getBookingId());
+		}
+		validator.validatePastDate(booking.getFromDay(), operation.getType().getName());
+		return booking;
+	}
+
+	/**
+	 * Block the stay in the working set, releasing first the stored stay of an edited booking.
+	 */
+	private void block(OccupationWorkingSet workingSet, LocalDate from, LocalDate to, int guests, Booking released) {
+		boolean available = released == null
+				? workingSet.canHold(from, to, guests, null, null, 0)
+				: workingSet.canHold(from, to, guests, released.getFromDay(), released.getToDay(), released.getGuests());
+		if (!available) {
+			throw new AvailabilityException(String.format(NO_AVAILABILITY_EXCEPTION, from, to, guests));
+		}
+		if (released != null) {
+			workingSet.add(released.getFromDay(), released.getToDay(), -released.getGuests());
+		}
+		workingSet.add(from, to, guests);
+	}
+
+	private static void copy(BookingRequest request, Booking booking) {
+		booking.setFromDay(request.getFromDay());
+		booking.setToDay(request.getToDay());
+		booking.setGuests(request.getGuests());
+		booking.setFirstName(request.getFirstName());
+		booking.setLastName(request.getLastName());
+		booking.setEmail(request.getEmail());
+	}
+
+	private static BookingResponse response(Booking booking) {
+		return new BookingResponse(booking.getId(), booking.getCampsiteId(), booking.getFromDay(), booking.getToDay(),
+				booking.getGuests(), booking.getFirstName(), booking.getLastName(), booking.getEmail());
+	}
+
+}
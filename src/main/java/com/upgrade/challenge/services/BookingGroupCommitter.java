@@ -0,0 +1,260 @@
+package com.upgrade.challenge.services;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import com.upgrade.challenge.campsite.Campsite;
+import com.upgrade.challenge.exception.AvailabilityException;
+import com.upgrade.challenge.exception.OverloadedException;
+import com.upgrade.challenge.model.BatchOperation;
+import com.upgrade.challenge.model.BatchOperationResult;
+import com.upgrade.challenge.model.BatchOperationType;
+import com.upgrade.challenge.model.BookingRequest;
+import com.upgrade.challenge.model.BookingResponse;
+
+/**
+ * Group commit of the new bookings: the requests arriving within a few milliseconds of each other are
+ * collected by a single flusher and created by one call to the {@link BookingBatchService}, which checks them
+ * together against the occupation and commits the accepted ones in a single transaction. A request that
+ * would overbook gets its own error while the rest of the group is committed. A group holding bookings of
+ * several campsites is committed with one call per campsite.
+ * <p>
+ * The wait of a request is bounded by the max wait of its group plus volcano.group_commit_timeout_ms, after
+ * which it gets an {@link OverloadedException} and is left out of the group if the flusher has not claimed it
+ * yet. A claimed request is waited for, as its group may commit it. A full queue or a stopped flusher rejects
+ * the requests the same way.
+ */
+@Component
+@ManagedResource(objectName = "volcano:type=BookingGroupCommitter")
+public class BookingGroupCommitter {
+
+	private static final Logger logger = LoggerFactory.getLogger(BookingGroupCommitter.class);
+
+	@Autowired
+	private BookingBatchService bookingBatchService;
+
+	@Autowired
+	private BookingMetrics metrics;
+
+	@Value("${volcano.group_commit_enabled:false}")
+	private boolean enabled;
+
+	@Value("${volcano.group_commit_max_size:32}")
+	private int maxSize;
+
+	@Value("${volcano.group_commit_max_wait_ms:5}")
+	private long maxWait;
+
+	@Value("${volcano.group_commit_queue_size:1024}")
+	private int queueSize;
+
+	@Value("${volcano.group_commit_timeout_ms:10000}")
+	private long commitTimeout;
+
+	@Value("${volcano.reservation_mode:optimistic}")
+	private String reservationMode;
+
+	private static final String ATOMIC_RESERVATION = "atomic";
+
+	private static final String QUEUE_FULL_EXCEPTION = "Too many bookings waiting for a commit, please try again later.";
+
+	private static final String STOPPED_EXCEPTION = "The group commit is stopped, please try again later.";
+
+	private static final String TIMEOUT_EXCEPTION = "The booking commit took too long, please try again later.";
+
+	private BlockingQueue<PendingBooking> queue;
+
+	private Thread flusher;
+
+	@PostConstruct
+	public void initialize() {
+		if (!enabled) {
+			return;
+		}
+		if (ATOMIC_RESERVATION.equalsIgnoreCase(reservationMode)) {
+			logger.warn("The group commit applies the new bookings with the versioned occupation rows, "
+					+ "volcano.reservation_mode=atomic only applies to the other booking operations.");
+		}
+		queue = new LinkedBlockingQueue<PendingBooking>(queueSize);
+		flusher = new Thread(this::flushAll, "booking-group-commit");
+		flusher.setDaemon(true);
+		flusher.start();
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		if (flusher != null) {
+			flusher.interrupt();
+		}
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Create the booking with the next group and wait for the commit of the group.
+	 * @param campsite
+	 * @param bookingRequest
+	 */
+	public BookingResponse add(Campsite campsite, BookingRequest bookingRequest) {
+		if (!enabled) {
+			throw new IllegalStateException("The group commit is disabled");
+		}
+		if (!flusher.isAlive()) {
+			throw new OverloadedException(STOPPED_EXCEPTION);
+		}
+		PendingBooking pending = new PendingBooking(campsite, bookingRequest);
+		try {
+			if (!queue.offer(pending, maxWait, TimeUnit.MILLISECONDS)) {
+				throw new OverloadedException(QUEUE_FULL_EXCEPTION);
+			}
+			// Stopped meanwhile, the flusher may have failed the queued bookings before this one was queued.
+			if (!flusher.isAlive() && queue.remove(pending)) {
+				throw new OverloadedException(STOPPED_EXCEPTION);
+			}
+			try {
+				return pending.result.get(maxWait + commitTimeout, TimeUnit.MILLISECONDS);
+			} catch (TimeoutException e) {
+				// A booking not claimed yet is left out of the group, a claimed one may commit and is waited for.
+				if (pending.claim()) {
+					pending.result.completeExceptionally(new OverloadedException(TIMEOUT_EXCEPTION, e));
+				}
+				return pending.result.get();
+			}
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@ManagedAttribute
+	public int getQueuedBookings() {
+		return queue == null ? 0 : queue.size();
+	}
+
+	private void flushAll() {
+		List<PendingBooking> group = new ArrayList<PendingBooking>(maxSize);
+		try {
+			while (!Thread.currentThread().isInterrupted()) {
+				collect(group);
+				flush(group);
+				group.clear();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			OverloadedException stopped = new OverloadedException(STOPPED_EXCEPTION);
+			group.forEach(pending -> pending.result.completeExceptionally(stopped));
+			queue.forEach(pending -> pending.result.completeExceptionally(stopped));
+		}
+	}
+
+	/**
+	 * Wait for a first booking, then for the others until the group is full or its max wait is over.
+	 */
+	private void collect(List<PendingBooking> group) throws InterruptedException {
+		group.add(queue.take());
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWait);
+		queue.drainTo(group, maxSize - group.size());
+		while (group.size() < maxSize) {
+			long remaining = deadline - System.nanoTime();
+			PendingBooking pending = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+			if (pending == null) {
+				return;
+			}
+			group.add(pending);
+			queue.drainTo(group, maxSize - group.size());
+		}
+	}
+
+	void flush(List<PendingBooking> group) {
+		Map<Long, List<PendingBooking>> campsiteGroups = new LinkedHashMap<Long, List<PendingBooking>>();
+		for (PendingBooking pending : group) {
+			campsiteGroups.computeIfAbsent(pending.campsite.getId(), id -> new ArrayList<PendingBooking>()).add(pending);
+		}
+		campsiteGroups.values().forEach(campsiteGroup -> flush(campsiteGroup.get(0).campsite, campsiteGroup));
+	}
+
+	private void flush(Campsite campsite, List<PendingBooking> campsiteGroup) {
+		// The bookings whose requests timed out meanwhile are not created, the others are claimed.
+		List<PendingBooking> group = new ArrayList<PendingBooking>(campsiteGroup.size());
+		campsiteGroup.stream().filter(PendingBooking::claim).forEach(group::add);
+		if (group.isEmpty()) {
+			return;
+		}
+		List<BatchOperation> operations = new ArrayList<BatchOperation>(group.size());
+		for (PendingBooking pending : group) {
+			BatchOperation operation = new BatchOperation();
+			operation.setType(BatchOperationType.CREATE);
+			operation.setBooking(pending.request);
+			operations.add(operation);
+		}
+		// Any failure, errors included, fails the group but keeps the flusher alive.
+		try {
+			List<BatchOperationResult> results = bookingBatchService.execute(campsite, operations);
+			metrics.groupCommit(group.size());
+			for (int i = 0; i < group.size(); i++) {
+				BatchOperationResult result = results.get(i);
+				if (result.isSuccess()) {
+					group.get(i).result.complete(result.getBooking());
+				} else {
+					group.get(i).result.completeExceptionally(
+							result.getCause() != null ? result.getCause() : new AvailabilityException(result.getError()));
+				}
+			}
+		} catch (Throwable e) {
+			group.forEach(pending -> pending.result.completeExceptionally(e));
+		}
+	}
+
+	static class PendingBooking {
+
+		private final Campsite campsite;
+
+		private final BookingRequest request;
+
+		private final CompletableFuture<BookingResponse> result = new CompletableFuture<BookingResponse>();
+
+		private final AtomicBoolean claimed = new AtomicBoolean();
+
+		PendingBooking(Campsite campsite, BookingRequest request) {
+			this.campsite = campsite;
+			this.request = request;
+		}
+
+		/**
+		 * Claim the booking, either for a group or to give up on it. Only the first claim succeeds.
+		 */
+		boolean claim() {
+			return claimed.compareAndSet(false, true);
+		}
+
+	}
+
+}
@@ -0,0 +1,172 @@
+package com.upgrade.challenge.services;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.retry.support.RetrySynchronizationManager;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Micrometer meters of the booking pipeline: a timer per stage of a booking attempt, a timer per operation
+ * and outcome, and counters of the retried errors by cause. The version conflicts are also counted per
+ * stay date, which is only exposed through JMX to keep the dates out of the meter tags.
+ */
+@Component
+@ManagedResource(objectName = "volcano:type=BookingMetrics")
+public class BookingMetrics {
+
+	public static final String VALIDATION = "validation";
+	public static final String AVAILABILITY = "availability";
+	public static final String BLOCK = "block";
+	public static final String RELEASE = "release";
+	public static final String SAVE = "save";
+
+	public static final String SUCCESS = "success";
+	public static final String REJECTED = "rejected";
+	public static final String FAILED = "failed";
+
+	private static final String STAGE_TIMER = "volcano.booking.stage";
+	private static final String OPERATION_TIMER = "volcano.booking.operation";
+	private static final String ERROR_COUNTER = "volcano.booking.errors";
+	private static final String RETRY_COUNTER = "volcano.booking.retries";
+	private static final String WASTED_ATTEMPT_COUNTER = "volcano.booking.wasted_attempts";
+	private static final String CONFLICT_COUNTER = "volcano.booking.conflicts";
+	private static final String GROUP_COMMIT_SUMMARY = "volcano.booking.group_commit.size";
+
+	@Autowired
+	private MeterRegistry registry;
+
+	private final Map<String, Timer> stageTimers = new ConcurrentHashMap<String, Timer>();
+
+	private final ConcurrentNavigableMap<LocalDate, LongAdder> conflicts = new ConcurrentSkipListMap<LocalDate, LongAdder>();
+
+	/**
+	 * Stays touched by the current attempt of the thread, blamed if the attempt ends with a version conflict.
+	 */
+	private final ThreadLocal<List<LocalDate[]>> touchedStays = ThreadLocal.withInitial(ArrayList::new);
+
+	/**
+	 * Time a stage of the booking pipeline.
+	 * @param stage
+	 * @param action
+	 */
+	public void record(String stage, Runnable action) {
+		stageTimer(stage).record(action);
+	}
+
+	/**
+	 * Time a stage of the booking pipeline and return its result.
+	 * @param stage
+	 * @param action
+	 */
+	public <T> T record(String stage, Supplier<T> action) {
+		return stageTimer(stage).record(action);
+	}
+
+	/**
+	 * Record a whole call to a retryable operation, including its retries and commit.
+	 * @param operation
+	 * @param outcome
+	 * @param nanos
+	 * @param retries attempts made after the first one
+	 * @param wastedAttempts attempts rolled back by a conflict, retried or not
+	 */
+	public void operation(String operation, String outcome, long nanos, int retries, int wastedAttempts) {
+		registry.timer(OPERATION_TIMER, "operation", operation, "outcome", outcome).record(nanos, TimeUnit.NANOSECONDS);
+		if (retries > 0) {
+			registry.counter(RETRY_COUNTER, "operation", operation).increment(retries);
+		}
+		if (wastedAttempts > 0) {
+			registry.counter(WASTED_ATTEMPT_COUNTER, "operation", operation).increment(wastedAttempts);
+		}
+	}
+
+	/**
+	 * Record the number of bookings committed together by the group commit.
+	 * @param size
+	 */
+	public void groupCommit(int size) {
+		registry.summary(GROUP_COMMIT_SUMMARY).record(size);
+	}
+
+	/**
+	 * Count a failed attempt of a retryable operation.
+	 * @param operation
+	 * @param cause
+	 */
+	public void error(String operation, String cause) {
+		registry.counter(ERROR_COUNTER, "operation", operation, "cause", cause).increment();
+	}
+
+	/**
+	 * Remember the dates changed by the current attempt, from (inclusive) to (exclusive).
+	 * Nothing is remembered out of a retryable call, as nothing would forget it.
+	 * @param from
+	 * @param to
+	 */
+	public void touch(LocalDate from, LocalDate to) {
+		if (RetrySynchronizationManager.getContext() == null) {
+			return;
+		}
+		touchedStays.get().add(new LocalDate[] {from, to});
+	}
+
+	/**
+	 * Forget the dates changed by the current attempt.
+	 */
+	public void untouch() {
+		touchedStays.get().clear();
+	}
+
+	/**
+	 * Count a version conflict on every date changed by the current attempt, which is then forgotten.
+	 * @param operation
+	 */
+	public void conflict(String operation) {
+		registry.counter(CONFLICT_COUNTER, "operation", operation).increment();
+		List<LocalDate[]> stays = touchedStays.get();
+		for (LocalDate[] stay : stays) {
+			for (LocalDate day = stay[0]; day.isBefore(stay[1]); day = day.plusDays(1)) {
+				conflicts.computeIfAbsent(day, date -> new LongAdder()).increment();
+			}
+		}
+		stays.clear();
+		conflicts.headMap(LocalDate.now()).clear();
+	}
+
+	/**
+	 * Version conflicts per stay date, from today on.
+	 */
+	@ManagedAttribute
+	public Map<String, Long> getConflictsPerDate() {
+		Map<String, Long> snapshot = new TreeMap<String, Long>();
+		conflicts.tailMap(LocalDate.now()).forEach((day, count) -> snapshot.put(day.toString(), count.sum()));
+		return snapshot;
+	}
+
+	@ManagedOperation
+	public void resetConflicts() {
+		conflicts.clear();
+	}
+
+	private Timer stageTimer(String stage) {
+		return stageTimers.computeIfAbsent(stage, name -> Timer.builder(STAGE_TIMER).tag("stage", name).register(registry));
+	}
+
+}
@@ -0,0 +1,109 @@
+package com.upgrade.challenge.services;
+
+import java.sql.BatchUpdateException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.retry.RetryCallback;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.listener.RetryListenerSupport;
+import org.springframework.stereotype.Component;
+
+import com.upgrade.challenge.exception.AvailabilityException;
+import com.upgrade.challenge.exception.BookingException;
+import com.upgrade.challenge.exception.BookingNotFoundException;
+import com.upgrade.challenge.exception.InputFormatException;
+
+/**
+ * Feeds {@link BookingMetrics} with every call to a {@code @Retryable} method: its failed attempts by cause,
+ * the version conflicts with the dates they hit, and the outcome and duration of the whole call.
+ * As a bean, spring-retry applies it to every retryable method.
+ */
+@Component
+public class BookingRetryListener extends RetryListenerSupport {
+
+	private static final String START = "volcano.start";
+
+	private static final String UNKNOWN_OPERATION = "unknown";
+
+	@Autowired
+	private BookingMetrics metrics;
+
+	@Override
+	public <T, E extends Throwable> boolean open(RetryContext context, RetryCallback<T, E> callback) {
+		context.setAttribute(START, System.nanoTime());
+		metrics.untouch();
+		return true;
+	}
+
+	@Override
+	public <T, E extends Throwable> void onError(RetryContext context, RetryCallback<T, E> callback, Throwable throwable) {
+		String operation = operation(context);
+		metrics.error(operation, cause(throwable));
+		if (isConflict(throwable)) {
+			metrics.conflict(operation);
+		} else {
+			metrics.untouch();
+		}
+	}
+
+	@Override
+	public <T, E extends Throwable> void close(RetryContext context, RetryCallback<T, E> callback, Throwable throwable) {
+		metrics.untouch();
+		Object start = context.getAttribute(START);
+		if (start == null) {
+			return;
+		}
+		// The last failed attempt of an unsuccessful call is not followed by a retry, and is only wasted by a conflict.
+		int retries = context.getRetryCount() - (throwable == null ? 0 : 1);
+		int wastedAttempts = context.getRetryCount() - (throwable == null || isConflict(throwable) ? 0 : 1);
+		metrics.operation(operation(context), outcome(throwable), System.nanoTime() - (Long) start, Math.max(retries, 0),
+				Math.max(wastedAttempts, 0));
+	}
+
+	/**
+	 * The label given by spring-retry is the generic method signature, shortened to class and method names.
+	 */
+	private static String operation(RetryContext context) {
+		Object name = context.getAttribute(RetryContext.NAME);
+		if (name == null) {
+			return UNKNOWN_OPERATION;
+		}
+		String signature = name.toString();
+		int parameters = signature.indexOf('(');
+		String method = parameters < 0 ? signature : signature.substring(0, parameters);
+		int methodName = method.lastIndexOf('.');
+		int className = methodName < 0 ? -1 : method.lastIndexOf('.', methodName - 1);
+		return method.substring(className + 1);
+	}
+
+	/**
+	 * A batch update failing at flush is wrapped by the persistence exceptions, so it is looked for in the causes.
+	 */
+	private static String cause(Throwable throwable) {
+		for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+			if (cause instanceof BatchUpdateException) {
+				return BatchUpdateException.class.getSimpleName();
+			}
+		}
+		return throwable.getClass().getSimpleName();
+	}
+
+	private static boolean isConflict(Throwable throwable) {
+		return throwable instanceof ConcurrencyFailureException || throwable instanceof DataIntegrityViolationException
+				|| throwable instanceof BatchUpdateException;
+	}
+
+	private static String outcome(Throwable throwable) {
+		if (throwable == null) {
+			return BookingMetrics.SUCCESS;
+		}
+		if (throwable instanceof AvailabilityException || throwable instanceof BookingException
+				|| throwable instanceof BookingNotFoundException || throwable instanceof InputFormatException) {
+			return BookingMetrics.REJECTED;
+		}
+		return BookingMetrics.FAILED;
+	}
+
+}
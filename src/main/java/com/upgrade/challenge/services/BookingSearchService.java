@@ -0,0 +1,201 @@
+package com.upgrade.challenge.services;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.upgrade.challenge.campsite.Campsite;
+import com.upgrade.challenge.campsite.Sharded;
+import com.upgrade.challenge.exception.InputFormatException;
+import com.upgrade.challenge.model.BookingPage;
+import com.upgrade.challenge.model.BookingResponse;
+import com.upgrade.challenge.model.ExportFormat;
+import com.upgrade.challenge.model.dto.Booking;
+import com.upgrade.challenge.repository.BookingRepository;
+
+/**
+ * Searches the bookings of a campsite by email or by stay with keyset pagination: a page starts right after the last booking
+ * of the previous one in the index order, so every page costs the same whatever its depth. The exports stream
+ * the bookings as they are fetched instead of loading them. Every search runs in a read-only transaction, so that
+ * it is served by the replica.
+ */
+@Service
+public class BookingSearchService {
+
+	@Autowired
+	private BookingRepository bookingRepository;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Value("${volcano.search_page_size:20}")
+	private int defaultPageSize;
+
+	@Value("${volcano.search_max_page_size:100}")
+	private int maxPageSize;
+
+	private static final String CSV_HEADER = "id,fromDay,toDay,guests,firstName,lastName,email";
+
+	private static final String CURSOR_SEPARATOR = "_";
+
+	private static final String INVALID_CURSOR_EXCEPTION = "Invalid after: %s";
+
+	private static final String INVALID_SIZE_EXCEPTION = "size should be between 1 and %d";
+
+	private static final String INVALID_STAY_EXCEPTION = "from should be before to";
+
+	/**
+	 * Find the bookings of an email ordered by id.
+	 * @param campsite
+	 * @param email
+	 * @param after the next cursor of the previous page, or null for the first one
+	 * @param size
+	 */
+	@Transactional(readOnly = true)
+	@Sharded
+	public BookingPage findByEmail(Campsite campsite, String email, String after, Integer size) {
+		int pageSize = pageSize(size);
+		Long afterId = Long.MIN_VALUE;
+		if (after != null) {
+			try {
+				afterId = Long.valueOf(after);
+			} catch (NumberFormatException e) {
+				throw new InputFormatException(String.format(INVALID_CURSOR_EXCEPTION, after), e);
+			}
+		}
+		List<Booking> bookings = bookingRepository.findByEmailAfter(campsite.getId(), email, afterId,
+				PageRequest.of(0, pageSize));
+		String next = bookings.size() < pageSize ? null : String.valueOf(bookings.get(bookings.size() - 1).getId());
+		return new BookingPage(responses(bookings), next);
+	}
+
+	/**
+	 * Find the bookings staying at least a night between from (inclusive) and to (exclusive), ordered by arrival.
+	 * @param campsite
+	 * @param from
+	 * @param to
+	 * @param after the next cursor of the previous page, or null for the first one
+	 * @param size
+	 */
+	@Transactional(readOnly = true)
+	@Sharded
+	public BookingPage findByStay(Campsite campsite, LocalDate from, LocalDate to, String after, Integer size) {
+		validateStay(from, to);
+		int pageSize = pageSize(size);
+		LocalDate afterFromDay = firstFromDay(campsite, from);
+		Long afterId = Long.MIN_VALUE;
+		if (after != null) {
+			String[] cursor = after.split(CURSOR_SEPARATOR);
+			try {
+				afterFromDay = LocalDate.parse(cursor[0]);
+				afterId = Long.valueOf(cursor[1]);
+			} catch (DateTimeParseException | NumberFormatException | ArrayIndexOutOfBoundsException e) {
+				throw new InputFormatException(String.format(INVALID_CURSOR_EXCEPTION, after), e);
+			}
+		}
+		List<Booking> bookings = bookingRepository.findStaysAfter(campsite.getId(), from, to, firstFromDay(campsite, from),
+				afterFromDay, afterId, PageRequest.of(0, pageSize));
+		String next = null;
+		if (bookings.size() == pageSize) {
+			Booking last = bookings.get(bookings.size() - 1);
+			next = last.getFromDay() + CURSOR_SEPARATOR + last.getId();
+		}
+		return new BookingPage(responses(bookings), next);
+	}
+
+	/**
+	 * Write the bookings staying between from (inclusive) and to (exclusive), ordered by arrival, one per line.
+	 * @param campsite
+	 * @param from
+	 * @param to
+	 * @param format
+	 * @param output
+	 */
+	@Transactional(readOnly = true)
+	@Sharded
+	public void export(Campsite campsite, LocalDate from, LocalDate to, ExportFormat format, OutputStream output)
+			throws IOException {
+		validateStay(from, to);
+		Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+		if (format == ExportFormat.CSV) {
+			writer.write(CSV_HEADER);
+			writer.write('\n');
+		}
+		try (Stream<BookingResponse> bookings = bookingRepository.streamStays(campsite.getId(), from, to,
+				firstFromDay(campsite, from))) {
+			bookings.forEach(booking -> {
+				try {
+					writer.write(format == ExportFormat.CSV ? csv(booking) : objectMapper.writeValueAsString(booking));
+					writer.write('\n');
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		writer.flush();
+	}
+
+	private void validateStay(LocalDate from, LocalDate to) {
+		if (!from.isBefore(to)) {
+			throw new InputFormatException(INVALID_STAY_EXCEPTION);
+		}
+	}
+
+	/**
+	 * The earliest arrival of a booking of the campsite staying on the given day.
+	 */
+	private LocalDate firstFromDay(Campsite campsite, LocalDate day) {
+		return day.minusDays(campsite.getMaxBookingDays() - 1);
+	}
+
+	private int pageSize(Integer size) {
+		if (size == null) {
+			return defaultPageSize;
+		}
+		if (size < 1 || size > maxPageSize) {
+			throw new InputFormatException(String.format(INVALID_SIZE_EXCEPTION, maxPageSize));
+		}
+		return size;
+	}
+
+	private static List<BookingResponse> responses(List<Booking> bookings) {
+		return bookings.stream().map(booking -> new BookingResponse(booking.getId(), booking.getCampsiteId(), booking.getFromDay(),
+				booking.getToDay(), booking.getGuests(), booking.getFirstName(), booking.getLastName(),
+				booking.getEmail())).collect(Collectors.toList());
+	}
+
+	private static String csv(BookingResponse booking) {
+		return String.join(",", String.valueOf(booking.getId()), String.valueOf(booking.getFromDay()),
+				String.valueOf(booking.getToDay()), String.valueOf(booking.getGuests()), csv(booking.getFirstName()),
+				csv(booking.getLastName()), csv(booking.getEmail()));
+	}
+
+	private static String csv(String value) {
+		if (value == null) {
+			return "";
+		}
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+			return value;
+		}
+		return '"' + value.replace("\"", "\"\"") + '"';
+	}
+
+}
@@ -1,21 +1,22 @@
 package com.upgrade.challenge.services;
 
-import java.sql.BatchUpdateException;
-
-import javax.transaction.Transactional;
+import java.time.LocalDate;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.dao.DataIntegrityViolationException;
-import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.retry.annotation.EnableRetry;
 import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.upgrade.challenge.campsite.Campsite;
+import com.upgrade.challenge.campsite.Sharded;
 import com.upgrade.challenge.exception.BookingNotFoundException;
 import com.upgrade.challenge.model.BookingRequest;
 import com.upgrade.challenge.model.BookingResponse;
 import com.upgrade.challenge.model.dto.Booking;
 import com.upgrade.challenge.repository.BookingRepository;
+import com.upgrade.challenge.retry.BookingRetryConfiguration;
+import com.upgrade.challenge.sequencer.Sequenced;
 import com.upgrade.challenge.validator.BookingValidator;
 
 @Service
@@ -31,77 +32,97 @@ public class BookingService {
 	@Autowired
 	private BookingValidator validator;
 
-	private static final int MAX_ATTEMPTS = 10;
-	
+	@Autowired
+	private BookingMetrics metrics;
+
 	private String CANCEL = "cancel";
 	private String EDIT = "edit";
 
-	public BookingResponse get(Long bookingId) {
-		Booking booking = bookingRepository.findById(bookingId)
+	/**
+	 * Find a booking of the campsite. A booking of another campsite is not found.
+	 * The read-only transaction lets the read go to the replica.
+	 * @param campsite
+	 * @param bookingId
+	 */
+	@Transactional(readOnly = true)
+	@Sharded
+	public BookingResponse get(Campsite campsite, Long bookingId) {
+		Booking booking = bookingRepository.findByIdAndCampsiteId(bookingId, campsite.getId())
 				.orElseThrow(() -> new BookingNotFoundException(bookingId));
-		return new BookingResponse(booking.getId(), booking.getFromDay(), booking.getToDay(),
+		return new BookingResponse(booking.getId(), booking.getCampsiteId(), booking.getFromDay(), booking.getToDay(),
 				booking.getGuests(), booking.getFirstName(), booking.getLastName(), booking.getEmail());
 	}
 
 	@Transactional
-	@Retryable(value = { BatchUpdateException.class, DataIntegrityViolationException.class,
-			ObjectOptimisticLockingFailureException.class }, maxAttempts = MAX_ATTEMPTS)
-	public BookingResponse add(BookingRequest bookingRequest) {
-		dailyAvailabilityService.validateAvailability(bookingRequest.getFromDay(), bookingRequest.getToDay(),
-				bookingRequest.getGuests(), true);
-		dailyAvailabilityService.blockAvailability(bookingRequest.getFromDay(), bookingRequest.getToDay(),
-				bookingRequest.getGuests());
-		return new BookingResponse(bookingRepository.save(new Booking(bookingRequest)).getId(), bookingRequest);
+	@Sequenced
+	@Sharded
+	@Retryable(interceptor = BookingRetryConfiguration.INTERCEPTOR)
+	public BookingResponse add(Campsite campsite, BookingRequest bookingRequest) {
+		metrics.record(BookingMetrics.AVAILABILITY, () -> dailyAvailabilityService.validateAvailability(campsite,
+				bookingRequest.getFromDay(), bookingRequest.getToDay(), bookingRequest.getGuests(), true));
+		metrics.record(BookingMetrics.BLOCK, () -> dailyAvailabilityService.blockAvailability(campsite,
+				bookingRequest.getFromDay(), bookingRequest.getToDay(), bookingRequest.getGuests()));
+		Booking savedBooking = metrics.record(BookingMetrics.SAVE,
+				() -> bookingRepository.save(new Booking(campsite.getId(), bookingRequest)));
+		return new BookingResponse(savedBooking.getId(), campsite.getId(), bookingRequest);
 	}
 
+	/**
+	 * Edit the booking applying only the difference between the stored and the edited stays to the occupation,
+	 * in a single pass over their days. The occupation is not touched when the dates and guests do not change.
+	 * A booking stays in its campsite.
+	 * @param campsite
+	 * @param bookingId
+	 * @param bookingRequest
+	 */
 	@Transactional
-	@Retryable(value = { BatchUpdateException.class, DataIntegrityViolationException.class,
-			ObjectOptimisticLockingFailureException.class }, maxAttempts = MAX_ATTEMPTS)
-	public BookingResponse edit(Long bookingId, BookingRequest bookingRequest) {
-		BookingResponse storedBooking = get(bookingId);
-		validator.validatePastDate(storedBooking.getFromDay(), EDIT);
-		validator.validateDatesInput(bookingRequest.getFromDay(), bookingRequest.getToDay(), true);
-		BookingResponse editedBooking = new BookingResponse(bookingId, bookingRequest);
+	@Sequenced
+	@Sharded
+	@Retryable(interceptor = BookingRetryConfiguration.INTERCEPTOR)
+	public BookingResponse edit(Campsite campsite, Long bookingId, BookingRequest bookingRequest) {
+		Booking storedBooking = bookingRepository.findByIdAndCampsiteId(bookingId, campsite.getId())
+				.orElseThrow(() -> new BookingNotFoundException(bookingId));
+		metrics.record(BookingMetrics.VALIDATION, () -> {
+			validator.validatePastDate(storedBooking.getFromDay(), EDIT);
+			validator.validateDatesInput(bookingRequest.getFromDay(), bookingRequest.getToDay(), true,
+					campsite.getMaxBookingDays());
+			validator.validateGuestsInput(bookingRequest.getGuests(), campsite.getMaxCapacity());
+		});
+		BookingResponse editedBooking = new BookingResponse(bookingId, campsite.getId(), bookingRequest);
 
-		Integer storedGuests = storedBooking.getGuests();
-		Integer editedGuests = editedBooking.getGuests();
-		if (editedBooking.getFromDay().compareTo(storedBooking.getFromDay()) < 0
-				|| editedBooking.getToDay().compareTo(storedBooking.getToDay()) > 0 || editedGuests > storedGuests) {
-			dailyAvailabilityService.releaseAvailability(storedBooking.getFromDay(), storedBooking.getToDay(), storedBooking.getGuests());
-			return update(editedBooking);
-		}
-		// Release availability in case of a later arrival.
-		if (storedBooking.getFromDay().compareTo(editedBooking.getFromDay()) < 0) {
-			dailyAvailabilityService.releaseAvailability(storedBooking.getFromDay(), editedBooking.getFromDay(), storedGuests);
-		}
-		// Release availability in case of an early departure.
-		if (editedBooking.getToDay().compareTo(storedBooking.getToDay()) < 0) {
-			dailyAvailabilityService.releaseAvailability(editedBooking.getToDay(), storedBooking.getToDay(), storedGuests);
-		}
-		// Release availability in case of fewer guests.
-		if (storedGuests > editedGuests) {
-			dailyAvailabilityService.releaseAvailability(editedBooking.getFromDay(), editedBooking.getToDay(), storedGuests - editedGuests);
+		if (!storedBooking.getFromDay().equals(editedBooking.getFromDay())
+				|| !storedBooking.getToDay().equals(editedBooking.getToDay())
+				|| !storedBooking.getGuests().equals(editedBooking.getGuests())) {
+			metrics.record(BookingMetrics.BLOCK, () -> dailyAvailabilityService.moveAvailability(campsite,
+					storedBooking.getFromDay(), storedBooking.getToDay(), storedBooking.getGuests(),
+					editedBooking.getFromDay(), editedBooking.getToDay(), editedBooking.getGuests()));
 		}
 
-		bookingRepository.save(new Booking(editedBooking));
+		// The stored booking is already managed, so saving it does not read it again.
+		storedBooking.setFromDay(editedBooking.getFromDay());
+		storedBooking.setToDay(editedBooking.getToDay());
+		storedBooking.setGuests(editedBooking.getGuests());
+		storedBooking.setFirstName(editedBooking.getFirstName());
+		storedBooking.setLastName(editedBooking.getLastName());
+		storedBooking.setEmail(editedBooking.getEmail());
+		metrics.record(BookingMetrics.SAVE, () -> bookingRepository.save(storedBooking));
 		return editedBooking;
 	}
 	
 	@Transactional
-	@Retryable(value = { BatchUpdateException.class, DataIntegrityViolationException.class,
-			ObjectOptimisticLockingFailureException.class }, maxAttempts = MAX_ATTEMPTS)
-	public void delete(Long bookingId) {
-		BookingResponse booking = get(bookingId);
-		validator.validatePastDate(booking.getFromDay(), CANCEL);
-		dailyAvailabilityService.releaseAvailability(booking.getFromDay(), booking.getToDay(), booking.getGuests());
-		bookingRepository.deleteById(bookingId);
+	@Sequenced
+	@Sharded
+	@Retryable(interceptor = BookingRetryConfiguration.INTERCEPTOR)
+	public void delete(Campsite campsite, Long bookingId) {
+		BookingResponse booking = get(campsite, bookingId);
+		metrics.record(BookingMetrics.VALIDATION, () -> validator.validatePastDate(booking.getFromDay(), CANCEL));
+		release(campsite, booking.getFromDay(), booking.getToDay(), booking.getGuests());
+		metrics.record(BookingMetrics.SAVE, () -> bookingRepository.deleteById(bookingId));
 	}
 
-	private BookingResponse update(BookingResponse booking) {
-		dailyAvailabilityService.validateAvailability(booking.getFromDay(), booking.getToDay(), booking.getGuests(), true);
-		dailyAvailabilityService.blockAvailability(booking.getFromDay(), booking.getToDay(), booking.getGuests());
-		bookingRepository.save(new Booking(booking));
-		return booking;
+	private void release(Campsite campsite, LocalDate from, LocalDate to, Integer guests) {
+		metrics.record(BookingMetrics.RELEASE,
+				() -> dailyAvailabilityService.releaseAvailability(campsite, from, to, guests));
 	}
 	
 }
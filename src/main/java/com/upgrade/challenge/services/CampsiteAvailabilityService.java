@@ -0,0 +1,144 @@
+package com.upgrade.challenge.services;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.upgrade.challenge.campsite.Campsite;
+import com.upgrade.challenge.campsite.CampsiteRegistry;
+import com.upgrade.challenge.datasource.ShardRouting;
+import com.upgrade.challenge.model.DailyAvailability;
+import com.upgrade.challenge.model.dto.DailyOccupation;
+import com.upgrade.challenge.repository.DailyOccupationRepository;
+
+/**
+ * The availability of several campsites at once. The campsites covered by the ledger are answered from memory,
+ * the others with a single query per shard, the shards being queried in parallel.
+ */
+@Service
+public class CampsiteAvailabilityService {
+
+	@Autowired
+	private DailyAvailabilityService dailyAvailabilityService;
+
+	@Autowired
+	private DailyOccupationRepository dailyOccupationRepository;
+
+	@Autowired
+	private OccupationLedger ledger;
+
+	@Autowired
+	private CapacityCalendar capacityCalendar;
+
+	@Autowired
+	private CampsiteRegistry campsites;
+
+	@Autowired
+	private ShardRouting shardRouting;
+
+	@Value("${volcano.shard_query_threads:4}")
+	private int threads;
+
+	private ThreadPoolExecutor shardQueries;
+
+	@PostConstruct
+	public void initialize() {
+		AtomicInteger threadNumber = new AtomicInteger();
+		shardQueries = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<Runnable>(), runnable -> {
+					Thread thread = new Thread(runnable, "shard-query-" + threadNumber.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		shardQueries.shutdownNow();
+	}
+
+	/**
+	 * Returns the availability of each of the campsites between the requested optional dates, completed as in
+	 * {@link DailyAvailabilityService#getAvailability}, in the order of the ids.
+	 * @param campsiteIds
+	 * @param from
+	 * @param to
+	 */
+	public Map<Long, List<DailyAvailability>> getAvailability(List<Long> campsiteIds, LocalDate from, LocalDate to) {
+		LocalDate[] dates = dailyAvailabilityService.resolveDates(from, to);
+		Set<Campsite> requested = new LinkedHashSet<Campsite>();
+		campsiteIds.forEach(id -> requested.add(campsites.get(id)));
+
+		Map<Long, List<DailyAvailability>> availability = new HashMap<Long, List<DailyAvailability>>();
+		Map<Integer, List<Campsite>> uncovered = new HashMap<Integer, List<Campsite>>();
+		for (Campsite campsite : requested) {
+			int[] occupation = ledger.snapshot(campsite.getId(), dates[0], dates[1]);
+			if (occupation != null) {
+				availability.put(campsite.getId(), DailyAvailabilityService.toAvailability(
+						capacityCalendar.capacities(campsite, dates[0], dates[1]), dates[0], occupation));
+			} else {
+				uncovered.computeIfAbsent(campsite.getShard(), shard -> new ArrayList<Campsite>()).add(campsite);
+			}
+		}
+		if (uncovered.size() == 1) {
+			Map.Entry<Integer, List<Campsite>> shard = uncovered.entrySet().iterator().next();
+			availability.putAll(load(shard.getKey(), shard.getValue(), dates[0], dates[1]));
+		} else if (!uncovered.isEmpty()) {
+			List<CompletableFuture<Map<Long, List<DailyAvailability>>>> loads = uncovered.entrySet().stream()
+					.map(shard -> CompletableFuture.supplyAsync(
+							() -> load(shard.getKey(), shard.getValue(), dates[0], dates[1]), shardQueries))
+					.collect(Collectors.toList());
+			try {
+				loads.forEach(load -> availability.putAll(load.join()));
+			} catch (CompletionException e) {
+				if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				throw e;
+			}
+		}
+
+		Map<Long, List<DailyAvailability>> result = new LinkedHashMap<Long, List<DailyAvailability>>();
+		requested.forEach(campsite -> result.put(campsite.getId(), availability.get(campsite.getId())));
+		return result;
+	}
+
+	/**
+	 * Load the availability of the campsites of a shard with a single query.
+	 */
+	private Map<Long, List<DailyAvailability>> load(int shard, List<Campsite> shardCampsites, LocalDate from,
+			LocalDate to) {
+		List<Long> ids = shardCampsites.stream().map(Campsite::getId).collect(Collectors.toList());
+		List<DailyOccupation> occupation = shardRouting.onShard(shard, () -> dailyOccupationRepository
+				.findAllByCampsiteIdInAndDateBetweenOrderByCampsiteIdAscDateAsc(ids, from, to.minusDays(1)));
+		Map<Long, List<DailyOccupation>> byCampsite = occupation.stream()
+				.collect(Collectors.groupingBy(DailyOccupation::getCampsiteId));
+		Map<Long, List<DailyAvailability>> availability = new HashMap<Long, List<DailyAvailability>>();
+		for (Campsite campsite : shardCampsites) {
+			availability.put(campsite.getId(), DailyAvailabilityService.toAvailability(
+					capacityCalendar.capacities(campsite, from, to), from, to,
+					byCampsite.getOrDefault(campsite.getId(), new ArrayList<DailyOccupation>())));
+		}
+		return availability;
+	}
+
+}
@@ -0,0 +1,276 @@
+package com.upgrade.challenge.services;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.upgrade.challenge.campsite.Campsite;
+import com.upgrade.challenge.campsite.CampsiteRegistry;
+import com.upgrade.challenge.campsite.Sharded;
+import com.upgrade.challenge.datasource.ShardRouting;
+import com.upgrade.challenge.exception.CapacityOverrideNotFoundException;
+import com.upgrade.challenge.exception.InputFormatException;
+import com.upgrade.challenge.model.CapacityOverrideRequest;
+import com.upgrade.challenge.model.dto.CapacityOverride;
+import com.upgrade.challenge.repository.CapacityOverrideRepository;
+import com.upgrade.challenge.validator.BookingValidator;
+
+/**
+ * The guests each day of a campsite can hold: the capacity of the campsite, overridden on some date ranges to
+ * close parts of it for maintenance or open overflow areas. The ranges are expanded into a capacity per day
+ * from today up to the last bookable checkout date when they change, so a lookup is an array access instead
+ * of a query.
+ * <p>
+ * When ranges overlap, the last created one wins. The calendar is rebuilt from the DB on the instance that
+ * changes it, and reloaded every volcano.capacity_reload_ms by the others.
+ */
+@Component
+@EnableScheduling
+@ManagedResource(objectName = "volcano:type=CapacityCalendar")
+public class CapacityCalendar {
+
+	private static final String FROM_TO_EXCEPTION = "fromDay should be prior to toDay.";
+
+	private static final String PAST_DAY_EXCEPTION = "fromDay should not be a past day.";
+
+	private static final String HORIZON_EXCEPTION = "toDay should not be after %s, the last bookable checkout date.";
+
+	@Autowired
+	private CapacityOverrideRepository capacityOverrideRepository;
+
+	@Autowired
+	private CampsiteRegistry campsites;
+
+	@Autowired
+	private ShardRouting shardRouting;
+
+	@Autowired
+	private OccupationLedger ledger;
+
+	@Autowired
+	private BookingValidator validator;
+
+	/**
+	 * The calendar of each campsite, replaced as a whole when loaded.
+	 */
+	private volatile Map<Long, Calendar> calendars = new ConcurrentHashMap<Long, Calendar>();
+
+	/**
+	 * Build the calendar of every campsite from the overrides stored in its shard, then announce the days of the
+	 * overrides added or removed meanwhile by another instance.
+	 */
+	@PostConstruct
+	@ManagedOperation
+	@Scheduled(fixedDelayString = "${volcano.capacity_reload_ms:10000}", initialDelayString = "${volcano.capacity_reload_ms:10000}")
+	public synchronized void load() {
+		Map<Long, Calendar> loadedCalendars = new ConcurrentHashMap<Long, Calendar>();
+		List<CapacityOverride> changedOverrides = new ArrayList<CapacityOverride>();
+		for (Campsite campsite : campsites.getAll()) {
+			Calendar calendar = shardRouting.onShard(campsite.getShard(), () -> build(campsite));
+			Calendar previous = calendars.get(campsite.getId());
+			if (previous != null) {
+				changedOverrides.addAll(calendar.changedOverrides(previous));
+			}
+			loadedCalendars.put(campsite.getId(), calendar);
+		}
+		calendars = loadedCalendars;
+		for (CapacityOverride capacityOverride : changedOverrides) {
+			ledger.record(capacityOverride.getCampsiteId(), capacityOverride.getFromDay(), capacityOverride.getToDay(), 0);
+		}
+	}
+
+	/**
+	 * Returns the capacity of the campsite for each day between from (inclusive) and to (exclusive).
+	 * @param campsite
+	 * @param from
+	 * @param to
+	 */
+	public int[] capacities(Campsite campsite, LocalDate from, LocalDate to) {
+		Calendar calendar = calendars.get(campsite.getId());
+		long start = from.toEpochDay();
+		int[] result = new int[(int) Math.max(to.toEpochDay() - start, 0)];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = calendar == null ? campsite.getMaxCapacity() : calendar.capacity(start + i);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the capacity of the campsite between from (inclusive) and to (exclusive) if it is the same
+	 * every day, or empty if it changes along the interval.
+	 * @param campsite
+	 * @param from
+	 * @param to
+	 */
+	public OptionalInt uniformCapacity(Campsite campsite, LocalDate from, LocalDate to) {
+		Calendar calendar = calendars.get(campsite.getId());
+		if (calendar == null) {
+			return OptionalInt.of(campsite.getMaxCapacity());
+		}
+		return calendar.uniform(from.toEpochDay(), to.toEpochDay());
+	}
+
+	/**
+	 * Returns the overrides of the campsite in the order they apply.
+	 * @param campsite
+	 */
+	public List<CapacityOverride> getOverrides(Campsite campsite) {
+		Calendar calendar = calendars.get(campsite.getId());
+		return calendar == null ? Collections.emptyList() : calendar.overrides;
+	}
+
+	/**
+	 * Override the capacity of the campsite between the dates of the request, which should be within the days
+	 * that can be booked.
+	 * @param campsite
+	 * @param request
+	 */
+	@Sharded
+	public synchronized CapacityOverride add(Campsite campsite, CapacityOverrideRequest request) {
+		if (!request.getFromDay().isBefore(request.getToDay())) {
+			throw new InputFormatException(FROM_TO_EXCEPTION);
+		}
+		LocalDate today = LocalDate.now();
+		if (request.getFromDay().isBefore(today)) {
+			throw new InputFormatException(PAST_DAY_EXCEPTION);
+		}
+		LocalDate lastCheckout = lastCheckout(campsite, today);
+		if (request.getToDay().isAfter(lastCheckout)) {
+			throw new InputFormatException(String.format(HORIZON_EXCEPTION, lastCheckout));
+		}
+		CapacityOverride capacityOverride = capacityOverrideRepository.save(new CapacityOverride(campsite.getId(), request));
+		changed(campsite, capacityOverride);
+		return capacityOverride;
+	}
+
+	/**
+	 * Remove an override of the campsite, back to the capacity it replaced.
+	 * @param campsite
+	 * @param overrideId
+	 */
+	@Sharded
+	public synchronized void remove(Campsite campsite, Long overrideId) {
+		CapacityOverride capacityOverride = capacityOverrideRepository.findByIdAndCampsiteId(overrideId, campsite.getId())
+				.orElseThrow(() -> new CapacityOverrideNotFoundException(overrideId));
+		capacityOverrideRepository.delete(capacityOverride);
+		changed(campsite, capacityOverride);
+	}
+
+	@ManagedAttribute
+	public int getOverrideCount() {
+		return calendars.values().stream().mapToInt(calendar -> calendar.overrides.size()).sum();
+	}
+
+	/**
+	 * Rebuild the calendar of the campsite, then announce the days whose capacity changed through the ledger,
+	 * which invalidates their cached availability and versions.
+	 */
+	private void changed(Campsite campsite, CapacityOverride capacityOverride) {
+		calendars.put(campsite.getId(), build(campsite));
+		ledger.record(campsite.getId(), capacityOverride.getFromDay(), capacityOverride.getToDay(), 0);
+	}
+
+	private Calendar build(Campsite campsite) {
+		LocalDate today = LocalDate.now();
+		return new Calendar(campsite.getMaxCapacity(),
+				capacityOverrideRepository.findAllByCampsiteIdOrderByIdAsc(campsite.getId()), today.toEpochDay(),
+				lastCheckout(campsite, today).toEpochDay());
+	}
+
+	private LocalDate lastCheckout(Campsite campsite, LocalDate today) {
+		return today.plusMonths(validator.getMonthsUpToBooking()).plusDays(campsite.getMaxBookingDays());
+	}
+
+	/**
+	 * The capacity of each overridden day between the first and last days it was built for, the other days
+	 * having the capacity of the campsite. Never modified once built.
+	 */
+	private static class Calendar {
+
+		private final int defaultCapacity;
+
+		private final List<CapacityOverride> overrides;
+
+		private final long firstDay;
+
+		private final int[] days;
+
+		/**
+		 * @param defaultCapacity
+		 * @param overrides
+		 * @param firstDay the first day to expand the overrides on
+		 * @param lastDay the day after the last one to expand the overrides on
+		 */
+		private Calendar(int defaultCapacity, List<CapacityOverride> overrides, long firstDay, long lastDay) {
+			this.defaultCapacity = defaultCapacity;
+			this.overrides = Collections.unmodifiableList(overrides);
+			long first = Long.MAX_VALUE;
+			long last = Long.MIN_VALUE;
+			for (CapacityOverride capacityOverride : overrides) {
+				first = Math.min(first, capacityOverride.getFromDay().toEpochDay());
+				last = Math.max(last, capacityOverride.getToDay().toEpochDay());
+			}
+			// The past overrides, and the ones stored beyond the horizon, are not expanded.
+			first = Math.max(first, firstDay);
+			last = Math.min(last, lastDay);
+			this.firstDay = first < last ? first : 0;
+			this.days = new int[first < last ? (int) (last - first) : 0];
+			Arrays.fill(days, defaultCapacity);
+			for (CapacityOverride capacityOverride : overrides) {
+				long end = Math.min(capacityOverride.getToDay().toEpochDay(), last);
+				for (long day = Math.max(capacityOverride.getFromDay().toEpochDay(), first); day < end; day++) {
+					days[(int) (day - first)] = capacityOverride.getCapacity();
+				}
+			}
+		}
+
+		/**
+		 * Returns the overrides of this calendar not in the previous one, and the ones of the previous one
+		 * not in this one.
+		 */
+		private List<CapacityOverride> changedOverrides(Calendar previous) {
+			Set<Long> ids = overrides.stream().map(CapacityOverride::getId).collect(Collectors.toSet());
+			Set<Long> previousIds = previous.overrides.stream().map(CapacityOverride::getId).collect(Collectors.toSet());
+			List<CapacityOverride> changed = new ArrayList<CapacityOverride>();
+			overrides.stream().filter(capacityOverride -> !previousIds.contains(capacityOverride.getId())).forEach(changed::add);
+			previous.overrides.stream().filter(capacityOverride -> !ids.contains(capacityOverride.getId())).forEach(changed::add);
+			return changed;
+		}
+
+		private int capacity(long day) {
+			return day < firstDay || day >= firstDay + days.length ? defaultCapacity : days[(int) (day - firstDay)];
+		}
+
+		private OptionalInt uniform(long start, long end) {
+			if (end <= firstDay || start >= firstDay + days.length) {
+				return OptionalInt.of(defaultCapacity);
+			}
+			int capacity = capacity(start);
+			for (long day = start + 1; day < end; day++) {
+				if (capacity(day) != capacity) {
+					return OptionalInt.empty();
+				}
+			}
+			return OptionalInt.of(capacity);
+		}
+
+	}
+
+}
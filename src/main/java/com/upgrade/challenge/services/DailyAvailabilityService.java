@@ -2,19 +2,28 @@ package com.upgrade.challenge.services;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import javax.transaction.Transactional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
+import com.upgrade.challenge.campsite.Campsite;
+import com.upgrade.challenge.campsite.Sharded;
+import com.upgrade.challenge.datasource.ReadRouting;
 import com.upgrade.challenge.exception.AvailabilityException;
 import com.upgrade.challenge.model.DailyAvailability;
 import com.upgrade.challenge.model.dto.DailyOccupation;
@@ -30,7 +39,75 @@ public class DailyAvailabilityService {
 	@Autowired
 	private BookingValidator validator;
 
-	public List<DailyAvailability> getAvailability(LocalDate from, LocalDate to) {
+	@Autowired
+	private OccupationLedger ledger;
+
+	@Autowired
+	private CapacityCalendar capacityCalendar;
+
+	@Autowired
+	private DailyOccupationProvisioner provisioner;
+
+	@Autowired
+	private AvailabilityCache availabilityCache;
+
+	@Autowired
+	private BookingMetrics metrics;
+
+	@Autowired
+	private ReadRouting readRouting;
+
+	/**
+	 * "optimistic" reads, modifies and saves the occupation entities relying on their version,
+	 * "atomic" reserves the whole stay with a conditional update.
+	 */
+	@Value("${volcano.reservation_mode:optimistic}")
+	private String reservationMode;
+
+	private static final String ATOMIC_RESERVATION = "atomic";
+
+	private static final String NO_AVAILABILITY_EXCEPTION = "There is no availability for the selected dates - From: %s, To: %s and %s guest(s)."
+			+ " Please try again with differents dates.";
+
+	@Sharded
+	public List<DailyAvailability> getAvailability(Campsite campsite, LocalDate from, LocalDate to) {
+		LocalDate[] dates = resolveDates(from, to);
+		from = dates[0];
+		to = dates[1];
+		Optional<List<DailyAvailability>> cachedAvailability = availabilityCache.get(campsite.getId(), from, to);
+		if (cachedAvailability.isPresent()) {
+			return cachedAvailability.get();
+		}
+		long cacheGeneration = availabilityCache.generation();
+		List<DailyAvailability> availabilityResult = loadAvailability(campsite, from, to);
+		// The replica may not have the change that invalidated the cache yet, so its reads are not cached.
+		if (!readRouting.readsFromReplica()) {
+			availabilityCache.put(campsite.getId(), from, to, availabilityResult, cacheGeneration);
+		}
+		return availabilityResult;
+	}
+
+	/**
+	 * Returns a tag that changes whenever the availability of the campsite between the requested dates changes,
+	 * or empty if the dates are not covered by the ledger.
+	 * @param campsite
+	 * @param from
+	 * @param to
+	 */
+	public Optional<String> getAvailabilityTag(Campsite campsite, LocalDate from, LocalDate to) {
+		LocalDate[] dates = resolveDates(from, to);
+		OptionalLong version = ledger.version(campsite.getId(), dates[0], dates[1]);
+		if (!version.isPresent()) {
+			return Optional.empty();
+		}
+		return Optional.of(String.format("%d-%d-%s-%s-%d", ledger.getLoadedAt(), campsite.getId(), dates[0], dates[1],
+				version.getAsLong()));
+	}
+
+	/**
+	 * Complete the missing dates with the defaults and validate the given ones.
+	 */
+	LocalDate[] resolveDates(LocalDate from, LocalDate to) {
 		LocalDate now = LocalDate.parse(LocalDate.now().toString(), DateTimeFormatter.ISO_DATE);
 		if (Objects.isNull(from) && Objects.isNull(to)) {
 			from = now.plusDays(validator.getMinimumDaysAheadOfArrival());
@@ -44,69 +121,234 @@ public class DailyAvailabilityService {
 			}
 			validator.validateDatesInput(from, to, false);
 		}
-		List<DailyAvailability> availabilityResult = new LinkedList<DailyAvailability>();
+		return new LocalDate[] {from, to};
+	}
 
-		LocalDate consecutiveDate = from;
-		LocalDate endDate = to.minusDays(1);
-		List<DailyOccupation> occupabilities = dailyOccupationRepository.findAllByDateBetweenOrderByDateAsc(from, endDate);
-		for (DailyOccupation dailyOccupation : occupabilities) {
-			DailyAvailability dailyAvailability = new DailyAvailability(dailyOccupation.getDate(),
-					validator.getMaxCapacity() - dailyOccupation.getGuests());
-			LocalDate currentDate = dailyOccupation.getDate();
-			while (consecutiveDate.isBefore(currentDate)) {
-				availabilityResult.add(new DailyAvailability(consecutiveDate, validator.getMaxCapacity()));
-				consecutiveDate = consecutiveDate.plusDays(1);
-			}
-			availabilityResult.add(dailyAvailability);
-			consecutiveDate = consecutiveDate.plusDays(1);
-		}
-		while (!consecutiveDate.isAfter(endDate)) {
-			availabilityResult.add(new DailyAvailability(consecutiveDate, validator.getMaxCapacity()));
-			consecutiveDate = consecutiveDate.plusDays(1);
+	/**
+	 * Build the availability of the campsite from the ledger, or from the DB if not covered, bypassing the cache.
+	 */
+	List<DailyAvailability> loadAvailability(Campsite campsite, LocalDate from, LocalDate to) {
+		int[] capacity = capacityCalendar.capacities(campsite, from, to);
+		int[] ledgerOccupation = ledger.snapshot(campsite.getId(), from, to);
+		if (ledgerOccupation != null) {
+			return toAvailability(capacity, from, ledgerOccupation);
 		}
+		return toAvailability(capacity, from, to, dailyOccupationRepository
+				.findAllByCampsiteIdAndDateBetweenOrderByDateAsc(campsite.getId(), from, to.minusDays(1)));
+	}
 
+	/**
+	 * The availability from the capacity and occupation per day, starting on from. A day whose capacity
+	 * was lowered below its occupation has no availability.
+	 */
+	static List<DailyAvailability> toAvailability(int[] capacity, LocalDate from, int[] occupation) {
+		List<DailyAvailability> availabilityResult = new ArrayList<DailyAvailability>(occupation.length);
+		for (int i = 0; i < occupation.length; i++) {
+			availabilityResult.add(new DailyAvailability(from.plusDays(i), Math.max(capacity[i] - occupation[i], 0)));
+		}
 		return availabilityResult;
 	}
 
-	public void validateAvailability(LocalDate from, LocalDate to, Integer guests, Boolean isBooking) {
-		validator.validateDatesInput(from, to, isBooking);
-		validator.validateGuestsInput(guests);
-		if (dailyOccupationRepository.existsByDateBetweenAndGuestsGreaterThan(
-				from, to.minusDays(1), validator.getMaxCapacity() - guests)) {
-			throw new AvailabilityException(String.format(
-					"There is no availability for the selected dates - From: %s, To: %s and %s guest(s)."
-					+ " Please try again with differents dates.", from, to, guests));
+	/**
+	 * The availability between from (inclusive) and to (exclusive) from the capacity per day and the occupation
+	 * rows ordered by date, the days without a row being empty.
+	 */
+	static List<DailyAvailability> toAvailability(int[] capacity, LocalDate from, LocalDate to,
+			List<DailyOccupation> occupabilities) {
+		return toAvailability(capacity, from, toOccupation(from, to, occupabilities));
+	}
+
+	/**
+	 * The occupation per day between from (inclusive) and to (exclusive) from its rows.
+	 */
+	private static int[] toOccupation(LocalDate from, LocalDate to, List<DailyOccupation> occupabilities) {
+		int[] occupation = new int[(int) ChronoUnit.DAYS.between(from, to)];
+		for (DailyOccupation dailyOccupation : occupabilities) {
+			occupation[(int) ChronoUnit.DAYS.between(from, dailyOccupation.getDate())] = dailyOccupation.getGuests();
+		}
+		return occupation;
+	}
+
+	public void validateAvailability(Campsite campsite, LocalDate from, LocalDate to, Integer guests, Boolean isBooking) {
+		validator.validateDatesInput(from, to, isBooking, campsite.getMaxBookingDays());
+		validator.validateGuestsInput(guests, campsite.getMaxCapacity());
+		if (!isAvailable(campsite, from, to, guests)) {
+			throw new AvailabilityException(String.format(NO_AVAILABILITY_EXCEPTION, from, to, guests));
+		}
+	}
+
+	/**
+	 * A stay under a single capacity is checked with its highest occupation, otherwise day by day.
+	 */
+	private boolean isAvailable(Campsite campsite, LocalDate from, LocalDate to, Integer guests) {
+		OptionalInt uniformCapacity = capacityCalendar.uniformCapacity(campsite, from, to);
+		if (uniformCapacity.isPresent()) {
+			OptionalInt maxOccupation = ledger.maxOccupation(campsite.getId(), from, to);
+			return maxOccupation.isPresent()
+					? maxOccupation.getAsInt() <= uniformCapacity.getAsInt() - guests
+					: !dailyOccupationRepository.existsByCampsiteIdAndDateBetweenAndGuestsGreaterThan(campsite.getId(),
+							from, to.minusDays(1), uniformCapacity.getAsInt() - guests);
+		}
+		int[] capacity = capacityCalendar.capacities(campsite, from, to);
+		int[] occupation = ledger.snapshot(campsite.getId(), from, to);
+		if (occupation == null) {
+			occupation = toOccupation(from, to,
+					dailyOccupationRepository.findAllByCampsiteIdAndDateBetween(campsite.getId(), from, to.minusDays(1)));
 		}
+		for (int i = 0; i < capacity.length; i++) {
+			if (occupation[i] + guests > capacity[i]) {
+				return false;
+			}
+		}
+		return true;
 	}
 
 	@Transactional
-	public void blockAvailability(LocalDate from, LocalDate to, Integer guests) {
+	@Sharded
+	public void blockAvailability(Campsite campsite, LocalDate from, LocalDate to, Integer guests) {
+		metrics.touch(from, to);
+		if (isAtomicReservation()) {
+			reserve(campsite, from, to, guests);
+			return;
+		}
 		LocalDate endDate = to.minusDays(1);
+		int[] capacity = capacityCalendar.capacities(campsite, from, to);
 		Map<LocalDate, DailyOccupation> currentOccupation = dailyOccupationRepository
-				.findAllByDateBetweenOrderByDateAsc(from, endDate).stream()
+				.findAllByCampsiteIdAndDateBetweenOrderByDateAsc(campsite.getId(), from, endDate).stream()
 				.collect(Collectors.toMap(DailyOccupation::getDate, Function.identity()));
 		List<DailyOccupation> futureOccupation = new LinkedList<DailyOccupation>();
-		for (LocalDate current = from; !current.isAfter(endDate); current = current.plusDays(1)) {
+		LocalDate current = from;
+		for (int day = 0; day < capacity.length; day++, current = current.plusDays(1)) {
 			DailyOccupation dailyOccupation = currentOccupation.get(current);
+			// The availability may have been checked against the ledger, so the DB state has the last word.
+			int occupation = dailyOccupation == null ? 0 : dailyOccupation.getGuests();
+			if (occupation + guests > capacity[day]) {
+				throw new AvailabilityException(String.format(NO_AVAILABILITY_EXCEPTION, from, to, guests));
+			}
 			if (dailyOccupation == null) {
-				futureOccupation.add(new DailyOccupation(current, guests));
+				futureOccupation.add(new DailyOccupation(campsite.getId(), current, guests));
 			} else {
-				dailyOccupation.setGuests(dailyOccupation.getGuests() + guests);
+				dailyOccupation.setGuests(occupation + guests);
 				futureOccupation.add(dailyOccupation);
 			}
 		}
 		dailyOccupationRepository.saveAll(futureOccupation);
+		ledger.record(campsite.getId(), from, to, guests);
 	}
 
 	@Transactional
-	public void releaseAvailability(LocalDate from, LocalDate to, Integer guests) {
+	@Sharded
+	public void releaseAvailability(Campsite campsite, LocalDate from, LocalDate to, Integer guests) {
+		metrics.touch(from, to);
+		if (isAtomicReservation()) {
+			// Locked in date order like the reservations, so the update does not wait for a row midway.
+			dailyOccupationRepository.lock(campsite.getId(), from, to.minusDays(1));
+			dailyOccupationRepository.release(campsite.getId(), from, to.minusDays(1), guests);
+			ledger.record(campsite.getId(), from, to, -guests);
+			return;
+		}
 		List<DailyOccupation> daysToRelease = new LinkedList<DailyOccupation>();
-		List<DailyOccupation> occupability = dailyOccupationRepository.findAllByDateBetween(from, to.minusDays(1));
+		List<DailyOccupation> occupability = dailyOccupationRepository.findAllByCampsiteIdAndDateBetween(campsite.getId(),
+				from, to.minusDays(1));
 		for (DailyOccupation dailyOccupation : occupability) {
 			dailyOccupation.setGuests(dailyOccupation.getGuests() - guests);
 			daysToRelease.add(dailyOccupation);
 		}
 		dailyOccupationRepository.saveAll(daysToRelease);
+		ledger.record(campsite.getId(), from, to, -guests);
+	}
+
+	/**
+	 * Move a stay to new dates or guests applying only the per day difference: the occupation of both stays
+	 * is read once, only the days that gain guests are checked and the changed days are saved together.
+	 * @param campsite
+	 * @param storedFrom
+	 * @param storedTo
+	 * @param storedGuests
+	 * @param from
+	 * @param to
+	 * @param guests
+	 */
+	@Transactional
+	@Sharded
+	public void moveAvailability(Campsite campsite, LocalDate storedFrom, LocalDate storedTo, Integer storedGuests,
+			LocalDate from, LocalDate to, Integer guests) {
+		if (isAtomicReservation()) {
+			// The conditional updates hold a single amount of guests, so the stored stay is released first. The days
+			// of both stays are locked in date order beforehand, so moves in opposite directions cannot deadlock.
+			dailyOccupationRepository.lock(campsite.getId(), storedFrom.isBefore(from) ? storedFrom : from,
+					(storedTo.isAfter(to) ? storedTo : to).minusDays(1));
+			releaseAvailability(campsite, storedFrom, storedTo, storedGuests);
+			blockAvailability(campsite, from, to, guests);
+			return;
+		}
+		OccupationWorkingSet workingSet = loadWorkingSet(campsite, storedFrom.isBefore(from) ? storedFrom : from,
+				storedTo.isAfter(to) ? storedTo : to);
+		if (!workingSet.canHold(from, to, guests, storedFrom, storedTo, storedGuests)) {
+			throw new AvailabilityException(String.format(NO_AVAILABILITY_EXCEPTION, from, to, guests));
+		}
+		workingSet.add(storedFrom, storedTo, -storedGuests);
+		workingSet.add(from, to, guests);
+		saveWorkingSet(workingSet);
+	}
+
+	/**
+	 * Load the occupation of the campsite between from (inclusive) and to (exclusive) to apply several stays
+	 * in memory. The rows are versioned, so saving the working set fails if any of them changed meanwhile.
+	 * @param campsite
+	 * @param from
+	 * @param to
+	 */
+	OccupationWorkingSet loadWorkingSet(Campsite campsite, LocalDate from, LocalDate to) {
+		return new OccupationWorkingSet(campsite, capacityCalendar.capacities(campsite, from, to), from, to,
+				dailyOccupationRepository.findAllByCampsiteIdAndDateBetween(campsite.getId(), from, to.minusDays(1)));
+	}
+
+	/**
+	 * Save the days modified in the working set and record its changes in the ledger.
+	 * @param workingSet
+	 */
+	void saveWorkingSet(OccupationWorkingSet workingSet) {
+		dailyOccupationRepository.saveAll(workingSet.modifiedRows());
+		for (OccupationWorkingSet.Change change : workingSet.getChanges()) {
+			metrics.touch(change.from, change.to);
+			ledger.record(workingSet.getCampsiteId(), change.from, change.to, change.guests);
+		}
+	}
+
+	/**
+	 * Reserve the stay with a conditional update per run of days with the same capacity, failing if any day
+	 * cannot hold the guests. The days without an occupation row are created first in the same transaction, as
+	 * a transaction of their own could wait for the locks the suspended one holds. A day created meanwhile by
+	 * another booking fails the transaction on the unique campsite and date, and the booking is retried.
+	 * The days are locked in date order before the updates, as the moves do, so an update never waits for a row
+	 * midway through its days: H2 was seen to apply such an update to the occupation read before the wait.
+	 */
+	private void reserve(Campsite campsite, LocalDate from, LocalDate to, Integer guests) {
+		LocalDate endDate = to.minusDays(1);
+		long days = ChronoUnit.DAYS.between(from, to);
+		if (dailyOccupationRepository.countByCampsiteIdAndDateBetween(campsite.getId(), from, endDate) < days) {
+			provisioner.createMissingDays(campsite, from, endDate);
+		}
+		dailyOccupationRepository.lock(campsite.getId(), from, endDate);
+		int[] capacity = capacityCalendar.capacities(campsite, from, to);
+		int reserved = 0;
+		for (int start = 0, end = 1; start < capacity.length; start = end++) {
+			while (end < capacity.length && capacity[end] == capacity[start]) {
+				end++;
+			}
+			reserved += dailyOccupationRepository.reserve(campsite.getId(), from.plusDays(start), from.plusDays(end - 1),
+					guests, capacity[start] - guests);
+		}
+		if (reserved < days) {
+			// Throwing rolls back the days that were already reserved.
+			throw new AvailabilityException(String.format(NO_AVAILABILITY_EXCEPTION, from, to, guests));
+		}
+		ledger.record(campsite.getId(), from, to, guests);
+	}
+
+	private boolean isAtomicReservation() {
+		return ATOMIC_RESERVATION.equalsIgnoreCase(reservationMode);
 	}
 
 }
@@ -0,0 +1,138 @@
+package com.upgrade.challenge.services;
+
+import java.time.LocalDate;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.upgrade.challenge.campsite.Campsite;
+import com.upgrade.challenge.campsite.CampsiteRegistry;
+import com.upgrade.challenge.datasource.ShardRouting;
+import com.upgrade.challenge.model.dto.DailyOccupation;
+import com.upgrade.challenge.repository.DailyOccupationRepository;
+import com.upgrade.challenge.validator.BookingValidator;
+
+/**
+ * Creates the missing empty occupation rows of a date interval of a campsite, so the reservation only needs
+ * to update existing rows. The whole booking horizon of every campsite is provisioned at startup and every
+ * day at midnight.
+ */
+@Component
+@EnableScheduling
+public class DailyOccupationProvisioner {
+
+	private static final Logger logger = LoggerFactory.getLogger(DailyOccupationProvisioner.class);
+
+	@Autowired
+	private DailyOccupationRepository dailyOccupationRepository;
+
+	@Autowired
+	private BookingValidator validator;
+
+	@Autowired
+	private CampsiteRegistry campsites;
+
+	@Autowired
+	private ShardRouting shardRouting;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private TransactionTemplate newTransaction;
+
+	@Value("${volcano.provisioning_enabled:true}")
+	private boolean enabled;
+
+	@Value("${volcano.provisioning_margin_days:7}")
+	private int marginDays;
+
+	@PostConstruct
+	public void init() {
+		newTransaction = new TransactionTemplate(transactionManager);
+		newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+	}
+
+	/**
+	 * Provision every day from today up to the last bookable checkout date plus a margin,
+	 * so a new day entering the horizon already has its row when the first booking arrives.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	@Scheduled(cron = "${volcano.provisioning_cron:0 0 0 * * *}")
+	public void provisionHorizon() {
+		if (!enabled) {
+			return;
+		}
+		LocalDate today = LocalDate.now();
+		for (Campsite campsite : campsites.getAll()) {
+			LocalDate lastDay = today.plusMonths(validator.getMonthsUpToBooking())
+					.plusDays(campsite.getMaxBookingDays() + marginDays);
+			try {
+				int createdDays = provision(campsite, today, lastDay);
+				logger.info("Provisioned {} day(s) of occupation of the campsite {} up to {}.", createdDays,
+						campsite.getId(), lastDay);
+			} catch (DataIntegrityViolationException e) {
+				// A booking created some of the days meanwhile, the next run completes the rest.
+				logger.warn("Occupation provisioning of the campsite {} up to {} collided with a booking: {}",
+						campsite.getId(), lastDay, e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Insert an empty occupation for every day of the campsite between from and to (both inclusive) without one,
+	 * in a transaction of its own on the shard of the campsite, started here so that it does not depend on being
+	 * called through the proxy. A concurrent provisioning of the same day fails on the unique campsite and date
+	 * and can be safely retried.
+	 * @param campsite
+	 * @param from
+	 * @param to
+	 * @return the amount of created days
+	 */
+	public int provision(Campsite campsite, LocalDate from, LocalDate to) {
+		return shardRouting.onShard(campsite.getShard(),
+				() -> newTransaction.execute(status -> createMissingDays(campsite, from, to)));
+	}
+
+	/**
+	 * Insert an empty occupation for every day of the campsite between from and to (both inclusive) without one,
+	 * in the transaction of the caller. A concurrent creation of the same day fails that transaction on the unique
+	 * campsite and date, to be retried as a whole.
+	 * It is not a native upsert: the rows take their ids from the Snowflake generator of Hibernate, and MySQL
+	 * (INSERT ... ON DUPLICATE KEY UPDATE) and H2 (MERGE ... KEY) need different statements. The collision is rare
+	 * as the horizon is provisioned ahead of the bookings, and only costs a retry.
+	 * @param campsite
+	 * @param from
+	 * @param to
+	 * @return the amount of created days
+	 */
+	public int createMissingDays(Campsite campsite, LocalDate from, LocalDate to) {
+		Set<LocalDate> existingDays = dailyOccupationRepository.findAllByCampsiteIdAndDateBetween(campsite.getId(), from, to)
+				.stream().map(DailyOccupation::getDate).collect(Collectors.toSet());
+		List<DailyOccupation> missingDays = new LinkedList<DailyOccupation>();
+		for (LocalDate current = from; !current.isAfter(to); current = current.plusDays(1)) {
+			if (!existingDays.contains(current)) {
+				missingDays.add(new DailyOccupation(campsite.getId(), current, 0));
+			}
+		}
+		dailyOccupationRepository.saveAll(missingDays);
+		return missingDays.size();
+	}
+
+}
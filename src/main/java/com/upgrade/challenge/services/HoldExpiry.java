@@ -0,0 +1,181 @@
+package com.upgrade.challenge.services;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.upgrade.challenge.campsite.Campsite;
+import com.upgrade.challenge.campsite.CampsiteRegistry;
+import com.upgrade.challenge.events.HoldPlacedEvent;
+import com.upgrade.challenge.model.dto.Hold;
+
+/**
+ * Releases the expired holds. Each hold is kept in a {@link TimingWheel} from the commit of its placement, and
+ * every tick hands the holds whose time passed to the {@link HoldService} in batches per campsite, so the
+ * expiry needs neither a task per hold nor a scan of the holds.
+ * <p>
+ * An instance only schedules the holds it placed and the ones stored when it started. The holds of an instance
+ * that stopped are released by the sweep of any other one, which reads the holds overdue by more than
+ * volcano.hold_sweep_grace_ms every volcano.hold_sweep_ms through the expiry index.
+ */
+@Component
+@EnableScheduling
+@ManagedResource(objectName = "volcano:type=HoldExpiry")
+public class HoldExpiry {
+
+	private static final Logger logger = LoggerFactory.getLogger(HoldExpiry.class);
+
+	@Autowired
+	private HoldService holdService;
+
+	@Autowired
+	private CampsiteRegistry campsites;
+
+	@Value("${volcano.hold_tick_ms:1000}")
+	private long tickMillis;
+
+	@Value("${volcano.hold_wheel_size:512}")
+	private int wheelSize;
+
+	@Value("${volcano.hold_release_batch_size:500}")
+	private int batchSize;
+
+	@Value("${volcano.hold_sweep_grace_ms:60000}")
+	private long sweepGraceMillis;
+
+	private TimingWheel<ScheduledHold> wheel;
+
+	private final AtomicLong released = new AtomicLong();
+
+	private final AtomicLong failedReleases = new AtomicLong();
+
+	@PostConstruct
+	public void initialize() {
+		wheel = new TimingWheel<ScheduledHold>(tickMillis, wheelSize, System.currentTimeMillis());
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onHoldPlaced(HoldPlacedEvent event) {
+		schedule(event.getCampsiteId(), event.getHoldId(), event.getExpiresAt());
+	}
+
+	/**
+	 * Schedule the holds stored in every campsite, the expired ones being released on the first tick.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void recover() {
+		for (Campsite campsite : campsites.getAll()) {
+			for (Hold hold : holdService.getAll(campsite)) {
+				schedule(hold.getCampsiteId(), hold.getId(), hold.getExpiresAt());
+			}
+		}
+	}
+
+	@Scheduled(fixedDelayString = "${volcano.hold_tick_ms:1000}")
+	public void tick() {
+		release(System.currentTimeMillis());
+	}
+
+	/**
+	 * Release, a batch at a time, the holds of every campsite expired for longer than the grace period, which
+	 * the instance that placed them should have released already.
+	 */
+	@Scheduled(fixedDelayString = "${volcano.hold_sweep_ms:60000}", initialDelayString = "${volcano.hold_sweep_ms:60000}")
+	public void sweep() {
+		Instant overdue = Instant.now().minusMillis(sweepGraceMillis);
+		for (Campsite campsite : campsites.getAll()) {
+			try {
+				List<Long> holdIds = holdService.getExpiredBefore(campsite, overdue, batchSize);
+				while (!holdIds.isEmpty()) {
+					int releasedHolds = holdService.expire(campsite, holdIds);
+					released.addAndGet(releasedHolds);
+					if (holdIds.size() < batchSize || releasedHolds == 0) {
+						break;
+					}
+					holdIds = holdService.getExpiredBefore(campsite, overdue, batchSize);
+				}
+			} catch (RuntimeException e) {
+				logger.warn("Could not release the overdue holds of campsite {}: {}", campsite.getId(), e.getMessage());
+				failedReleases.incrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Release the holds expired at the given time. A batch that cannot be released is scheduled for the
+	 * next tick.
+	 * @param nowMillis
+	 */
+	void release(long nowMillis) {
+		Map<Long, List<Long>> expired = new LinkedHashMap<Long, List<Long>>();
+		for (ScheduledHold hold : wheel.advance(nowMillis)) {
+			expired.computeIfAbsent(hold.campsiteId, campsiteId -> new ArrayList<Long>()).add(hold.holdId);
+		}
+		for (Map.Entry<Long, List<Long>> campsiteHolds : expired.entrySet()) {
+			List<Long> holdIds = campsiteHolds.getValue();
+			for (int start = 0; start < holdIds.size(); start += batchSize) {
+				List<Long> batch = holdIds.subList(start, Math.min(start + batchSize, holdIds.size()));
+				try {
+					released.addAndGet(holdService.expire(campsites.get(campsiteHolds.getKey()), batch));
+				} catch (RuntimeException e) {
+					logger.warn("Could not release {} expired holds of campsite {}: {}", batch.size(),
+							campsiteHolds.getKey(), e.getMessage());
+					failedReleases.incrementAndGet();
+					batch.forEach(holdId -> wheel.schedule(new ScheduledHold(campsiteHolds.getKey(), holdId),
+							nowMillis + tickMillis));
+				}
+			}
+		}
+	}
+
+	@ManagedAttribute
+	public int getPendingHolds() {
+		return wheel.getPending();
+	}
+
+	@ManagedAttribute
+	public long getReleasedHolds() {
+		return released.get();
+	}
+
+	@ManagedAttribute
+	public long getFailedReleases() {
+		return failedReleases.get();
+	}
+
+	private void schedule(long campsiteId, long holdId, Instant expiresAt) {
+		wheel.schedule(new ScheduledHold(campsiteId, holdId), expiresAt.toEpochMilli());
+	}
+
+	private static class ScheduledHold {
+
+		private final long campsiteId;
+
+		private final long holdId;
+
+		private ScheduledHold(long campsiteId, long holdId) {
+			this.campsiteId = campsiteId;
+			this.holdId = holdId;
+		}
+
+	}
+
+}
@@ -0,0 +1,185 @@
+package com.upgrade.challenge.services;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.transaction.Transactional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.retry.annotation.Retryable;
+import org.springframework.stereotype.Service;
+
+import com.upgrade.challenge.campsite.Campsite;
+import com.upgrade.challenge.campsite.Sharded;
+import com.upgrade.challenge.events.HoldPlacedEvent;
+import com.upgrade.challenge.exception.BookingException;
+import com.upgrade.challenge.exception.HoldNotFoundException;
+import com.upgrade.challenge.model.BookingRequest;
+import com.upgrade.challenge.model.BookingResponse;
+import com.upgrade.challenge.model.HoldRequest;
+import com.upgrade.challenge.model.dto.Booking;
+import com.upgrade.challenge.model.dto.Hold;
+import com.upgrade.challenge.repository.BookingRepository;
+import com.upgrade.challenge.repository.HoldRepository;
+import com.upgrade.challenge.retry.BookingRetryConfiguration;
+import com.upgrade.challenge.sequencer.Sequenced;
+
+/**
+ * Blocks the occupation of a stay for a while before it is booked, so it is not taken while the booking is
+ * completed. A confirmed hold becomes a booking without checking the availability again, and the holds left
+ * unconfirmed are released by the {@link HoldExpiry}.
+ */
+@Service
+public class HoldService {
+
+	@Autowired
+	private HoldRepository holdRepository;
+
+	@Autowired
+	private BookingRepository bookingRepository;
+
+	@Autowired
+	private DailyAvailabilityService dailyAvailabilityService;
+
+	@Autowired
+	private BookingMetrics metrics;
+
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	@Value("${volcano.hold_ttl_seconds:600}")
+	private long ttlSeconds;
+
+	private static final String HOLD_MISMATCH_EXCEPTION = "The booking should be for the held stay - From: %s, To: %s and %s guest(s).";
+
+	/**
+	 * Block the stay of the request until the hold expires.
+	 * @param campsite
+	 * @param holdRequest
+	 */
+	@Transactional
+	@Sequenced
+	@Sharded
+	@Retryable(interceptor = BookingRetryConfiguration.INTERCEPTOR)
+	public Hold hold(Campsite campsite, HoldRequest holdRequest) {
+		metrics.record(BookingMetrics.AVAILABILITY, () -> dailyAvailabilityService.validateAvailability(campsite,
+				holdRequest.getFromDay(), holdRequest.getToDay(), holdRequest.getGuests(), true));
+		metrics.record(BookingMetrics.BLOCK, () -> dailyAvailabilityService.blockAvailability(campsite,
+				holdRequest.getFromDay(), holdRequest.getToDay(), holdRequest.getGuests()));
+		Hold hold = metrics.record(BookingMetrics.SAVE, () -> holdRepository
+				.save(new Hold(campsite.getId(), holdRequest,
+						Instant.now().truncatedTo(ChronoUnit.MILLIS).plusSeconds(ttlSeconds))));
+		eventPublisher.publishEvent(new HoldPlacedEvent(campsite.getId(), hold.getId(), hold.getExpiresAt()));
+		return hold;
+	}
+
+	/**
+	 * Book the held stay. The occupation stays as blocked by the hold, so the booking has to be for the same
+	 * dates and guests. An expired hold is not found even if it is not released yet.
+	 * @param campsite
+	 * @param holdId
+	 * @param bookingRequest
+	 */
+	@Transactional
+	@Sharded
+	@Retryable(interceptor = BookingRetryConfiguration.INTERCEPTOR)
+	public BookingResponse confirm(Campsite campsite, Long holdId, BookingRequest bookingRequest) {
+		Hold hold = find(campsite, holdId);
+		if (!hold.getFromDay().equals(bookingRequest.getFromDay()) || !hold.getToDay().equals(bookingRequest.getToDay())
+				|| !hold.getGuests().equals(bookingRequest.getGuests())) {
+			throw new BookingException(String.format(HOLD_MISMATCH_EXCEPTION, hold.getFromDay(), hold.getToDay(),
+					hold.getGuests()));
+		}
+		// Deleting the versioned hold fails if the expiry released it meanwhile.
+		holdRepository.delete(hold);
+		Booking savedBooking = metrics.record(BookingMetrics.SAVE,
+				() -> bookingRepository.save(new Booking(campsite.getId(), bookingRequest)));
+		return new BookingResponse(savedBooking.getId(), campsite.getId(), bookingRequest);
+	}
+
+	/**
+	 * Release the held stay before the hold expires.
+	 * @param campsite
+	 * @param holdId
+	 */
+	@Transactional
+	@Sequenced(ids = Sequenced.Ids.HOLDS)
+	@Sharded
+	@Retryable(interceptor = BookingRetryConfiguration.INTERCEPTOR)
+	public void cancel(Campsite campsite, Long holdId) {
+		Hold hold = find(campsite, holdId);
+		metrics.record(BookingMetrics.RELEASE, () -> dailyAvailabilityService.releaseAvailability(campsite,
+				hold.getFromDay(), hold.getToDay(), hold.getGuests()));
+		holdRepository.delete(hold);
+	}
+
+	/**
+	 * Returns every hold of the campsite, expired or not.
+	 * @param campsite
+	 */
+	@Sharded
+	public List<Hold> getAll(Campsite campsite) {
+		return holdRepository.findAllByCampsiteId(campsite.getId());
+	}
+
+	/**
+	 * Returns the ids of the holds of the campsite expired before the given instant, the oldest first.
+	 * @param campsite
+	 * @param before
+	 * @param limit the max ids to return
+	 */
+	@Sharded
+	public List<Long> getExpiredBefore(Campsite campsite, Instant before, int limit) {
+		return holdRepository.findIdsExpiredBefore(campsite.getId(), before, PageRequest.of(0, limit));
+	}
+
+	/**
+	 * Release the expired holds among the given ones in a single pass over the occupation of their days, and
+	 * delete them. The holds already confirmed, cancelled or released are skipped, and the ones not expired yet
+	 * are announced again to be scheduled at their expiry.
+	 * @param campsite
+	 * @param holdIds
+	 * @return the released holds
+	 */
+	@Transactional
+	@Sequenced(ids = Sequenced.Ids.HOLDS)
+	@Sharded
+	@Retryable(interceptor = BookingRetryConfiguration.INTERCEPTOR)
+	public int expire(Campsite campsite, Collection<Long> holdIds) {
+		Instant now = Instant.now();
+		Map<Boolean, List<Hold>> holds = holdRepository.findAllByIdInAndCampsiteId(holdIds, campsite.getId()).stream()
+				.collect(Collectors.partitioningBy(hold -> !hold.getExpiresAt().isAfter(now)));
+		holds.get(false).forEach(hold -> eventPublisher
+				.publishEvent(new HoldPlacedEvent(campsite.getId(), hold.getId(), hold.getExpiresAt())));
+		List<Hold> expiredHolds = holds.get(true);
+		if (expiredHolds.isEmpty()) {
+			return 0;
+		}
+		LocalDate from = expiredHolds.get(0).getFromDay();
+		LocalDate to = expiredHolds.get(0).getToDay();
+		for (Hold hold : expiredHolds) {
+			from = hold.getFromDay().isBefore(from) ? hold.getFromDay() : from;
+			to = hold.getToDay().isAfter(to) ? hold.getToDay() : to;
+		}
+		OccupationWorkingSet workingSet = dailyAvailabilityService.loadWorkingSet(campsite, from, to);
+		expiredHolds.forEach(hold -> workingSet.add(hold.getFromDay(), hold.getToDay(), -hold.getGuests()));
+		metrics.record(BookingMetrics.RELEASE, () -> dailyAvailabilityService.saveWorkingSet(workingSet));
+		holdRepository.deleteAll(expiredHolds);
+		return expiredHolds.size();
+	}
+
+	private Hold find(Campsite campsite, Long holdId) {
+		return holdRepository.findByIdAndCampsiteId(holdId, campsite.getId())
+				.filter(hold -> hold.getExpiresAt().isAfter(Instant.now()))
+				.orElseThrow(() -> new HoldNotFoundException(holdId));
+	}
+
+}
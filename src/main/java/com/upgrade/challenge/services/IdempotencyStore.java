@@ -0,0 +1,223 @@
+package com.upgrade.challenge.services;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import com.upgrade.challenge.exception.BookingException;
+import com.upgrade.challenge.exception.OverloadedException;
+
+/**
+ * Bounded store of the results of the booking mutations sent with an Idempotency-Key, kept for a TTL.
+ * A repeated key gets the result of its first execution without running it again, and a key repeated
+ * while its first execution is in flight waits for it, up to volcano.idempotency_wait_ms. A failed execution
+ * is forgotten, so it can be retried. An execution in flight is never evicted: once the store is full of
+ * them, the new keys are rejected.
+ */
+@Component
+@ManagedResource(objectName = "volcano:type=IdempotencyStore")
+public class IdempotencyStore {
+
+	public static final String KEY_HEADER = "Idempotency-Key";
+
+	private static final String KEY_REUSED_EXCEPTION = "The " + KEY_HEADER + " %s was already used for another request.";
+
+	private static final String IN_FLIGHT_EXCEPTION = "The request with the " + KEY_HEADER
+			+ " %s is still running, please try again later.";
+
+	private static final String STORE_FULL_EXCEPTION = "Too many requests with an " + KEY_HEADER
+			+ " running, please try again later.";
+
+	@Value("${volcano.idempotency_max_keys:10000}")
+	private int maxKeys;
+
+	@Value("${volcano.idempotency_ttl_seconds:86400}")
+	private long ttlSeconds;
+
+	@Value("${volcano.idempotency_wait_ms:10000}")
+	private long waitMs;
+
+	/**
+	 * In insertion order, which is also the order of expiration.
+	 */
+	private Map<String, Execution> executions;
+
+	private final LongAdder replays = new LongAdder();
+
+	private final LongAdder evictions = new LongAdder();
+
+	@PostConstruct
+	public void initialize() {
+		executions = new LinkedHashMap<String, Execution>();
+	}
+
+	/**
+	 * Run the action once per key, returning the result of the first execution to the repeated keys.
+	 * Without a key, the action just runs.
+	 * @param key the Idempotency-Key, or null
+	 * @param request what the action is run for, which must be equal for the repeated keys
+	 * @param action
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T execute(String key, List<?> request, Supplier<T> action) {
+		if (key == null || maxKeys <= 0) {
+			return action.get();
+		}
+		Execution execution;
+		boolean first = false;
+		synchronized (executions) {
+			long now = System.nanoTime();
+			expire(now);
+			execution = executions.get(key);
+			if (execution == null) {
+				if (executions.size() >= maxKeys && !evictEldestDone()) {
+					throw new OverloadedException(STORE_FULL_EXCEPTION);
+				}
+				execution = new Execution(request, now + TimeUnit.SECONDS.toNanos(ttlSeconds));
+				executions.put(key, execution);
+				first = true;
+			}
+		}
+		if (!execution.request.equals(request)) {
+			throw new BookingException(String.format(KEY_REUSED_EXCEPTION, key));
+		}
+		if (first) {
+			return run(key, execution, action);
+		}
+		replays.increment();
+		try {
+			return (T) execution.result.get(waitMs, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			throw new OverloadedException(String.format(IN_FLIGHT_EXCEPTION, key), e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * The request of a mutation, to compare the repeated keys with.
+	 * @param operation
+	 * @param arguments
+	 */
+	public static List<Object> request(String operation, Object... arguments) {
+		List<Object> request = new ArrayList<Object>(arguments.length + 1);
+		request.add(operation);
+		Collections.addAll(request, arguments);
+		return request;
+	}
+
+	@ManagedOperation
+	public void clear() {
+		synchronized (executions) {
+			executions.clear();
+		}
+	}
+
+	@ManagedAttribute
+	public int getSize() {
+		synchronized (executions) {
+			return executions.size();
+		}
+	}
+
+	@ManagedAttribute
+	public int getMaxKeys() {
+		return maxKeys;
+	}
+
+	@ManagedAttribute
+	public long getReplays() {
+		return replays.sum();
+	}
+
+	@ManagedAttribute
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	private <T> T run(String key, Execution execution, Supplier<T> action) {
+		try {
+			T result = action.get();
+			execution.result.complete(result);
+			return result;
+		} catch (Throwable e) {
+			// Errors included, or the duplicates would wait for a result that never comes.
+			synchronized (executions) {
+				executions.remove(key, execution);
+			}
+			execution.result.completeExceptionally(e);
+			throw e;
+		}
+	}
+
+	/**
+	 * Remove the expired executions, which are the eldest ones, except those still in flight.
+	 */
+	private void expire(long now) {
+		Iterator<Execution> iterator = executions.values().iterator();
+		while (iterator.hasNext()) {
+			Execution execution = iterator.next();
+			if (execution.expiresAt - now > 0) {
+				return;
+			}
+			if (execution.result.isDone()) {
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * Remove the eldest execution that is not in flight.
+	 * @return whether one was removed
+	 */
+	private boolean evictEldestDone() {
+		Iterator<Execution> iterator = executions.values().iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next().result.isDone()) {
+				iterator.remove();
+				evictions.increment();
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static class Execution {
+
+		private final List<?> request;
+
+		private final long expiresAt;
+
+		private final CompletableFuture<Object> result = new CompletableFuture<Object>();
+
+		private Execution(List<?> request, long expiresAt) {
+			this.request = request;
+			this.expiresAt = expiresAt;
+		}
+
+	}
+
+}
@@ -0,0 +1,518 @@
+package com.upgrade.challenge.services;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.upgrade.challenge.campsite.Campsite;
+import com.upgrade.challenge.campsite.CampsiteRegistry;
+import com.upgrade.challenge.datasource.ReadRouting;
+import com.upgrade.challenge.datasource.ShardRouting;
+import com.upgrade.challenge.events.OccupationChangedEvent;
+import com.upgrade.challenge.model.dto.DailyOccupation;
+import com.upgrade.challenge.repository.DailyOccupationRepository;
+import com.upgrade.challenge.validator.BookingValidator;
+
+/**
+ * In-memory copy of the guests booked per day of each campsite for the whole bookable horizon.
+ * The occupation of a campsite is kept in a primitive ring indexed by epoch day, so reads do not touch the DB
+ * nor allocate entities. Changes are staged in the current transaction and applied after commit,
+ * then announced with an {@link OccupationChangedEvent}.
+ * <p>
+ * The ledger is loaded before the web server starts, and reloaded every volcano.ledger_reload_ms to pick up the
+ * changes committed by other instances, which are announced as well. A campsite is read from the DB while none of
+ * its changes is between the commit and the ledger, so a change is neither lost nor counted twice by a load.
+ */
+@Component
+@EnableScheduling
+public class OccupationLedger implements SmartLifecycle {
+
+	private static final Logger logger = LoggerFactory.getLogger(OccupationLedger.class);
+
+	@Autowired
+	private DailyOccupationRepository dailyOccupationRepository;
+
+	@Autowired
+	private BookingValidator validator;
+
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	@Autowired
+	private ReadRouting readRouting;
+
+	@Autowired
+	private ShardRouting shardRouting;
+
+	@Autowired
+	private CampsiteRegistry campsites;
+
+	@Value("${volcano.ledger_enabled:true}")
+	private boolean enabled;
+
+	/**
+	 * Started before the web server, so the ledger is loaded before the first request.
+	 */
+	private static final int PHASE = Integer.MAX_VALUE - 2;
+
+	private final Object pendingChangesKey = new Object();
+
+	/**
+	 * The ring of each campsite, replaced as a whole when loaded.
+	 */
+	private volatile Map<Long, Ring> rings = Collections.emptyMap();
+
+	/**
+	 * Held for read by the transactions with changes of the campsite from before their commit until the changes
+	 * are applied, and for write while the campsite is loaded.
+	 */
+	private final Map<Long, ReadWriteLock> guards = new ConcurrentHashMap<Long, ReadWriteLock>();
+
+	/**
+	 * The sequence number of the last change announced, kept across loads.
+	 */
+	private final AtomicLong sequence = new AtomicLong();
+
+	private volatile boolean loaded;
+
+	private volatile long loadedAt;
+
+	private volatile boolean running;
+
+	@Override
+	public void start() {
+		load();
+		running = true;
+	}
+
+	@Override
+	public void stop() {
+		running = false;
+	}
+
+	@Override
+	public boolean isRunning() {
+		return running;
+	}
+
+	@Override
+	public int getPhase() {
+		return PHASE;
+	}
+
+	@Scheduled(fixedDelayString = "${volcano.ledger_reload_ms:60000}", initialDelayString = "${volcano.ledger_reload_ms:60000}")
+	public void reload() {
+		if (loaded) {
+			load();
+		}
+	}
+
+	/**
+	 * Load the occupation of every campsite from its shard for every day from today up to its last bookable
+	 * checkout date. The days that differ from the loaded ones, changed by another instance, are announced.
+	 */
+	public synchronized void load() {
+		if (!enabled) {
+			return;
+		}
+		LocalDate today = LocalDate.now();
+		int bookedDays = 0;
+		int changedDays = 0;
+		for (Campsite campsite : campsites.getAll()) {
+			int horizon = 31 * validator.getMonthsUpToBooking() + campsite.getMaxBookingDays() + 1;
+			List<ChangeRecord> changes;
+			Lock lock = guard(campsite.getId()).writeLock();
+			lock.lock();
+			try {
+				// The availability checks rely on the ledger, so it is never loaded from a lagging replica.
+				List<DailyOccupation> days = shardRouting.onShard(campsite.getShard(), () -> readRouting.onPrimary(
+						() -> dailyOccupationRepository.findAllByCampsiteIdAndDateBetween(campsite.getId(), today,
+								today.plusDays(horizon - 1))));
+				Ring ring = new Ring(today.toEpochDay(), horizon, days);
+				Ring previous = rings.get(campsite.getId());
+				changes = previous == null ? Collections.emptyList() : ring.reconcile(campsite.getId(), previous,
+						sequence.incrementAndGet());
+				Map<Long, Ring> loadedRings = new HashMap<Long, Ring>(rings);
+				loadedRings.put(campsite.getId(), ring);
+				rings = loadedRings;
+				bookedDays += days.size();
+			} finally {
+				lock.unlock();
+			}
+			for (ChangeRecord change : changes) {
+				changedDays += (int) (change.to - change.from);
+				announce(change);
+			}
+		}
+		if (!loaded) {
+			loadedAt = System.currentTimeMillis();
+			loaded = true;
+		}
+		logger.info("Occupation ledger loaded with {} booked day(s) of {} campsite(s) from {}, {} changed day(s).",
+				bookedDays, rings.size(), today, changedDays);
+	}
+
+	/**
+	 * Returns the occupation of the campsite for each day between from (inclusive) and to (exclusive),
+	 * or null if the range is not covered by the ledger.
+	 * @param campsiteId
+	 * @param from
+	 * @param to
+	 */
+	public int[] snapshot(long campsiteId, LocalDate from, LocalDate to) {
+		Ring ring = rings.get(campsiteId);
+		if (ring == null) {
+			return null;
+		}
+		long start = from.toEpochDay();
+		long end = to.toEpochDay();
+		List<ChangeRecord> pending = pendingChanges(false);
+		int[] result = ring.copy(start, end);
+		if (result == null) {
+			return null;
+		}
+		for (ChangeRecord change : pending) {
+			if (change.campsiteId != campsiteId) {
+				continue;
+			}
+			for (long day = Math.max(start, change.from); day < Math.min(end, change.to); day++) {
+				result[(int) (day - start)] += change.guests;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the highest occupation of the campsite between from (inclusive) and to (exclusive),
+	 * or empty if the range is not covered by the ledger.
+	 * @param campsiteId
+	 * @param from
+	 * @param to
+	 */
+	public OptionalInt maxOccupation(long campsiteId, LocalDate from, LocalDate to) {
+		int[] days = snapshot(campsiteId, from, to);
+		if (days == null) {
+			return OptionalInt.empty();
+		}
+		int max = 0;
+		for (int guests : days) {
+			max = Math.max(max, guests);
+		}
+		return OptionalInt.of(max);
+	}
+
+	/**
+	 * Returns the sequence number of the last change announced for the campsite between from (inclusive) and
+	 * to (exclusive), or empty if the range is not covered by the ledger. The number only grows while the ledger
+	 * is not reloaded.
+	 * @param campsiteId
+	 * @param from
+	 * @param to
+	 */
+	public OptionalLong version(long campsiteId, LocalDate from, LocalDate to) {
+		Ring ring = rings.get(campsiteId);
+		if (ring == null) {
+			return OptionalLong.empty();
+		}
+		return ring.version(from.toEpochDay(), to.toEpochDay());
+	}
+
+	/**
+	 * Record a change of guests of the campsite between from (inclusive) and to (exclusive).
+	 * Inside a transaction the change is visible to the same transaction and applied after commit, otherwise
+	 * it is applied at once.
+	 * @param campsiteId
+	 * @param from
+	 * @param to
+	 * @param guests positive when blocking, negative when releasing
+	 */
+	public void record(long campsiteId, LocalDate from, LocalDate to, int guests) {
+		ChangeRecord change = new ChangeRecord(campsiteId, from.toEpochDay(), to.toEpochDay(), guests);
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			pendingChanges(true).add(change);
+		} else {
+			Lock lock = guard(campsiteId).readLock();
+			lock.lock();
+			try {
+				commit(change);
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	public boolean isLoaded() {
+		return loaded;
+	}
+
+	public long getLoadedAt() {
+		return loadedAt;
+	}
+
+	/**
+	 * The days get a new version only once the change has been announced, so a version
+	 * is never paired with data older than the change it stands for.
+	 */
+	private void commit(ChangeRecord change) {
+		Ring ring = rings.get(change.campsiteId);
+		if (ring != null) {
+			ring.apply(change);
+		}
+		announce(change);
+		if (ring != null) {
+			ring.stamp(change, sequence.incrementAndGet());
+		}
+	}
+
+	private void announce(ChangeRecord change) {
+		eventPublisher.publishEvent(new OccupationChangedEvent(change.campsiteId, LocalDate.ofEpochDay(change.from),
+				LocalDate.ofEpochDay(change.to), change.guests));
+	}
+
+	private ReadWriteLock guard(long campsiteId) {
+		return guards.computeIfAbsent(campsiteId, id -> new ReentrantReadWriteLock());
+	}
+
+	private List<ChangeRecord> pendingChanges(boolean create) {
+		@SuppressWarnings("unchecked")
+		List<ChangeRecord> pending = (List<ChangeRecord>) TransactionSynchronizationManager.getResource(pendingChangesKey);
+		if (pending != null || !create) {
+			return pending == null ? Collections.emptyList() : pending;
+		}
+		List<ChangeRecord> created = new ArrayList<ChangeRecord>();
+		TransactionSynchronizationManager.bindResource(pendingChangesKey, created);
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+
+			private final List<Lock> locks = new ArrayList<Lock>();
+
+			/**
+			 * Keep the campsites from being loaded until the changes are applied, as the load would either miss
+			 * them or read them and have them applied again.
+			 */
+			@Override
+			public void beforeCommit(boolean readOnly) {
+				created.stream().map(change -> change.campsiteId).distinct().sorted().forEach(campsiteId -> {
+					Lock lock = guard(campsiteId).readLock();
+					lock.lock();
+					locks.add(lock);
+				});
+			}
+
+			@Override
+			public void afterCommit() {
+				// Unbound first so the listeners of the announced changes do not count them twice.
+				TransactionSynchronizationManager.unbindResourceIfPossible(pendingChangesKey);
+				created.forEach(OccupationLedger.this::commit);
+			}
+
+			@Override
+			public void afterCompletion(int status) {
+				TransactionSynchronizationManager.unbindResourceIfPossible(pendingChangesKey);
+				locks.forEach(Lock::unlock);
+				locks.clear();
+			}
+		});
+		return created;
+	}
+
+	private static int slot(long epochDay, int length) {
+		return (int) Math.floorMod(epochDay, (long) length);
+	}
+
+	/**
+	 * The occupation of a campsite, and the sequence number of the last change announced for each of its days.
+	 */
+	private static class Ring {
+
+		private final StampedLock lock = new StampedLock();
+
+		private final int[] occupation;
+
+		private final long[] changes;
+
+		private volatile long firstDay;
+
+		private Ring(long firstDay, int horizon, List<DailyOccupation> days) {
+			this.firstDay = firstDay;
+			this.occupation = new int[horizon];
+			this.changes = new long[horizon];
+			for (DailyOccupation day : days) {
+				occupation[slot(day.getDate().toEpochDay(), horizon)] = day.getGuests();
+			}
+		}
+
+		/**
+		 * Returns the occupation between start (inclusive) and end (exclusive), or null if not covered.
+		 */
+		private int[] copy(long start, long end) {
+			roll();
+			int[] result = new int[(int) Math.max(end - start, 0)];
+			long stamp = lock.tryOptimisticRead();
+			boolean covered = copy(start, end, result);
+			if (!lock.validate(stamp)) {
+				stamp = lock.readLock();
+				try {
+					covered = copy(start, end, result);
+				} finally {
+					lock.unlockRead(stamp);
+				}
+			}
+			return covered ? result : null;
+		}
+
+		private boolean copy(long start, long end, int[] result) {
+			long first = firstDay;
+			if (start < first || end > first + occupation.length) {
+				return false;
+			}
+			for (long day = start; day < end; day++) {
+				result[(int) (day - start)] = occupation[slot(day, occupation.length)];
+			}
+			return true;
+		}
+
+		private OptionalLong version(long start, long end) {
+			roll();
+			long stamp = lock.readLock();
+			try {
+				if (start < firstDay || end > firstDay + changes.length) {
+					return OptionalLong.empty();
+				}
+				long version = 0;
+				for (long day = start; day < end; day++) {
+					version = Math.max(version, changes[slot(day, changes.length)]);
+				}
+				return OptionalLong.of(version);
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+
+		private void apply(ChangeRecord change) {
+			roll();
+			long stamp = lock.writeLock();
+			try {
+				long last = firstDay + occupation.length;
+				for (long day = Math.max(change.from, firstDay); day < Math.min(change.to, last); day++) {
+					occupation[slot(day, occupation.length)] += change.guests;
+				}
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+
+		private void stamp(ChangeRecord change, long sequence) {
+			long stamp = lock.writeLock();
+			try {
+				long last = firstDay + changes.length;
+				for (long day = Math.max(change.from, firstDay); day < Math.min(change.to, last); day++) {
+					changes[slot(day, changes.length)] = sequence;
+				}
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+
+		/**
+		 * Compare the occupation of this ring, just loaded, with the one it replaces. The days that differ get a
+		 * new sequence number, the others keep theirs.
+		 * @return the changes from the previous occupation, a change per run of consecutive days with the same
+		 * difference
+		 */
+		private List<ChangeRecord> reconcile(long campsiteId, Ring previous, long sequence) {
+			previous.roll();
+			List<ChangeRecord> differences = new ArrayList<ChangeRecord>();
+			long stamp = previous.lock.readLock();
+			try {
+				long last = Math.min(firstDay + occupation.length, previous.firstDay + previous.occupation.length);
+				long runFrom = firstDay;
+				int runGuests = 0;
+				for (long day = firstDay; day <= last; day++) {
+					int guests = 0;
+					if (day < last) {
+						int slot = slot(day, occupation.length);
+						int previousSlot = slot(day, previous.occupation.length);
+						guests = occupation[slot] - previous.occupation[previousSlot];
+						changes[slot] = guests == 0 ? previous.changes[previousSlot] : sequence;
+					}
+					if (guests != runGuests) {
+						if (runGuests != 0) {
+							differences.add(new ChangeRecord(campsiteId, runFrom, day, runGuests));
+						}
+						runFrom = day;
+						runGuests = guests;
+					}
+				}
+			} finally {
+				previous.lock.unlockRead(stamp);
+			}
+			return differences;
+		}
+
+		/**
+		 * Move the window forward when the day changes, emptying the slots of the days left behind
+		 * so they are reused by the days entering the horizon.
+		 */
+		private void roll() {
+			long today = LocalDate.now().toEpochDay();
+			if (today <= firstDay) {
+				return;
+			}
+			long stamp = lock.writeLock();
+			try {
+				long shift = Math.min(today - firstDay, occupation.length);
+				for (long day = firstDay; day < firstDay + shift; day++) {
+					occupation[slot(day, occupation.length)] = 0;
+					changes[slot(day, changes.length)] = 0;
+				}
+				firstDay = Math.max(firstDay, today);
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+
+	}
+
+	private static class ChangeRecord {
+
+		private final long campsiteId;
+
+		private final long from;
+
+		private final long to;
+
+		private final int guests;
+
+		private ChangeRecord(long campsiteId, long from, long to, int guests) {
+			this.campsiteId = campsiteId;
+			this.from = from;
+			this.to = to;
+			this.guests = guests;
+		}
+
+	}
+
+}
@@ -0,0 +1,136 @@
+package com.upgrade.challenge.services;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.upgrade.challenge.campsite.Campsite;
+import com.upgrade.challenge.model.dto.DailyOccupation;
+
+/**
+ * The occupation of a date interval of a campsite loaded once to check and block several stays in memory.
+ * Every change is kept so the rows are saved and the ledger is told once all the stays are applied.
+ */
+class OccupationWorkingSet {
+
+	private final long campsiteId;
+
+	private final LocalDate from;
+
+	/**
+	 * The capacity of each day.
+	 */
+	private final int[] capacity;
+
+	/**
+	 * The loaded row of each day, null for the days without a row yet.
+	 */
+	private final DailyOccupation[] rows;
+
+	private final int[] guests;
+
+	private final boolean[] modified;
+
+	private final List<Change> changes = new ArrayList<Change>();
+
+	OccupationWorkingSet(Campsite campsite, int[] capacity, LocalDate from, LocalDate to, List<DailyOccupation> loadedRows) {
+		int days = (int) ChronoUnit.DAYS.between(from, to);
+		this.campsiteId = campsite.getId();
+		this.from = from;
+		this.capacity = capacity;
+		this.rows = new DailyOccupation[days];
+		this.guests = new int[days];
+		this.modified = new boolean[days];
+		for (DailyOccupation row : loadedRows) {
+			int index = index(row.getDate());
+			rows[index] = row;
+			guests[index] = row.getGuests();
+		}
+	}
+
+	/**
+	 * Returns true if every day between from (inclusive) and to (exclusive) that gains guests once the released
+	 * stay, if any, is removed can hold them. The days whose occupation does not grow are not checked.
+	 * @param from
+	 * @param to
+	 * @param guests
+	 * @param releasedFrom
+	 * @param releasedTo
+	 * @param releasedGuests 0 when nothing is released
+	 */
+	boolean canHold(LocalDate from, LocalDate to, int guests, LocalDate releasedFrom, LocalDate releasedTo, int releasedGuests) {
+		for (int day = index(from); day < index(to); day++) {
+			int released = 0;
+			if (releasedGuests > 0 && day >= index(releasedFrom) && day < index(releasedTo)) {
+				released = releasedGuests;
+			}
+			if (guests > released && this.guests[day] - released + guests > capacity[day]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Add the guests between from (inclusive) and to (exclusive).
+	 * @param from
+	 * @param to
+	 * @param guests positive when blocking, negative when releasing
+	 */
+	void add(LocalDate from, LocalDate to, int guests) {
+		for (int day = index(from); day < index(to); day++) {
+			this.guests[day] += guests;
+			modified[day] = true;
+		}
+		changes.add(new Change(from, to, guests));
+	}
+
+	/**
+	 * Returns the rows of the modified days with their new occupation, creating the missing ones.
+	 */
+	List<DailyOccupation> modifiedRows() {
+		List<DailyOccupation> modifiedRows = new ArrayList<DailyOccupation>();
+		for (int day = 0; day < rows.length; day++) {
+			if (!modified[day]) {
+				continue;
+			}
+			if (rows[day] == null) {
+				rows[day] = new DailyOccupation(campsiteId, from.plusDays(day), guests[day]);
+			} else {
+				rows[day].setGuests(guests[day]);
+			}
+			modifiedRows.add(rows[day]);
+		}
+		return modifiedRows;
+	}
+
+	long getCampsiteId() {
+		return campsiteId;
+	}
+
+	List<Change> getChanges() {
+		return changes;
+	}
+
+	private int index(LocalDate date) {
+		return (int) ChronoUnit.DAYS.between(from, date);
+	}
+
+	static class Change {
+
+		final LocalDate from;
+
+		final LocalDate to;
+
+		final int guests;
+
+		private Change(LocalDate from, LocalDate to, int guests) {
+			this.from = from;
+			this.to = to;
+			this.guests = guests;
+		}
+
+	}
+
+}
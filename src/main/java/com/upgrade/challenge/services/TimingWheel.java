@@ -0,0 +1,110 @@
+package com.upgrade.challenge.services;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hashed timing wheel: a ring of buckets, one per tick, where an item is kept in the bucket of its deadline tick
+ * modulo the size of the ring. Scheduling is a lock free enqueue, and advancing the wheel only visits the buckets
+ * of the elapsed ticks, skipping the items due on a later turn, so its cost does not grow with the items pending
+ * further away.
+ * <p>
+ * Any thread may schedule, but only a single thread may advance the wheel.
+ */
+class TimingWheel<T> {
+
+	private final long tickMillis;
+
+	private final Queue<Entry<T>>[] buckets;
+
+	/**
+	 * The items scheduled since the last advance, placed in their bucket by the advancing thread.
+	 */
+	private final Queue<Entry<T>> scheduled = new ConcurrentLinkedQueue<Entry<T>>();
+
+	private final AtomicInteger pending = new AtomicInteger();
+
+	/**
+	 * The last tick advanced to.
+	 */
+	private long tick;
+
+	@SuppressWarnings("unchecked")
+	TimingWheel(long tickMillis, int wheelSize, long startMillis) {
+		this.tickMillis = tickMillis;
+		this.buckets = new Queue[wheelSize];
+		for (int i = 0; i < wheelSize; i++) {
+			buckets[i] = new ArrayDeque<Entry<T>>();
+		}
+		this.tick = startMillis / tickMillis;
+	}
+
+	/**
+	 * Schedule the item to be returned by the first advance at or after its deadline.
+	 * @param item
+	 * @param deadlineMillis
+	 */
+	void schedule(T item, long deadlineMillis) {
+		// Rounded up, so an item is never returned before its deadline.
+		scheduled.add(new Entry<T>(item, (deadlineMillis + tickMillis - 1) / tickMillis));
+		pending.incrementAndGet();
+	}
+
+	/**
+	 * Advance the wheel up to now, returning the items whose deadline passed.
+	 * @param nowMillis
+	 */
+	List<T> advance(long nowMillis) {
+		long now = nowMillis / tickMillis;
+		List<T> expired = new ArrayList<T>();
+		for (Entry<T> entry = scheduled.poll(); entry != null; entry = scheduled.poll()) {
+			if (entry.deadlineTick <= tick) {
+				expired.add(entry.item);
+			} else {
+				buckets[slot(entry.deadlineTick)].add(entry);
+			}
+		}
+		// A turn of the wheel visits every bucket, however long it was not advanced.
+		long last = Math.min(now, tick + buckets.length);
+		for (long current = tick + 1; current <= last; current++) {
+			Iterator<Entry<T>> iterator = buckets[slot(current)].iterator();
+			while (iterator.hasNext()) {
+				Entry<T> entry = iterator.next();
+				if (entry.deadlineTick <= now) {
+					iterator.remove();
+					expired.add(entry.item);
+				}
+			}
+		}
+		tick = Math.max(tick, now);
+		pending.addAndGet(-expired.size());
+		return expired;
+	}
+
+	int getPending() {
+		return pending.get();
+	}
+
+	private int slot(long deadlineTick) {
+		return (int) Math.floorMod(deadlineTick, (long) buckets.length);
+	}
+
+	private static class Entry<T> {
+
+		private final T item;
+
+		private final long deadlineTick;
+
+		private Entry(T item, long deadlineTick) {
+			this.item = item;
+			this.deadlineTick = deadlineTick;
+		}
+
+	}
+
+}
@@ -0,0 +1,263 @@
+package com.upgrade.challenge.services;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.upgrade.challenge.campsite.Campsite;
+import com.upgrade.challenge.campsite.CampsiteRegistry;
+import com.upgrade.challenge.events.OccupationChangedEvent;
+import com.upgrade.challenge.events.WaitlistNotifiedEvent;
+import com.upgrade.challenge.exception.AvailabilityException;
+import com.upgrade.challenge.model.WaitlistRequest;
+import com.upgrade.challenge.model.dto.WaitlistEntry;
+
+/**
+ * Serves the waitlist when occupation is released. The waiting entries are indexed in memory by campsite and
+ * arrival, so a release only evaluates the entries overlapping the released days, in the order they were added:
+ * every one whose stay is available is booked if it asked to, until the first one to be notified, which is
+ * left the stay to book.
+ * <p>
+ * The releases are matched on a single thread once committed, apart from the transactions releasing them. The
+ * index is built from the DB on start, kept on the instance that changes the waitlist and reloaded every
+ * volcano.waitlist_reload_ms, so the entries added on the other instances are matched too. An entry that cannot be
+ * served for another reason than the availability leaves the index until the next reload.
+ */
+@Component
+@EnableScheduling
+@ManagedResource(objectName = "volcano:type=WaitlistMatcher")
+public class WaitlistMatcher {
+
+	private static final Logger logger = LoggerFactory.getLogger(WaitlistMatcher.class);
+
+	@Autowired
+	private WaitlistService waitlistService;
+
+	@Autowired
+	private CampsiteRegistry campsites;
+
+	/**
+	 * The waiting entries of each campsite.
+	 */
+	private final Map<Long, CampsiteWaitlist> waitlists = new ConcurrentHashMap<Long, CampsiteWaitlist>();
+
+	private final AtomicLong booked = new AtomicLong();
+
+	private final AtomicLong notified = new AtomicLong();
+
+	private ExecutorService matches;
+
+	@PostConstruct
+	public void initialize() {
+		matches = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "waitlist-matcher");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		matches.shutdownNow();
+	}
+
+	/**
+	 * Index the waiting entries of every campsite.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	@Scheduled(fixedDelayString = "${volcano.waitlist_reload_ms:60000}", initialDelayString = "${volcano.waitlist_reload_ms:60000}")
+	@ManagedOperation
+	public void load() {
+		for (Campsite campsite : campsites.getAll()) {
+			CampsiteWaitlist waitlist = new CampsiteWaitlist();
+			waitlistService.getWaiting(campsite).forEach(waitlist::add);
+			waitlists.put(campsite.getId(), waitlist);
+		}
+	}
+
+	/**
+	 * Add the stay to the waitlist of the campsite, matching it at once in case it is already available.
+	 * @param campsite
+	 * @param waitlistRequest
+	 */
+	public WaitlistEntry add(Campsite campsite, WaitlistRequest waitlistRequest) {
+		WaitlistEntry entry = waitlistService.add(campsite, waitlistRequest);
+		waitlist(campsite.getId()).add(entry);
+		submit(campsite.getId(), entry.getFromDay(), entry.getToDay());
+		return entry;
+	}
+
+	/**
+	 * Remove an entry from the waitlist of the campsite.
+	 * @param campsite
+	 * @param entryId
+	 */
+	public void remove(Campsite campsite, Long entryId) {
+		waitlist(campsite.getId()).remove(waitlistService.remove(campsite, entryId));
+	}
+
+	/**
+	 * Match the entries overlapping the days whose occupation decreased or whose capacity changed.
+	 */
+	@EventListener
+	public void onOccupationChanged(OccupationChangedEvent event) {
+		CampsiteWaitlist waitlist = waitlists.get(event.getCampsiteId());
+		if (event.getGuests() <= 0 && waitlist != null && !waitlist.isEmpty()) {
+			submit(event.getCampsiteId(), event.getFrom(), event.getTo());
+		}
+	}
+
+	@TransactionalEventListener
+	public void onWaitlistNotified(WaitlistNotifiedEvent event) {
+		WaitlistEntry entry = event.getEntry();
+		logger.info("The stay of waitlist entry {} is available - From: {}, To: {} and {} guest(s), notifying {}",
+				entry.getId(), entry.getFromDay(), entry.getToDay(), entry.getGuests(), entry.getEmail());
+	}
+
+	@ManagedAttribute
+	public int getWaitingEntries() {
+		return waitlists.values().stream().mapToInt(CampsiteWaitlist::size).sum();
+	}
+
+	@ManagedAttribute
+	public long getBookedEntries() {
+		return booked.get();
+	}
+
+	@ManagedAttribute
+	public long getNotifiedEntries() {
+		return notified.get();
+	}
+
+	private void submit(long campsiteId, LocalDate from, LocalDate to) {
+		matches.execute(() -> match(campsiteId, from, to));
+	}
+
+	private void match(long campsiteId, LocalDate from, LocalDate to) {
+		CampsiteWaitlist waitlist = waitlist(campsiteId);
+		Campsite campsite = campsites.get(campsiteId);
+		LocalDate today = LocalDate.now();
+		for (WaitlistEntry entry : waitlist.overlapping(from, to)) {
+			if (!entry.getFromDay().isAfter(today)) {
+				// It cannot be booked anymore.
+				waitlist.remove(entry);
+				continue;
+			}
+			try {
+				if (entry.isAutoBook()) {
+					if (waitlistService.book(campsite, entry.getId()).isPresent()) {
+						booked.incrementAndGet();
+					}
+					waitlist.remove(entry);
+				} else {
+					boolean served = waitlistService.markNotified(campsite, entry.getId());
+					waitlist.remove(entry);
+					if (served) {
+						notified.incrementAndGet();
+						return;
+					}
+				}
+			} catch (AvailabilityException e) {
+				// The entry keeps waiting.
+			} catch (RuntimeException e) {
+				// Not retried on every release, the next reload indexes it again if it is still waiting.
+				waitlist.remove(entry);
+				logger.warn("Could not serve waitlist entry {} of campsite {}: {}", entry.getId(), campsiteId,
+						e.getMessage());
+			}
+		}
+	}
+
+	private CampsiteWaitlist waitlist(long campsiteId) {
+		return waitlists.computeIfAbsent(campsiteId, id -> new CampsiteWaitlist());
+	}
+
+	/**
+	 * The waiting entries of a campsite by arrival and id.
+	 */
+	private static class CampsiteWaitlist {
+
+		private final NavigableMap<LocalDate, NavigableMap<Long, WaitlistEntry>> byArrival = new TreeMap<LocalDate, NavigableMap<Long, WaitlistEntry>>();
+
+		/**
+		 * The longest stay indexed, which bounds the arrivals of the entries overlapping a day.
+		 */
+		private long longestStay;
+
+		private int size;
+
+		private synchronized void add(WaitlistEntry entry) {
+			if (byArrival.computeIfAbsent(entry.getFromDay(), day -> new TreeMap<Long, WaitlistEntry>())
+					.put(entry.getId(), entry) == null) {
+				size++;
+			}
+			longestStay = Math.max(longestStay, ChronoUnit.DAYS.between(entry.getFromDay(), entry.getToDay()));
+		}
+
+		private synchronized void remove(WaitlistEntry entry) {
+			NavigableMap<Long, WaitlistEntry> entries = byArrival.get(entry.getFromDay());
+			if (entries != null && entries.remove(entry.getId()) != null) {
+				size--;
+				if (entries.isEmpty()) {
+					byArrival.remove(entry.getFromDay());
+				}
+			}
+		}
+
+		/**
+		 * Returns the entries staying between from (inclusive) and to (exclusive) in the order they were added.
+		 */
+		private synchronized List<WaitlistEntry> overlapping(LocalDate from, LocalDate to) {
+			if (longestStay == 0) {
+				return Collections.emptyList();
+			}
+			List<WaitlistEntry> overlapping = new ArrayList<WaitlistEntry>();
+			for (NavigableMap<Long, WaitlistEntry> entries : byArrival
+					.subMap(from.minusDays(longestStay - 1), true, to, false).values()) {
+				for (WaitlistEntry entry : entries.values()) {
+					if (entry.getToDay().isAfter(from)) {
+						overlapping.add(entry);
+					}
+				}
+			}
+			overlapping.sort(Comparator.comparing(WaitlistEntry::getId));
+			return overlapping;
+		}
+
+		private synchronized boolean isEmpty() {
+			return size == 0;
+		}
+
+		private synchronized int size() {
+			return size;
+		}
+
+	}
+
+}
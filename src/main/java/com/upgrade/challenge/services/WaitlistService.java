@@ -0,0 +1,159 @@
+package com.upgrade.challenge.services;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import javax.transaction.Transactional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.retry.annotation.Retryable;
+import org.springframework.stereotype.Service;
+
+import com.upgrade.challenge.campsite.Campsite;
+import com.upgrade.challenge.campsite.Sharded;
+import com.upgrade.challenge.events.WaitlistNotifiedEvent;
+import com.upgrade.challenge.exception.WaitlistEntryNotFoundException;
+import com.upgrade.challenge.model.BookingResponse;
+import com.upgrade.challenge.model.WaitlistRequest;
+import com.upgrade.challenge.model.WaitlistStatus;
+import com.upgrade.challenge.model.dto.Booking;
+import com.upgrade.challenge.model.dto.WaitlistEntry;
+import com.upgrade.challenge.repository.BookingRepository;
+import com.upgrade.challenge.repository.WaitlistEntryRepository;
+import com.upgrade.challenge.retry.BookingRetryConfiguration;
+import com.upgrade.challenge.sequencer.Sequenced;
+import com.upgrade.challenge.validator.BookingValidator;
+
+/**
+ * Stores the waitlist entries and serves them when the {@link WaitlistMatcher} finds their stay available:
+ * an entry is either booked on behalf of the guest or marked notified, only once, and leaves the waitlist.
+ */
+@Service
+public class WaitlistService {
+
+	@Autowired
+	private WaitlistEntryRepository waitlistEntryRepository;
+
+	@Autowired
+	private BookingRepository bookingRepository;
+
+	@Autowired
+	private DailyAvailabilityService dailyAvailabilityService;
+
+	@Autowired
+	private BookingValidator validator;
+
+	@Autowired
+	private BookingMetrics metrics;
+
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	/**
+	 * Add the stay of the request to the waitlist of the campsite.
+	 * @param campsite
+	 * @param waitlistRequest
+	 */
+	@Sharded
+	public WaitlistEntry add(Campsite campsite, WaitlistRequest waitlistRequest) {
+		validator.validateDatesInput(waitlistRequest.getFromDay(), waitlistRequest.getToDay(), true,
+				campsite.getMaxBookingDays());
+		validator.validateGuestsInput(waitlistRequest.getGuests(), campsite.getMaxCapacity());
+		return waitlistEntryRepository.save(new WaitlistEntry(campsite.getId(), waitlistRequest));
+	}
+
+	/**
+	 * Find a waitlist entry of the campsite, whatever its status.
+	 * @param campsite
+	 * @param entryId
+	 */
+	@Sharded
+	public WaitlistEntry get(Campsite campsite, Long entryId) {
+		return waitlistEntryRepository.findByIdAndCampsiteId(entryId, campsite.getId())
+				.orElseThrow(() -> new WaitlistEntryNotFoundException(entryId));
+	}
+
+	/**
+	 * Remove an entry from the waitlist of the campsite. The booking made for it, if any, is kept.
+	 * @param campsite
+	 * @param entryId
+	 */
+	@Sharded
+	public WaitlistEntry remove(Campsite campsite, Long entryId) {
+		WaitlistEntry entry = get(campsite, entryId);
+		waitlistEntryRepository.delete(entry);
+		return entry;
+	}
+
+	/**
+	 * Returns the entries of the campsite still waiting for a stay that can be booked.
+	 * @param campsite
+	 */
+	@Sharded
+	public List<WaitlistEntry> getWaiting(Campsite campsite) {
+		return waitlistEntryRepository.findAllByCampsiteIdAndStatusAndFromDayAfter(campsite.getId(),
+				WaitlistStatus.WAITING, LocalDate.now());
+	}
+
+	/**
+	 * Book the stay of a waiting entry if it is available, and mark the entry booked in the same transaction.
+	 * @param campsite
+	 * @param entryId
+	 * @return the booking, or empty if the entry is not waiting anymore
+	 * @throws com.upgrade.challenge.exception.AvailabilityException if the stay is not available
+	 */
+	@Transactional
+	@Sequenced(ids = Sequenced.Ids.WAITLIST_ENTRIES)
+	@Sharded
+	@Retryable(interceptor = BookingRetryConfiguration.INTERCEPTOR)
+	public Optional<BookingResponse> book(Campsite campsite, Long entryId) {
+		Optional<WaitlistEntry> waiting = findWaiting(campsite, entryId);
+		if (!waiting.isPresent()) {
+			return Optional.empty();
+		}
+		WaitlistEntry entry = waiting.get();
+		metrics.record(BookingMetrics.AVAILABILITY, () -> dailyAvailabilityService.validateAvailability(campsite,
+				entry.getFromDay(), entry.getToDay(), entry.getGuests(), true));
+		metrics.record(BookingMetrics.BLOCK, () -> dailyAvailabilityService.blockAvailability(campsite,
+				entry.getFromDay(), entry.getToDay(), entry.getGuests()));
+		Booking savedBooking = metrics.record(BookingMetrics.SAVE,
+				() -> bookingRepository.save(new Booking(campsite.getId(), entry.toBookingRequest())));
+		entry.setStatus(WaitlistStatus.BOOKED);
+		entry.setBookingId(savedBooking.getId());
+		// Saving the versioned entry fails if another instance served it meanwhile.
+		waitlistEntryRepository.save(entry);
+		return Optional.of(new BookingResponse(savedBooking.getId(), campsite.getId(), entry.toBookingRequest()));
+	}
+
+	/**
+	 * Mark a waiting entry notified if its stay is available, publishing a {@link WaitlistNotifiedEvent}.
+	 * @param campsite
+	 * @param entryId
+	 * @return false if the entry is not waiting anymore
+	 * @throws com.upgrade.challenge.exception.AvailabilityException if the stay is not available
+	 */
+	@Transactional
+	@Sharded
+	@Retryable(interceptor = BookingRetryConfiguration.INTERCEPTOR)
+	public boolean markNotified(Campsite campsite, Long entryId) {
+		Optional<WaitlistEntry> waiting = findWaiting(campsite, entryId);
+		if (!waiting.isPresent()) {
+			return false;
+		}
+		WaitlistEntry entry = waiting.get();
+		metrics.record(BookingMetrics.AVAILABILITY, () -> dailyAvailabilityService.validateAvailability(campsite,
+				entry.getFromDay(), entry.getToDay(), entry.getGuests(), true));
+		entry.setStatus(WaitlistStatus.NOTIFIED);
+		waitlistEntryRepository.save(entry);
+		eventPublisher.publishEvent(new WaitlistNotifiedEvent(entry));
+		return true;
+	}
+
+	private Optional<WaitlistEntry> findWaiting(Campsite campsite, Long entryId) {
+		return waitlistEntryRepository.findByIdAndCampsiteId(entryId, campsite.getId())
+				.filter(entry -> entry.getStatus() == WaitlistStatus.WAITING);
+	}
+
+}
@@ -29,11 +29,11 @@ public class BookingValidator {
 
 	private String ARRIVAL_UP_TO_DAYS_ERROR_MESSAGE;
 	
-	private String STAY_LENGTH_ERROR_MESSAGE;
+	private final String STAY_LENGTH_ERROR_MESSAGE = "The campsite can be reserved for max %d days.";
 
 	private final String FROM_TO_ERROR_MESSAGE = "Checkin date should be prior to checkout date.";
 	
-	private String NOT_ENOUGH_CAPACITY_EXCEPTION;
+	private final String NOT_ENOUGH_CAPACITY_EXCEPTION = "The maximum capacity for the campsite is %d. Please try again with fewer guests.";
 	
 	private String EXPIRED_BOOKING_EXCEPTION = "It's too late to %s this booking.";
 
@@ -43,17 +43,35 @@ public class BookingValidator {
 	public void initialize() {
 		ARRIVAL_DAYS_AHEAD_ERROR_MESSAGE = String.format("The campsite can be reserved minimum %d day(s) ahead of arrival.", MINIMUM_DAYS_AHEAD_OF_ARRIVAL);
 		ARRIVAL_UP_TO_DAYS_ERROR_MESSAGE = String.format("The campsite can be reserved up to %d month(s) in advance. Please try again with closer dates.", MONTHS_UP_TO_BOOKING);
-		STAY_LENGTH_ERROR_MESSAGE = String.format("The campsite can be reserved for max %d days.", MAX_BOOKING_DAYS);
-		NOT_ENOUGH_CAPACITY_EXCEPTION = String.format("The maximum capacity for the campsite is %d. Please try again with fewer guests.", MAX_CAPACITY);
 	}
 
 	public void validateGuestsInput(Integer guests) {
-		if (guests > MAX_CAPACITY) {
-			throw new InputFormatException(String.format(NOT_ENOUGH_CAPACITY_EXCEPTION));
+		validateGuestsInput(guests, MAX_CAPACITY);
+	}
+
+	/**
+	 * Validate the guests against the capacity of a campsite.
+	 * @param guests
+	 * @param maxCapacity
+	 */
+	public void validateGuestsInput(Integer guests, int maxCapacity) {
+		if (guests > maxCapacity) {
+			throw new InputFormatException(String.format(NOT_ENOUGH_CAPACITY_EXCEPTION, maxCapacity));
 		}
 	}
 	
 	public void validateDatesInput(LocalDate fromDay, LocalDate toDay, Boolean isBooking) {
+		validateDatesInput(fromDay, toDay, isBooking, MAX_BOOKING_DAYS);
+	}
+
+	/**
+	 * Validate the dates against the max stay of a campsite.
+	 * @param fromDay
+	 * @param toDay
+	 * @param isBooking
+	 * @param maxBookingDays
+	 */
+	public void validateDatesInput(LocalDate fromDay, LocalDate toDay, Boolean isBooking, int maxBookingDays) {
 		LocalDate now = LocalDate.now();
 
 		if (fromDay.isBefore(now)) {
@@ -72,8 +90,8 @@ public class BookingValidator {
 			throw new BookingException(FROM_TO_ERROR_MESSAGE);
 		}
 
-		if (isBooking && fromDay.plusDays(MAX_BOOKING_DAYS).isBefore(toDay)) {
-			throw new BookingException(STAY_LENGTH_ERROR_MESSAGE);
+		if (isBooking && fromDay.plusDays(maxBookingDays).isBefore(toDay)) {
+			throw new BookingException(String.format(STAY_LENGTH_ERROR_MESSAGE, maxBookingDays));
 		}
 	}
 	
@@ -91,6 +109,10 @@ public class BookingValidator {
 		return MONTHS_UP_TO_BOOKING;
 	}
 
+	public int getMaxBookingDays() {
+		return MAX_BOOKING_DAYS;
+	}
+
 	public int getMaxCapacity() {
 		return MAX_CAPACITY;
 	}
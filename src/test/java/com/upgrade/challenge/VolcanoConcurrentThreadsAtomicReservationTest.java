@@ -0,0 +1,13 @@
+package com.upgrade.challenge;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Run the concurrency scenarios reserving the stays with conditional updates instead of optimistic locking.
+ * On H2 keep the LOCK_TIMEOUT above the lock waits of the load: the pool closes the connection of a statement
+ * that timed out, and the occupation was seen to drift when many of them were closed during a run.
+ */
+@TestPropertySource(properties = "volcano.reservation_mode=atomic")
+public class VolcanoConcurrentThreadsAtomicReservationTest extends VolcanoConcurrentThreadsTest {
+
+}
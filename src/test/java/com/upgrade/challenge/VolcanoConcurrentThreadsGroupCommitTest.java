@@ -0,0 +1,11 @@
+package com.upgrade.challenge;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Run the concurrency scenarios committing the new bookings in groups.
+ */
+@TestPropertySource(properties = "volcano.group_commit_enabled=true")
+public class VolcanoConcurrentThreadsGroupCommitTest extends VolcanoConcurrentThreadsTest {
+
+}
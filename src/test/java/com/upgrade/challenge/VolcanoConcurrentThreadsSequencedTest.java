@@ -0,0 +1,11 @@
+package com.upgrade.challenge;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Run the concurrency scenarios with the booking mutations sequenced per date stripe.
+ */
+@TestPropertySource(properties = "volcano.sequencer_enabled=true")
+public class VolcanoConcurrentThreadsSequencedTest extends VolcanoConcurrentThreadsTest {
+
+}
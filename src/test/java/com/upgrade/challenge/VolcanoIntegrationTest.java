@@ -51,13 +51,13 @@ public class VolcanoIntegrationTest {
 		ResponseEntity<String> bookingResponse = rest
 				.exchange(RequestEntity.post(URI.create(urlBooking)).body(bookingRequest), String.class);
 		assertTrue(bookingResponse.getStatusCode().is2xxSuccessful());
-		Integer bookingId = (Integer) new JSONObject(bookingResponse.getBody()).get("id");
+		long bookingId = new JSONObject(bookingResponse.getBody()).getLong("id");
 		logger.info("CREATED BOOKING ID: " + bookingId);
 		logger.info("-----------");
 
 		bookingResponse = rest.exchange(RequestEntity.get(URI.create(urlBooking + bookingId)).build(), String.class);
 		assertTrue(bookingResponse.getStatusCode().is2xxSuccessful());
-		assertEquals(bookingId, (Integer) new JSONObject(bookingResponse.getBody()).get("id"));
+		assertEquals(bookingId, new JSONObject(bookingResponse.getBody()).getLong("id"));
 		logger.info("GET BOOKING ID " + bookingId + ": " + bookingResponse.getBody().toString());
 		logger.info("-----------");
 
@@ -72,7 +72,7 @@ public class VolcanoIntegrationTest {
 		logger.info("-----------");
 
 		bookingResponse = rest.exchange(RequestEntity.get(URI.create(urlBooking + bookingId)).build(), String.class);
-		assertEquals(bookingId, (Integer) new JSONObject(bookingResponse.getBody()).get("id"));
+		assertEquals(bookingId, new JSONObject(bookingResponse.getBody()).getLong("id"));
 		logger.info("GET BOOKING ID " + bookingId + ": " + bookingResponse.getBody());
 		logger.info("-----------");
 
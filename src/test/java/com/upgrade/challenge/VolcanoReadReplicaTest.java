@@ -0,0 +1,124 @@
+package com.upgrade.challenge;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.net.URI;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.RequestEntity;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import com.upgrade.challenge.datasource.ReadRouting;
+import com.upgrade.challenge.datasource.ReplicaDataSourceConfiguration;
+import com.upgrade.challenge.datasource.ReplicationHeartbeat;
+import com.upgrade.challenge.model.BookingRequest;
+import com.upgrade.challenge.services.BookingServiceTest;
+
+/**
+ * Routes the reads between two H2 databases, the replica being refreshed from the primary by the test.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"spring.datasource.url=jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1", "spring.datasource.username=sa",
+		"spring.datasource.password=", "volcano.replica_enabled=true",
+		"volcano.replica_url=jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1", "volcano.replica_username=sa",
+		"volcano.replica_password=", "volcano.replica_heartbeat_ms=3600000" })
+public class VolcanoReadReplicaTest {
+
+	private TestRestTemplate rest = new TestRestTemplate();
+	private static final String BOOKING_URL = "http://localhost:%d/booking/";
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	@Qualifier(ReplicaDataSourceConfiguration.PRIMARY_DATA_SOURCE)
+	private DataSource primary;
+
+	@Autowired
+	@Qualifier(ReplicaDataSourceConfiguration.REPLICA_DATA_SOURCE)
+	private DataSource replica;
+
+	@Autowired
+	private ReplicationHeartbeat heartbeat;
+
+	@Test
+	public void testReadYourWrites() throws Exception {
+		replicate();
+		String bookingUrl = String.format(BOOKING_URL, port);
+		ResponseEntity<String> created = rest.exchange(
+				RequestEntity.post(URI.create(bookingUrl)).body(BookingServiceTest.createBookingRequest()), String.class);
+		assertEquals(HttpStatus.OK, created.getStatusCode());
+		String token = created.getHeaders().getFirst(ReadRouting.TOKEN_HEADER);
+		assertNotNull(token);
+		long bookingId = new JSONObject(created.getBody()).getLong("id");
+
+		// The replica does not have the booking yet.
+		assertEquals(HttpStatus.NOT_FOUND, get(bookingUrl + bookingId, null).getStatusCode());
+		assertEquals(HttpStatus.OK, get(bookingUrl + bookingId, token).getStatusCode());
+
+		replicate();
+		assertEquals(HttpStatus.OK, get(bookingUrl + bookingId, null).getStatusCode());
+		assertEquals(HttpStatus.OK, get(bookingUrl + bookingId, token).getStatusCode());
+	}
+
+	@Test
+	public void testSearchReadYourWrites() throws Exception {
+		replicate();
+		String bookingUrl = String.format(BOOKING_URL, port);
+		BookingRequest bookingRequest = BookingServiceTest.createBookingRequest();
+		bookingRequest.setEmail("replica@email.com");
+		ResponseEntity<String> created = rest.exchange(RequestEntity.post(URI.create(bookingUrl)).body(bookingRequest),
+				String.class);
+		assertEquals(HttpStatus.OK, created.getStatusCode());
+		String token = created.getHeaders().getFirst(ReadRouting.TOKEN_HEADER);
+		String searchUrl = bookingUrl + "search?email=" + bookingRequest.getEmail();
+
+		// The replica does not have the booking yet.
+		assertEquals(0, found(get(searchUrl, null)));
+		assertEquals(1, found(get(searchUrl, token)));
+
+		replicate();
+		assertEquals(1, found(get(searchUrl, null)));
+	}
+
+	private int found(ResponseEntity<String> page) throws Exception {
+		assertEquals(HttpStatus.OK, page.getStatusCode());
+		return new JSONObject(page.getBody()).getJSONArray("bookings").length();
+	}
+
+	private ResponseEntity<String> get(String url, String token) {
+		RequestEntity.HeadersBuilder<?> request = RequestEntity.get(URI.create(url));
+		if (token != null) {
+			request.header(ReadRouting.TOKEN_HEADER, token);
+		}
+		return rest.exchange(request.build(), String.class);
+	}
+
+	/**
+	 * Copy the primary into the replica after a heartbeat, and let the heartbeat read it back.
+	 */
+	private void replicate() {
+		heartbeat.beat();
+		List<String> script = new JdbcTemplate(primary).queryForList("SCRIPT", String.class);
+		JdbcTemplate replicaTemplate = new JdbcTemplate(replica);
+		replicaTemplate.execute("DROP ALL OBJECTS");
+		script.forEach(replicaTemplate::execute);
+		heartbeat.beat();
+	}
+
+}
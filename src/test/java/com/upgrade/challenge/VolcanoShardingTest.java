@@ -0,0 +1,96 @@
+package com.upgrade.challenge;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.net.URI;
+
+import javax.sql.DataSource;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.RequestEntity;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import com.upgrade.challenge.datasource.ShardDataSourceConfiguration;
+import com.upgrade.challenge.datasource.ShardRouting;
+import com.upgrade.challenge.model.BookingRequest;
+import com.upgrade.challenge.services.BookingServiceTest;
+
+/**
+ * Spreads two campsites over two H2 databases, the second campsite being on the second shard.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"spring.datasource.url=jdbc:h2:mem:shard0;DB_CLOSE_DELAY=-1", "spring.datasource.username=sa",
+		"spring.datasource.password=", "volcano.shard_urls=" + VolcanoShardingTest.SECOND_SHARD_URL,
+		"volcano.shard_username=sa", "volcano.shard_password=", "volcano.campsites=1,2", "volcano.campsite_2_shard=1" })
+public class VolcanoShardingTest {
+
+	static final String SECOND_SHARD_URL = "jdbc:h2:mem:shard1;DB_CLOSE_DELAY=-1";
+
+	private TestRestTemplate rest = new TestRestTemplate();
+	private static final String BOOKING_URL = "http://localhost:%d/booking/";
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	@Qualifier(ShardDataSourceConfiguration.FIRST_SHARD_DATA_SOURCE)
+	private DataSource firstShard;
+
+	@Autowired
+	private ShardRouting shardRouting;
+
+	@Test
+	public void testCampsitesOnTheirShards() throws Exception {
+		String bookingUrl = String.format(BOOKING_URL, port);
+		long firstBookingId = book(bookingUrl, 1L);
+		long secondBookingId = book(bookingUrl, 2L);
+
+		JdbcTemplate first = new JdbcTemplate(firstShard);
+		JdbcTemplate second = new JdbcTemplate(new DriverManagerDataSource(SECOND_SHARD_URL, "sa", ""));
+		assertEquals(firstBookingId, queryForLong(first, "SELECT id FROM booking WHERE campsite_id = 1"));
+		assertEquals(secondBookingId, queryForLong(second, "SELECT id FROM booking WHERE campsite_id = 2"));
+		assertEquals(0, queryForLong(first, "SELECT COUNT(*) FROM booking WHERE campsite_id = 2"));
+		assertEquals(0, queryForLong(second, "SELECT COUNT(*) FROM booking WHERE campsite_id = 1"));
+		assertEquals(1, queryForLong(first, "SELECT COUNT(*) FROM daily_occupation WHERE campsite_id = 1 AND guests > 0"));
+		assertEquals(1, queryForLong(second, "SELECT COUNT(*) FROM daily_occupation WHERE campsite_id = 2 AND guests > 0"));
+		assertEquals(0, queryForLong(first, "SELECT COUNT(*) FROM daily_occupation WHERE campsite_id = 2"));
+		assertEquals(0, queryForLong(second, "SELECT COUNT(*) FROM daily_occupation WHERE campsite_id = 1"));
+
+		// A booking is only found through its own campsite, on its shard.
+		assertEquals(HttpStatus.OK, get(bookingUrl + secondBookingId + "?campsiteId=2").getStatusCode());
+		assertEquals(HttpStatus.NOT_FOUND, get(bookingUrl + secondBookingId + "?campsiteId=1").getStatusCode());
+
+		// The pool of the second shard, not a bean, is exposed to the admission control.
+		assertEquals(1, shardRouting.getShardPools().size());
+		assertEquals(SECOND_SHARD_URL, shardRouting.getShardPools().get(0).getJdbcUrl());
+	}
+
+	private long book(String bookingUrl, Long campsiteId) throws Exception {
+		BookingRequest request = BookingServiceTest.createBookingRequest();
+		request.setCampsiteId(campsiteId);
+		ResponseEntity<String> created = rest.exchange(RequestEntity.post(URI.create(bookingUrl)).body(request), String.class);
+		assertEquals(HttpStatus.OK, created.getStatusCode());
+		return new JSONObject(created.getBody()).getLong("id");
+	}
+
+	private ResponseEntity<String> get(String url) {
+		return rest.exchange(RequestEntity.get(URI.create(url)).build(), String.class);
+	}
+
+	private static long queryForLong(JdbcTemplate template, String query) {
+		return template.queryForObject(query, Long.class);
+	}
+
+}
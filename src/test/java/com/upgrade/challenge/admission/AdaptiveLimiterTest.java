@@ -0,0 +1,126 @@
+package com.upgrade.challenge.admission;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class AdaptiveLimiterTest {
+
+	private static final long WAIT = TimeUnit.SECONDS.toNanos(5);
+
+	private ExecutorService executor = Executors.newFixedThreadPool(2);
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testRejectOverLimitWithoutWait() throws InterruptedException {
+		AdaptiveLimiter limiter = new AdaptiveLimiter(2, 1, 10, 0.5, 0, 10, 0);
+
+		assertTrue(limiter.acquire(false, 0));
+		assertTrue(limiter.acquire(false, 0));
+		assertFalse(limiter.acquire(false, 0));
+		assertEquals(1, limiter.getRejected());
+	}
+
+	@Test
+	public void testRejectWhenQueueIsFull() throws InterruptedException {
+		AdaptiveLimiter limiter = new AdaptiveLimiter(1, 1, 10, 0.5, 0, 0, 0);
+		limiter.acquire(false, 0);
+
+		assertFalse(limiter.acquire(false, WAIT));
+	}
+
+	@Test
+	public void testQueuedUntilReleased() throws Exception {
+		AdaptiveLimiter limiter = new AdaptiveLimiter(1, 1, 10, 0.5, 0, 10, 0);
+		limiter.acquire(false, 0);
+		Future<Boolean> queued = executor.submit(() -> limiter.acquire(false, WAIT));
+		while (limiter.getWaiting() == 0) {
+			Thread.sleep(1);
+		}
+
+		limiter.release(false);
+
+		assertTrue(queued.get(5, TimeUnit.SECONDS));
+		assertEquals(1, limiter.getInFlight());
+	}
+
+	@Test
+	public void testPriorityOverLimitAndFirst() throws Exception {
+		AdaptiveLimiter limiter = new AdaptiveLimiter(1, 1, 10, 0.5, 0, 10, 1);
+		limiter.acquire(false, 0);
+
+		// The headroom admits a priority request over the limit.
+		assertTrue(limiter.acquire(true, 0));
+		Future<Boolean> regular = executor.submit(() -> limiter.acquire(false, WAIT));
+		while (limiter.getWaiting() == 0) {
+			Thread.sleep(1);
+		}
+		Future<Boolean> priority = executor.submit(() -> limiter.acquire(true, WAIT));
+		while (limiter.getWaiting() == 1) {
+			Thread.sleep(1);
+		}
+
+		limiter.release(false);
+
+		assertTrue(priority.get(5, TimeUnit.SECONDS));
+		assertFalse(regular.isDone());
+		limiter.release(false);
+		limiter.release(false);
+		assertTrue(regular.get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testDecreaseWhenSaturated() throws InterruptedException {
+		AdaptiveLimiter limiter = new AdaptiveLimiter(10, 4, 20, 0.5, 0, 10, 0);
+		limiter.acquire(false, 0);
+		limiter.release(true);
+		assertEquals(5, limiter.getLimit());
+
+		limiter.acquire(false, 0);
+		limiter.release(true);
+		assertEquals(4, limiter.getLimit());
+	}
+
+	@Test
+	public void testDecreaseOncePerInterval() throws InterruptedException {
+		AdaptiveLimiter limiter = new AdaptiveLimiter(10, 1, 20, 0.5, 60000, 10, 0);
+		limiter.acquire(false, 0);
+		limiter.acquire(false, 0);
+
+		limiter.release(true);
+		limiter.release(true);
+
+		assertEquals(5, limiter.getLimit());
+	}
+
+	@Test
+	public void testIncreaseOnlyWhenUsed() throws InterruptedException {
+		AdaptiveLimiter limiter = new AdaptiveLimiter(4, 1, 20, 0.5, 0, 10, 0);
+		limiter.acquire(false, 0);
+		limiter.release(false);
+		assertEquals(4, limiter.getLimit());
+
+		for (int i = 0; i < 5; i++) {
+			for (int j = 0; j < 3; j++) {
+				limiter.acquire(false, 0);
+			}
+			for (int j = 0; j < 3; j++) {
+				limiter.release(false);
+			}
+		}
+		assertEquals(5, limiter.getLimit());
+	}
+
+}
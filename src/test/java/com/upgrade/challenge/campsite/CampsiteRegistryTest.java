@@ -0,0 +1,72 @@
+package com.upgrade.challenge.campsite;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.upgrade.challenge.datasource.ShardRouting;
+import com.upgrade.challenge.exception.CampsiteNotFoundException;
+import com.upgrade.challenge.validator.BookingValidator;
+
+public class CampsiteRegistryTest {
+
+	private CampsiteRegistry registry;
+
+	private MockEnvironment environment;
+
+	@Before
+	public void setup() {
+		BookingValidator validator = mock(BookingValidator.class);
+		when(validator.getMaxCapacity()).thenReturn(10);
+		when(validator.getMaxBookingDays()).thenReturn(3);
+		ShardRouting shardRouting = new ShardRouting();
+		ReflectionTestUtils.setField(shardRouting, "shardUrls", new String[] { "jdbc:h2:mem:shard1" });
+		environment = new MockEnvironment()
+				.withProperty("volcano.campsite_2_max_guests_capacity", "6")
+				.withProperty("volcano.campsite_2_max_booking_days", "5")
+				.withProperty("volcano.campsite_2_shard", "1");
+		registry = new CampsiteRegistry();
+		ReflectionTestUtils.setField(registry, "environment", environment);
+		ReflectionTestUtils.setField(registry, "validator", validator);
+		ReflectionTestUtils.setField(registry, "shardRouting", shardRouting);
+		ReflectionTestUtils.setField(registry, "ids", Arrays.asList(1L, 2L));
+	}
+
+	@Test
+	public void testCampsiteRules() {
+		registry.initialize();
+
+		Campsite defaultCampsite = registry.get(null);
+		assertEquals(Campsite.DEFAULT_ID, defaultCampsite.getId());
+		assertEquals(10, defaultCampsite.getMaxCapacity());
+		assertEquals(3, defaultCampsite.getMaxBookingDays());
+		assertEquals(0, defaultCampsite.getShard());
+		Campsite campsite = registry.get(2L);
+		assertEquals(6, campsite.getMaxCapacity());
+		assertEquals(5, campsite.getMaxBookingDays());
+		assertEquals(1, campsite.getShard());
+		assertEquals(2, registry.getAll().size());
+	}
+
+	@Test(expected = CampsiteNotFoundException.class)
+	public void testUnknownCampsite() {
+		registry.initialize();
+
+		registry.get(3L);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testUnknownShard() {
+		environment.setProperty("volcano.campsite_2_shard", "2");
+
+		registry.initialize();
+	}
+
+}
@@ -3,19 +3,24 @@ package com.upgrade.challenge.controllers;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import java.time.LocalDate;
+import java.util.Arrays;
 
+import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
@@ -23,12 +28,25 @@ import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.upgrade.challenge.admission.AdmissionController;
+import com.upgrade.challenge.campsite.Campsite;
+import com.upgrade.challenge.campsite.CampsiteRegistry;
+import com.upgrade.challenge.datasource.ReadRouting;
 import com.upgrade.challenge.exception.AvailabilityException;
 import com.upgrade.challenge.exception.BookingException;
 import com.upgrade.challenge.exception.BookingNotFoundException;
+import com.upgrade.challenge.exception.CampsiteNotFoundException;
+import com.upgrade.challenge.model.BatchOperation;
+import com.upgrade.challenge.model.BatchOperationResult;
+import com.upgrade.challenge.model.BatchOperationType;
+import com.upgrade.challenge.model.BookingPage;
 import com.upgrade.challenge.model.BookingRequest;
 import com.upgrade.challenge.model.BookingResponse;
+import com.upgrade.challenge.services.BookingBatchService;
+import com.upgrade.challenge.services.BookingGroupCommitter;
+import com.upgrade.challenge.services.BookingSearchService;
 import com.upgrade.challenge.services.BookingService;
+import com.upgrade.challenge.services.IdempotencyStore;
 import com.upgrade.challenge.services.BookingServiceTest;
 
 @RunWith(SpringRunner.class)
@@ -40,7 +58,30 @@ public class BookingControllerTest {
  
     @MockBean
 	private BookingService bookingService;
+
+    @MockBean
+	private BookingBatchService bookingBatchService;
+
+    @MockBean
+	private BookingGroupCommitter bookingGroupCommitter;
+
+    @MockBean
+	private ReadRouting readRouting;
+
+    @MockBean
+	private AdmissionController admissionController;
+
+    @MockBean
+	private BookingSearchService bookingSearchService;
+
+    @SpyBean
+	private IdempotencyStore idempotencyStore;
+
+    @MockBean
+	private CampsiteRegistry campsiteRegistry;
     
+    private static final Campsite CAMPSITE = new Campsite(Campsite.DEFAULT_ID, 10, 3, 0);
+
     private static ObjectMapper mapper;
     
     @BeforeClass
@@ -49,10 +90,15 @@ public class BookingControllerTest {
     	mapper.registerModule(new JavaTimeModule());
     }
 
+    @Before
+    public void setupCampsites() {
+    	when(campsiteRegistry.get(any())).thenReturn(CAMPSITE);
+    }
+
     @Test
     public void testGet() throws Exception {
     	BookingResponse booking = new BookingResponse(Long.valueOf(33), BookingServiceTest.createBookingRequest());
-        when(bookingService.get(anyLong())).thenReturn(booking);
+        when(bookingService.get(any(), anyLong())).thenReturn(booking);
 
         mvc.perform(MockMvcRequestBuilders
         	      .get("/booking/{bookingId}", 33)
@@ -70,7 +116,7 @@ public class BookingControllerTest {
 
     @Test
     public void testGetNoAvailability() throws Exception {
-		doThrow(BookingNotFoundException.class).when(bookingService).get(anyLong());
+		doThrow(BookingNotFoundException.class).when(bookingService).get(any(), anyLong());
 
         mvc.perform(MockMvcRequestBuilders
         	      .get("/booking/{bookingId}", 33)
@@ -79,10 +125,49 @@ public class BookingControllerTest {
         	      .andExpect(status().isNotFound());
     }  
 
+    @Test
+    public void testGetUnknownCampsite() throws Exception {
+    	when(campsiteRegistry.get(9L)).thenThrow(new CampsiteNotFoundException(9L));
+
+        mvc.perform(MockMvcRequestBuilders
+        	      .get("/booking/{bookingId}", 33)
+        	      .param("campsiteId", "9")
+        	      .accept(MediaType.APPLICATION_JSON))
+        	      .andDo(print())
+        	      .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testSearchByEmail() throws Exception {
+    	BookingPage page = new BookingPage(
+    			Arrays.asList(new BookingResponse(Long.valueOf(33), BookingServiceTest.createBookingRequest())), "33");
+        when(bookingSearchService.findByEmail(CAMPSITE, "some@email.com", null, null)).thenReturn(page);
+
+        mvc.perform(MockMvcRequestBuilders
+        	      .get("/booking/search")
+        	      .param("email", "some@email.com")
+        	      .accept(MediaType.APPLICATION_JSON))
+        	      .andDo(print())
+        	      .andExpect(status().isOk())
+        	      .andExpect(jsonPath("$.bookings[0].id").value(33))
+        	      .andExpect(jsonPath("$.next").value("33"));
+    }
+
+    @Test
+    public void testExportInvalidFormat() throws Exception {
+        mvc.perform(MockMvcRequestBuilders
+        	      .get("/booking/export")
+        	      .param("from", "2030-06-10")
+        	      .param("to", "2030-06-12")
+        	      .param("format", "xml"))
+        	      .andDo(print())
+        	      .andExpect(status().isBadRequest());
+    }
+
     @Test
     public void testBookOK() throws Exception {
     	BookingRequest bookingRequest = BookingServiceTest.createBookingRequest();
-        when(bookingService.add(any(BookingRequest.class))).thenReturn(new BookingResponse(Long.valueOf(33), bookingRequest));
+        when(bookingService.add(any(), any(BookingRequest.class))).thenReturn(new BookingResponse(Long.valueOf(33), bookingRequest));
 
     	mvc.perform(MockMvcRequestBuilders
         		  .post("/booking/")
@@ -92,10 +177,28 @@ public class BookingControllerTest {
         	      .andExpect(status().isOk());
     }  
 
+    @Test
+    public void testBookIdempotencyKey() throws Exception {
+    	BookingRequest bookingRequest = BookingServiceTest.createBookingRequest();
+        when(bookingService.add(any(), any(BookingRequest.class))).thenReturn(new BookingResponse(Long.valueOf(33), bookingRequest));
+
+        for (int i = 0; i < 2; i++) {
+        	mvc.perform(MockMvcRequestBuilders
+        			.post("/booking/")
+        			.header(IdempotencyStore.KEY_HEADER, "booking-key")
+        			.contentType(MediaType.APPLICATION_JSON)
+        			.content(mapper.writeValueAsString(bookingRequest)))
+        	      .andDo(print())
+        	      .andExpect(status().isOk())
+        	      .andExpect(jsonPath("$.id").value(33));
+        }
+        verify(bookingService, times(1)).add(any(), any(BookingRequest.class));
+    }
+
     @Test
     public void testBookNotAvailability() throws Exception {
     	BookingRequest bookingRequest = BookingServiceTest.createBookingRequest();
-        when(bookingService.add(any(BookingRequest.class))).thenThrow(AvailabilityException.class);
+        when(bookingService.add(any(), any(BookingRequest.class))).thenThrow(AvailabilityException.class);
 
         mvc.perform(MockMvcRequestBuilders
         	      .post("/booking/")
@@ -108,7 +211,7 @@ public class BookingControllerTest {
     @Test
     public void testEditBookingOk() throws Exception {
     	BookingRequest bookingRequest = BookingServiceTest.createBookingRequest();
-        when(bookingService.edit(anyLong(), any(BookingRequest.class))).thenReturn(BookingServiceTest.createBookingResponse(33));
+        when(bookingService.edit(any(), anyLong(), any(BookingRequest.class))).thenReturn(BookingServiceTest.createBookingResponse(33));
         
         mvc.perform(MockMvcRequestBuilders
         	      .put("/booking/{bookingId}", 33)
@@ -121,7 +224,7 @@ public class BookingControllerTest {
     @Test
     public void testEditBookingNoAvailability() throws Exception {
     	BookingRequest bookingRequest = BookingServiceTest.createBookingRequest();
-        when(bookingService.edit(anyLong(), any(BookingRequest.class))).thenThrow(AvailabilityException.class);
+        when(bookingService.edit(any(), anyLong(), any(BookingRequest.class))).thenThrow(AvailabilityException.class);
         
         mvc.perform(MockMvcRequestBuilders
         	      .put("/booking/{bookingId}", 33)
@@ -141,7 +244,7 @@ public class BookingControllerTest {
 
     @Test
     public void testDeleteBookingNotFound() throws Exception {
-		doThrow(BookingNotFoundException.class).when(bookingService).delete(anyLong());
+		doThrow(BookingNotFoundException.class).when(bookingService).delete(any(), anyLong());
 
 		mvc.perform(MockMvcRequestBuilders
         	      .delete("/booking/{bookingId}", 33))
@@ -151,12 +254,35 @@ public class BookingControllerTest {
 
     @Test
     public void testDeleteBookingAlreadyPassed() throws Exception {
-		doThrow(BookingException.class).when(bookingService).delete(anyLong());
+		doThrow(BookingException.class).when(bookingService).delete(any(), anyLong());
 
 		mvc.perform(MockMvcRequestBuilders
         	      .delete("/booking/{bookingId}", 33))
         	      .andDo(print())
         	      .andExpect(status().isBadRequest());
     }
-    
+
+    @Test
+    public void testBatch() throws Exception {
+    	BatchOperationResult created = new BatchOperationResult(0, BatchOperationType.CREATE);
+    	created.succeed(new BookingResponse(Long.valueOf(33), BookingServiceTest.createBookingRequest()));
+    	BatchOperationResult cancelled = new BatchOperationResult(1, BatchOperationType.CANCEL);
+    	cancelled.fail("Booking not found for ID: 34");
+        when(bookingBatchService.execute(any(), any())).thenReturn(Arrays.asList(created, cancelled));
+
+        mvc.perform(MockMvcRequestBuilders
+        	      .post("/booking/batch")
+        	      .content(mapper.writeValueAsString(Arrays.asList(
+        	    		  new BatchOperation(BatchOperationType.CREATE, null, BookingServiceTest.createBookingRequest()),
+        	    		  new BatchOperation(BatchOperationType.CANCEL, Long.valueOf(34), null))))
+        	      .contentType(MediaType.APPLICATION_JSON)
+        	      .accept(MediaType.APPLICATION_JSON))
+        	      .andDo(print())
+        	      .andExpect(status().isOk())
+        	      .andExpect(jsonPath("$[0].type").value("create"))
+        	      .andExpect(jsonPath("$[0].booking.id").value(33))
+        	      .andExpect(jsonPath("$[1].success").value(false))
+        	      .andExpect(jsonPath("$[1].error").value("Booking not found for ID: 34"));
+    }
+
 }
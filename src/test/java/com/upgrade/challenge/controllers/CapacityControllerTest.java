@@ -0,0 +1,131 @@
+package com.upgrade.challenge.controllers;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDate;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.upgrade.challenge.admission.AdmissionController;
+import com.upgrade.challenge.campsite.Campsite;
+import com.upgrade.challenge.campsite.CampsiteRegistry;
+import com.upgrade.challenge.datasource.ReadRouting;
+import com.upgrade.challenge.exception.CapacityOverrideNotFoundException;
+import com.upgrade.challenge.model.CapacityOverrideRequest;
+import com.upgrade.challenge.model.dto.CapacityOverride;
+import com.upgrade.challenge.services.CapacityCalendar;
+
+@RunWith(SpringRunner.class)
+@WebMvcTest(CapacityController.class)
+public class CapacityControllerTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @MockBean
+    private CapacityCalendar capacityCalendar;
+
+    @MockBean
+    private CampsiteRegistry campsiteRegistry;
+
+    @MockBean
+    private ReadRouting readRouting;
+
+    @MockBean
+    private AdmissionController admissionController;
+
+    private static final Campsite CAMPSITE = new Campsite(Campsite.DEFAULT_ID, 10, 3, 0);
+
+    private static ObjectMapper mapper;
+
+    @BeforeClass
+    public static void setup() {
+    	mapper = new ObjectMapper();
+    	mapper.registerModule(new JavaTimeModule());
+    }
+
+    @Before
+    public void setupCampsites() {
+    	when(campsiteRegistry.get(any())).thenReturn(CAMPSITE);
+    }
+
+    @Test
+    public void testGet() throws Exception {
+    	CapacityOverride maintenance = new CapacityOverride(Campsite.DEFAULT_ID, request(0));
+    	when(capacityCalendar.getOverrides(CAMPSITE)).thenReturn(Collections.singletonList(maintenance));
+
+    	mvc.perform(MockMvcRequestBuilders
+    			.get("/capacity/")
+    			.accept(MediaType.APPLICATION_JSON))
+    			.andDo(print())
+    			.andExpect(status().isOk())
+    			.andExpect(jsonPath("$", hasSize(1)))
+    			.andExpect(jsonPath("$[0].capacity").value(0));
+    }
+
+    @Test
+    public void testAdd() throws Exception {
+    	when(capacityCalendar.add(eq(CAMPSITE), any(CapacityOverrideRequest.class)))
+    			.thenReturn(new CapacityOverride(Campsite.DEFAULT_ID, request(15)));
+
+    	mvc.perform(MockMvcRequestBuilders
+    			.post("/capacity/")
+    			.contentType(MediaType.APPLICATION_JSON)
+    			.content(mapper.writeValueAsString(request(15))))
+    			.andDo(print())
+    			.andExpect(status().isOk())
+    			.andExpect(jsonPath("$.capacity").value(15));
+    }
+
+    @Test
+    public void testAddNegativeCapacity() throws Exception {
+    	mvc.perform(MockMvcRequestBuilders
+    			.post("/capacity/")
+    			.contentType(MediaType.APPLICATION_JSON)
+    			.content(mapper.writeValueAsString(request(-1))))
+    			.andDo(print())
+    			.andExpect(status().isBadRequest());
+    	verify(capacityCalendar, never()).add(any(), any());
+    }
+
+    @Test
+    public void testRemoveNotFound() throws Exception {
+    	doThrow(new CapacityOverrideNotFoundException(33L)).when(capacityCalendar).remove(CAMPSITE, 33L);
+
+    	mvc.perform(MockMvcRequestBuilders
+    			.delete("/capacity/33"))
+    			.andDo(print())
+    			.andExpect(status().isNotFound());
+    }
+
+    private static CapacityOverrideRequest request(int capacity) {
+    	CapacityOverrideRequest request = new CapacityOverrideRequest();
+    	request.setFromDay(LocalDate.now().plusDays(2));
+    	request.setToDay(LocalDate.now().plusDays(4));
+    	request.setCapacity(capacity);
+    	return request;
+    }
+
+}
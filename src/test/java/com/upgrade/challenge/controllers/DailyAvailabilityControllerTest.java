@@ -2,15 +2,25 @@ package com.upgrade.challenge.controllers;
 
 import static org.hamcrest.Matchers.hasSize;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -20,8 +30,18 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import com.upgrade.challenge.admission.AdmissionController;
+import com.upgrade.challenge.campsite.Campsite;
+import com.upgrade.challenge.campsite.CampsiteRegistry;
+import com.upgrade.challenge.datasource.ReadRouting;
+import com.upgrade.challenge.exception.InputFormatException;
+import com.upgrade.challenge.model.AvailableStay;
 import com.upgrade.challenge.model.DailyAvailability;
+import com.upgrade.challenge.services.AvailabilitySearchService;
+import com.upgrade.challenge.services.AvailabilityStreamService;
+import com.upgrade.challenge.services.CampsiteAvailabilityService;
 import com.upgrade.challenge.services.DailyAvailabilityService;
 
 @RunWith(SpringRunner.class)
@@ -34,12 +54,37 @@ public class DailyAvailabilityControllerTest {
     @MockBean
     private DailyAvailabilityService dailyAvailabilityService;
 
+    @MockBean
+    private AvailabilityStreamService availabilityStreamService;
+
+    @MockBean
+    private ReadRouting readRouting;
+
+    @MockBean
+    private AdmissionController admissionController;
+
+    @MockBean
+    private AvailabilitySearchService availabilitySearchService;
+
+    @MockBean
+    private CampsiteAvailabilityService campsiteAvailabilityService;
+
+    @MockBean
+    private CampsiteRegistry campsiteRegistry;
+
+    private static final Campsite CAMPSITE = new Campsite(Campsite.DEFAULT_ID, 10, 3, 0);
+
+    @Before
+    public void setup() {
+        when(campsiteRegistry.get(any())).thenReturn(CAMPSITE);
+    }
+
     @Test
     public void testGetAllDatesNoInputDates() throws Exception {
         List<DailyAvailability> availabilities = new LinkedList<DailyAvailability>();
         availabilities.add(new DailyAvailability(LocalDate.parse("2020-09-09"), 3));
         
-        when(dailyAvailabilityService.getAvailability(null, null)).thenReturn(availabilities);
+        when(dailyAvailabilityService.getAvailability(CAMPSITE, null, null)).thenReturn(availabilities);
 
         mvc.perform(MockMvcRequestBuilders
         	      .get("/availability/")
@@ -55,7 +100,7 @@ public class DailyAvailabilityControllerTest {
         List<DailyAvailability> availabilities = new LinkedList<DailyAvailability>();
         availabilities.add(new DailyAvailability(LocalDate.parse("2020-09-09"), 3));
         
-        when(dailyAvailabilityService.getAvailability(any(LocalDate.class), any(LocalDate.class))).thenReturn(availabilities);
+        when(dailyAvailabilityService.getAvailability(any(), any(LocalDate.class), any(LocalDate.class))).thenReturn(availabilities);
 
         mvc.perform(MockMvcRequestBuilders
         	      .get("/availability/")
@@ -73,7 +118,7 @@ public class DailyAvailabilityControllerTest {
         List<DailyAvailability> availabilities = new LinkedList<DailyAvailability>();
         availabilities.add(new DailyAvailability(LocalDate.parse("2020-09-09"), 3));
         
-        when(dailyAvailabilityService.getAvailability(any(LocalDate.class), any())).thenReturn(availabilities);
+        when(dailyAvailabilityService.getAvailability(any(), any(LocalDate.class), any())).thenReturn(availabilities);
 
         mvc.perform(MockMvcRequestBuilders
         	      .get("/availability/")
@@ -90,7 +135,7 @@ public class DailyAvailabilityControllerTest {
         List<DailyAvailability> availabilities = new LinkedList<DailyAvailability>();
         availabilities.add(new DailyAvailability(LocalDate.parse("2020-09-09"), 3));
         
-        when(dailyAvailabilityService.getAvailability(any(), any(LocalDate.class))).thenReturn(availabilities);
+        when(dailyAvailabilityService.getAvailability(any(), any(), any(LocalDate.class))).thenReturn(availabilities);
 
         mvc.perform(MockMvcRequestBuilders
         	      .get("/availability/")
@@ -102,4 +147,100 @@ public class DailyAvailabilityControllerTest {
         		  .andExpect(jsonPath("$[?(@.date === '2020-09-09')]").exists());
     }  
 
+    @Test
+    public void testGetReturnsTag() throws Exception {
+        List<DailyAvailability> availabilities = new LinkedList<DailyAvailability>();
+        availabilities.add(new DailyAvailability(LocalDate.parse("2020-09-09"), 3));
+
+        when(dailyAvailabilityService.getAvailabilityTag(CAMPSITE, null, null)).thenReturn(Optional.of("1-2020-09-09-2020-09-10-4"));
+        when(dailyAvailabilityService.getAvailability(CAMPSITE, null, null)).thenReturn(availabilities);
+
+        mvc.perform(MockMvcRequestBuilders
+        	      .get("/availability/")
+        	      .accept(MediaType.APPLICATION_JSON))
+        	      .andDo(print())
+        	      .andExpect(status().isOk())
+        	      .andExpect(header().string("ETag", "\"1-2020-09-09-2020-09-10-4\""))
+        	      .andExpect(jsonPath("$", hasSize(1)));
+    }
+
+    @Test
+    public void testGetNotModified() throws Exception {
+        when(dailyAvailabilityService.getAvailabilityTag(CAMPSITE, null, null)).thenReturn(Optional.of("1-2020-09-09-2020-09-10-4"));
+
+        mvc.perform(MockMvcRequestBuilders
+        	      .get("/availability/")
+        	      .header("If-None-Match", "\"1-2020-09-09-2020-09-10-4\"")
+        	      .accept(MediaType.APPLICATION_JSON))
+        	      .andDo(print())
+        	      .andExpect(status().isNotModified());
+
+        verify(dailyAvailabilityService, never()).getAvailability(CAMPSITE, null, null);
+    }
+
+    @Test
+    public void testGetCampsites() throws Exception {
+        Map<Long, List<DailyAvailability>> availabilities = new LinkedHashMap<Long, List<DailyAvailability>>();
+        availabilities.put(1L, Arrays.asList(new DailyAvailability(LocalDate.parse("2020-09-09"), 3)));
+        availabilities.put(2L, Arrays.asList(new DailyAvailability(LocalDate.parse("2020-09-09"), 6)));
+
+        when(campsiteAvailabilityService.getAvailability(eq(Arrays.asList(1L, 2L)), any(), any())).thenReturn(availabilities);
+
+        mvc.perform(MockMvcRequestBuilders
+        	      .get("/availability/campsites")
+        	      .param("campsiteIds", "1,2")
+        	      .accept(MediaType.APPLICATION_JSON))
+        	      .andDo(print())
+        	      .andExpect(status().isOk())
+        	      .andExpect(jsonPath("$.1[0].availability").value(3))
+        	      .andExpect(jsonPath("$.2[0].availability").value(6));
+    }
+
+    @Test
+    public void testStream() throws Exception {
+        when(availabilityStreamService.subscribe(any(), any(LocalDate.class), any(LocalDate.class))).thenReturn(new SseEmitter());
+
+        mvc.perform(MockMvcRequestBuilders
+        	      .get("/availability/stream")
+        	      .param("from", "2020-09-09")
+        	      .param("to", "2020-09-10")
+        	      .accept(MediaType.TEXT_EVENT_STREAM))
+        	      .andDo(print())
+        	      .andExpect(status().isOk())
+        	      .andExpect(request().asyncStarted());
+    }
+
+    @Test
+    public void testSearch() throws Exception {
+        when(availabilitySearchService.search(CAMPSITE, 2, 3, LocalDate.parse("2020-09-09"), null)).thenReturn(Arrays.asList(
+        		new AvailableStay(LocalDate.parse("2020-09-09"), LocalDate.parse("2020-09-11"), 4),
+        		new AvailableStay(LocalDate.parse("2020-09-10"), LocalDate.parse("2020-09-12"), 3)));
+
+        mvc.perform(MockMvcRequestBuilders
+        	      .get("/availability/search")
+        	      .param("nights", "2")
+        	      .param("guests", "3")
+        	      .param("near", "2020-09-09")
+        	      .accept(MediaType.APPLICATION_JSON))
+        	      .andDo(print())
+        	      .andExpect(status().isOk())
+        	      .andExpect(jsonPath("$", hasSize(2)))
+        	      .andExpect(jsonPath("$[0].fromDay").value("2020-09-09"))
+        	      .andExpect(jsonPath("$[0].toDay").value("2020-09-11"))
+        	      .andExpect(jsonPath("$[1].availability").value(3));
+    }
+
+    @Test
+    public void testSearchInvalidNights() throws Exception {
+        when(availabilitySearchService.search(CAMPSITE, 0, 3, null, null)).thenThrow(new InputFormatException("nights should be between 1 and 3"));
+
+        mvc.perform(MockMvcRequestBuilders
+        	      .get("/availability/search")
+        	      .param("nights", "0")
+        	      .param("guests", "3")
+        	      .accept(MediaType.APPLICATION_JSON))
+        	      .andDo(print())
+        	      .andExpect(status().isBadRequest());
+    }
+
 }
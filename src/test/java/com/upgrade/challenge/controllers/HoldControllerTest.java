@@ -0,0 +1,163 @@
+package com.upgrade.challenge.controllers;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.upgrade.challenge.admission.AdmissionController;
+import com.upgrade.challenge.campsite.Campsite;
+import com.upgrade.challenge.campsite.CampsiteRegistry;
+import com.upgrade.challenge.datasource.ReadRouting;
+import com.upgrade.challenge.exception.HoldNotFoundException;
+import com.upgrade.challenge.model.BookingRequest;
+import com.upgrade.challenge.model.BookingResponse;
+import com.upgrade.challenge.model.HoldRequest;
+import com.upgrade.challenge.model.dto.Hold;
+import com.upgrade.challenge.services.BookingServiceTest;
+import com.upgrade.challenge.services.HoldService;
+import com.upgrade.challenge.services.IdempotencyStore;
+
+@RunWith(SpringRunner.class)
+@WebMvcTest(HoldController.class)
+public class HoldControllerTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @MockBean
+    private HoldService holdService;
+
+    @SpyBean
+    private IdempotencyStore idempotencyStore;
+
+    @MockBean
+    private CampsiteRegistry campsiteRegistry;
+
+    @MockBean
+    private ReadRouting readRouting;
+
+    @MockBean
+    private AdmissionController admissionController;
+
+    private static final Campsite CAMPSITE = new Campsite(Campsite.DEFAULT_ID, 10, 3, 0);
+
+    private static ObjectMapper mapper;
+
+    @BeforeClass
+    public static void setup() {
+    	mapper = new ObjectMapper();
+    	mapper.registerModule(new JavaTimeModule());
+    }
+
+    @Before
+    public void setupCampsites() {
+    	when(campsiteRegistry.get(any())).thenReturn(CAMPSITE);
+    }
+
+    @Test
+    public void testHold() throws Exception {
+    	Hold hold = new Hold(Campsite.DEFAULT_ID, holdRequest(3), Instant.now().plusSeconds(600));
+    	hold.setId(33L);
+    	when(holdService.hold(eq(CAMPSITE), any(HoldRequest.class))).thenReturn(hold);
+
+    	mvc.perform(MockMvcRequestBuilders
+    			.post("/hold/")
+    			.contentType(MediaType.APPLICATION_JSON)
+    			.content(mapper.writeValueAsString(holdRequest(3))))
+    			.andDo(print())
+    			.andExpect(status().isOk())
+    			.andExpect(jsonPath("$.id").value(33))
+    			.andExpect(jsonPath("$.guests").value(3))
+    			.andExpect(jsonPath("$.expiresAt").exists());
+    }
+
+    @Test
+    public void testHoldWithoutGuests() throws Exception {
+    	HoldRequest holdRequest = holdRequest(3);
+    	holdRequest.setGuests(null);
+
+    	mvc.perform(MockMvcRequestBuilders
+    			.post("/hold/")
+    			.contentType(MediaType.APPLICATION_JSON)
+    			.content(mapper.writeValueAsString(holdRequest)))
+    			.andDo(print())
+    			.andExpect(status().isBadRequest());
+    	verify(holdService, never()).hold(any(), any());
+    }
+
+    @Test
+    public void testConfirmWithRepeatedKey() throws Exception {
+    	BookingRequest bookingRequest = BookingServiceTest.createBookingRequest();
+    	when(holdService.confirm(eq(CAMPSITE), eq(33L), any(BookingRequest.class)))
+    			.thenReturn(new BookingResponse(44L, bookingRequest));
+
+    	for (int i = 0; i < 2; i++) {
+    		mvc.perform(MockMvcRequestBuilders
+    				.post("/hold/{holdId}/confirm", 33)
+    				.header(IdempotencyStore.KEY_HEADER, "confirm-key")
+    				.contentType(MediaType.APPLICATION_JSON)
+    				.content(mapper.writeValueAsString(bookingRequest)))
+    				.andDo(print())
+    				.andExpect(status().isOk())
+    				.andExpect(jsonPath("$.id").value(44));
+    	}
+    	verify(holdService, times(1)).confirm(eq(CAMPSITE), eq(33L), any(BookingRequest.class));
+    }
+
+    @Test
+    public void testConfirmNotFound() throws Exception {
+    	when(holdService.confirm(eq(CAMPSITE), eq(33L), any(BookingRequest.class)))
+    			.thenThrow(new HoldNotFoundException(33L));
+
+    	mvc.perform(MockMvcRequestBuilders
+    			.post("/hold/{holdId}/confirm", 33)
+    			.contentType(MediaType.APPLICATION_JSON)
+    			.content(mapper.writeValueAsString(BookingServiceTest.createBookingRequest())))
+    			.andDo(print())
+    			.andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testCancelNotFound() throws Exception {
+    	doThrow(new HoldNotFoundException(33L)).when(holdService).cancel(CAMPSITE, 33L);
+
+    	mvc.perform(MockMvcRequestBuilders
+    			.delete("/hold/{holdId}", 33))
+    			.andDo(print())
+    			.andExpect(status().isNotFound());
+    }
+
+    private static HoldRequest holdRequest(int guests) {
+    	HoldRequest holdRequest = new HoldRequest();
+    	holdRequest.setFromDay(LocalDate.now().plusDays(2));
+    	holdRequest.setToDay(LocalDate.now().plusDays(3));
+    	holdRequest.setGuests(guests);
+    	return holdRequest;
+    }
+
+}
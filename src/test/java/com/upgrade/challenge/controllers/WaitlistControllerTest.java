@@ -0,0 +1,125 @@
+package com.upgrade.challenge.controllers;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDate;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.upgrade.challenge.admission.AdmissionController;
+import com.upgrade.challenge.campsite.Campsite;
+import com.upgrade.challenge.campsite.CampsiteRegistry;
+import com.upgrade.challenge.datasource.ReadRouting;
+import com.upgrade.challenge.exception.WaitlistEntryNotFoundException;
+import com.upgrade.challenge.model.WaitlistRequest;
+import com.upgrade.challenge.model.dto.WaitlistEntry;
+import com.upgrade.challenge.services.WaitlistMatcher;
+import com.upgrade.challenge.services.WaitlistService;
+
+@RunWith(SpringRunner.class)
+@WebMvcTest(WaitlistController.class)
+public class WaitlistControllerTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @MockBean
+    private WaitlistService waitlistService;
+
+    @MockBean
+    private WaitlistMatcher waitlistMatcher;
+
+    @MockBean
+    private CampsiteRegistry campsiteRegistry;
+
+    @MockBean
+    private ReadRouting readRouting;
+
+    @MockBean
+    private AdmissionController admissionController;
+
+    private static final Campsite CAMPSITE = new Campsite(Campsite.DEFAULT_ID, 10, 3, 0);
+
+    private static ObjectMapper mapper;
+
+    @BeforeClass
+    public static void setup() {
+    	mapper = new ObjectMapper();
+    	mapper.registerModule(new JavaTimeModule());
+    }
+
+    @Before
+    public void setupCampsites() {
+    	when(campsiteRegistry.get(any())).thenReturn(CAMPSITE);
+    }
+
+    @Test
+    public void testAdd() throws Exception {
+    	WaitlistEntry entry = new WaitlistEntry(Campsite.DEFAULT_ID, request("some@email.com"));
+    	entry.setId(33L);
+    	when(waitlistMatcher.add(eq(CAMPSITE), any(WaitlistRequest.class))).thenReturn(entry);
+
+    	mvc.perform(MockMvcRequestBuilders
+    			.post("/waitlist/")
+    			.contentType(MediaType.APPLICATION_JSON)
+    			.content(mapper.writeValueAsString(request("some@email.com"))))
+    			.andDo(print())
+    			.andExpect(status().isOk())
+    			.andExpect(jsonPath("$.id").value(33))
+    			.andExpect(jsonPath("$.autoBook").value(true))
+    			.andExpect(jsonPath("$.status").value("waiting"));
+    }
+
+    @Test
+    public void testAddInvalidEmail() throws Exception {
+    	mvc.perform(MockMvcRequestBuilders
+    			.post("/waitlist/")
+    			.contentType(MediaType.APPLICATION_JSON)
+    			.content(mapper.writeValueAsString(request("email"))))
+    			.andDo(print())
+    			.andExpect(status().isBadRequest());
+    	verify(waitlistMatcher, never()).add(any(), any());
+    }
+
+    @Test
+    public void testGetNotFound() throws Exception {
+    	when(waitlistService.get(CAMPSITE, 33L)).thenThrow(new WaitlistEntryNotFoundException(33L));
+
+    	mvc.perform(MockMvcRequestBuilders
+    			.get("/waitlist/{entryId}", 33))
+    			.andDo(print())
+    			.andExpect(status().isNotFound());
+    }
+
+    private static WaitlistRequest request(String email) {
+    	WaitlistRequest waitlistRequest = new WaitlistRequest();
+    	waitlistRequest.setFromDay(LocalDate.now().plusDays(2));
+    	waitlistRequest.setToDay(LocalDate.now().plusDays(3));
+    	waitlistRequest.setGuests(3);
+    	waitlistRequest.setFirstName("name");
+    	waitlistRequest.setLastName("surname");
+    	waitlistRequest.setEmail(email);
+    	waitlistRequest.setAutoBook(true);
+    	return waitlistRequest;
+    }
+
+}
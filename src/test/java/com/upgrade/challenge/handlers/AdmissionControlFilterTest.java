@@ -0,0 +1,109 @@
+package com.upgrade.challenge.handlers;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.upgrade.challenge.admission.AdmissionController;
+
+public class AdmissionControlFilterTest {
+
+	private AdmissionControlFilter filter;
+
+	private AdmissionController admissionController;
+
+	@Before
+	public void setup() {
+		filter = new AdmissionControlFilter();
+		admissionController = mock(AdmissionController.class);
+		when(admissionController.isEnabled()).thenReturn(true);
+		ReflectionTestUtils.setField(filter, "admissionController", admissionController);
+		ReflectionTestUtils.setField(filter, "retryAfter", 2);
+	}
+
+	@Test
+	public void testAdmitted() throws Exception {
+		when(admissionController.acquire(false, false)).thenReturn(true);
+		MockFilterChain chain = new MockFilterChain();
+
+		filter.doFilter(request("GET", "/availability/"), new MockHttpServletResponse(), chain);
+
+		assertEquals("/availability/", ((MockHttpServletRequest) chain.getRequest()).getServletPath());
+		verify(admissionController).release(false);
+	}
+
+	@Test
+	public void testShed() throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		MockFilterChain chain = new MockFilterChain();
+
+		filter.doFilter(request("POST", "/booking/"), response, chain);
+
+		assertEquals(503, response.getStatus());
+		assertEquals("2", response.getHeader(HttpHeaders.RETRY_AFTER));
+		assertNull(chain.getRequest());
+		verify(admissionController).acquire(true, false);
+		verify(admissionController, never()).release(anyBoolean());
+	}
+
+	@Test
+	public void testCancellationIsPriority() throws Exception {
+		when(admissionController.acquire(true, true)).thenReturn(true);
+
+		filter.doFilter(request("DELETE", "/booking/33"), new MockHttpServletResponse(), new MockFilterChain());
+
+		verify(admissionController).release(true);
+	}
+
+	@Test
+	public void testAsyncReleasedOnCompletion() throws Exception {
+		when(admissionController.acquire(false, false)).thenReturn(true);
+		MockHttpServletRequest request = request("GET", "/booking/export");
+		request.setAsyncSupported(true);
+		MockFilterChain chain = new MockFilterChain(new HttpServlet() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void service(HttpServletRequest req, HttpServletResponse resp) {
+				req.startAsync();
+			}
+		});
+
+		filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+		verify(admissionController, never()).release(anyBoolean());
+		request.getAsyncContext().complete();
+		verify(admissionController, times(1)).release(false);
+	}
+
+	@Test
+	public void testStreamsNotFiltered() throws Exception {
+		filter.doFilter(request("GET", "/availability/stream"), new MockHttpServletResponse(), new MockFilterChain());
+
+		verify(admissionController, never()).acquire(anyBoolean(), anyBoolean());
+	}
+
+	private static MockHttpServletRequest request(String method, String path) {
+		MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+		request.setServletPath(path);
+		return request;
+	}
+
+}
@@ -0,0 +1,96 @@
+package com.upgrade.challenge.id;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class SnowflakeTest {
+
+	private long now = Snowflake.EPOCH + 1000;
+
+	private final Snowflake snowflake = new Snowflake(5) {
+		@Override
+		long currentTimeMillis() {
+			return now;
+		}
+	};
+
+	@Test
+	public void testIdLayout() {
+		long id = snowflake.nextId();
+
+		assertEquals(now, Snowflake.timestampOf(id));
+		assertEquals(5, Snowflake.nodeOf(id));
+		assertEquals(id + 1, snowflake.nextId());
+	}
+
+	@Test
+	public void testSequenceExhaustedMovesToNextMillisecond() {
+		long id = 0;
+		for (int i = 0; i <= Snowflake.MAX_SEQUENCE; i++) {
+			id = snowflake.nextId();
+		}
+		assertEquals(now, Snowflake.timestampOf(id));
+
+		long next = snowflake.nextId();
+		assertTrue(next > id);
+		assertEquals(now + 1, Snowflake.timestampOf(next));
+		assertEquals(5, Snowflake.nodeOf(next));
+	}
+
+	@Test
+	public void testClockGoingBackKeepsIdsGrowing() {
+		long id = snowflake.nextId();
+		now -= 100;
+
+		long next = snowflake.nextId();
+		assertTrue(next > id);
+		assertEquals(now + 100, Snowflake.timestampOf(next));
+	}
+
+	@Test
+	public void testNodesDoNotCollide() {
+		Snowflake other = new Snowflake(6) {
+			@Override
+			long currentTimeMillis() {
+				return now;
+			}
+		};
+		Set<Long> ids = ConcurrentHashMap.newKeySet();
+		for (int i = 0; i < 10000; i++) {
+			assertTrue(ids.add(snowflake.nextId()));
+			assertTrue(ids.add(other.nextId()));
+		}
+	}
+
+	@Test
+	public void testUniqueAcrossThreads() throws InterruptedException {
+		Snowflake snowflake = new Snowflake(Snowflake.MAX_NODE);
+		Set<Long> ids = ConcurrentHashMap.newKeySet();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		for (int i = 0; i < 8; i++) {
+			executor.submit(() -> {
+				for (int j = 0; j < 20000; j++) {
+					ids.add(snowflake.nextId());
+				}
+			});
+		}
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+		assertEquals(8 * 20000, ids.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidNode() {
+		new Snowflake(Snowflake.MAX_NODE + 1);
+	}
+
+}
@@ -0,0 +1,152 @@
+package com.upgrade.challenge.load;
+
+import java.net.URI;
+import java.time.LocalDate;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.commons.lang3.RandomStringUtils;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.RequestEntity;
+import org.springframework.http.ResponseEntity;
+
+import com.upgrade.challenge.load.LoadReport.Outcome;
+import com.upgrade.challenge.model.BookingRequest;
+
+/**
+ * Sends the requests of a {@link LoadProfile} to a running application as an open model: every request
+ * is started on schedule whether or not the previous ones were answered, as independent clients would do.
+ */
+public class LoadGenerator {
+
+	private static final Logger logger = LoggerFactory.getLogger(LoadGenerator.class);
+
+	private static final String BOOKING_ENDPOINT = "/booking/";
+
+	private static final String AVAILABILITY_ENDPOINT = "/availability/?from=%s&to=%s";
+
+	private final String baseUrl;
+
+	private final TestRestTemplate rest = new TestRestTemplate();
+
+	/**
+	 * The bookings created so far, to be edited or cancelled.
+	 */
+	private final Queue<Long> bookings = new ConcurrentLinkedQueue<Long>();
+
+	public LoadGenerator(String baseUrl) {
+		this.baseUrl = baseUrl;
+	}
+
+	public LoadReport run(LoadProfile profile) throws InterruptedException {
+		LoadReport report = new LoadReport();
+		ExecutorService workers = Executors.newFixedThreadPool(profile.getWorkers());
+		long intervalNanos = TimeUnit.SECONDS.toNanos(1) / profile.getRatePerSecond();
+		long start = System.nanoTime();
+		Random random = ThreadLocalRandom.current();
+		for (long i = 0; i < profile.getTotalRequests(); i++) {
+			long due = start + i * intervalNanos;
+			long wait = due - System.nanoTime();
+			if (wait > 0) {
+				LockSupport.parkNanos(wait);
+			}
+			Operation operation = profile.nextOperation(random);
+			LocalDate[] stay = profile.nextStay(random);
+			int guests = profile.nextGuests(random);
+			workers.execute(() -> report.record(operation, System.nanoTime() - due, send(operation, stay, guests)));
+		}
+		workers.shutdown();
+		workers.awaitTermination(10, TimeUnit.MINUTES);
+		report.setElapsedNanos(System.nanoTime() - start);
+		return report;
+	}
+
+	private Outcome send(Operation operation, LocalDate[] stay, int guests) {
+		try {
+			switch (operation) {
+			case CREATE:
+				return create(stay, guests);
+			case EDIT:
+				return edit(stay, guests);
+			case CANCEL:
+				return cancel();
+			default:
+				return outcome(rest.getForEntity(baseUrl + String.format(AVAILABILITY_ENDPOINT, stay[0], stay[1]), String.class));
+			}
+		} catch (RuntimeException | JSONException e) {
+			logger.warn("{} failed: {}", operation, e.getMessage());
+			return Outcome.FAILED;
+		}
+	}
+
+	private Outcome create(LocalDate[] stay, int guests) throws JSONException {
+		ResponseEntity<String> response = rest.exchange(
+				RequestEntity.post(URI.create(baseUrl + BOOKING_ENDPOINT)).body(bookingRequest(stay, guests)), String.class);
+		if (response.getStatusCode().is2xxSuccessful()) {
+			bookings.add(new JSONObject(response.getBody()).getLong("id"));
+		}
+		return outcome(response);
+	}
+
+	/**
+	 * Editing or cancelling without any booking created yet counts as rejected.
+	 */
+	private Outcome edit(LocalDate[] stay, int guests) {
+		Long bookingId = bookings.poll();
+		if (bookingId == null) {
+			return Outcome.REJECTED;
+		}
+		try {
+			return outcome(rest.exchange(RequestEntity.put(URI.create(baseUrl + BOOKING_ENDPOINT + bookingId))
+					.body(bookingRequest(stay, guests)), String.class));
+		} finally {
+			bookings.add(bookingId);
+		}
+	}
+
+	private Outcome cancel() {
+		Long bookingId = bookings.poll();
+		if (bookingId == null) {
+			return Outcome.REJECTED;
+		}
+		ResponseEntity<String> response = rest.exchange(
+				RequestEntity.delete(URI.create(baseUrl + BOOKING_ENDPOINT + bookingId)).build(), String.class);
+		if (!response.getStatusCode().is2xxSuccessful()) {
+			bookings.add(bookingId);
+		}
+		return outcome(response);
+	}
+
+	private Outcome outcome(ResponseEntity<String> response) {
+		if (response.getStatusCode().is2xxSuccessful()) {
+			return Outcome.SUCCEEDED;
+		}
+		if (response.getStatusCode().is4xxClientError()) {
+			return Outcome.REJECTED;
+		}
+		logger.warn("Request failed with {}: {}", response.getStatusCode(), response.getBody());
+		return Outcome.FAILED;
+	}
+
+	private static BookingRequest bookingRequest(LocalDate[] stay, int guests) {
+		BookingRequest bookingRequest = new BookingRequest();
+		bookingRequest.setFromDay(stay[0]);
+		bookingRequest.setToDay(stay[1]);
+		bookingRequest.setGuests(guests);
+		bookingRequest.setFirstName(RandomStringUtils.random(8, true, false));
+		bookingRequest.setLastName(RandomStringUtils.random(8, true, false));
+		bookingRequest.setEmail(RandomStringUtils.random(15, true, true).concat("@mail.com"));
+		return bookingRequest;
+	}
+
+}
@@ -0,0 +1,126 @@
+package com.upgrade.challenge.load;
+
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+
+import lombok.Getter;
+
+/**
+ * What the load generator sends: how many requests per second and for how long, the mix of operations
+ * and how the stays are spread over the booking month. The defaults can be overridden with the system
+ * properties "load.rate", "load.seconds" and "load.workers", e.g. to size the instances with a longer run.
+ */
+@Getter
+public class LoadProfile {
+
+	/**
+	 * Requests started per second whatever the response times, as independent clients would do.
+	 */
+	private int ratePerSecond = 200;
+
+	private int seconds = 10;
+
+	/**
+	 * Max requests in flight, the ones arriving while all of them are busy wait and count that wait as latency.
+	 */
+	private int workers = 100;
+
+	private final Map<Operation, Integer> mix = new EnumMap<Operation, Integer>(Operation.class);
+
+	/**
+	 * Share of the stays starting on one of the hot days, the rest start on any day of the horizon.
+	 */
+	private double hotShare = 0;
+
+	private int hotDays = 1;
+
+	private int firstDay = 1;
+
+	private int horizonDays = 35;
+
+	private int maxStayDays = 3;
+
+	private int maxGuests = 4;
+
+	public LoadProfile() {
+		mix.put(Operation.CREATE, 6);
+		mix.put(Operation.EDIT, 2);
+		mix.put(Operation.CANCEL, 3);
+		mix.put(Operation.AVAILABILITY, 0);
+	}
+
+	public LoadProfile rate(int ratePerSecond, int seconds) {
+		this.ratePerSecond = Integer.getInteger("load.rate", ratePerSecond);
+		this.seconds = Integer.getInteger("load.seconds", seconds);
+		return this;
+	}
+
+	public LoadProfile workers(int workers) {
+		this.workers = Integer.getInteger("load.workers", workers);
+		return this;
+	}
+
+	public LoadProfile mix(int create, int edit, int cancel, int availability) {
+		mix.put(Operation.CREATE, create);
+		mix.put(Operation.EDIT, edit);
+		mix.put(Operation.CANCEL, cancel);
+		mix.put(Operation.AVAILABILITY, availability);
+		return this;
+	}
+
+	/**
+	 * @param hotShare between 0 and 1
+	 * @param hotDays
+	 */
+	public LoadProfile skew(double hotShare, int hotDays) {
+		this.hotShare = hotShare;
+		this.hotDays = hotDays;
+		return this;
+	}
+
+	/**
+	 * @param firstDay days from today of the first arrival
+	 * @param horizonDays days from the first arrival of the last one
+	 * @param maxStayDays
+	 * @param maxGuests
+	 */
+	public LoadProfile stays(int firstDay, int horizonDays, int maxStayDays, int maxGuests) {
+		this.firstDay = firstDay;
+		this.horizonDays = horizonDays;
+		this.maxStayDays = maxStayDays;
+		this.maxGuests = maxGuests;
+		return this;
+	}
+
+	public long getTotalRequests() {
+		return (long) ratePerSecond * seconds;
+	}
+
+	Operation nextOperation(Random random) {
+		int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+		int pick = random.nextInt(total);
+		for (Map.Entry<Operation, Integer> weight : mix.entrySet()) {
+			pick -= weight.getValue();
+			if (pick < 0) {
+				return weight.getKey();
+			}
+		}
+		throw new IllegalStateException("The operation mix is empty.");
+	}
+
+	/**
+	 * Returns the arrival and checkout dates of a random stay.
+	 */
+	LocalDate[] nextStay(Random random) {
+		int day = random.nextDouble() < hotShare ? random.nextInt(hotDays) : random.nextInt(horizonDays);
+		LocalDate from = LocalDate.now().plusDays(firstDay + day);
+		return new LocalDate[] { from, from.plusDays(1 + random.nextInt(maxStayDays)) };
+	}
+
+	int nextGuests(Random random) {
+		return 1 + random.nextInt(maxGuests);
+	}
+
+}
@@ -0,0 +1,135 @@
+package com.upgrade.challenge.load;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Latencies and outcomes per operation of a load run. The latency of a request is measured from the time
+ * it was due to be sent, so the requests delayed by a slow server are not left out of the distribution.
+ */
+public class LoadReport {
+
+	private final Map<Operation, Histogram> latencies = new EnumMap<Operation, Histogram>(Operation.class);
+
+	private final Map<Operation, LongAdder> succeeded = new EnumMap<Operation, LongAdder>(Operation.class);
+
+	private final Map<Operation, LongAdder> rejected = new EnumMap<Operation, LongAdder>(Operation.class);
+
+	private final Map<Operation, LongAdder> failed = new EnumMap<Operation, LongAdder>(Operation.class);
+
+	private long elapsedNanos;
+
+	private Map<String, Long> retries;
+
+	private long attempts;
+
+	private long wastedAttempts;
+
+	public LoadReport() {
+		for (Operation operation : Operation.values()) {
+			latencies.put(operation, new ConcurrentHistogram(3));
+			succeeded.put(operation, new LongAdder());
+			rejected.put(operation, new LongAdder());
+			failed.put(operation, new LongAdder());
+		}
+	}
+
+	void record(Operation operation, long latencyNanos, Outcome outcome) {
+		latencies.get(operation).recordValue(latencyNanos);
+		switch (outcome) {
+		case SUCCEEDED:
+			succeeded.get(operation).increment();
+			break;
+		case REJECTED:
+			rejected.get(operation).increment();
+			break;
+		default:
+			failed.get(operation).increment();
+		}
+	}
+
+	void setElapsedNanos(long elapsedNanos) {
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	public void setRetries(Map<String, Long> retries) {
+		this.retries = retries;
+	}
+
+	/**
+	 * @param attempts attempts of the retryable operations
+	 * @param wastedAttempts attempts rolled back by a conflict
+	 */
+	public void setAttempts(long attempts, long wastedAttempts) {
+		this.attempts = attempts;
+		this.wastedAttempts = wastedAttempts;
+	}
+
+	public long getWastedAttempts() {
+		return wastedAttempts;
+	}
+
+	/**
+	 * Returns the requests answered with a 5xx or not answered at all.
+	 */
+	public long getFailed(Operation operation) {
+		return failed.get(operation).sum();
+	}
+
+	public long getSucceeded(Operation operation) {
+		return succeeded.get(operation).sum();
+	}
+
+	/**
+	 * Returns the requests answered with a 4xx, e.g. when there is no availability left.
+	 */
+	public long getRejected(Operation operation) {
+		return rejected.get(operation).sum();
+	}
+
+	public Histogram getLatencies(Operation operation) {
+		return latencies.get(operation);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder report = new StringBuilder();
+		report.append(String.format("%n%-13s %8s %8s %8s %8s %10s %10s %10s %10s%n", "operation", "count", "ok", "4xx",
+				"failed", "p50 ms", "p99 ms", "p99.9 ms", "max ms"));
+		long total = 0;
+		for (Operation operation : Operation.values()) {
+			Histogram histogram = latencies.get(operation);
+			if (histogram.getTotalCount() == 0) {
+				continue;
+			}
+			total += histogram.getTotalCount();
+			report.append(String.format("%-13s %8d %8d %8d %8d %10.2f %10.2f %10.2f %10.2f%n", operation,
+					histogram.getTotalCount(), getSucceeded(operation), getRejected(operation), getFailed(operation),
+					millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(99)),
+					millis(histogram.getValueAtPercentile(99.9)), millis(histogram.getMaxValue())));
+		}
+		report.append(String.format("throughput: %.1f req/s over %.1f s%n", total / (elapsedNanos / 1e9), elapsedNanos / 1e9));
+		if (retries != null) {
+			report.append("retried errors: ").append(retries.isEmpty() ? "none" : retries).append(String.format("%n"));
+		}
+		if (attempts > 0) {
+			report.append(String.format("attempts: %d, wasted by conflicts: %d (%.1f%%)%n", attempts, wastedAttempts,
+					100.0 * wastedAttempts / attempts));
+		}
+		return report.toString();
+	}
+
+	private static double millis(long nanos) {
+		return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	enum Outcome {
+		SUCCEEDED, REJECTED, FAILED
+	}
+
+}
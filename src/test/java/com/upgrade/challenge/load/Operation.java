@@ -0,0 +1,7 @@
+package com.upgrade.challenge.load;
+
+public enum Operation {
+
+	CREATE, EDIT, CANCEL, AVAILABILITY;
+
+}
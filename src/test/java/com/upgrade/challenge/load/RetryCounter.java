@@ -0,0 +1,62 @@
+package com.upgrade.challenge.load;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.retry.RetryCallback;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.listener.RetryListenerSupport;
+
+/**
+ * Counts the failed attempts of the {@code @Retryable} methods by exception, and the attempts wasted by
+ * a conflict, registered as a bean so the retry interceptors apply it to every retryable method.
+ */
+public class RetryCounter extends RetryListenerSupport {
+
+	private final Map<String, LongAdder> errors = new ConcurrentHashMap<String, LongAdder>();
+
+	private final LongAdder attempts = new LongAdder();
+
+	private final LongAdder wastedAttempts = new LongAdder();
+
+	@Override
+	public <T, E extends Throwable> void onError(RetryContext context, RetryCallback<T, E> callback, Throwable throwable) {
+		errors.computeIfAbsent(throwable.getClass().getSimpleName(), cause -> new LongAdder()).increment();
+		attempts.increment();
+		if (throwable instanceof ConcurrencyFailureException || throwable instanceof DataIntegrityViolationException) {
+			wastedAttempts.increment();
+		}
+	}
+
+	@Override
+	public <T, E extends Throwable> void close(RetryContext context, RetryCallback<T, E> callback, Throwable throwable) {
+		if (throwable == null) {
+			attempts.increment();
+		}
+	}
+
+	public Map<String, Long> getErrors() {
+		Map<String, Long> snapshot = new TreeMap<String, Long>();
+		errors.forEach((cause, count) -> snapshot.put(cause, count.sum()));
+		return snapshot;
+	}
+
+	public long getAttempts() {
+		return attempts.sum();
+	}
+
+	public long getWastedAttempts() {
+		return wastedAttempts.sum();
+	}
+
+	public void reset() {
+		errors.clear();
+		attempts.reset();
+		wastedAttempts.reset();
+	}
+
+}
@@ -6,6 +6,7 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.List;
 
 import org.junit.Before;
@@ -16,6 +17,7 @@ import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.test.context.junit4.SpringRunner;
 
+import com.upgrade.challenge.campsite.Campsite;
 import com.upgrade.challenge.model.dto.DailyOccupation;
 
 @RunWith(SpringRunner.class)
@@ -27,6 +29,10 @@ public class DailyOccupationRepositoryTest {
 	
 	@Autowired
 	private DailyOccupationRepository dailyAvailabilityRepository;
+
+	private static final Long CAMPSITE = Campsite.DEFAULT_ID;
+
+	private static final Long OTHER_CAMPSITE = 2L;
 	
 	@Before
 	public void setup() {
@@ -38,12 +44,13 @@ public class DailyOccupationRepositoryTest {
 		entityManager.persist(dailyAvailability2);
 		entityManager.persist(dailyAvailability3);
 		entityManager.persist(dailyAvailability4);
+		entityManager.persist(new DailyOccupation(OTHER_CAMPSITE, LocalDate.parse("2020-09-02"), 9));
 		entityManager.flush();
 	}
 	@Test
 	public void testWhenFindAllByDateBetween() {
 		List<DailyOccupation> dayAvailabilitiesFound = dailyAvailabilityRepository
-				.findAllByDateBetween(LocalDate.parse("2020-09-02"), LocalDate.parse("2020-09-03"));
+				.findAllByCampsiteIdAndDateBetween(CAMPSITE, LocalDate.parse("2020-09-02"), LocalDate.parse("2020-09-03"));
 
 		assertNotNull(dayAvailabilitiesFound);
 		assertEquals(2, dayAvailabilitiesFound.size());
@@ -56,7 +63,7 @@ public class DailyOccupationRepositoryTest {
 	@Test
 	public void testExistsByDateBetweenAndGuestsGreaterThanFound() {
 		boolean dayAvailabilitiesFound = dailyAvailabilityRepository
-				.existsByDateBetweenAndGuestsGreaterThan(LocalDate.parse("2020-09-01"), LocalDate.parse("2020-09-04"), 3);
+				.existsByCampsiteIdAndDateBetweenAndGuestsGreaterThan(CAMPSITE, LocalDate.parse("2020-09-01"), LocalDate.parse("2020-09-04"), 3);
 
 		assertTrue(dayAvailabilitiesFound);
 	}
@@ -64,9 +71,66 @@ public class DailyOccupationRepositoryTest {
 	@Test
 	public void testExistsByDateBetweenAndGuestsGreaterThanNotFound() {
 		boolean dayAvailabilitiesFound = dailyAvailabilityRepository
-				.existsByDateBetweenAndGuestsGreaterThan(LocalDate.parse("2020-09-01"), LocalDate.parse("2020-09-04"), 5);
+				.existsByCampsiteIdAndDateBetweenAndGuestsGreaterThan(CAMPSITE, LocalDate.parse("2020-09-01"), LocalDate.parse("2020-09-04"), 5);
 
 		assertFalse(dayAvailabilitiesFound);
 	}
 
+	@Test
+	public void testCountByDateBetween() {
+		assertEquals(3, dailyAvailabilityRepository.countByCampsiteIdAndDateBetween(CAMPSITE, LocalDate.parse("2020-09-02"), LocalDate.parse("2020-09-05")));
+	}
+
+	@Test
+	public void testReserveAllDays() {
+		int reservedDays = dailyAvailabilityRepository.reserve(CAMPSITE, LocalDate.parse("2020-09-01"), LocalDate.parse("2020-09-02"), 3, 7);
+		entityManager.clear();
+
+		assertEquals(2, reservedDays);
+		List<DailyOccupation> days = dailyAvailabilityRepository
+				.findAllByCampsiteIdAndDateBetweenOrderByDateAsc(CAMPSITE, LocalDate.parse("2020-09-01"), LocalDate.parse("2020-09-02"));
+		assertEquals(4, days.get(0).getGuests());
+		assertEquals(5, days.get(1).getGuests());
+	}
+
+	@Test
+	public void testReserveNotEnoughCapacity() {
+		int reservedDays = dailyAvailabilityRepository.reserve(CAMPSITE, LocalDate.parse("2020-09-02"), LocalDate.parse("2020-09-04"), 7, 3);
+
+		assertEquals(2, reservedDays);
+	}
+
+	@Test
+	public void testRelease() {
+		int releasedDays = dailyAvailabilityRepository.release(CAMPSITE, LocalDate.parse("2020-09-03"), LocalDate.parse("2020-09-04"), 2);
+		entityManager.clear();
+
+		assertEquals(2, releasedDays);
+		List<DailyOccupation> days = dailyAvailabilityRepository
+				.findAllByCampsiteIdAndDateBetweenOrderByDateAsc(CAMPSITE, LocalDate.parse("2020-09-03"), LocalDate.parse("2020-09-04"));
+		assertEquals(1, days.get(0).getGuests());
+		assertEquals(2, days.get(1).getGuests());
+	}
+
+	@Test
+	public void testLock() {
+		List<Long> lockedIds = dailyAvailabilityRepository.lock(CAMPSITE, LocalDate.parse("2020-09-02"), LocalDate.parse("2020-09-03"));
+
+		List<DailyOccupation> days = dailyAvailabilityRepository
+				.findAllByCampsiteIdAndDateBetweenOrderByDateAsc(CAMPSITE, LocalDate.parse("2020-09-02"), LocalDate.parse("2020-09-03"));
+		assertEquals(Arrays.asList(days.get(0).getId(), days.get(1).getId()), lockedIds);
+	}
+
+	@Test
+	public void testFindAllByCampsiteIdIn() {
+		List<DailyOccupation> days = dailyAvailabilityRepository.findAllByCampsiteIdInAndDateBetweenOrderByCampsiteIdAscDateAsc(
+				Arrays.asList(CAMPSITE, OTHER_CAMPSITE), LocalDate.parse("2020-09-02"), LocalDate.parse("2020-09-03"));
+
+		assertEquals(3, days.size());
+		assertEquals(CAMPSITE, days.get(0).getCampsiteId());
+		assertEquals(LocalDate.parse("2020-09-03"), days.get(1).getDate());
+		assertEquals(OTHER_CAMPSITE, days.get(2).getCampsiteId());
+		assertEquals(9, days.get(2).getGuests());
+	}
+
 }
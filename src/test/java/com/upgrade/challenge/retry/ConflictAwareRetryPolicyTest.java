@@ -0,0 +1,115 @@
+package com.upgrade.challenge.retry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.retry.RetryContext;
+
+import com.upgrade.challenge.exception.AvailabilityException;
+import com.upgrade.challenge.model.dto.DailyOccupation;
+
+public class ConflictAwareRetryPolicyTest {
+
+	private static final Map<Class<? extends Throwable>, Boolean> RETRYABLE = Collections
+			.singletonMap(ObjectOptimisticLockingFailureException.class, true);
+
+	private long second;
+
+	private ConflictWindow conflictWindow;
+
+	private ConflictAwareRetryPolicy policy;
+
+	@Before
+	public void setup() {
+		second = 1000;
+		conflictWindow = new ConflictWindow(10) {
+			@Override
+			long currentSecond() {
+				return second;
+			}
+		};
+		policy = new ConflictAwareRetryPolicy(RETRYABLE, 2, 10, 60000, 0.5, conflictWindow);
+	}
+
+	@Test
+	public void testRetryConflictUpToMaxAttempts() {
+		RetryContext context = policy.open(null);
+		assertTrue(policy.canRetry(context));
+
+		// A single call is too few attempts to lower the limit.
+		for (int attempt = 1; attempt < 10; attempt++) {
+			policy.registerThrowable(context, conflict());
+			assertTrue(policy.canRetry(context));
+		}
+		policy.registerThrowable(context, conflict());
+		assertFalse(policy.canRetry(context));
+	}
+
+	@Test
+	public void testNoRetryOfOtherExceptions() {
+		RetryContext context = policy.open(null);
+		policy.registerThrowable(context, new AvailabilityException("No availability"));
+
+		assertFalse(policy.canRetry(context));
+		assertEquals(0, policy.getConflictRate(), 0);
+	}
+
+	@Test
+	public void testLimitShrinksWithConflictRate() {
+		assertEquals(10, policy.getCurrentMaxAttempts());
+
+		// 10 conflicts over 20 attempts reaches the threshold.
+		RetryContext[] contexts = new RetryContext[10];
+		for (int call = 0; call < contexts.length; call++) {
+			contexts[call] = policy.open(null);
+			policy.registerThrowable(contexts[call], conflict());
+		}
+		assertEquals(0.5, policy.getConflictRate(), 0.0001);
+		assertEquals(10, policy.getCurrentMaxAttempts());
+
+		// 30 conflicts over 40 attempts is halfway between the threshold and 1.
+		for (int attempt = 0; attempt < 2; attempt++) {
+			for (RetryContext context : contexts) {
+				policy.registerThrowable(context, conflict());
+			}
+		}
+		assertEquals(0.75, policy.getConflictRate(), 0.0001);
+		assertEquals(6, policy.getCurrentMaxAttempts());
+
+		second += 10;
+		assertEquals(0, policy.getConflictRate(), 0);
+		assertEquals(10, policy.getCurrentMaxAttempts());
+	}
+
+	@Test
+	public void testTimeBudget() {
+		policy = new ConflictAwareRetryPolicy(RETRYABLE, 2, 10, -1, 0.5, conflictWindow);
+		RetryContext context = policy.open(null);
+		policy.registerThrowable(context, conflict());
+
+		assertFalse(policy.canRetry(context));
+	}
+
+	@Test
+	public void testDecorrelatedJitter() {
+		DecorrelatedJitterBackOffPolicy backOffPolicy = new DecorrelatedJitterBackOffPolicy(5, 100);
+		long interval = 5;
+		for (int i = 0; i < 1000; i++) {
+			long next = backOffPolicy.nextInterval(interval);
+			assertTrue(next >= 5 && next <= Math.min(100, interval * 3));
+			interval = next;
+		}
+	}
+
+	private static ObjectOptimisticLockingFailureException conflict() {
+		return new ObjectOptimisticLockingFailureException(DailyOccupation.class, 1);
+	}
+
+}
@@ -0,0 +1,65 @@
+package com.upgrade.challenge.retry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.retry.policy.SimpleRetryPolicy;
+import org.springframework.transaction.TransactionSystemException;
+
+public class RollbackFailureRetryTemplateTest {
+
+	private RollbackFailureRetryTemplate retryTemplate;
+
+	@Before
+	public void setup() {
+		retryTemplate = new RollbackFailureRetryTemplate();
+		retryTemplate.setRetryPolicy(new SimpleRetryPolicy(3,
+				Collections.singletonMap(PessimisticLockingFailureException.class, true)));
+	}
+
+	@Test
+	public void testConflictHiddenByRollbackFailureRetried() {
+		AtomicInteger attempts = new AtomicInteger();
+
+		String result = retryTemplate.execute(context -> {
+			if (attempts.incrementAndGet() == 1) {
+				throw rollbackFailure(new PessimisticLockingFailureException("Lock timeout"));
+			}
+			return "booked";
+		});
+
+		assertEquals("booked", result);
+		assertEquals(2, attempts.get());
+	}
+
+	@Test
+	public void testRollbackFailureWithoutConflictNotRetried() {
+		AtomicInteger attempts = new AtomicInteger();
+		TransactionSystemException rollbackFailure = new TransactionSystemException("Connection is closed");
+
+		try {
+			retryTemplate.execute(context -> {
+				attempts.incrementAndGet();
+				throw rollbackFailure;
+			});
+			fail("The rollback failure is not rethrown");
+		} catch (TransactionSystemException e) {
+			assertSame(rollbackFailure, e);
+		}
+		assertEquals(1, attempts.get());
+	}
+
+	private static TransactionSystemException rollbackFailure(RuntimeException conflict) {
+		TransactionSystemException rollbackFailure = new TransactionSystemException("Connection is closed");
+		rollbackFailure.initApplicationException(conflict);
+		return rollbackFailure;
+	}
+
+}
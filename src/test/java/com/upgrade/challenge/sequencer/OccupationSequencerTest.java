@@ -0,0 +1,240 @@
+package com.upgrade.challenge.sequencer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.upgrade.challenge.exception.AvailabilityException;
+import com.upgrade.challenge.exception.OverloadedException;
+import com.upgrade.challenge.sequencer.OccupationSequencer.Command;
+
+public class OccupationSequencerTest {
+
+	/**
+	 * First day of a stripe.
+	 */
+	private static final LocalDate FIRST = LocalDate.ofEpochDay(7 * 2610);
+
+	private static final long CAMPSITE = 4;
+
+	private OccupationSequencer sequencer;
+
+	@Before
+	public void setup() {
+		sequencer = sequencer(true);
+	}
+
+	@After
+	public void tearDown() {
+		sequencer.shutdown();
+	}
+
+	@Test
+	public void testStripesOf() {
+		assertEquals(Collections.singleton(stripeOf(FIRST)), sequencer.stripesOf(CAMPSITE, stays(FIRST, FIRST.plusDays(3))));
+		assertEquals(2, sequencer.stripesOf(CAMPSITE, stays(FIRST.plusDays(5), FIRST.plusDays(9))).size());
+		assertEquals(stripeOf(FIRST), (int) sequencer.stripesOf(CAMPSITE, stays(FIRST.plusDays(28), FIRST.plusDays(29))).first());
+		assertEquals(4, sequencer.stripesOf(CAMPSITE, stays(FIRST, FIRST.plusYears(1))).size());
+		assertTrue(sequencer.stripesOf(CAMPSITE, stays(FIRST, FIRST)).isEmpty());
+	}
+
+	@Test
+	public void testCampsitesOnDifferentStripes() {
+		assertNotEquals(sequencer.stripesOf(1, stays(FIRST, FIRST.plusDays(3))),
+				sequencer.stripesOf(2, stays(FIRST, FIRST.plusDays(3))));
+	}
+
+		@Test
+	public void testSameStripeRunsOneAtATime() throws Exception {
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger overlaps = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		for (int i = 0; i < 200; i++) {
+			LocalDate day = FIRST.plusDays(i % 7);
+			submit(executor, stays(day, day.plusDays(1)), () -> {
+				if (running.incrementAndGet() > 1) {
+					overlaps.incrementAndGet();
+				}
+				Thread.yield();
+				return running.decrementAndGet();
+			});
+		}
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+		assertEquals(0, overlaps.get());
+	}
+
+	@Test
+	public void testCrossStripeWaitsForEveryStripe() throws Exception {
+		AtomicIntegerArray running = new AtomicIntegerArray(2);
+		AtomicInteger overlaps = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		for (int i = 0; i < 200; i++) {
+			// Every other command spans the first two stripes, the others touch one of them.
+			LocalDate from = i % 2 == 0 ? FIRST.plusDays(5) : FIRST.plusDays(i % 4 == 1 ? 0 : 7);
+			LocalDate to = i % 2 == 0 ? FIRST.plusDays(9) : from.plusDays(1);
+			int firstStripe = from.isBefore(FIRST.plusDays(7)) ? 0 : 1;
+			int lastStripe = to.isAfter(FIRST.plusDays(7)) ? 1 : 0;
+			submit(executor, stays(from, to), () -> {
+				for (int stripe = firstStripe; stripe <= lastStripe; stripe++) {
+					if (running.incrementAndGet(stripe) > 1) {
+						overlaps.incrementAndGet();
+					}
+				}
+				Thread.yield();
+				for (int stripe = firstStripe; stripe <= lastStripe; stripe++) {
+					running.decrementAndGet(stripe);
+				}
+				return null;
+			});
+		}
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+		assertEquals(0, overlaps.get());
+		assertEquals(0, sequencer.getQueuedCommands());
+	}
+
+	@Test
+	public void testRunsOnConsumer() throws Throwable {
+		Thread caller = Thread.currentThread();
+		Thread consumer = sequencer.execute(CAMPSITE, stays(FIRST, FIRST.plusDays(1)), Thread::currentThread);
+
+		assertNotEquals(caller, consumer);
+		assertTrue(consumer.getName().startsWith("occupation-sequencer-"));
+		// A command sequenced again from a consumer runs in place.
+		assertEquals(consumer, sequencer.execute(CAMPSITE, stays(FIRST, FIRST.plusDays(1)),
+				() -> sequencer.execute(CAMPSITE, stays(FIRST, FIRST.plusDays(1)), Thread::currentThread)));
+	}
+
+	@Test(expected = AvailabilityException.class)
+	public void testExceptionPropagated() throws Throwable {
+		sequencer.execute(CAMPSITE, stays(FIRST, FIRST.plusDays(10)), () -> {
+			throw new AvailabilityException("No availability");
+		});
+	}
+
+	@Test
+	public void testFullQueueFailsFast() throws Throwable {
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(17);
+		try {
+			for (int i = 0; i < 17; i++) {
+				submit(executor, stays(FIRST, FIRST.plusDays(1)), () -> release.await(10, TimeUnit.SECONDS));
+			}
+			while (sequencer.getQueuedCommands() < 16) {
+				Thread.sleep(5);
+			}
+
+			sequencer.execute(CAMPSITE, stays(FIRST, FIRST.plusDays(1)), () -> null);
+			fail();
+		} catch (OverloadedException e) {
+			// The queue of the stripe is full.
+		} finally {
+			release.countDown();
+			executor.shutdown();
+		}
+		assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testTimedOutCommandSkipped() throws Throwable {
+		ReflectionTestUtils.setField(sequencer, "timeoutMs", 100L);
+		CountDownLatch running = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger runs = new AtomicInteger();
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		submit(executor, stays(FIRST, FIRST.plusDays(1)), () -> {
+			running.countDown();
+			return release.await(10, TimeUnit.SECONDS);
+		});
+		assertTrue(running.await(10, TimeUnit.SECONDS));
+		try {
+			sequencer.execute(CAMPSITE, stays(FIRST, FIRST.plusDays(10)), runs::incrementAndGet);
+			fail();
+		} catch (OverloadedException e) {
+			// Given up on while queued behind the blocked command.
+		} finally {
+			release.countDown();
+			executor.shutdown();
+		}
+		assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+		sequencer.execute(CAMPSITE, stays(FIRST, FIRST.plusDays(10)), () -> null);
+
+		assertEquals(0, runs.get());
+		assertEquals(0, sequencer.getQueuedCommands());
+	}
+
+	@Test
+	public void testTimedOutRunningCommandWaitedFor() throws Throwable {
+		ReflectionTestUtils.setField(sequencer, "timeoutMs", 100L);
+
+		assertEquals("committed", sequencer.execute(CAMPSITE, stays(FIRST, FIRST.plusDays(1)), () -> {
+			Thread.sleep(300);
+			return "committed";
+		}));
+	}
+
+	@Test
+	public void testDisabledRunsInCaller() throws Throwable {
+		sequencer.shutdown();
+		sequencer = sequencer(false);
+
+		assertEquals(Thread.currentThread(), sequencer.execute(CAMPSITE, stays(FIRST, FIRST.plusDays(1)), Thread::currentThread));
+		assertEquals(0, sequencer.getQueuedCommands());
+	}
+
+	@Test
+	public void testNoDaysRunsInCaller() throws Throwable {
+		assertEquals(Thread.currentThread(), sequencer.execute(CAMPSITE, Collections.emptyList(), Thread::currentThread));
+	}
+
+	private void submit(ExecutorService executor, List<LocalDate[]> stays, Command<?> command) {
+		executor.submit(() -> {
+			try {
+				return sequencer.execute(CAMPSITE, stays, command);
+			} catch (Throwable e) {
+				throw new IllegalStateException(e);
+			}
+		});
+	}
+
+	private static OccupationSequencer sequencer(boolean enabled) {
+		OccupationSequencer sequencer = new OccupationSequencer();
+		ReflectionTestUtils.setField(sequencer, "enabled", enabled);
+		ReflectionTestUtils.setField(sequencer, "stripes", 4);
+		ReflectionTestUtils.setField(sequencer, "stripeDays", 7);
+		ReflectionTestUtils.setField(sequencer, "queueSize", 16);
+		ReflectionTestUtils.setField(sequencer, "offerTimeoutMs", 10L);
+		ReflectionTestUtils.setField(sequencer, "timeoutMs", 10000L);
+		sequencer.initialize();
+		return sequencer;
+	}
+
+	private static int stripeOf(LocalDate day) {
+		return (int) Math.floorMod(Math.floorDiv(day.toEpochDay(), 7L) + CAMPSITE, 4L);
+	}
+
+	private static List<LocalDate[]> stays(LocalDate from, LocalDate to) {
+		return Arrays.<LocalDate[]>asList(new LocalDate[] { from, to });
+	}
+
+}
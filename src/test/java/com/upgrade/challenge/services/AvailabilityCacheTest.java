@@ -0,0 +1,99 @@
+package com.upgrade.challenge.services;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.upgrade.challenge.events.OccupationChangedEvent;
+import com.upgrade.challenge.model.DailyAvailability;
+
+public class AvailabilityCacheTest {
+
+	private AvailabilityCache cache;
+
+	private LocalDate now = LocalDate.now();
+
+	@Before
+	public void setup() {
+		cache = new AvailabilityCache();
+		ReflectionTestUtils.setField(cache, "maxEntries", 2);
+		cache.initialize();
+	}
+
+	@Test
+	public void testHitAndMiss() {
+		assertFalse(cache.get(1L, now.plusDays(1), now.plusDays(3)).isPresent());
+		cache.put(1L, now.plusDays(1), now.plusDays(3), createAvailability(now.plusDays(1), 2), cache.generation());
+
+		Optional<List<DailyAvailability>> cachedAvailability = cache.get(1L, now.plusDays(1), now.plusDays(3));
+
+		assertTrue(cachedAvailability.isPresent());
+		assertEquals(2, cachedAvailability.get().size());
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+	}
+
+	@Test
+	public void testEvictLeastRecentlyUsed() {
+		cache.put(1L, now.plusDays(1), now.plusDays(2), createAvailability(now.plusDays(1), 1), cache.generation());
+		cache.put(1L, now.plusDays(2), now.plusDays(3), createAvailability(now.plusDays(2), 1), cache.generation());
+		cache.get(1L, now.plusDays(1), now.plusDays(2));
+		cache.put(1L, now.plusDays(3), now.plusDays(4), createAvailability(now.plusDays(3), 1), cache.generation());
+
+		assertTrue(cache.get(1L, now.plusDays(1), now.plusDays(2)).isPresent());
+		assertFalse(cache.get(1L, now.plusDays(2), now.plusDays(3)).isPresent());
+		assertEquals(1, cache.getEvictions());
+		assertEquals(2, cache.getSize());
+	}
+
+	@Test
+	public void testInvalidateOnlyOverlappingDates() {
+		cache.put(1L, now.plusDays(1), now.plusDays(3), createAvailability(now.plusDays(1), 2), cache.generation());
+		cache.put(1L, now.plusDays(5), now.plusDays(7), createAvailability(now.plusDays(5), 2), cache.generation());
+
+		cache.onOccupationChanged(new OccupationChangedEvent(1L, now.plusDays(2), now.plusDays(5), 3));
+
+		assertFalse(cache.get(1L, now.plusDays(1), now.plusDays(3)).isPresent());
+		assertTrue(cache.get(1L, now.plusDays(5), now.plusDays(7)).isPresent());
+		assertEquals(1, cache.getInvalidations());
+	}
+
+	@Test
+	public void testDiscardAvailabilityBuiltBeforeAChange() {
+		long generation = cache.generation();
+		cache.onOccupationChanged(new OccupationChangedEvent(1L, now.plusDays(10), now.plusDays(11), 1));
+
+		cache.put(1L, now.plusDays(1), now.plusDays(3), createAvailability(now.plusDays(1), 2), generation);
+
+		assertFalse(cache.get(1L, now.plusDays(1), now.plusDays(3)).isPresent());
+	}
+
+	@Test
+	public void testCampsitesAreCachedApart() {
+		cache.put(1L, now.plusDays(1), now.plusDays(3), createAvailability(now.plusDays(1), 2), cache.generation());
+		cache.put(2L, now.plusDays(1), now.plusDays(3), createAvailability(now.plusDays(1), 2), cache.generation());
+
+		cache.onOccupationChanged(new OccupationChangedEvent(2L, now.plusDays(1), now.plusDays(2), 1));
+
+		assertTrue(cache.get(1L, now.plusDays(1), now.plusDays(3)).isPresent());
+		assertFalse(cache.get(2L, now.plusDays(1), now.plusDays(3)).isPresent());
+	}
+
+	private List<DailyAvailability> createAvailability(LocalDate from, int days) {
+		List<DailyAvailability> availability = new LinkedList<DailyAvailability>();
+		for (int i = 0; i < days; i++) {
+			availability.add(new DailyAvailability(from.plusDays(i), 10));
+		}
+		return availability;
+	}
+
+}
@@ -0,0 +1,148 @@
+package com.upgrade.challenge.services;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.upgrade.challenge.campsite.Campsite;
+import com.upgrade.challenge.exception.InputFormatException;
+import com.upgrade.challenge.model.AvailableStay;
+import com.upgrade.challenge.model.DailyAvailability;
+import com.upgrade.challenge.validator.BookingValidator;
+
+public class AvailabilitySearchServiceTest {
+
+	private static final Campsite CAMPSITE = new Campsite(Campsite.DEFAULT_ID, 10, 3, 0);
+
+	private AvailabilitySearchService availabilitySearchService;
+
+	private DailyAvailabilityService dailyAvailabilityService;
+
+	private LocalDate first = LocalDate.now().plusDays(1);
+
+	private LocalDate last = LocalDate.now().plusMonths(1);
+
+	@Before
+	public void setup() {
+		dailyAvailabilityService = mock(DailyAvailabilityService.class);
+		BookingValidator validator = new BookingValidator();
+		ReflectionTestUtils.setField(validator, "MINIMUM_DAYS_AHEAD_OF_ARRIVAL", 1);
+		ReflectionTestUtils.setField(validator, "MONTHS_UP_TO_BOOKING", 1);
+		ReflectionTestUtils.setField(validator, "MAX_BOOKING_DAYS", 3);
+		ReflectionTestUtils.setField(validator, "MAX_CAPACITY", 10);
+		validator.initialize();
+		availabilitySearchService = new AvailabilitySearchService();
+		ReflectionTestUtils.setField(availabilitySearchService, "dailyAvailabilityService", dailyAvailabilityService);
+		ReflectionTestUtils.setField(availabilitySearchService, "validator", validator);
+		ReflectionTestUtils.setField(availabilitySearchService, "defaultSize", 5);
+		ReflectionTestUtils.setField(availabilitySearchService, "maxSize", 31);
+	}
+
+	@Test
+	public void testWindowMinimum() {
+		List<DailyAvailability> availability = availability(LocalDate.now(), 5, 2, 8, 1, 7, 7, 3);
+
+		assertArrayEquals(new int[] {2, 1, 1, 1, 3}, AvailabilitySearchService.windowMinimum(availability, 3));
+		assertArrayEquals(new int[] {5, 2, 8, 1, 7, 7, 3}, AvailabilitySearchService.windowMinimum(availability, 1));
+		assertEquals(0, AvailabilitySearchService.windowMinimum(availability, 8).length);
+	}
+
+	@Test
+	public void testSearchClosestStays() {
+		int nights = 2;
+		List<DailyAvailability> availability = full(nights);
+		// Only the stays arriving on the 4th, 7th and 12th day have room for 6 guests.
+		int days = availability.size();
+		for (int day = 0; day < days; day++) {
+			availability.get(day).setAvailability(5);
+		}
+		for (int day : new int[] {3, 4, 6, 7, 11, 12}) {
+			availability.get(day).setAvailability(6 + day % 2);
+		}
+		when(dailyAvailabilityService.getAvailability(CAMPSITE, first, last.plusDays(nights))).thenReturn(availability);
+
+		List<AvailableStay> stays = availabilitySearchService.search(CAMPSITE, nights, 6, first.plusDays(8), 2);
+
+		assertEquals(2, stays.size());
+		// The 7th day is 2 days away and the 12th 3 days away, while the 4th is 5 days away.
+		assertEquals(first.plusDays(6), stays.get(0).getFromDay());
+		assertEquals(first.plusDays(8), stays.get(0).getToDay());
+		assertEquals(6, stays.get(0).getAvailability());
+		assertEquals(first.plusDays(11), stays.get(1).getFromDay());
+	}
+
+	@Test
+	public void testSearchEarliestStaysWithoutNear() {
+		int nights = 3;
+		List<DailyAvailability> availability = full(nights);
+		availability.get(1).setAvailability(0);
+		when(dailyAvailabilityService.getAvailability(CAMPSITE, first, last.plusDays(nights))).thenReturn(availability);
+
+		List<AvailableStay> stays = availabilitySearchService.search(CAMPSITE, nights, 10, null, null);
+
+		assertEquals(5, stays.size());
+		// The arrivals whose stay covers the full day are skipped.
+		assertEquals(first.plusDays(2), stays.get(0).getFromDay());
+		assertEquals(first.plusDays(6), stays.get(4).getFromDay());
+	}
+
+	@Test
+	public void testSearchNearAfterTheLastArrival() {
+		int nights = 1;
+		when(dailyAvailabilityService.getAvailability(CAMPSITE, first, last.plusDays(nights))).thenReturn(full(nights));
+
+		List<AvailableStay> stays = availabilitySearchService.search(CAMPSITE, nights, 10, last.plusDays(10), 2);
+
+		assertEquals(last, stays.get(0).getFromDay());
+		assertEquals(last.minusDays(1), stays.get(1).getFromDay());
+	}
+
+	@Test(expected = InputFormatException.class)
+	public void testSearchTooManyNights() {
+		availabilitySearchService.search(CAMPSITE, 4, 2, null, null);
+	}
+
+	@Test(expected = InputFormatException.class)
+	public void testSearchNoGuests() {
+		availabilitySearchService.search(CAMPSITE, 2, 0, null, null);
+	}
+
+	@Test(expected = InputFormatException.class)
+	public void testSearchTooManyGuests() {
+		availabilitySearchService.search(CAMPSITE, 2, 11, null, null);
+	}
+
+	@Test(expected = InputFormatException.class)
+	public void testSearchInvalidSize() {
+		availabilitySearchService.search(CAMPSITE, 2, 2, null, 32);
+	}
+
+	/**
+	 * The availability of every day the stays of the nights may cover, with the campsite empty.
+	 */
+	private List<DailyAvailability> full(int nights) {
+		List<DailyAvailability> availability = new ArrayList<DailyAvailability>();
+		for (LocalDate day = first; day.isBefore(last.plusDays(nights)); day = day.plusDays(1)) {
+			availability.add(new DailyAvailability(day, 10));
+		}
+		return availability;
+	}
+
+	private static List<DailyAvailability> availability(LocalDate from, int... availability) {
+		List<DailyAvailability> result = new ArrayList<DailyAvailability>();
+		for (int i = 0; i < availability.length; i++) {
+			result.add(new DailyAvailability(from.plusDays(i), availability[i]));
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,160 @@
+package com.upgrade.challenge.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.util.LinkedList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.upgrade.challenge.campsite.Campsite;
+import com.upgrade.challenge.campsite.CampsiteRegistry;
+import com.upgrade.challenge.datasource.ReadRouting;
+import com.upgrade.challenge.datasource.ShardRouting;
+import com.upgrade.challenge.events.OccupationChangedEvent;
+import com.upgrade.challenge.exception.OverloadedException;
+import com.upgrade.challenge.model.DailyAvailability;
+
+public class AvailabilityStreamServiceTest {
+
+	private AvailabilityStreamService streamService;
+
+	private DailyAvailabilityService dailyAvailabilityService;
+
+	private LocalDate now = LocalDate.now();
+
+	private Campsite campsite = new Campsite(Campsite.DEFAULT_ID, 10, 3, 0);
+
+	@Before
+	public void setup() {
+		dailyAvailabilityService = mock(DailyAvailabilityService.class);
+		when(dailyAvailabilityService.resolveDates(any(), any()))
+				.thenReturn(new LocalDate[] { now.plusDays(1), now.plusDays(5) });
+		when(dailyAvailabilityService.getAvailability(any(), any(), any())).thenReturn(new LinkedList<DailyAvailability>());
+		when(dailyAvailabilityService.loadAvailability(any(), any(), any())).thenReturn(new LinkedList<DailyAvailability>());
+		streamService = new AvailabilityStreamService();
+		ReflectionTestUtils.setField(streamService, "dailyAvailabilityService", dailyAvailabilityService);
+		CampsiteRegistry campsites = mock(CampsiteRegistry.class);
+		when(campsites.get(Campsite.DEFAULT_ID)).thenReturn(campsite);
+		ReflectionTestUtils.setField(streamService, "readRouting", new ReadRouting());
+		ReflectionTestUtils.setField(streamService, "shardRouting", new ShardRouting());
+		ReflectionTestUtils.setField(streamService, "campsites", campsites);
+		ReflectionTestUtils.setField(streamService, "maxSubscribers", 2);
+		ReflectionTestUtils.setField(streamService, "timeoutMinutes", 1L);
+		ReflectionTestUtils.setField(streamService, "threads", 2);
+		streamService.initialize();
+	}
+
+	@After
+	public void tearDown() {
+		streamService.shutdown();
+	}
+
+	@Test
+	public void testSubscribe() {
+		assertNotNull(streamService.subscribe(campsite, null, null));
+
+		assertEquals(1, streamService.getSubscribers());
+		verify(dailyAvailabilityService).getAvailability(campsite, now.plusDays(1), now.plusDays(5));
+	}
+
+	@Test(expected = OverloadedException.class)
+	public void testSubscribeTooManySubscribers() {
+		streamService.subscribe(campsite, null, null);
+		streamService.subscribe(campsite, null, null);
+		streamService.subscribe(campsite, null, null);
+	}
+
+	@Test
+	public void testChangeReadOnceForOverlappingSubscribers() {
+		streamService.subscribe(campsite, null, null);
+		streamService.subscribe(campsite, null, null);
+
+		streamService.onOccupationChanged(new OccupationChangedEvent(Campsite.DEFAULT_ID, now.plusDays(3), now.plusDays(8), 2));
+
+		verify(dailyAvailabilityService, timeout(1000)).loadAvailability(campsite, now.plusDays(3), now.plusDays(5));
+	}
+
+	@Test
+	public void testChangeNotReadByTheCommittingThread() throws Exception {
+		streamService.subscribe(campsite, null, null);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicBoolean read = new AtomicBoolean();
+		when(dailyAvailabilityService.loadAvailability(any(), any(), any())).thenAnswer(invocation -> {
+			release.await(10, TimeUnit.SECONDS);
+			read.set(true);
+			return new LinkedList<DailyAvailability>();
+		});
+
+		try {
+			streamService.onOccupationChanged(new OccupationChangedEvent(Campsite.DEFAULT_ID, now.plusDays(2), now.plusDays(3), 2));
+
+			assertFalse(read.get());
+			verify(dailyAvailabilityService, timeout(1000)).loadAvailability(campsite, now.plusDays(2), now.plusDays(3));
+		} finally {
+			release.countDown();
+		}
+	}
+
+	@Test
+	public void testChangeNotOverlappingIsIgnored() {
+		streamService.subscribe(campsite, null, null);
+
+		streamService.onOccupationChanged(new OccupationChangedEvent(Campsite.DEFAULT_ID, now.plusDays(5), now.plusDays(8), 2));
+
+		verify(dailyAvailabilityService, never()).loadAvailability(any(), any(), any());
+	}
+
+	@Test
+	public void testChangeOfAnotherCampsiteIsIgnored() {
+		streamService.subscribe(campsite, null, null);
+
+		streamService.onOccupationChanged(new OccupationChangedEvent(2L, now.plusDays(2), now.plusDays(3), 2));
+
+		verify(dailyAvailabilityService, never()).loadAvailability(any(), any(), any());
+	}
+
+	@Test
+	public void testChangesOfACampsiteReadOneAtATime() throws Exception {
+		streamService.subscribe(campsite, null, null);
+		CountDownLatch firstReading = new CountDownLatch(1);
+		CountDownLatch secondReading = new CountDownLatch(1);
+		AtomicBoolean firstRead = new AtomicBoolean();
+		AtomicBoolean secondReadAfterFirst = new AtomicBoolean();
+		when(dailyAvailabilityService.loadAvailability(campsite, now.plusDays(2), now.plusDays(3))).thenAnswer(invocation -> {
+			firstReading.countDown();
+			Thread.sleep(200);
+			firstRead.set(true);
+			return new LinkedList<DailyAvailability>();
+		});
+		when(dailyAvailabilityService.loadAvailability(campsite, now.plusDays(3), now.plusDays(4))).thenAnswer(invocation -> {
+			secondReadAfterFirst.set(firstRead.get());
+			secondReading.countDown();
+			return new LinkedList<DailyAvailability>();
+		});
+		streamService.onOccupationChanged(new OccupationChangedEvent(Campsite.DEFAULT_ID, now.plusDays(2), now.plusDays(3), 2));
+		assertTrue(firstReading.await(1, TimeUnit.SECONDS));
+
+		// A sender thread is free, but the change has to wait for the previous one of the campsite.
+		streamService.onOccupationChanged(new OccupationChangedEvent(Campsite.DEFAULT_ID, now.plusDays(3), now.plusDays(4), -1));
+
+		assertTrue(secondReading.await(1, TimeUnit.SECONDS));
+		assertTrue(secondReadAfterFirst.get());
+	}
+
+}
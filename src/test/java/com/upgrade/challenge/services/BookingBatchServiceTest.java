@@ -0,0 +1,257 @@
+package com.upgrade.challenge.services;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import javax.validation.Validator;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.upgrade.challenge.campsite.Campsite;
+import com.upgrade.challenge.campsite.CampsiteRegistry;
+import com.upgrade.challenge.datasource.ReadRouting;
+import com.upgrade.challenge.datasource.ShardRouting;
+import com.upgrade.challenge.exception.InputFormatException;
+import com.upgrade.challenge.model.BatchOperation;
+import com.upgrade.challenge.model.BatchOperationResult;
+import com.upgrade.challenge.model.BatchOperationType;
+import com.upgrade.challenge.model.BookingRequest;
+import com.upgrade.challenge.model.CapacityOverrideRequest;
+import com.upgrade.challenge.model.dto.Booking;
+import com.upgrade.challenge.model.dto.DailyOccupation;
+import com.upgrade.challenge.repository.BookingRepository;
+import com.upgrade.challenge.repository.DailyOccupationRepository;
+import com.upgrade.challenge.validator.BookingValidator;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+public class BookingBatchServiceTest {
+
+	@TestConfiguration
+	static class BookingBatchServiceTestContextConfiguration {
+		@Bean
+		public BookingBatchService bookingBatchService() {
+			return new BookingBatchService();
+		}
+
+		@Bean
+		public BookingMetrics bookingMetrics() {
+			return new BookingMetrics();
+		}
+
+		@Bean
+		public MeterRegistry meterRegistry() {
+			return new SimpleMeterRegistry();
+		}
+
+		@Bean
+		public ReadRouting readRouting() {
+			return new ReadRouting();
+		}
+
+		@Bean
+		public DailyAvailabilityService dailyAvailabilityService() {
+			return new DailyAvailabilityService();
+		}
+
+		@Bean
+		public BookingValidator validator() {
+			return new BookingValidator();
+		}
+
+		@Bean
+		public CapacityCalendar capacityCalendar() {
+			return new CapacityCalendar();
+		}
+
+		@Bean
+		public ShardRouting shardRouting() {
+			return new ShardRouting();
+		}
+	}
+
+	private static LocalDate now = LocalDate.parse(LocalDate.now().toString(), DateTimeFormatter.ISO_DATE);
+
+	private static Campsite campsite = new Campsite(Campsite.DEFAULT_ID, 10, 3, 0);
+
+	@Autowired
+	private BookingBatchService bookingBatchService;
+
+	@Autowired
+	private BookingRepository bookingRepository;
+
+	@Autowired
+	private DailyOccupationRepository dailyOccupationRepository;
+
+	@MockBean
+	private OccupationLedger ledger;
+
+	@MockBean
+	private DailyOccupationProvisioner provisioner;
+
+	@MockBean
+	private AvailabilityCache availabilityCache;
+
+	@MockBean
+	private Validator beanValidator;
+
+	@MockBean
+	private CampsiteRegistry campsiteRegistry;
+
+	@Autowired
+	private CapacityCalendar capacityCalendar;
+
+	@Before
+	public void setup() {
+		// The overrides of the previous tests were rolled back.
+		capacityCalendar.load();
+	}
+
+	@Test
+	public void testCreateKeepsGoingAfterFailure() {
+		List<BatchOperationResult> results = bookingBatchService.execute(campsite, Arrays.asList(
+				create(now.plusDays(2), now.plusDays(4), 6),
+				create(now.plusDays(3), now.plusDays(5), 6),
+				create(now.plusDays(4), now.plusDays(5), 4)));
+
+		assertTrue(results.get(0).isSuccess());
+		assertNotNull(results.get(0).getBooking().getId());
+		assertFalse(results.get(1).isSuccess());
+		assertTrue(results.get(1).getError().startsWith("There is no availability"));
+		assertTrue(results.get(2).isSuccess());
+		assertEquals(2, bookingRepository.count());
+		Map<LocalDate, Integer> occupation = occupation();
+		assertEquals(6, occupation.get(now.plusDays(2)));
+		assertEquals(6, occupation.get(now.plusDays(3)));
+		assertEquals(4, occupation.get(now.plusDays(4)));
+		verify(ledger).record(Campsite.DEFAULT_ID, now.plusDays(2), now.plusDays(4), 6);
+		verify(ledger).record(Campsite.DEFAULT_ID, now.plusDays(4), now.plusDays(5), 4);
+	}
+
+	@Test
+	public void testEditAndCancel() {
+		Booking edited = bookingRepository.save(booking(now.plusDays(2), now.plusDays(4), 5));
+		Booking cancelled = bookingRepository.save(booking(now.plusDays(3), now.plusDays(4), 5));
+		dailyOccupationRepository.saveAll(Arrays.asList(new DailyOccupation(now.plusDays(2), 5),
+				new DailyOccupation(now.plusDays(3), 10)));
+
+		List<BatchOperationResult> results = bookingBatchService.execute(campsite, Arrays.asList(
+				new BatchOperation(BatchOperationType.EDIT, edited.getId(), request(now.plusDays(3), now.plusDays(5), 8)),
+				new BatchOperation(BatchOperationType.CANCEL, cancelled.getId(), null),
+				new BatchOperation(BatchOperationType.EDIT, edited.getId(), request(now.plusDays(3), now.plusDays(5), 8))));
+
+		assertFalse(results.get(0).isSuccess());
+		assertTrue(results.get(1).isSuccess());
+		assertTrue(results.get(2).isSuccess());
+		assertEquals(1, bookingRepository.count());
+		Map<LocalDate, Integer> occupation = occupation();
+		assertEquals(0, occupation.get(now.plusDays(2)));
+		assertEquals(8, occupation.get(now.plusDays(3)));
+		assertEquals(8, occupation.get(now.plusDays(4)));
+		verify(ledger).record(Campsite.DEFAULT_ID, now.plusDays(3), now.plusDays(4), -5);
+	}
+
+	@Test
+	public void testInvalidOperationsDoNotAbortTheBatch() {
+		List<BatchOperationResult> results = bookingBatchService.execute(campsite, Arrays.asList(
+				new BatchOperation(BatchOperationType.CANCEL, null, null),
+				new BatchOperation(BatchOperationType.CANCEL, Long.valueOf(999), null),
+				create(now.minusDays(1), now.plusDays(1), 2),
+				create(now.plusDays(2), now.plusDays(3), 2)));
+
+		assertEquals("bookingId is required to cancel a booking", results.get(0).getError());
+		assertEquals("Booking not found for ID: 999", results.get(1).getError());
+		assertFalse(results.get(2).isSuccess());
+		assertTrue(results.get(3).isSuccess());
+		verify(ledger).record(eq(Campsite.DEFAULT_ID), eq(now.plusDays(2)), eq(now.plusDays(3)), eq(2));
+	}
+
+	@Test
+	public void testCampsiteRules() {
+		Campsite smallCampsite = new Campsite(2, 4, 1, 0);
+		Booking otherCampsiteBooking = bookingRepository.save(booking(now.plusDays(2), now.plusDays(3), 2));
+
+		List<BatchOperationResult> results = bookingBatchService.execute(smallCampsite, Arrays.asList(
+				create(now.plusDays(2), now.plusDays(3), 5),
+				create(now.plusDays(2), now.plusDays(4), 2),
+				new BatchOperation(BatchOperationType.CANCEL, otherCampsiteBooking.getId(), null),
+				create(now.plusDays(2), now.plusDays(3), 4)));
+
+		assertFalse(results.get(0).isSuccess());
+		assertFalse(results.get(1).isSuccess());
+		assertFalse(results.get(2).isSuccess());
+		assertTrue(results.get(3).isSuccess());
+		assertEquals(Long.valueOf(2), results.get(3).getBooking().getCampsiteId());
+		verify(ledger).record(2L, now.plusDays(2), now.plusDays(3), 4);
+	}
+
+	@Test
+	public void testCreateWithCapacityOverride() {
+		CapacityOverrideRequest maintenance = new CapacityOverrideRequest();
+		maintenance.setFromDay(now.plusDays(3));
+		maintenance.setToDay(now.plusDays(4));
+		maintenance.setCapacity(2);
+		capacityCalendar.add(campsite, maintenance);
+
+		List<BatchOperationResult> results = bookingBatchService.execute(campsite, Arrays.asList(
+				create(now.plusDays(2), now.plusDays(4), 3),
+				create(now.plusDays(3), now.plusDays(4), 2),
+				create(now.plusDays(4), now.plusDays(5), 8)));
+
+		assertFalse(results.get(0).isSuccess());
+		assertTrue(results.get(1).isSuccess());
+		assertTrue(results.get(2).isSuccess());
+	}
+
+	@Test(expected = InputFormatException.class)
+	public void testTooManyOperations() {
+		BatchOperation[] operations = new BatchOperation[101];
+		Arrays.fill(operations, create(now.plusDays(2), now.plusDays(3), 1));
+		bookingBatchService.execute(campsite, Arrays.asList(operations));
+	}
+
+	private Map<LocalDate, Integer> occupation() {
+		return StreamSupport.stream(dailyOccupationRepository.findAll().spliterator(), false)
+				.collect(Collectors.toMap(DailyOccupation::getDate, DailyOccupation::getGuests));
+	}
+
+	private static BatchOperation create(LocalDate from, LocalDate to, int guests) {
+		return new BatchOperation(BatchOperationType.CREATE, null, request(from, to, guests));
+	}
+
+	private static Booking booking(LocalDate from, LocalDate to, int guests) {
+		return new Booking(Campsite.DEFAULT_ID, request(from, to, guests));
+	}
+
+	private static BookingRequest request(LocalDate from, LocalDate to, int guests) {
+		BookingRequest bookingRequest = BookingServiceTest.createBookingRequest();
+		bookingRequest.setFromDay(from);
+		bookingRequest.setToDay(to);
+		bookingRequest.setGuests(guests);
+		return bookingRequest;
+	}
+
+}
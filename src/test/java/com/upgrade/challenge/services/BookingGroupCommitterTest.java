@@ -0,0 +1,261 @@
+package com.upgrade.challenge.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.upgrade.challenge.campsite.Campsite;
+import com.upgrade.challenge.exception.AvailabilityException;
+import com.upgrade.challenge.exception.OverloadedException;
+import com.upgrade.challenge.model.BatchOperation;
+import com.upgrade.challenge.model.BatchOperationResult;
+import com.upgrade.challenge.model.BatchOperationType;
+import com.upgrade.challenge.model.BookingRequest;
+import com.upgrade.challenge.model.BookingResponse;
+
+@RunWith(SpringRunner.class)
+@TestPropertySource(properties = { "volcano.group_commit_enabled=true", "volcano.group_commit_max_size=3",
+		"volcano.group_commit_max_wait_ms=500" })
+public class BookingGroupCommitterTest {
+
+	@TestConfiguration
+	static class BookingGroupCommitterTestContextConfiguration {
+		@Bean
+		public BookingGroupCommitter bookingGroupCommitter() {
+			return new BookingGroupCommitter();
+		}
+	}
+
+	@Autowired
+	private BookingGroupCommitter groupCommitter;
+
+	@MockBean
+	private BookingBatchService bookingBatchService;
+
+	@MockBean
+	private BookingMetrics metrics;
+
+	private Campsite campsite = new Campsite(Campsite.DEFAULT_ID, 10, 3, 0);
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testConcurrentBookingsCommittedTogether() throws Exception {
+		when(bookingBatchService.execute(any(), anyList())).thenAnswer(invocation -> {
+			List<BatchOperation> operations = invocation.getArgument(1);
+			List<BatchOperationResult> results = new ArrayList<BatchOperationResult>();
+			for (int i = 0; i < operations.size(); i++) {
+				BatchOperationResult result = new BatchOperationResult(i, BatchOperationType.CREATE);
+				result.succeed(new BookingResponse(Long.valueOf(i + 1), operations.get(i).getBooking()));
+				results.add(result);
+			}
+			return results;
+		});
+
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		List<Future<BookingResponse>> responses = new ArrayList<Future<BookingResponse>>();
+		for (int i = 0; i < 3; i++) {
+			BookingRequest request = BookingServiceTest.createBookingRequest();
+			responses.add(executor.submit(() -> groupCommitter.add(campsite, request)));
+		}
+		long ids = 0;
+		for (Future<BookingResponse> response : responses) {
+			ids += response.get().getId();
+		}
+		executor.shutdown();
+
+		assertEquals(6, ids);
+		ArgumentCaptor<List<BatchOperation>> operations = ArgumentCaptor.forClass(List.class);
+		verify(bookingBatchService, times(1)).execute(same(campsite), operations.capture());
+		assertEquals(3, operations.getValue().size());
+		verify(metrics).groupCommit(3);
+	}
+
+	@Test
+	public void testOverbookingRejectedAlone() throws Exception {
+		AvailabilityException noAvailability = new AvailabilityException("No availability");
+		when(bookingBatchService.execute(any(), anyList())).thenAnswer(invocation -> {
+			List<BatchOperation> operations = invocation.getArgument(1);
+			List<BatchOperationResult> results = new ArrayList<BatchOperationResult>();
+			for (int i = 0; i < operations.size(); i++) {
+				BatchOperationResult result = new BatchOperationResult(i, BatchOperationType.CREATE);
+				BookingRequest request = operations.get(i).getBooking();
+				if (request.getGuests() > 5) {
+					result.fail(noAvailability);
+				} else {
+					result.succeed(new BookingResponse(Long.valueOf(i + 1), request));
+				}
+				results.add(result);
+			}
+			return results;
+		});
+
+		BookingRequest overbooking = BookingServiceTest.createBookingRequest();
+		overbooking.setGuests(9);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		Future<BookingResponse> rejected = executor.submit(() -> groupCommitter.add(campsite, overbooking));
+		BookingResponse accepted = groupCommitter.add(campsite, BookingServiceTest.createBookingRequest());
+		executor.shutdown();
+
+		assertEquals(3, accepted.getGuests().intValue());
+		try {
+			rejected.get();
+			fail("The overbooking should be rejected");
+		} catch (ExecutionException e) {
+			assertSame(noAvailability, e.getCause());
+		}
+	}
+
+	@Test(expected = PessimisticLockingFailureException.class)
+	public void testFailedGroup() {
+		when(bookingBatchService.execute(any(), anyList())).thenThrow(new PessimisticLockingFailureException("Lock timeout"));
+
+		groupCommitter.add(campsite, BookingServiceTest.createBookingRequest());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testGroupCommittedPerCampsite() {
+		Campsite otherCampsite = new Campsite(2, 10, 3, 0);
+		when(bookingBatchService.execute(any(), anyList())).thenAnswer(invocation -> {
+			List<BatchOperation> operations = invocation.getArgument(1);
+			List<BatchOperationResult> results = new ArrayList<BatchOperationResult>();
+			for (int i = 0; i < operations.size(); i++) {
+				BatchOperationResult result = new BatchOperationResult(i, BatchOperationType.CREATE);
+				result.succeed(new BookingResponse(Long.valueOf(i + 1), operations.get(i).getBooking()));
+				results.add(result);
+			}
+			return results;
+		});
+
+		groupCommitter.flush(Arrays.asList(
+				new BookingGroupCommitter.PendingBooking(campsite, BookingServiceTest.createBookingRequest()),
+				new BookingGroupCommitter.PendingBooking(otherCampsite, BookingServiceTest.createBookingRequest()),
+				new BookingGroupCommitter.PendingBooking(campsite, BookingServiceTest.createBookingRequest())));
+
+		ArgumentCaptor<List<BatchOperation>> operations = ArgumentCaptor.forClass(List.class);
+		verify(bookingBatchService).execute(same(campsite), operations.capture());
+		assertEquals(2, operations.getValue().size());
+		verify(bookingBatchService).execute(same(otherCampsite), operations.capture());
+		assertEquals(1, operations.getValue().size());
+	}
+
+	@Test
+	public void testErrorKeepsTheFlusherAlive() {
+		when(bookingBatchService.execute(any(), anyList())).thenThrow(new NoClassDefFoundError("BatchOperationResult"));
+		try {
+			groupCommitter.add(campsite, BookingServiceTest.createBookingRequest());
+			fail("The group should fail");
+		} catch (IllegalStateException e) {
+			assertTrue(e.getCause() instanceof NoClassDefFoundError);
+		}
+		doThrow(new PessimisticLockingFailureException("Lock timeout")).when(bookingBatchService).execute(any(), anyList());
+
+		try {
+			groupCommitter.add(campsite, BookingServiceTest.createBookingRequest());
+			fail("The group should fail");
+		} catch (PessimisticLockingFailureException e) {
+			// Flushed by the same flusher.
+		}
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testCommitWaitBounded() throws Exception {
+		CountDownLatch running = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		when(bookingBatchService.execute(any(), anyList())).thenAnswer(invocation -> {
+			running.countDown();
+			release.await(10, TimeUnit.SECONDS);
+			BatchOperationResult result = new BatchOperationResult(0, BatchOperationType.CREATE);
+			result.succeed(new BookingResponse(1L, BookingServiceTest.createBookingRequest()));
+			return Arrays.asList(result);
+		});
+		ReflectionTestUtils.setField(groupCommitter, "commitTimeout", 100L);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<BookingResponse> committing = executor
+					.submit(() -> groupCommitter.add(campsite, BookingServiceTest.createBookingRequest()));
+			assertTrue(running.await(10, TimeUnit.SECONDS));
+			try {
+				groupCommitter.add(campsite, BookingServiceTest.createBookingRequest());
+				fail("The booking should time out");
+			} catch (OverloadedException e) {
+				// Waited for the max wait of the group plus the commit timeout, behind the running group.
+			}
+			// The running group outlived the timeout of its booking as well.
+			assertFalse(committing.isDone());
+			release.countDown();
+			assertEquals(1L, committing.get(10, TimeUnit.SECONDS).getId().longValue());
+		} finally {
+			ReflectionTestUtils.setField(groupCommitter, "commitTimeout", 10000L);
+			release.countDown();
+			executor.shutdown();
+		}
+		groupCommitter.add(campsite, BookingServiceTest.createBookingRequest());
+
+		// The booking given up on is not created.
+		ArgumentCaptor<List<BatchOperation>> operations = ArgumentCaptor.forClass(List.class);
+		verify(bookingBatchService, times(2)).execute(same(campsite), operations.capture());
+		assertEquals(1, operations.getValue().size());
+	}
+
+	@Test
+	public void testRejectedOnceStopped() throws Exception {
+		BookingGroupCommitter stoppedCommitter = new BookingGroupCommitter();
+		ReflectionTestUtils.setField(stoppedCommitter, "enabled", true);
+		ReflectionTestUtils.setField(stoppedCommitter, "maxSize", 3);
+		ReflectionTestUtils.setField(stoppedCommitter, "maxWait", 5L);
+		ReflectionTestUtils.setField(stoppedCommitter, "queueSize", 3);
+		ReflectionTestUtils.setField(stoppedCommitter, "commitTimeout", 10000L);
+		stoppedCommitter.initialize();
+		stoppedCommitter.shutdown();
+		Thread flusher = (Thread) ReflectionTestUtils.getField(stoppedCommitter, "flusher");
+		flusher.join(10000);
+		assertFalse(flusher.isAlive());
+
+		try {
+			stoppedCommitter.add(campsite, BookingServiceTest.createBookingRequest());
+			fail("The booking should be rejected");
+		} catch (OverloadedException e) {
+			assertEquals(0, stoppedCommitter.getQueuedBookings());
+		}
+	}
+
+	@Test
+	public void testQueueDrained() {
+		assertTrue(groupCommitter.isEnabled());
+		assertEquals(0, groupCommitter.getQueuedBookings());
+	}
+
+}
@@ -0,0 +1,99 @@
+package com.upgrade.challenge.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.RetryListener;
+import org.springframework.retry.policy.SimpleRetryPolicy;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.upgrade.challenge.exception.AvailabilityException;
+import com.upgrade.challenge.model.dto.DailyOccupation;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class BookingRetryListenerTest {
+
+	private static final String LABEL = "public com.upgrade.challenge.model.BookingResponse "
+			+ "com.upgrade.challenge.services.BookingService.add(com.upgrade.challenge.model.BookingRequest)";
+
+	private static final String OPERATION = "BookingService.add";
+
+	private MeterRegistry registry;
+
+	private BookingMetrics metrics;
+
+	private RetryTemplate retryTemplate;
+
+	private LocalDate now = LocalDate.now();
+
+	@Before
+	public void setup() {
+		registry = new SimpleMeterRegistry();
+		metrics = new BookingMetrics();
+		ReflectionTestUtils.setField(metrics, "registry", registry);
+		BookingRetryListener listener = new BookingRetryListener();
+		ReflectionTestUtils.setField(listener, "metrics", metrics);
+		retryTemplate = new RetryTemplate();
+		retryTemplate.setRetryPolicy(new SimpleRetryPolicy(3,
+				Collections.singletonMap(ObjectOptimisticLockingFailureException.class, true)));
+		retryTemplate.setListeners(new RetryListener[] { listener });
+	}
+
+	@Test
+	public void testConflictRetried() {
+		retryTemplate.execute(context -> {
+			context.setAttribute(RetryContext.NAME, LABEL);
+			metrics.touch(now.plusDays(1), now.plusDays(3));
+			if (context.getRetryCount() == 0) {
+				throw new ObjectOptimisticLockingFailureException(DailyOccupation.class, 1);
+			}
+			return null;
+		});
+
+		assertEquals(1, registry.get("volcano.booking.errors").tag("operation", OPERATION)
+				.tag("cause", "ObjectOptimisticLockingFailureException").counter().count(), 0);
+		assertEquals(1, registry.get("volcano.booking.conflicts").counter().count(), 0);
+		assertEquals(1, registry.get("volcano.booking.retries").counter().count(), 0);
+		assertEquals(1, registry.get("volcano.booking.operation").tag("outcome", BookingMetrics.SUCCESS)
+				.timer().count());
+		assertEquals(2, metrics.getConflictsPerDate().size());
+		assertEquals(Long.valueOf(1), metrics.getConflictsPerDate().get(now.plusDays(1).toString()));
+	}
+
+	@Test(expected = AvailabilityException.class)
+	public void testRejected() {
+		try {
+			retryTemplate.execute(context -> {
+				context.setAttribute(RetryContext.NAME, LABEL);
+				metrics.touch(now.plusDays(1), now.plusDays(3));
+				throw new AvailabilityException("No availability");
+			});
+		} finally {
+			assertEquals(1, registry.get("volcano.booking.operation").tag("outcome", BookingMetrics.REJECTED)
+					.timer().count());
+			assertNull(registry.find("volcano.booking.retries").counter());
+			assertNull(registry.find("volcano.booking.conflicts").counter());
+			assertEquals(0, metrics.getConflictsPerDate().size());
+		}
+	}
+
+	@Test
+	public void testStageTimer() {
+		assertEquals("saved", metrics.record(BookingMetrics.SAVE, () -> "saved"));
+
+		assertEquals(1, registry.get("volcano.booking.stage").tag("stage", BookingMetrics.SAVE).timer().count());
+		assertEquals(0, registry.get("volcano.booking.stage").timer().totalTime(TimeUnit.DAYS), 1);
+	}
+
+}
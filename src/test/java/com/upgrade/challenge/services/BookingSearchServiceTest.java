@@ -0,0 +1,152 @@
+package com.upgrade.challenge.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.upgrade.challenge.campsite.Campsite;
+import com.upgrade.challenge.exception.InputFormatException;
+import com.upgrade.challenge.model.BookingPage;
+import com.upgrade.challenge.model.BookingResponse;
+import com.upgrade.challenge.model.ExportFormat;
+import com.upgrade.challenge.model.dto.Booking;
+import com.upgrade.challenge.repository.BookingRepository;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+public class BookingSearchServiceTest {
+
+	@TestConfiguration
+	static class BookingSearchServiceTestContextConfiguration {
+		@Bean
+		public BookingSearchService bookingSearchService() {
+			return new BookingSearchService();
+		}
+
+		@Bean
+		public ObjectMapper objectMapper() {
+			return new ObjectMapper().registerModule(new JavaTimeModule())
+					.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+		}
+	}
+
+	private static final LocalDate DAY = LocalDate.of(2030, 6, 10);
+
+	private static final Campsite CAMPSITE = new Campsite(Campsite.DEFAULT_ID, 10, 3, 0);
+
+	@Autowired
+	private BookingSearchService searchService;
+
+	@Autowired
+	private BookingRepository bookingRepository;
+
+	@Before
+	public void setup() {
+		save(DAY.minusDays(3), DAY, "a@email.com", "Ann");
+		save(DAY.minusDays(2), DAY.plusDays(1), "a@email.com", "Ann");
+		save(DAY, DAY.plusDays(2), "b@email.com", "Bob, Jr.");
+		save(DAY.plusDays(1), DAY.plusDays(3), "a@email.com", "Ann");
+		save(DAY.plusDays(1), DAY.plusDays(2), "c@email.com", "Carl \"C\"");
+		save(DAY.plusDays(5), DAY.plusDays(6), "a@email.com", "Ann");
+		Booking otherCampsite = save(DAY, DAY.plusDays(1), "a@email.com", "Ann");
+		otherCampsite.setCampsiteId(2L);
+		bookingRepository.save(otherCampsite);
+	}
+
+	@Test
+	public void testFindByEmailPages() {
+		BookingPage first = searchService.findByEmail(CAMPSITE, "a@email.com", null, 3);
+		assertEquals(3, first.getBookings().size());
+
+		BookingPage second = searchService.findByEmail(CAMPSITE, "a@email.com", first.getNext(), 3);
+		assertEquals(1, second.getBookings().size());
+		assertNull(second.getNext());
+		assertEquals(DAY.plusDays(5), second.getBookings().get(0).getFromDay());
+	}
+
+	@Test
+	public void testFindByStayPages() {
+		// The booking leaving on the first day does not stay there.
+		BookingPage first = searchService.findByStay(CAMPSITE, DAY, DAY.plusDays(2), null, 2);
+		assertEquals(DAY.minusDays(2), first.getBookings().get(0).getFromDay());
+		assertEquals(DAY, first.getBookings().get(1).getFromDay());
+
+		BookingPage second = searchService.findByStay(CAMPSITE, DAY, DAY.plusDays(2), first.getNext(), 2);
+		assertEquals(2, second.getBookings().size());
+		assertEquals(DAY.plusDays(1), second.getBookings().get(0).getFromDay());
+		assertEquals(DAY.plusDays(1), second.getBookings().get(1).getFromDay());
+
+		BookingPage last = searchService.findByStay(CAMPSITE, DAY, DAY.plusDays(2), second.getNext(), 2);
+		assertEquals(0, last.getBookings().size());
+		assertNull(last.getNext());
+	}
+
+	@Test(expected = InputFormatException.class)
+	public void testInvalidCursor() {
+		searchService.findByStay(CAMPSITE, DAY, DAY.plusDays(2), "tomorrow", 2);
+	}
+
+	@Test(expected = InputFormatException.class)
+	public void testPageTooLarge() {
+		searchService.findByEmail(CAMPSITE, "a@email.com", null, 1000);
+	}
+
+	@Test
+	public void testExportCsv() throws IOException {
+		List<String> lines = export(ExportFormat.CSV);
+
+		assertEquals(5, lines.size());
+		assertEquals("id,fromDay,toDay,guests,firstName,lastName,email", lines.get(0));
+		assertEquals(DAY.minusDays(2).toString(), lines.get(1).split(",")[1]);
+		assertEquals("\"Bob, Jr.\",surname,b@email.com", lines.get(2).substring(lines.get(2).indexOf('"')));
+		assertEquals("\"Carl \"\"C\"\"\",surname,c@email.com", lines.get(4).substring(lines.get(4).indexOf('"')));
+	}
+
+	@Test
+	public void testExportNdjson() throws IOException {
+		List<String> lines = export(ExportFormat.NDJSON);
+
+		assertEquals(4, lines.size());
+		BookingResponse booking = new ObjectMapper().registerModule(new JavaTimeModule()).readValue(lines.get(1),
+				BookingResponse.class);
+		assertEquals(DAY, booking.getFromDay());
+		assertEquals("b@email.com", booking.getEmail());
+	}
+
+	private List<String> export(ExportFormat format) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		searchService.export(CAMPSITE, DAY, DAY.plusDays(2), format, output);
+		return Arrays.asList(new String(output.toByteArray(), StandardCharsets.UTF_8).split("\n"));
+	}
+
+	private Booking save(LocalDate from, LocalDate to, String email, String firstName) {
+		Booking booking = new Booking();
+		booking.setCampsiteId(Campsite.DEFAULT_ID);
+		booking.setFromDay(from);
+		booking.setToDay(to);
+		booking.setGuests(2);
+		booking.setFirstName(firstName);
+		booking.setLastName("surname");
+		booking.setEmail(email);
+		return bookingRepository.save(booking);
+	}
+
+}
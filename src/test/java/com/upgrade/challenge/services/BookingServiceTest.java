@@ -24,6 +24,7 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.test.context.junit4.SpringRunner;
 
+import com.upgrade.challenge.campsite.Campsite;
 import com.upgrade.challenge.exception.AvailabilityException;
 import com.upgrade.challenge.exception.BookingException;
 import com.upgrade.challenge.exception.BookingNotFoundException;
@@ -34,6 +35,9 @@ import com.upgrade.challenge.model.dto.Booking;
 import com.upgrade.challenge.repository.BookingRepository;
 import com.upgrade.challenge.validator.BookingValidator;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 @RunWith(SpringRunner.class)
 @DataJpaTest
 public class BookingServiceTest {
@@ -44,10 +48,22 @@ public class BookingServiceTest {
         public BookingService bookingService() {
             return new BookingService();
         }
+
+        @Bean
+        public BookingMetrics bookingMetrics() {
+            return new BookingMetrics();
+        }
+
+        @Bean
+        public MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
     }
 
 	private static LocalDate now = LocalDate.parse(LocalDate.now().toString(), DateTimeFormatter.ISO_DATE);
 
+	private static Campsite campsite = new Campsite(Campsite.DEFAULT_ID, 10, 3, 0);
+
     @Autowired
     private BookingService bookingService;
  
@@ -64,9 +80,9 @@ public class BookingServiceTest {
     public void testGetOK() throws BookingNotFoundException, InputFormatException {
     	Booking booking = createBooking(33);
     	Optional<Booking> optionalBooking = Optional.of(booking);
-    	when(bookingRepository.findById(anyLong())).thenReturn(optionalBooking);
+    	when(bookingRepository.findByIdAndCampsiteId(anyLong(), anyLong())).thenReturn(optionalBooking);
     	
-    	BookingResponse currentBooking = bookingService.get(Long.valueOf(33));
+    	BookingResponse currentBooking = bookingService.get(campsite, Long.valueOf(33));
 
 		assertEquals(booking.getId(), currentBooking.getId());
     }
@@ -74,9 +90,9 @@ public class BookingServiceTest {
     @Test(expected = BookingNotFoundException.class)
     public void testGetNotFound() throws BookingNotFoundException, InputFormatException {
     	Optional<Booking> optionalBooking = Optional.empty();
-    	when(bookingRepository.findById(anyLong())).thenReturn(optionalBooking);
+    	when(bookingRepository.findByIdAndCampsiteId(anyLong(), anyLong())).thenReturn(optionalBooking);
     	
-    	bookingService.get(Long.valueOf(33));
+    	bookingService.get(campsite, Long.valueOf(33));
     }
 
     @Test
@@ -86,72 +102,74 @@ public class BookingServiceTest {
     	when(bookingRepository.save(any(Booking.class))).thenReturn(expectedBooking);
     	BookingRequest bookingRequest = createBookingRequest();
     	
-    	BookingResponse createdBooking = bookingService.add(bookingRequest);
+    	BookingResponse createdBooking = bookingService.add(campsite, bookingRequest);
 
 		assertEquals(expectedBooking.getId(), createdBooking.getId());
+		assertEquals(Long.valueOf(Campsite.DEFAULT_ID), createdBooking.getCampsiteId());
 		verify(bookingRepository, times(1)).save(any(Booking.class));
-		verify(dailyAvailabilityService, times(1)).validateAvailability(any(LocalDate.class), any(LocalDate.class), anyInt(), anyBoolean());
-		verify(dailyAvailabilityService, times(1)).blockAvailability(any(LocalDate.class), any(LocalDate.class), anyInt());
+		verify(dailyAvailabilityService, times(1)).validateAvailability(any(), any(LocalDate.class), any(LocalDate.class), anyInt(), anyBoolean());
+		verify(dailyAvailabilityService, times(1)).blockAvailability(any(), any(LocalDate.class), any(LocalDate.class), anyInt());
     }
     
     @Test(expected = AvailabilityException.class)
     public void testAddNoAvailability() throws BookingException, AvailabilityException, InputFormatException {
-		doThrow(AvailabilityException.class).when(dailyAvailabilityService).validateAvailability(any(LocalDate.class),
+		doThrow(AvailabilityException.class).when(dailyAvailabilityService).validateAvailability(any(), any(LocalDate.class),
 				any(LocalDate.class), anyInt(), anyBoolean());
 
-    	bookingService.add(createBookingRequest());
+    	bookingService.add(campsite, createBookingRequest());
     }
     
     @Test
     public void testDeleteOK() throws AvailabilityException, InputFormatException, BookingNotFoundException, BookingException {
     	Booking booking = createBooking(33);
     	Optional<Booking> optionalBooking = Optional.of(booking);
-    	when(bookingRepository.findById(anyLong())).thenReturn(optionalBooking);
+    	when(bookingRepository.findByIdAndCampsiteId(anyLong(), anyLong())).thenReturn(optionalBooking);
     	
-    	bookingService.delete(Long.valueOf(33));
+    	bookingService.delete(campsite, Long.valueOf(33));
 
 		verify(validator, times(1)).validatePastDate(any(LocalDate.class), anyString());
 		verify(bookingRepository, times(1)).deleteById(anyLong());
-		verify(dailyAvailabilityService, times(1)).releaseAvailability(any(LocalDate.class), any(LocalDate.class), anyInt());
-		verify(bookingRepository, times(1)).findById(anyLong());
+		verify(dailyAvailabilityService, times(1)).releaseAvailability(any(), any(LocalDate.class), any(LocalDate.class), anyInt());
+		verify(bookingRepository, times(1)).findByIdAndCampsiteId(anyLong(), anyLong());
     }
     
     @Test(expected = BookingNotFoundException.class)
     public void testDeleteBookingNotFound() throws InputFormatException, BookingNotFoundException, AvailabilityException, BookingException {
     	Optional<Booking> optionalBooking = Optional.empty();
-    	when(bookingRepository.findById(anyLong())).thenReturn(optionalBooking);
+    	when(bookingRepository.findByIdAndCampsiteId(anyLong(), anyLong())).thenReturn(optionalBooking);
     	
-    	bookingService.delete(Long.valueOf(33));
-		verify(bookingRepository, times(1)).findById(anyLong());
+    	bookingService.delete(campsite, Long.valueOf(33));
+		verify(bookingRepository, times(1)).findByIdAndCampsiteId(anyLong(), anyLong());
     }
 
     @Test(expected = BookingException.class)
     public void testDeletePastBooking() throws InputFormatException, BookingNotFoundException, AvailabilityException, BookingException {
     	Optional<Booking> optionalBooking = Optional.of(createBooking(33));
-    	when(bookingRepository.findById(anyLong())).thenReturn(optionalBooking);
+    	when(bookingRepository.findByIdAndCampsiteId(anyLong(), anyLong())).thenReturn(optionalBooking);
     	doThrow(BookingException.class).when(validator).validatePastDate(any(LocalDate.class), anyString());
     	
-    	bookingService.delete(Long.valueOf(33));
+    	bookingService.delete(campsite, Long.valueOf(33));
 
-		verify(bookingRepository, times(1)).findById(anyLong());
+		verify(bookingRepository, times(1)).findByIdAndCampsiteId(anyLong(), anyLong());
     }
 
     @Test
     public void testEditBookingWithoutCheckingAvailabilityReleasingAvailabilityDaysInBetween() throws AvailabilityException, InputFormatException, BookingNotFoundException, BookingException {
     	Booking booking = createBooking(33);
     	Optional<Booking> optionalBooking = Optional.of(booking);
-    	when(bookingRepository.findById(anyLong())).thenReturn(optionalBooking);
+    	when(bookingRepository.findByIdAndCampsiteId(anyLong(), anyLong())).thenReturn(optionalBooking);
     	BookingRequest bookingRequest = createBookingRequest();
     	bookingRequest.setEmail("another@email.com");
     	BookingResponse expectedBooking = new BookingResponse(Long.valueOf(33), bookingRequest);
 
-    	BookingResponse editedBooking = bookingService.edit(Long.valueOf(33), bookingRequest);
+    	BookingResponse editedBooking = bookingService.edit(campsite, Long.valueOf(33), bookingRequest);
 
     	assertEquals(expectedBooking.getId(), editedBooking.getId());
-		verify(bookingRepository, times(1)).findById(anyLong());
+		verify(bookingRepository, times(1)).findByIdAndCampsiteId(anyLong(), anyLong());
 		verify(validator, times(1)).validatePastDate(any(LocalDate.class), anyString());
-		verify(validator, times(1)).validateDatesInput(any(LocalDate.class), any(LocalDate.class), anyBoolean());
-		verify(dailyAvailabilityService, times(1)).releaseAvailability(any(LocalDate.class), any(LocalDate.class), anyInt());
+		verify(validator, times(1)).validateDatesInput(any(LocalDate.class), any(LocalDate.class), anyBoolean(), anyInt());
+		verify(dailyAvailabilityService, times(1)).moveAvailability(any(), any(LocalDate.class), any(LocalDate.class), anyInt(),
+				any(LocalDate.class), any(LocalDate.class), anyInt());
 		verify(bookingRepository, times(1)).save(any(Booking.class));
     }
     
@@ -159,20 +177,21 @@ public class BookingServiceTest {
     public void testEditBookingWithoutCheckingAvailabilityReleasingAvailabilityDaysBefore() throws AvailabilityException, InputFormatException, BookingNotFoundException, BookingException {
     	Booking booking = createBooking(33);
     	Optional<Booking> optionalBooking = Optional.of(booking);
-    	when(bookingRepository.findById(anyLong())).thenReturn(optionalBooking);
+    	when(bookingRepository.findByIdAndCampsiteId(anyLong(), anyLong())).thenReturn(optionalBooking);
     	BookingRequest bookingRequest = createBookingRequest();
     	bookingRequest.setFromDay(now.plusDays(2));
     	bookingRequest.setToDay(now.plusDays(3));
     	bookingRequest.setEmail("another@email.com");
     	BookingResponse expectedBooking = new BookingResponse(Long.valueOf(33), bookingRequest);
 
-    	BookingResponse editedBooking = bookingService.edit(Long.valueOf(33), bookingRequest);
+    	BookingResponse editedBooking = bookingService.edit(campsite, Long.valueOf(33), bookingRequest);
 
     	assertEquals(expectedBooking.getId(), editedBooking.getId());
-		verify(bookingRepository, times(1)).findById(anyLong());
+		verify(bookingRepository, times(1)).findByIdAndCampsiteId(anyLong(), anyLong());
 		verify(validator, times(1)).validatePastDate(any(LocalDate.class), anyString());
-		verify(validator, times(1)).validateDatesInput(any(LocalDate.class), any(LocalDate.class), anyBoolean());
-		verify(dailyAvailabilityService, times(1)).releaseAvailability(any(LocalDate.class), any(LocalDate.class), anyInt());
+		verify(validator, times(1)).validateDatesInput(any(LocalDate.class), any(LocalDate.class), anyBoolean(), anyInt());
+		verify(dailyAvailabilityService, times(1)).moveAvailability(any(), any(LocalDate.class), any(LocalDate.class), anyInt(),
+				any(LocalDate.class), any(LocalDate.class), anyInt());
 		verify(bookingRepository, times(1)).save(any(Booking.class));
     }
     
@@ -180,20 +199,21 @@ public class BookingServiceTest {
     public void testEditBookingWithoutCheckingAvailabilityReleasingAvailabilityDaysAfter() throws AvailabilityException, InputFormatException, BookingNotFoundException, BookingException {
     	Booking booking = createBooking(33);
     	Optional<Booking> optionalBooking = Optional.of(booking);
-    	when(bookingRepository.findById(anyLong())).thenReturn(optionalBooking);
+    	when(bookingRepository.findByIdAndCampsiteId(anyLong(), anyLong())).thenReturn(optionalBooking);
     	BookingRequest bookingRequest = createBookingRequest();
     	bookingRequest.setFromDay(now.plusDays(3));
     	bookingRequest.setToDay(now.plusDays(4));
     	bookingRequest.setEmail("another@email.com");
     	BookingResponse expectedBooking = new BookingResponse(Long.valueOf(33), bookingRequest);
 
-    	BookingResponse editedBooking = bookingService.edit(Long.valueOf(33), bookingRequest);
+    	BookingResponse editedBooking = bookingService.edit(campsite, Long.valueOf(33), bookingRequest);
 
     	assertEquals(expectedBooking.getId(), editedBooking.getId());
-		verify(bookingRepository, times(1)).findById(anyLong());
+		verify(bookingRepository, times(1)).findByIdAndCampsiteId(anyLong(), anyLong());
 		verify(validator, times(1)).validatePastDate(any(LocalDate.class), anyString());
-		verify(validator, times(1)).validateDatesInput(any(LocalDate.class), any(LocalDate.class), anyBoolean());
-		verify(dailyAvailabilityService, times(1)).releaseAvailability(any(LocalDate.class), any(LocalDate.class), anyInt());
+		verify(validator, times(1)).validateDatesInput(any(LocalDate.class), any(LocalDate.class), anyBoolean(), anyInt());
+		verify(dailyAvailabilityService, times(1)).moveAvailability(any(), any(LocalDate.class), any(LocalDate.class), anyInt(),
+				any(LocalDate.class), any(LocalDate.class), anyInt());
 		verify(bookingRepository, times(1)).save(any(Booking.class));
     }
     
@@ -202,20 +222,21 @@ public class BookingServiceTest {
     	Booking booking = createBooking(33);
     	booking.setToDay(now.plusDays(3));
     	Optional<Booking> optionalBooking = Optional.of(booking);
-    	when(bookingRepository.findById(anyLong())).thenReturn(optionalBooking);
+    	when(bookingRepository.findByIdAndCampsiteId(anyLong(), anyLong())).thenReturn(optionalBooking);
     	when(bookingRepository.save(any(Booking.class))).thenReturn(booking);
     	BookingRequest bookingRequest = createBookingRequest();
     	bookingRequest.setFromDay(now.plusDays(1));
     	bookingRequest.setToDay(now.plusDays(4));
     	BookingResponse expectedBooking = new BookingResponse(Long.valueOf(33), bookingRequest);
 
-    	BookingResponse editedBooking = bookingService.edit(Long.valueOf(33), bookingRequest);
+    	BookingResponse editedBooking = bookingService.edit(campsite, Long.valueOf(33), bookingRequest);
 
     	assertEquals(expectedBooking.getId(), editedBooking.getId());
-		verify(bookingRepository, times(1)).findById(anyLong());
+		verify(bookingRepository, times(1)).findByIdAndCampsiteId(anyLong(), anyLong());
 		verify(validator, times(1)).validatePastDate(any(LocalDate.class), anyString());
-		verify(validator, times(1)).validateDatesInput(any(LocalDate.class), any(LocalDate.class), anyBoolean());
-		verify(dailyAvailabilityService, times(1)).releaseAvailability(any(LocalDate.class), any(LocalDate.class), anyInt());
+		verify(validator, times(1)).validateDatesInput(any(LocalDate.class), any(LocalDate.class), anyBoolean(), anyInt());
+		verify(dailyAvailabilityService, times(1)).moveAvailability(any(), any(LocalDate.class), any(LocalDate.class), anyInt(),
+				any(LocalDate.class), any(LocalDate.class), anyInt());
 		verify(bookingRepository, times(1)).save(any(Booking.class));
     }
     
@@ -223,24 +244,57 @@ public class BookingServiceTest {
     public void testEditBookingWithoutCheckingAvailabilityOnlyChangesEmail() throws AvailabilityException, InputFormatException, BookingNotFoundException, BookingException {
     	Booking booking = createBooking(33);
     	Optional<Booking> optionalBooking = Optional.of(booking);
-    	when(bookingRepository.findById(anyLong())).thenReturn(optionalBooking);
+    	when(bookingRepository.findByIdAndCampsiteId(anyLong(), anyLong())).thenReturn(optionalBooking);
     	BookingRequest bookingRequest = createBookingRequest();
     	bookingRequest.setToDay(now.plusDays(4));
     	bookingRequest.setEmail("another@email.com");
     	BookingResponse expectedBooking = new BookingResponse(Long.valueOf(33), bookingRequest);
 
-    	BookingResponse editedBooking = bookingService.edit(Long.valueOf(33), bookingRequest);
+    	BookingResponse editedBooking = bookingService.edit(campsite, Long.valueOf(33), bookingRequest);
 
     	assertEquals(expectedBooking.getId(), editedBooking.getId());
-		verify(bookingRepository, times(1)).findById(Long.valueOf(33));
+		verify(bookingRepository, times(1)).findByIdAndCampsiteId(Long.valueOf(33), Campsite.DEFAULT_ID);
 		verify(validator, times(1)).validatePastDate(any(LocalDate.class), anyString());
-		verify(validator, times(1)).validateDatesInput(any(LocalDate.class), any(LocalDate.class), anyBoolean());
-		verify(dailyAvailabilityService, times(0)).releaseAvailability(any(LocalDate.class), any(LocalDate.class), anyInt());
+		verify(validator, times(1)).validateDatesInput(any(LocalDate.class), any(LocalDate.class), anyBoolean(), anyInt());
+		verify(dailyAvailabilityService, times(0)).moveAvailability(any(), any(LocalDate.class), any(LocalDate.class), anyInt(),
+				any(LocalDate.class), any(LocalDate.class), anyInt());
 		verify(bookingRepository, times(1)).save(any(Booking.class));
     }
     
+    @Test
+    public void testEditBookingMovesOnlyTheDifference() throws AvailabilityException, InputFormatException, BookingNotFoundException, BookingException {
+    	Booking booking = createBooking(33);
+    	when(bookingRepository.findByIdAndCampsiteId(anyLong(), anyLong())).thenReturn(Optional.of(booking));
+    	BookingRequest bookingRequest = createBookingRequest();
+    	bookingRequest.setFromDay(now.plusDays(3));
+    	bookingRequest.setToDay(now.plusDays(5));
+    	bookingRequest.setGuests(4);
+
+    	bookingService.edit(campsite, Long.valueOf(33), bookingRequest);
+
+		verify(dailyAvailabilityService, times(1)).moveAvailability(campsite, now.plusDays(2), now.plusDays(4), 3,
+				now.plusDays(3), now.plusDays(5), 4);
+		verify(dailyAvailabilityService, times(0)).releaseAvailability(any(), any(LocalDate.class), any(LocalDate.class), anyInt());
+		verify(dailyAvailabilityService, times(0)).blockAvailability(any(), any(LocalDate.class), any(LocalDate.class), anyInt());
+		verify(bookingRepository, times(1)).save(booking);
+		assertEquals(now.plusDays(5), booking.getToDay());
+		assertEquals(Integer.valueOf(4), booking.getGuests());
+    }
+
+    @Test(expected = AvailabilityException.class)
+    public void testEditBookingNoAvailability() throws AvailabilityException, InputFormatException, BookingNotFoundException, BookingException {
+    	when(bookingRepository.findByIdAndCampsiteId(anyLong(), anyLong())).thenReturn(Optional.of(createBooking(33)));
+		doThrow(AvailabilityException.class).when(dailyAvailabilityService).moveAvailability(any(), any(LocalDate.class),
+				any(LocalDate.class), anyInt(), any(LocalDate.class), any(LocalDate.class), anyInt());
+    	BookingRequest bookingRequest = createBookingRequest();
+    	bookingRequest.setGuests(8);
+
+    	bookingService.edit(campsite, Long.valueOf(33), bookingRequest);
+    }
+    
     public static Booking createBooking(int id) {
     	Booking booking = new Booking(createBookingResponse(id));
+    	booking.setCampsiteId(Campsite.DEFAULT_ID);
     	booking.setToDay(now.plusDays(4));
     	return booking;
     }
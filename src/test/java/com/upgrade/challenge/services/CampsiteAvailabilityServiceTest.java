@@ -0,0 +1,113 @@
+package com.upgrade.challenge.services;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.upgrade.challenge.campsite.Campsite;
+import com.upgrade.challenge.campsite.CampsiteRegistry;
+import com.upgrade.challenge.datasource.ShardRouting;
+import com.upgrade.challenge.model.DailyAvailability;
+import com.upgrade.challenge.model.dto.DailyOccupation;
+import com.upgrade.challenge.repository.DailyOccupationRepository;
+
+public class CampsiteAvailabilityServiceTest {
+
+	private CampsiteAvailabilityService campsiteAvailabilityService;
+
+	private DailyOccupationRepository dailyOccupationRepository;
+
+	private OccupationLedger ledger;
+
+	private ShardRouting shardRouting = new ShardRouting();
+
+	private Map<Long, Integer> queriedShards = new ConcurrentHashMap<Long, Integer>();
+
+	private LocalDate now = LocalDate.now();
+
+	@Before
+	public void setup() {
+		DailyAvailabilityService dailyAvailabilityService = mock(DailyAvailabilityService.class);
+		when(dailyAvailabilityService.resolveDates(any(), any()))
+				.thenReturn(new LocalDate[] { now.plusDays(1), now.plusDays(3) });
+		CampsiteRegistry campsites = mock(CampsiteRegistry.class);
+		when(campsites.get(1L)).thenReturn(new Campsite(1, 10, 3, 0));
+		when(campsites.get(2L)).thenReturn(new Campsite(2, 6, 3, 0));
+		when(campsites.get(3L)).thenReturn(new Campsite(3, 4, 3, 1));
+		ledger = mock(OccupationLedger.class);
+		when(ledger.snapshot(1L, now.plusDays(1), now.plusDays(3))).thenReturn(new int[] { 2, 0 });
+		dailyOccupationRepository = mock(DailyOccupationRepository.class);
+		when(dailyOccupationRepository.findAllByCampsiteIdInAndDateBetweenOrderByCampsiteIdAscDateAsc(anyCollection(),
+				any(), any())).thenAnswer(invocation -> {
+					Collection<Long> ids = invocation.getArgument(0);
+					List<DailyOccupation> rows = new ArrayList<DailyOccupation>();
+					for (Long id : ids) {
+						queriedShards.put(id, shardRouting.current());
+						rows.add(new DailyOccupation(id, now.plusDays(2), 1));
+					}
+					return rows;
+				});
+
+		campsiteAvailabilityService = new CampsiteAvailabilityService();
+		ReflectionTestUtils.setField(campsiteAvailabilityService, "dailyAvailabilityService", dailyAvailabilityService);
+		ReflectionTestUtils.setField(campsiteAvailabilityService, "dailyOccupationRepository", dailyOccupationRepository);
+		ReflectionTestUtils.setField(campsiteAvailabilityService, "ledger", ledger);
+		ReflectionTestUtils.setField(campsiteAvailabilityService, "capacityCalendar", new CapacityCalendar());
+		ReflectionTestUtils.setField(campsiteAvailabilityService, "campsites", campsites);
+		ReflectionTestUtils.setField(campsiteAvailabilityService, "shardRouting", shardRouting);
+		ReflectionTestUtils.setField(campsiteAvailabilityService, "threads", 2);
+		campsiteAvailabilityService.initialize();
+	}
+
+	@After
+	public void tearDown() {
+		campsiteAvailabilityService.shutdown();
+	}
+
+	@Test
+	public void testLedgerThenOneQueryPerShard() {
+		Map<Long, List<DailyAvailability>> availability = campsiteAvailabilityService
+				.getAvailability(Arrays.asList(3L, 1L, 2L), null, null);
+
+		assertArrayEquals(new Long[] { 3L, 1L, 2L }, availability.keySet().toArray(new Long[0]));
+		assertEquals(8, availability.get(1L).get(0).getAvailability());
+		assertEquals(10, availability.get(1L).get(1).getAvailability());
+		assertEquals(6, availability.get(2L).get(0).getAvailability());
+		assertEquals(5, availability.get(2L).get(1).getAvailability());
+		assertEquals(4, availability.get(3L).get(0).getAvailability());
+		assertEquals(3, availability.get(3L).get(1).getAvailability());
+		verify(dailyOccupationRepository, times(2)).findAllByCampsiteIdInAndDateBetweenOrderByCampsiteIdAscDateAsc(
+				anyCollection(), any(), any());
+		assertEquals(Integer.valueOf(0), queriedShards.get(2L));
+		assertEquals(Integer.valueOf(1), queriedShards.get(3L));
+	}
+
+	@Test
+	public void testSingleShardQueriedInline() {
+		Map<Long, List<DailyAvailability>> availability = campsiteAvailabilityService
+				.getAvailability(Arrays.asList(2L, 2L), null, null);
+
+		assertEquals(1, availability.size());
+		assertEquals(2, availability.get(2L).size());
+		assertEquals(Integer.valueOf(0), queriedShards.get(2L));
+	}
+
+}
@@ -0,0 +1,180 @@
+package com.upgrade.challenge.services;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.upgrade.challenge.campsite.Campsite;
+import com.upgrade.challenge.campsite.CampsiteRegistry;
+import com.upgrade.challenge.datasource.ShardRouting;
+import com.upgrade.challenge.exception.CapacityOverrideNotFoundException;
+import com.upgrade.challenge.exception.InputFormatException;
+import com.upgrade.challenge.model.CapacityOverrideRequest;
+import com.upgrade.challenge.model.dto.CapacityOverride;
+import com.upgrade.challenge.repository.CapacityOverrideRepository;
+import com.upgrade.challenge.validator.BookingValidator;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+public class CapacityCalendarTest {
+
+	@TestConfiguration
+	static class CapacityCalendarTestContextConfiguration {
+		@Bean
+		public CapacityCalendar capacityCalendar() {
+			return new CapacityCalendar();
+		}
+
+		@Bean
+		public ShardRouting shardRouting() {
+			return new ShardRouting();
+		}
+
+		@Bean
+		public BookingValidator validator() {
+			return new BookingValidator();
+		}
+	}
+
+	private static final Campsite CAMPSITE = new Campsite(Campsite.DEFAULT_ID, 10, 3, 0);
+
+	private static final Campsite OTHER_CAMPSITE = new Campsite(2, 6, 3, 0);
+
+	private LocalDate now = LocalDate.now();
+
+	@Autowired
+	private CapacityCalendar capacityCalendar;
+
+	@Autowired
+	private CapacityOverrideRepository capacityOverrideRepository;
+
+	@MockBean
+	private CampsiteRegistry campsites;
+
+	@MockBean
+	private OccupationLedger ledger;
+
+	@Before
+	public void setup() {
+		when(campsites.getAll()).thenReturn(Arrays.asList(CAMPSITE, OTHER_CAMPSITE));
+		capacityCalendar.load();
+	}
+
+	@Test
+	public void testWithoutOverrides() {
+		assertArrayEquals(new int[] {10, 10}, capacityCalendar.capacities(CAMPSITE, now.plusDays(1), now.plusDays(3)));
+		assertEquals(6, capacityCalendar.uniformCapacity(OTHER_CAMPSITE, now.plusDays(1), now.plusDays(3)).getAsInt());
+	}
+
+	@Test
+	public void testLastOverrideWins() {
+		capacityCalendar.add(CAMPSITE, request(now.plusDays(2), now.plusDays(5), 0));
+		capacityCalendar.add(CAMPSITE, request(now.plusDays(4), now.plusDays(6), 15));
+
+		assertArrayEquals(new int[] {10, 0, 0, 15, 15, 10},
+				capacityCalendar.capacities(CAMPSITE, now.plusDays(1), now.plusDays(7)));
+		assertEquals(0, capacityCalendar.uniformCapacity(CAMPSITE, now.plusDays(2), now.plusDays(4)).getAsInt());
+		assertFalse(capacityCalendar.uniformCapacity(CAMPSITE, now.plusDays(1), now.plusDays(3)).isPresent());
+		assertArrayEquals(new int[] {6, 6}, capacityCalendar.capacities(OTHER_CAMPSITE, now.plusDays(2), now.plusDays(4)));
+		verify(ledger).record(Campsite.DEFAULT_ID, now.plusDays(4), now.plusDays(6), 0);
+	}
+
+	@Test
+	public void testRemoveOverride() {
+		CapacityOverride maintenance = capacityCalendar.add(CAMPSITE, request(now.plusDays(2), now.plusDays(4), 3));
+
+		capacityCalendar.remove(CAMPSITE, maintenance.getId());
+
+		assertArrayEquals(new int[] {10, 10}, capacityCalendar.capacities(CAMPSITE, now.plusDays(2), now.plusDays(4)));
+		assertEquals(0, capacityCalendar.getOverrides(CAMPSITE).size());
+		assertEquals(0, capacityOverrideRepository.count());
+	}
+
+	@Test(expected = CapacityOverrideNotFoundException.class)
+	public void testRemoveOverrideOfAnotherCampsite() {
+		CapacityOverride maintenance = capacityCalendar.add(CAMPSITE, request(now.plusDays(2), now.plusDays(4), 3));
+
+		capacityCalendar.remove(OTHER_CAMPSITE, maintenance.getId());
+	}
+
+	@Test(expected = InputFormatException.class)
+	public void testInvalidDates() {
+		capacityCalendar.add(CAMPSITE, request(now.plusDays(4), now.plusDays(4), 3));
+	}
+
+	@Test(expected = InputFormatException.class)
+	public void testPastOverride() {
+		capacityCalendar.add(CAMPSITE, request(now.minusDays(1), now.plusDays(4), 3));
+	}
+
+	@Test(expected = InputFormatException.class)
+	public void testOverrideBeyondTheHorizon() {
+		capacityCalendar.add(CAMPSITE, request(now.plusDays(2), now.plusMonths(1).plusDays(4), 3));
+	}
+
+	@Test
+	public void testOverrideUpToTheLastCheckout() {
+		capacityCalendar.add(CAMPSITE, request(now, now.plusMonths(1).plusDays(3), 3));
+
+		assertEquals(3, capacityCalendar.uniformCapacity(CAMPSITE, now, now.plusMonths(1).plusDays(3)).getAsInt());
+	}
+
+	@Test
+	public void testStoredOverridesOutOfTheHorizonAreNotExpanded() {
+		capacityOverrideRepository.save(new CapacityOverride(1L, request(LocalDate.of(2000, 1, 1), now.plusDays(2), 4)));
+		capacityOverrideRepository.save(new CapacityOverride(1L, request(now.plusDays(3), LocalDate.of(999999, 12, 31), 5)));
+
+		capacityCalendar.load();
+
+		assertArrayEquals(new int[] {10, 4, 4, 10, 5}, capacityCalendar.capacities(CAMPSITE, now.minusDays(1), now.plusDays(4)));
+		assertEquals(5, capacityCalendar.capacities(CAMPSITE, now.plusMonths(1), now.plusMonths(1).plusDays(1))[0]);
+	}
+
+	@Test
+	public void testLoadAnnouncesTheOverridesChangedElsewhere() {
+		CapacityOverride maintenance = capacityCalendar.add(CAMPSITE, request(now.plusDays(2), now.plusDays(4), 3));
+		capacityOverrideRepository.delete(maintenance);
+		capacityOverrideRepository.save(new CapacityOverride(2L, request(now.plusDays(5), now.plusDays(6), 8)));
+
+		capacityCalendar.load();
+
+		verify(ledger, times(2)).record(Campsite.DEFAULT_ID, now.plusDays(2), now.plusDays(4), 0);
+		verify(ledger).record(2L, now.plusDays(5), now.plusDays(6), 0);
+		assertEquals(0, capacityCalendar.getOverrides(CAMPSITE).size());
+	}
+
+	@Test
+	public void testLoad() {
+		capacityOverrideRepository.save(new CapacityOverride(2L, request(now.plusDays(1), now.plusDays(2), 8)));
+
+		capacityCalendar.load();
+
+		assertArrayEquals(new int[] {8, 6}, capacityCalendar.capacities(OTHER_CAMPSITE, now.plusDays(1), now.plusDays(3)));
+		assertEquals(1, capacityCalendar.getOverrideCount());
+	}
+
+	private static CapacityOverrideRequest request(LocalDate from, LocalDate to, int capacity) {
+		CapacityOverrideRequest request = new CapacityOverrideRequest();
+		request.setFromDay(from);
+		request.setToDay(to);
+		request.setCapacity(capacity);
+		return request;
+	}
+
+}
@@ -6,6 +6,9 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -13,7 +16,12 @@ import static org.mockito.Mockito.when;
 import java.time.LocalDate;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
 
+import org.junit.After;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -23,15 +31,24 @@ import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import com.upgrade.challenge.campsite.Campsite;
+import com.upgrade.challenge.campsite.CampsiteRegistry;
+import com.upgrade.challenge.datasource.ReadRouting;
+import com.upgrade.challenge.datasource.ShardRouting;
 import com.upgrade.challenge.exception.AvailabilityException;
 import com.upgrade.challenge.exception.BookingException;
 import com.upgrade.challenge.exception.InputFormatException;
+import com.upgrade.challenge.model.CapacityOverrideRequest;
 import com.upgrade.challenge.model.DailyAvailability;
 import com.upgrade.challenge.model.dto.DailyOccupation;
 import com.upgrade.challenge.repository.DailyOccupationRepository;
 import com.upgrade.challenge.validator.BookingValidator;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 @RunWith(SpringRunner.class)
 @DataJpaTest
 public class DailyAvailabilityServiceTest {
@@ -42,6 +59,31 @@ public class DailyAvailabilityServiceTest {
 		public DailyAvailabilityService dailyAvailabilityService() {
 			return new DailyAvailabilityService();
 		}
+
+		@Bean
+		public BookingMetrics bookingMetrics() {
+			return new BookingMetrics();
+		}
+
+		@Bean
+		public MeterRegistry meterRegistry() {
+			return new SimpleMeterRegistry();
+		}
+
+		@Bean
+		public ReadRouting readRouting() {
+			return new ReadRouting();
+		}
+
+		@Bean
+		public CapacityCalendar capacityCalendar() {
+			return new CapacityCalendar();
+		}
+
+		@Bean
+		public ShardRouting shardRouting() {
+			return new ShardRouting();
+		}
 	}
 
 	@Autowired
@@ -53,6 +95,21 @@ public class DailyAvailabilityServiceTest {
 	@MockBean
     public BookingValidator validator;
 
+	@MockBean
+	private OccupationLedger ledger;
+
+	@MockBean
+	private DailyOccupationProvisioner provisioner;
+
+	@MockBean
+	private AvailabilityCache availabilityCache;
+
+	@MockBean
+	private CampsiteRegistry campsiteRegistry;
+
+	@Autowired
+	private CapacityCalendar capacityCalendar;
+
 	@Value("${volcano.min_days_ahead_of_arrival}")
 	private int MINIMUM_DAYS_AHEAD_OF_ARRIVAL;
 
@@ -64,15 +121,28 @@ public class DailyAvailabilityServiceTest {
 
 	private LocalDate now = LocalDate.now();
 
+	private Campsite campsite;
+
+	@Before
+	public void setup() {
+		campsite = new Campsite(Campsite.DEFAULT_ID, MAX_CAPACITY, 3, 0);
+		when(validator.getMonthsUpToBooking()).thenReturn(MONTHS_UP_TO_BOOKING);
+		// The overrides of the previous tests were rolled back.
+		capacityCalendar.load();
+	}
+
+	@After
+	public void resetReservationMode() {
+		ReflectionTestUtils.setField(dailyAvailabilityService, "reservationMode", "optimistic");
+	}
+
 	@Test
 	public void testGetAvailabilityWithFromTo() {
-		when(validator.getMaxCapacity()).thenReturn(MAX_CAPACITY);
-		
 		List<DailyOccupation> days = new LinkedList<DailyOccupation>();
 		days.add(new DailyOccupation(now.plusDays(1), 2));
 		days.add(new DailyOccupation(now.plusDays(2), 3));
 		days.add(new DailyOccupation(now.plusDays(5), 10));
-		when(dailyAvailabilityRepository.findAllByDateBetweenOrderByDateAsc(any(LocalDate.class), any(LocalDate.class)))
+		when(dailyAvailabilityRepository.findAllByCampsiteIdAndDateBetweenOrderByDateAsc(anyLong(), any(LocalDate.class), any(LocalDate.class)))
 				.thenReturn(days);
 
 		List<DailyAvailability> expectedAvailability = new LinkedList<DailyAvailability>();
@@ -83,7 +153,7 @@ public class DailyAvailabilityServiceTest {
 		expectedAvailability.add(new DailyAvailability(now.plusDays(5), 0));
 
 		List<DailyAvailability> currentAvailability = dailyAvailabilityService
-				.getAvailability(now.plusDays(1), now.plusDays(6));
+				.getAvailability(campsite, now.plusDays(1), now.plusDays(6));
 
 		assertNotNull(currentAvailability);
 		assertFalse(currentAvailability.isEmpty());
@@ -98,13 +168,11 @@ public class DailyAvailabilityServiceTest {
 	@Test
 	public void testGetAvailabilityOnlyWithFrom() throws BookingException, InputFormatException {
 		when(validator.getMonthsUpToBooking()).thenReturn(MONTHS_UP_TO_BOOKING);
-		when(validator.getMaxCapacity()).thenReturn(MAX_CAPACITY);
-		
 		List<DailyOccupation> days = new LinkedList<DailyOccupation>();
 		days.add(new DailyOccupation(now.plusDays(20), 2));
 		days.add(new DailyOccupation(now.plusDays(21), 3));
 		days.add(new DailyOccupation(now.plusDays(25), 10));
-		when(dailyAvailabilityRepository.findAllByDateBetweenOrderByDateAsc(any(LocalDate.class), any(LocalDate.class)))
+		when(dailyAvailabilityRepository.findAllByCampsiteIdAndDateBetweenOrderByDateAsc(anyLong(), any(LocalDate.class), any(LocalDate.class)))
 				.thenReturn(days);
 
 		List<DailyAvailability> expectedAvailability = new LinkedList<DailyAvailability>();
@@ -121,7 +189,7 @@ public class DailyAvailabilityServiceTest {
 		}
 
 		List<DailyAvailability> currentAvailability = dailyAvailabilityService
-				.getAvailability(now.plusDays(20), null);
+				.getAvailability(campsite, now.plusDays(20), null);
 
 		assertNotNull(currentAvailability);
 		assertFalse(currentAvailability.isEmpty());
@@ -136,13 +204,11 @@ public class DailyAvailabilityServiceTest {
 	@Test
 	public void testGetAvailabilityOnlyWithTo() throws BookingException, InputFormatException {
 		when(validator.getMinimumDaysAheadOfArrival()).thenReturn(MINIMUM_DAYS_AHEAD_OF_ARRIVAL);
-		when(validator.getMaxCapacity()).thenReturn(MAX_CAPACITY);
-		
 		List<DailyOccupation> days = new LinkedList<DailyOccupation>();
 		days.add(new DailyOccupation(now.plusDays(1), 2));
 		days.add(new DailyOccupation(now.plusDays(2), 10));
 		days.add(new DailyOccupation(now.plusDays(10), 7));
-		when(dailyAvailabilityRepository.findAllByDateBetweenOrderByDateAsc(any(LocalDate.class), any(LocalDate.class)))
+		when(dailyAvailabilityRepository.findAllByCampsiteIdAndDateBetweenOrderByDateAsc(anyLong(), any(LocalDate.class), any(LocalDate.class)))
 				.thenReturn(days);
 
 		List<DailyAvailability> expectedAvailability = new LinkedList<DailyAvailability>();
@@ -154,7 +220,7 @@ public class DailyAvailabilityServiceTest {
 		}
 		expectedAvailability.add(new DailyAvailability(now.plusDays(10), 3));
 
-		List<DailyAvailability> currentAvailability = dailyAvailabilityService.getAvailability(null,
+		List<DailyAvailability> currentAvailability = dailyAvailabilityService.getAvailability(campsite, null,
 				now.plusDays(11));
 
 		assertNotNull(currentAvailability);
@@ -169,22 +235,225 @@ public class DailyAvailabilityServiceTest {
 
 	@Test
 	public void testValidateAvailabilityOK() throws AvailabilityException, BookingException, InputFormatException {
-		when(dailyAvailabilityRepository.existsByDateBetweenAndGuestsGreaterThan(any(LocalDate.class),
+		when(dailyAvailabilityRepository.existsByCampsiteIdAndDateBetweenAndGuestsGreaterThan(anyLong(), any(LocalDate.class),
 				any(LocalDate.class), anyInt())).thenReturn(false);
 
-		dailyAvailabilityService.validateAvailability(now.plusDays(2), now.plusDays(3), 2, false);
+		dailyAvailabilityService.validateAvailability(campsite, now.plusDays(2), now.plusDays(3), 2, false);
 
-		verify(validator, times(1)).validateDatesInput(any(LocalDate.class), any(LocalDate.class), anyBoolean());
-		verify(validator, times(1)).validateGuestsInput(anyInt());
+		verify(validator, times(1)).validateDatesInput(now.plusDays(2), now.plusDays(3), false, 3);
+		verify(validator, times(1)).validateGuestsInput(2, MAX_CAPACITY);
 	}
 
 	@Test(expected = AvailabilityException.class)
 	public void testValidateAvailabilityNotAvailability() throws AvailabilityException, BookingException, InputFormatException {
-		when(dailyAvailabilityRepository.existsByDateBetweenAndGuestsGreaterThan(any(LocalDate.class),
+		when(dailyAvailabilityRepository.existsByCampsiteIdAndDateBetweenAndGuestsGreaterThan(anyLong(), any(LocalDate.class),
 				any(LocalDate.class), anyInt())).thenReturn(true);
 
-		dailyAvailabilityService.validateAvailability(now.plusDays(2), now.plusDays(3), 2,
+		dailyAvailabilityService.validateAvailability(campsite, now.plusDays(2), now.plusDays(3), 2,
 				false);
 	}
 
+	@Test
+	public void testGetAvailabilityFromLedger() {
+		when(ledger.snapshot(anyLong(), any(LocalDate.class), any(LocalDate.class))).thenReturn(new int[] {2, 0, 10});
+
+		List<DailyAvailability> currentAvailability = dailyAvailabilityService
+				.getAvailability(campsite, now.plusDays(1), now.plusDays(4));
+
+		assertEquals(3, currentAvailability.size());
+		assertEquals(now.plusDays(1), currentAvailability.get(0).getDate());
+		assertEquals(8, currentAvailability.get(0).getAvailability());
+		assertEquals(now.plusDays(2), currentAvailability.get(1).getDate());
+		assertEquals(10, currentAvailability.get(1).getAvailability());
+		assertEquals(now.plusDays(3), currentAvailability.get(2).getDate());
+		assertEquals(0, currentAvailability.get(2).getAvailability());
+		verify(dailyAvailabilityRepository, never()).findAllByCampsiteIdAndDateBetweenOrderByDateAsc(anyLong(), any(LocalDate.class), any(LocalDate.class));
+	}
+
+	@Test(expected = AvailabilityException.class)
+	public void testValidateAvailabilityFromLedgerNotAvailability() throws AvailabilityException, BookingException, InputFormatException {
+		when(ledger.maxOccupation(anyLong(), any(LocalDate.class), any(LocalDate.class))).thenReturn(OptionalInt.of(9));
+
+		dailyAvailabilityService.validateAvailability(campsite, now.plusDays(2), now.plusDays(3), 2, false);
+	}
+
+	@Test
+	public void testValidateAvailabilityFromLedgerOK() throws AvailabilityException, BookingException, InputFormatException {
+		when(ledger.maxOccupation(anyLong(), any(LocalDate.class), any(LocalDate.class))).thenReturn(OptionalInt.of(8));
+
+		dailyAvailabilityService.validateAvailability(campsite, now.plusDays(2), now.plusDays(3), 2, false);
+
+		verify(dailyAvailabilityRepository, never()).existsByCampsiteIdAndDateBetweenAndGuestsGreaterThan(anyLong(), any(LocalDate.class),
+				any(LocalDate.class), anyInt());
+	}
+
+	@Test
+	public void testBlockAvailabilityAtomicProvisioningMissingDays() {
+		ReflectionTestUtils.setField(dailyAvailabilityService, "reservationMode", "atomic");
+		when(dailyAvailabilityRepository.countByCampsiteIdAndDateBetween(anyLong(), any(LocalDate.class), any(LocalDate.class))).thenReturn(1L);
+		when(dailyAvailabilityRepository.reserve(anyLong(), any(LocalDate.class), any(LocalDate.class), anyInt(), anyInt())).thenReturn(2);
+
+		dailyAvailabilityService.blockAvailability(campsite, now.plusDays(2), now.plusDays(4), 3);
+
+		verify(provisioner, times(1)).createMissingDays(campsite, now.plusDays(2), now.plusDays(3));
+		verify(dailyAvailabilityRepository, times(1)).reserve(Campsite.DEFAULT_ID, now.plusDays(2), now.plusDays(3), 3, MAX_CAPACITY - 3);
+		verify(ledger, times(1)).record(Campsite.DEFAULT_ID, now.plusDays(2), now.plusDays(4), 3);
+	}
+
+	@Test(expected = AvailabilityException.class)
+	public void testBlockAvailabilityAtomicNotAvailability() {
+		ReflectionTestUtils.setField(dailyAvailabilityService, "reservationMode", "atomic");
+		when(dailyAvailabilityRepository.countByCampsiteIdAndDateBetween(anyLong(), any(LocalDate.class), any(LocalDate.class))).thenReturn(2L);
+		when(dailyAvailabilityRepository.reserve(anyLong(), any(LocalDate.class), any(LocalDate.class), anyInt(), anyInt())).thenReturn(1);
+
+		try {
+			dailyAvailabilityService.blockAvailability(campsite, now.plusDays(2), now.plusDays(4), 3);
+		} finally {
+			verify(provisioner, never()).createMissingDays(any(), any(LocalDate.class), any(LocalDate.class));
+			verify(ledger, never()).record(anyLong(), any(LocalDate.class), any(LocalDate.class), anyInt());
+		}
+	}
+
+	@Test
+	public void testReleaseAvailabilityAtomic() {
+		ReflectionTestUtils.setField(dailyAvailabilityService, "reservationMode", "atomic");
+
+		dailyAvailabilityService.releaseAvailability(campsite, now.plusDays(2), now.plusDays(4), 3);
+
+		verify(dailyAvailabilityRepository, times(1)).release(eq(Campsite.DEFAULT_ID), eq(now.plusDays(2)), eq(now.plusDays(3)), eq(3));
+		verify(ledger, times(1)).record(Campsite.DEFAULT_ID, now.plusDays(2), now.plusDays(4), -3);
+	}
+
+	@Test
+	public void testMoveAvailability() {
+		// The second day is full but keeps the same guests, so it is not checked.
+		DailyOccupation first = new DailyOccupation(now.plusDays(2), 3);
+		DailyOccupation second = new DailyOccupation(now.plusDays(3), MAX_CAPACITY);
+		List<DailyOccupation> occupation = new LinkedList<DailyOccupation>();
+		occupation.add(first);
+		occupation.add(second);
+		when(dailyAvailabilityRepository.findAllByCampsiteIdAndDateBetween(Campsite.DEFAULT_ID, now.plusDays(2), now.plusDays(4))).thenReturn(occupation);
+
+		dailyAvailabilityService.moveAvailability(campsite, now.plusDays(2), now.plusDays(4), 3, now.plusDays(3), now.plusDays(5), 3);
+
+		assertEquals(Integer.valueOf(0), first.getGuests());
+		assertEquals(Integer.valueOf(MAX_CAPACITY), second.getGuests());
+		verify(dailyAvailabilityRepository, times(1)).findAllByCampsiteIdAndDateBetween(anyLong(), any(LocalDate.class), any(LocalDate.class));
+		verify(dailyAvailabilityRepository, times(1)).saveAll(any());
+		verify(ledger, times(1)).record(Campsite.DEFAULT_ID, now.plusDays(2), now.plusDays(4), -3);
+		verify(ledger, times(1)).record(Campsite.DEFAULT_ID, now.plusDays(3), now.plusDays(5), 3);
+	}
+
+	@Test(expected = AvailabilityException.class)
+	public void testMoveAvailabilityNotAvailability() {
+		List<DailyOccupation> occupation = new LinkedList<DailyOccupation>();
+		occupation.add(new DailyOccupation(now.plusDays(3), MAX_CAPACITY - 1));
+		when(dailyAvailabilityRepository.findAllByCampsiteIdAndDateBetween(Campsite.DEFAULT_ID, now.plusDays(2), now.plusDays(3))).thenReturn(occupation);
+
+		try {
+			dailyAvailabilityService.moveAvailability(campsite, now.plusDays(2), now.plusDays(4), 1, now.plusDays(2), now.plusDays(4), 3);
+		} finally {
+			verify(dailyAvailabilityRepository, never()).saveAll(any());
+			verify(ledger, never()).record(anyLong(), any(LocalDate.class), any(LocalDate.class), anyInt());
+		}
+	}
+
+	@Test
+	public void testGetAvailabilityFromCache() {
+		List<DailyAvailability> cachedAvailability = new LinkedList<DailyAvailability>();
+		cachedAvailability.add(new DailyAvailability(now.plusDays(1), 4));
+		when(availabilityCache.get(Campsite.DEFAULT_ID, now.plusDays(1), now.plusDays(2))).thenReturn(Optional.of(cachedAvailability));
+
+		List<DailyAvailability> currentAvailability = dailyAvailabilityService.getAvailability(campsite, now.plusDays(1), now.plusDays(2));
+
+		assertEquals(cachedAvailability, currentAvailability);
+		verify(ledger, never()).snapshot(anyLong(), any(LocalDate.class), any(LocalDate.class));
+		verify(dailyAvailabilityRepository, never()).findAllByCampsiteIdAndDateBetweenOrderByDateAsc(anyLong(), any(LocalDate.class), any(LocalDate.class));
+	}
+
+	@Test
+	public void testGetAvailabilityTag() {
+		when(ledger.version(Campsite.DEFAULT_ID, now.plusDays(1), now.plusDays(4))).thenReturn(OptionalLong.of(7));
+		when(ledger.getLoadedAt()).thenReturn(123L);
+
+		Optional<String> tag = dailyAvailabilityService.getAvailabilityTag(campsite, now.plusDays(1), now.plusDays(4));
+
+		assertEquals(String.format("123-1-%s-%s-7", now.plusDays(1), now.plusDays(4)), tag.get());
+		verify(validator, times(1)).validateDatesInput(any(LocalDate.class), any(LocalDate.class), anyBoolean());
+	}
+
+	@Test
+	public void testGetAvailabilityTagNotCovered() {
+		assertFalse(dailyAvailabilityService.getAvailabilityTag(campsite, now.plusDays(1), now.plusDays(4)).isPresent());
+	}
+
+	@Test(expected = AvailabilityException.class)
+	public void testValidateAvailabilityWithCampsiteCapacity() {
+		Campsite smallCampsite = new Campsite(2, 4, 3, 0);
+		when(ledger.maxOccupation(eq(2L), any(LocalDate.class), any(LocalDate.class))).thenReturn(OptionalInt.of(1));
+
+		dailyAvailabilityService.validateAvailability(smallCampsite, now.plusDays(2), now.plusDays(3), 4, false);
+	}
+
+	@Test
+	public void testGetAvailabilityWithCapacityOverride() {
+		capacityCalendar.add(campsite, capacityOverride(now.plusDays(2), now.plusDays(4), 4));
+		capacityCalendar.add(campsite, capacityOverride(now.plusDays(3), now.plusDays(4), 14));
+		when(ledger.snapshot(anyLong(), any(LocalDate.class), any(LocalDate.class))).thenReturn(new int[] {2, 6, 2, 2});
+
+		List<DailyAvailability> currentAvailability = dailyAvailabilityService
+				.getAvailability(campsite, now.plusDays(1), now.plusDays(5));
+
+		assertEquals(8, currentAvailability.get(0).getAvailability());
+		assertEquals(0, currentAvailability.get(1).getAvailability());
+		assertEquals(12, currentAvailability.get(2).getAvailability());
+		assertEquals(8, currentAvailability.get(3).getAvailability());
+	}
+
+	@Test(expected = AvailabilityException.class)
+	public void testValidateAvailabilityWithCapacityOverride() {
+		capacityCalendar.add(campsite, capacityOverride(now.plusDays(3), now.plusDays(4), 0));
+		when(ledger.snapshot(anyLong(), any(LocalDate.class), any(LocalDate.class))).thenReturn(new int[] {0, 0});
+
+		try {
+			dailyAvailabilityService.validateAvailability(campsite, now.plusDays(2), now.plusDays(4), 2, false);
+		} finally {
+			verify(ledger, never()).maxOccupation(anyLong(), any(LocalDate.class), any(LocalDate.class));
+		}
+	}
+
+	@Test(expected = AvailabilityException.class)
+	public void testBlockAvailabilityWithCapacityOverride() {
+		capacityCalendar.add(campsite, capacityOverride(now.plusDays(3), now.plusDays(4), 2));
+
+		try {
+			dailyAvailabilityService.blockAvailability(campsite, now.plusDays(2), now.plusDays(4), 3);
+		} finally {
+			verify(dailyAvailabilityRepository, never()).saveAll(any());
+		}
+	}
+
+	@Test
+	public void testBlockAvailabilityAtomicPerCapacity() {
+		ReflectionTestUtils.setField(dailyAvailabilityService, "reservationMode", "atomic");
+		capacityCalendar.add(campsite, capacityOverride(now.plusDays(3), now.plusDays(4), 6));
+		when(dailyAvailabilityRepository.countByCampsiteIdAndDateBetween(anyLong(), any(LocalDate.class), any(LocalDate.class))).thenReturn(3L);
+		when(dailyAvailabilityRepository.reserve(anyLong(), any(LocalDate.class), any(LocalDate.class), anyInt(), anyInt())).thenReturn(1);
+
+		dailyAvailabilityService.blockAvailability(campsite, now.plusDays(2), now.plusDays(5), 3);
+
+		verify(dailyAvailabilityRepository, times(1)).reserve(Campsite.DEFAULT_ID, now.plusDays(2), now.plusDays(2), 3, MAX_CAPACITY - 3);
+		verify(dailyAvailabilityRepository, times(1)).reserve(Campsite.DEFAULT_ID, now.plusDays(3), now.plusDays(3), 3, 3);
+		verify(dailyAvailabilityRepository, times(1)).reserve(Campsite.DEFAULT_ID, now.plusDays(4), now.plusDays(4), 3, MAX_CAPACITY - 3);
+		verify(ledger, times(1)).record(Campsite.DEFAULT_ID, now.plusDays(2), now.plusDays(5), 3);
+	}
+
+	private static CapacityOverrideRequest capacityOverride(LocalDate from, LocalDate to, int capacity) {
+		CapacityOverrideRequest request = new CapacityOverrideRequest();
+		request.setFromDay(from);
+		request.setToDay(to);
+		request.setCapacity(capacity);
+		return request;
+	}
+
 }
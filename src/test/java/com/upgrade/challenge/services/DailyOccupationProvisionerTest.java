@@ -0,0 +1,101 @@
+package com.upgrade.challenge.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.upgrade.challenge.campsite.Campsite;
+import com.upgrade.challenge.campsite.CampsiteRegistry;
+import com.upgrade.challenge.datasource.ShardRouting;
+import com.upgrade.challenge.model.dto.DailyOccupation;
+import com.upgrade.challenge.repository.DailyOccupationRepository;
+import com.upgrade.challenge.validator.BookingValidator;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class DailyOccupationProvisionerTest {
+
+	@TestConfiguration
+	static class DailyOccupationProvisionerTestContextConfiguration {
+		@Bean
+		public DailyOccupationProvisioner dailyOccupationProvisioner() {
+			return new DailyOccupationProvisioner();
+		}
+
+		@Bean
+		public ShardRouting shardRouting() {
+			return new ShardRouting();
+		}
+	}
+
+	@Autowired
+	private DailyOccupationProvisioner provisioner;
+
+	@Autowired
+	private DailyOccupationRepository dailyOccupationRepository;
+
+	@MockBean
+	private BookingValidator validator;
+
+	@MockBean
+	private CampsiteRegistry campsites;
+
+	private Campsite campsite = new Campsite(Campsite.DEFAULT_ID, 10, 3, 0);
+
+	private LocalDate now = LocalDate.now();
+
+	@Before
+	@After
+	public void cleanup() {
+		dailyOccupationRepository.deleteAll();
+	}
+
+	@Test
+	public void testProvisionOnlyMissingDays() {
+		dailyOccupationRepository.save(new DailyOccupation(now.plusDays(2), 4));
+		dailyOccupationRepository.save(new DailyOccupation(2L, now.plusDays(1), 4));
+
+		int createdDays = provisioner.provision(campsite, now.plusDays(1), now.plusDays(3));
+
+		assertEquals(2, createdDays);
+		List<DailyOccupation> days = dailyOccupationRepository.findAllByCampsiteIdAndDateBetweenOrderByDateAsc(
+				Campsite.DEFAULT_ID, now.plusDays(1), now.plusDays(3));
+		assertEquals(3, days.size());
+		assertEquals(0, days.get(0).getGuests());
+		assertEquals(4, days.get(1).getGuests());
+		assertEquals(0, days.get(2).getGuests());
+	}
+
+	@Test
+	public void testProvisionHorizon() {
+		when(validator.getMonthsUpToBooking()).thenReturn(1);
+		when(campsites.getAll()).thenReturn(Arrays.asList(campsite, new Campsite(2, 10, 5, 0)));
+
+		provisioner.provisionHorizon();
+
+		LocalDate lastDay = now.plusMonths(1).plusDays(3 + 7);
+		assertEquals(ChronoUnit.DAYS.between(now, lastDay) + 1,
+				dailyOccupationRepository.countByCampsiteIdAndDateBetween(Campsite.DEFAULT_ID, now, lastDay.plusDays(1)));
+		assertEquals(ChronoUnit.DAYS.between(now, lastDay) + 3,
+				dailyOccupationRepository.countByCampsiteIdAndDateBetween(2L, now, lastDay.plusDays(3)));
+	}
+
+}
@@ -0,0 +1,284 @@
+package com.upgrade.challenge.services;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.event.EventListener;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.upgrade.challenge.campsite.Campsite;
+import com.upgrade.challenge.campsite.CampsiteRegistry;
+import com.upgrade.challenge.datasource.ReadRouting;
+import com.upgrade.challenge.datasource.ShardRouting;
+import com.upgrade.challenge.events.HoldPlacedEvent;
+import com.upgrade.challenge.exception.AvailabilityException;
+import com.upgrade.challenge.exception.BookingException;
+import com.upgrade.challenge.exception.HoldNotFoundException;
+import com.upgrade.challenge.model.BookingRequest;
+import com.upgrade.challenge.model.BookingResponse;
+import com.upgrade.challenge.model.HoldRequest;
+import com.upgrade.challenge.model.dto.DailyOccupation;
+import com.upgrade.challenge.model.dto.Hold;
+import com.upgrade.challenge.repository.BookingRepository;
+import com.upgrade.challenge.repository.DailyOccupationRepository;
+import com.upgrade.challenge.repository.HoldRepository;
+import com.upgrade.challenge.validator.BookingValidator;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+public class HoldServiceTest {
+
+	@TestConfiguration
+	static class HoldServiceTestContextConfiguration {
+		@Bean
+		public HoldService holdService() {
+			return new HoldService();
+		}
+
+		@Bean
+		public BookingMetrics bookingMetrics() {
+			return new BookingMetrics();
+		}
+
+		@Bean
+		public MeterRegistry meterRegistry() {
+			return new SimpleMeterRegistry();
+		}
+
+		@Bean
+		public ReadRouting readRouting() {
+			return new ReadRouting();
+		}
+
+		@Bean
+		public DailyAvailabilityService dailyAvailabilityService() {
+			return new DailyAvailabilityService();
+		}
+
+		@Bean
+		public BookingValidator validator() {
+			return new BookingValidator();
+		}
+
+		@Bean
+		public CapacityCalendar capacityCalendar() {
+			return new CapacityCalendar();
+		}
+
+		@Bean
+		public ShardRouting shardRouting() {
+			return new ShardRouting();
+		}
+
+		@Bean
+		public HoldEvents holdEvents() {
+			return new HoldEvents();
+		}
+	}
+
+	static class HoldEvents {
+
+		private final List<HoldPlacedEvent> placed = new ArrayList<HoldPlacedEvent>();
+
+		@EventListener
+		public void onHoldPlaced(HoldPlacedEvent event) {
+			placed.add(event);
+		}
+
+	}
+
+	private static LocalDate now = LocalDate.parse(LocalDate.now().toString(), DateTimeFormatter.ISO_DATE);
+
+	private static Campsite campsite = new Campsite(Campsite.DEFAULT_ID, 10, 3, 0);
+
+	@Autowired
+	private HoldService holdService;
+
+	@Autowired
+	private HoldRepository holdRepository;
+
+	@Autowired
+	private BookingRepository bookingRepository;
+
+	@Autowired
+	private DailyOccupationRepository dailyOccupationRepository;
+
+	@MockBean
+	private OccupationLedger ledger;
+
+	@MockBean
+	private DailyOccupationProvisioner provisioner;
+
+	@MockBean
+	private AvailabilityCache availabilityCache;
+
+	@MockBean
+	private CampsiteRegistry campsiteRegistry;
+
+	@Autowired
+	private CapacityCalendar capacityCalendar;
+
+	@Autowired
+	private HoldEvents holdEvents;
+
+	@Before
+	public void setup() {
+		capacityCalendar.load();
+		ttl(600);
+	}
+
+	@Test
+	public void testHoldBlocksAvailability() {
+		Hold hold = holdService.hold(campsite, holdRequest(now.plusDays(2), now.plusDays(4), 6));
+
+		assertNotNull(hold.getId());
+		Map<LocalDate, Integer> occupation = occupation();
+		assertEquals(6, occupation.get(now.plusDays(2)));
+		assertEquals(6, occupation.get(now.plusDays(3)));
+	}
+
+	@Test(expected = AvailabilityException.class)
+	public void testHoldWithoutAvailability() {
+		holdService.hold(campsite, holdRequest(now.plusDays(2), now.plusDays(4), 6));
+
+		holdService.hold(campsite, holdRequest(now.plusDays(3), now.plusDays(5), 5));
+	}
+
+	@Test
+	public void testConfirm() {
+		Hold hold = holdService.hold(campsite, holdRequest(now.plusDays(2), now.plusDays(4), 6));
+
+		BookingResponse booking = holdService.confirm(campsite, hold.getId(), bookingRequest(now.plusDays(2), now.plusDays(4), 6));
+
+		assertNotNull(booking.getId());
+		assertEquals(1, bookingRepository.count());
+		assertEquals(0, holdRepository.count());
+		assertEquals(6, occupation().get(now.plusDays(2)));
+	}
+
+	@Test(expected = BookingException.class)
+	public void testConfirmAnotherStay() {
+		Hold hold = holdService.hold(campsite, holdRequest(now.plusDays(2), now.plusDays(4), 6));
+
+		holdService.confirm(campsite, hold.getId(), bookingRequest(now.plusDays(2), now.plusDays(4), 7));
+	}
+
+	@Test(expected = HoldNotFoundException.class)
+	public void testConfirmExpired() {
+		ttl(0);
+		Hold hold = holdService.hold(campsite, holdRequest(now.plusDays(2), now.plusDays(4), 6));
+
+		holdService.confirm(campsite, hold.getId(), bookingRequest(now.plusDays(2), now.plusDays(4), 6));
+	}
+
+	@Test
+	public void testCancel() {
+		Hold hold = holdService.hold(campsite, holdRequest(now.plusDays(2), now.plusDays(4), 6));
+
+		holdService.cancel(campsite, hold.getId());
+
+		assertEquals(0, holdRepository.count());
+		assertEquals(0, occupation().get(now.plusDays(2)));
+	}
+
+	@Test
+	public void testExpireReleasesOnlyExpiredHolds() {
+		ttl(0);
+		Hold first = holdService.hold(campsite, holdRequest(now.plusDays(2), now.plusDays(4), 3));
+		Hold second = holdService.hold(campsite, holdRequest(now.plusDays(3), now.plusDays(6), 2));
+		ttl(600);
+		Hold live = holdService.hold(campsite, holdRequest(now.plusDays(3), now.plusDays(5), 4));
+
+		assertEquals(2, holdService.expire(campsite, Arrays.asList(first.getId(), second.getId(), live.getId())));
+
+		Map<LocalDate, Integer> occupation = occupation();
+		assertEquals(0, occupation.get(now.plusDays(2)));
+		assertEquals(4, occupation.get(now.plusDays(3)));
+		assertEquals(4, occupation.get(now.plusDays(4)));
+		assertEquals(0, occupation.get(now.plusDays(5)));
+		assertEquals(1, holdRepository.count());
+		// The released holds are skipped the next time.
+		assertEquals(0, holdService.expire(campsite, Arrays.asList(first.getId(), second.getId())));
+		assertFalse(holdRepository.findById(first.getId()).isPresent());
+	}
+
+	@Test
+	public void testExpireReschedulesHoldsNotExpiredYet() {
+		Hold live = holdService.hold(campsite, holdRequest(now.plusDays(3), now.plusDays(5), 4));
+		holdEvents.placed.clear();
+
+		assertEquals(0, holdService.expire(campsite, Arrays.asList(live.getId())));
+
+		assertEquals(1, holdEvents.placed.size());
+		assertEquals(live.getId(), holdEvents.placed.get(0).getHoldId());
+		assertEquals(live.getExpiresAt(), holdEvents.placed.get(0).getExpiresAt());
+		assertEquals(4, occupation().get(now.plusDays(3)));
+	}
+
+	@Test
+	public void testGetExpiredBefore() {
+		ttl(0);
+		Hold first = holdService.hold(campsite, holdRequest(now.plusDays(2), now.plusDays(4), 3));
+		Hold second = holdService.hold(campsite, holdRequest(now.plusDays(3), now.plusDays(6), 2));
+		ttl(600);
+		holdService.hold(campsite, holdRequest(now.plusDays(3), now.plusDays(5), 4));
+		Instant before = Instant.now().plusSeconds(1);
+
+		assertEquals(new HashSet<Long>(Arrays.asList(first.getId(), second.getId())),
+				new HashSet<Long>(holdService.getExpiredBefore(campsite, before, 10)));
+		assertEquals(1, holdService.getExpiredBefore(campsite, before, 1).size());
+		assertEquals(0, holdService.getExpiredBefore(campsite, first.getExpiresAt(), 10).size());
+	}
+
+	private void ttl(long seconds) {
+		HoldService target = AopTestUtils.getTargetObject(holdService);
+		ReflectionTestUtils.setField(target, "ttlSeconds", seconds);
+	}
+
+	private Map<LocalDate, Integer> occupation() {
+		return StreamSupport.stream(dailyOccupationRepository.findAll().spliterator(), false)
+				.collect(Collectors.toMap(DailyOccupation::getDate, DailyOccupation::getGuests));
+	}
+
+	private static HoldRequest holdRequest(LocalDate from, LocalDate to, int guests) {
+		HoldRequest holdRequest = new HoldRequest();
+		holdRequest.setFromDay(from);
+		holdRequest.setToDay(to);
+		holdRequest.setGuests(guests);
+		return holdRequest;
+	}
+
+	private static BookingRequest bookingRequest(LocalDate from, LocalDate to, int guests) {
+		BookingRequest bookingRequest = BookingServiceTest.createBookingRequest();
+		bookingRequest.setFromDay(from);
+		bookingRequest.setToDay(to);
+		bookingRequest.setGuests(guests);
+		return bookingRequest;
+	}
+
+}
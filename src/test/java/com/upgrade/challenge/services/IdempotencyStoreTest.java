@@ -0,0 +1,205 @@
+package com.upgrade.challenge.services;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.upgrade.challenge.exception.AvailabilityException;
+import com.upgrade.challenge.exception.BookingException;
+import com.upgrade.challenge.exception.OverloadedException;
+import com.upgrade.challenge.model.BookingRequest;
+
+public class IdempotencyStoreTest {
+
+	private IdempotencyStore store;
+
+	private ExecutorService executor = Executors.newFixedThreadPool(2);
+
+	private AtomicInteger executions = new AtomicInteger();
+
+	@Before
+	public void setup() {
+		store = new IdempotencyStore();
+		ReflectionTestUtils.setField(store, "maxKeys", 2);
+		ReflectionTestUtils.setField(store, "ttlSeconds", 60L);
+		ReflectionTestUtils.setField(store, "waitMs", 5000L);
+		store.initialize();
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testReplayRepeatedKey() {
+		BookingRequest bookingRequest = BookingServiceTest.createBookingRequest();
+
+		int first = store.execute("key", IdempotencyStore.request("book", bookingRequest), executions::incrementAndGet);
+		int second = store.execute("key", IdempotencyStore.request("book", BookingServiceTest.createBookingRequest()),
+				executions::incrementAndGet);
+
+		assertEquals(1, first);
+		assertEquals(1, second);
+		assertEquals(1, executions.get());
+		assertEquals(1, store.getReplays());
+	}
+
+	@Test
+	public void testWithoutKey() {
+		store.execute(null, IdempotencyStore.request("cancel", 33L), executions::incrementAndGet);
+		store.execute(null, IdempotencyStore.request("cancel", 33L), executions::incrementAndGet);
+
+		assertEquals(2, executions.get());
+		assertEquals(0, store.getSize());
+	}
+
+	@Test(expected = BookingException.class)
+	public void testKeyReusedForAnotherRequest() {
+		store.execute("key", IdempotencyStore.request("cancel", 33L), executions::incrementAndGet);
+
+		store.execute("key", IdempotencyStore.request("cancel", 34L), executions::incrementAndGet);
+	}
+
+	@Test
+	public void testFailureIsNotStored() {
+		try {
+			store.execute("key", IdempotencyStore.request("cancel", 33L), () -> {
+				throw new AvailabilityException("full");
+			});
+		} catch (AvailabilityException e) {
+			// Expected.
+		}
+
+		assertEquals(1, (int) store.execute("key", IdempotencyStore.request("cancel", 33L), executions::incrementAndGet));
+	}
+
+	@Test
+	public void testInFlightDuplicateWaits() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		Future<Integer> first = executor.submit(() -> store.execute("key", IdempotencyStore.request("cancel", 33L), () -> {
+			started.countDown();
+			await(release);
+			return executions.incrementAndGet();
+		}));
+		started.await();
+		Future<Integer> duplicate = executor.submit(() -> store.execute("key", IdempotencyStore.request("cancel", 33L),
+				executions::incrementAndGet));
+		release.countDown();
+
+		assertEquals(1, (int) first.get(5, TimeUnit.SECONDS));
+		assertEquals(1, (int) duplicate.get(5, TimeUnit.SECONDS));
+		assertEquals(1, executions.get());
+	}
+
+	@Test
+	public void testInFlightDuplicateWaitBounded() throws Exception {
+		ReflectionTestUtils.setField(store, "waitMs", 100L);
+		CountDownLatch release = new CountDownLatch(1);
+		Future<Integer> first = inFlight("key", 33L, release);
+		try {
+			store.execute("key", IdempotencyStore.request("cancel", 33L), executions::incrementAndGet);
+			fail("The duplicate should give up");
+		} catch (OverloadedException e) {
+			// Still running.
+		}
+		release.countDown();
+
+		assertEquals(1, (int) first.get(5, TimeUnit.SECONDS));
+		assertEquals(1, executions.get());
+	}
+
+	@Test
+	public void testErrorIsNotStored() {
+		try {
+			store.execute("key", IdempotencyStore.request("cancel", 33L), () -> {
+				throw new NoClassDefFoundError("Booking");
+			});
+			fail("The error should be thrown");
+		} catch (NoClassDefFoundError e) {
+			// Expected.
+		}
+
+		assertEquals(0, store.getSize());
+		assertEquals(1, (int) store.execute("key", IdempotencyStore.request("cancel", 33L), executions::incrementAndGet));
+	}
+
+	@Test
+	public void testInFlightNotEvicted() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		Future<Integer> first = inFlight("first", 1L, release);
+		Future<Integer> second = inFlight("second", 2L, release);
+		try {
+			store.execute("third", IdempotencyStore.request("cancel", 3L), executions::incrementAndGet);
+			fail("The store should be full");
+		} catch (OverloadedException e) {
+			assertEquals(0, store.getEvictions());
+		}
+		release.countDown();
+		first.get(5, TimeUnit.SECONDS);
+		second.get(5, TimeUnit.SECONDS);
+
+		store.execute("third", IdempotencyStore.request("cancel", 3L), executions::incrementAndGet);
+		assertEquals(1, store.getEvictions());
+		assertEquals(3, executions.get());
+	}
+
+	@Test
+	public void testEvictEldest() {
+		store.execute("first", IdempotencyStore.request("cancel", 1L), executions::incrementAndGet);
+		store.execute("second", IdempotencyStore.request("cancel", 2L), executions::incrementAndGet);
+		store.execute("third", IdempotencyStore.request("cancel", 3L), executions::incrementAndGet);
+
+		assertEquals(1, store.getEvictions());
+		assertEquals(4, (int) store.execute("first", IdempotencyStore.request("cancel", 1L), executions::incrementAndGet));
+	}
+
+	@Test
+	public void testExpire() {
+		ReflectionTestUtils.setField(store, "ttlSeconds", 0L);
+
+		assertNull(store.execute("key", IdempotencyStore.request("cancel", 33L), () -> null));
+		store.execute("key", IdempotencyStore.request("cancel", 33L), executions::incrementAndGet);
+
+		assertEquals(1, executions.get());
+		assertEquals(0, store.getReplays());
+		assertEquals(1, store.getSize());
+	}
+
+	/**
+	 * Start an execution of the key that runs until released.
+	 */
+	private Future<Integer> inFlight(String key, Long bookingId, CountDownLatch release) throws InterruptedException {
+		CountDownLatch started = new CountDownLatch(1);
+		Future<Integer> execution = executor.submit(() -> store.execute(key, IdempotencyStore.request("cancel", bookingId),
+				() -> {
+					started.countDown();
+					await(release);
+					return executions.incrementAndGet();
+				}));
+		started.await();
+		return execution;
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
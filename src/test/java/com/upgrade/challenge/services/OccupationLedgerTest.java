@@ -0,0 +1,215 @@
+package com.upgrade.challenge.services;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.event.EventListener;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.upgrade.challenge.campsite.Campsite;
+import com.upgrade.challenge.campsite.CampsiteRegistry;
+import com.upgrade.challenge.datasource.ReadRouting;
+import com.upgrade.challenge.datasource.ShardRouting;
+import com.upgrade.challenge.events.OccupationChangedEvent;
+import com.upgrade.challenge.model.dto.DailyOccupation;
+import com.upgrade.challenge.validator.BookingValidator;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+public class OccupationLedgerTest {
+
+	@TestConfiguration
+	static class OccupationLedgerTestContextConfiguration {
+		@Bean
+		public OccupationLedger occupationLedger() {
+			return new OccupationLedger();
+		}
+
+		@Bean
+		public ReadRouting readRouting() {
+			return new ReadRouting();
+		}
+
+		@Bean
+		public ShardRouting shardRouting() {
+			return new ShardRouting();
+		}
+
+		@Bean
+		public OccupationEvents occupationEvents() {
+			return new OccupationEvents();
+		}
+	}
+
+	static class OccupationEvents {
+
+		private final List<OccupationChangedEvent> events = new ArrayList<OccupationChangedEvent>();
+
+		@EventListener
+		public void onOccupationChanged(OccupationChangedEvent event) {
+			events.add(event);
+		}
+
+	}
+
+	@Autowired
+	private OccupationLedger ledger;
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Autowired
+	private OccupationEvents occupationEvents;
+
+	@MockBean
+	private BookingValidator validator;
+
+	@MockBean
+	private CampsiteRegistry campsites;
+
+	private static final long CAMPSITE = Campsite.DEFAULT_ID;
+
+	private static final long OTHER_CAMPSITE = 2;
+
+	private LocalDate now = LocalDate.now();
+
+	@Before
+	public void setup() {
+		occupationEvents.events.clear();
+		when(validator.getMonthsUpToBooking()).thenReturn(1);
+		when(campsites.getAll()).thenReturn(
+				Arrays.asList(new Campsite(CAMPSITE, 10, 3, 0), new Campsite(OTHER_CAMPSITE, 6, 5, 0)));
+	}
+
+	@Test
+	public void testSnapshotLoadedFromDB() {
+		persistAndLoad();
+
+		assertArrayEquals(new int[] {2, 0, 7, 0}, ledger.snapshot(CAMPSITE, now.plusDays(1), now.plusDays(5)));
+		assertEquals(7, ledger.maxOccupation(CAMPSITE, now.plusDays(1), now.plusDays(5)).getAsInt());
+	}
+
+	@Test
+	public void testSnapshotOutOfHorizon() {
+		persistAndLoad();
+
+		assertNull(ledger.snapshot(CAMPSITE, now.minusDays(1), now.plusDays(2)));
+		assertNull(ledger.snapshot(CAMPSITE, now.plusDays(1), now.plusMonths(3)));
+		assertFalse(ledger.maxOccupation(CAMPSITE, now.plusDays(1), now.plusMonths(3)).isPresent());
+	}
+
+	@Test
+	public void testRecordIsVisibleInsideTheTransaction() {
+		persistAndLoad();
+		ledger.record(CAMPSITE, now.plusDays(2), now.plusDays(4), 3);
+
+		assertArrayEquals(new int[] {2, 3, 10, 0}, ledger.snapshot(CAMPSITE, now.plusDays(1), now.plusDays(5)));
+	}
+
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	public void testRecordOutsideTransactionIsApplied() {
+		ledger.load();
+		ledger.record(CAMPSITE, now.plusDays(1), now.plusDays(3), 3);
+		ledger.record(CAMPSITE, now.plusDays(1), now.plusDays(2), -1);
+
+		assertArrayEquals(new int[] {2, 3}, ledger.snapshot(CAMPSITE, now.plusDays(1), now.plusDays(3)));
+	}
+
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	public void testVersionChangesOnlyForChangedDays() {
+		ledger.load();
+		long firstVersion = ledger.version(CAMPSITE, now.plusDays(1), now.plusDays(5)).getAsLong();
+		long untouchedVersion = ledger.version(CAMPSITE, now.plusDays(10), now.plusDays(12)).getAsLong();
+
+		ledger.record(CAMPSITE, now.plusDays(2), now.plusDays(3), 1);
+
+		assertNotEquals(firstVersion, ledger.version(CAMPSITE, now.plusDays(1), now.plusDays(5)).getAsLong());
+		assertEquals(untouchedVersion, ledger.version(CAMPSITE, now.plusDays(10), now.plusDays(12)).getAsLong());
+		assertFalse(ledger.version(CAMPSITE, now.minusDays(1), now.plusDays(1)).isPresent());
+	}
+
+	@Test
+	public void testCampsitesKeptApart() {
+		entityManager.persist(new DailyOccupation(OTHER_CAMPSITE, now.plusDays(1), 5));
+		persistAndLoad();
+		ledger.record(OTHER_CAMPSITE, now.plusDays(3), now.plusDays(4), 1);
+
+		assertArrayEquals(new int[] {2, 0, 7}, ledger.snapshot(CAMPSITE, now.plusDays(1), now.plusDays(4)));
+		assertArrayEquals(new int[] {5, 0, 1}, ledger.snapshot(OTHER_CAMPSITE, now.plusDays(1), now.plusDays(4)));
+		// The horizon of each campsite follows its own max stay.
+		assertNull(ledger.snapshot(CAMPSITE, now.plusDays(31 + 3), now.plusDays(31 + 5)));
+		assertArrayEquals(new int[] {0, 0}, ledger.snapshot(OTHER_CAMPSITE, now.plusDays(31 + 3), now.plusDays(31 + 5)));
+		assertNull(ledger.snapshot(3, now.plusDays(1), now.plusDays(2)));
+	}
+
+	@Test
+	public void testLoadedOnStart() {
+		assertTrue(ledger.isRunning());
+		assertTrue(ledger.isLoaded());
+	}
+
+	@Test
+	public void testReloadAnnouncesTheDaysChangedElsewhere() {
+		DailyOccupation first = entityManager.persist(new DailyOccupation(now.plusDays(1), 2));
+		DailyOccupation second = entityManager.persist(new DailyOccupation(now.plusDays(2), 2));
+		DailyOccupation third = entityManager.persist(new DailyOccupation(now.plusDays(3), 7));
+		entityManager.flush();
+		ledger.load();
+		long untouchedVersion = ledger.version(CAMPSITE, now.plusDays(3), now.plusDays(4)).getAsLong();
+		occupationEvents.events.clear();
+
+		// Another instance books 3 guests on the first two days and releases the third one.
+		first.setGuests(5);
+		second.setGuests(5);
+		third.setGuests(0);
+		// An empty day provisioned meanwhile is no change.
+		entityManager.persist(new DailyOccupation(now.plusDays(4), 0));
+		entityManager.flush();
+		ledger.reload();
+
+		assertArrayEquals(new int[] {5, 5, 0, 0}, ledger.snapshot(CAMPSITE, now.plusDays(1), now.plusDays(5)));
+		assertEquals(2, occupationEvents.events.size());
+		assertEvent(now.plusDays(1), now.plusDays(3), 3, occupationEvents.events.get(0));
+		assertEvent(now.plusDays(3), now.plusDays(4), -7, occupationEvents.events.get(1));
+		assertTrue(ledger.version(CAMPSITE, now.plusDays(3), now.plusDays(4)).getAsLong() > untouchedVersion);
+		assertEquals(untouchedVersion, ledger.version(CAMPSITE, now.plusDays(10), now.plusDays(12)).getAsLong());
+	}
+
+	private static void assertEvent(LocalDate from, LocalDate to, int guests, OccupationChangedEvent event) {
+		assertEquals(CAMPSITE, event.getCampsiteId());
+		assertEquals(from, event.getFrom());
+		assertEquals(to, event.getTo());
+		assertEquals(guests, event.getGuests());
+	}
+
+	private void persistAndLoad() {
+		entityManager.persist(new DailyOccupation(now.plusDays(1), 2));
+		entityManager.persist(new DailyOccupation(now.plusDays(3), 7));
+		entityManager.flush();
+		ledger.load();
+	}
+
+}
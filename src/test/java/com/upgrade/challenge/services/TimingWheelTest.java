@@ -0,0 +1,59 @@
+package com.upgrade.challenge.services;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+public class TimingWheelTest {
+
+	private static final long START = 1_000_000;
+
+	@Test
+	public void testItemsExpireAtTheirTick() {
+		TimingWheel<String> wheel = new TimingWheel<String>(100, 8, START);
+		wheel.schedule("first", START + 150);
+		wheel.schedule("second", START + 300);
+
+		assertTrue(wheel.advance(START + 100).isEmpty());
+		assertEquals(Collections.singletonList("first"), wheel.advance(START + 200));
+		assertEquals(1, wheel.getPending());
+		assertEquals(Collections.singletonList("second"), wheel.advance(START + 350));
+		assertEquals(0, wheel.getPending());
+	}
+
+	@Test
+	public void testItemsOfALaterTurnStayInTheirBucket() {
+		TimingWheel<String> wheel = new TimingWheel<String>(100, 4, START);
+		wheel.schedule("later", START + 500);
+		wheel.schedule("sooner", START + 100);
+
+		// Both share a bucket, one turn of the wheel apart.
+		assertEquals(Collections.singletonList("sooner"), wheel.advance(START + 100));
+		assertTrue(wheel.advance(START + 400).isEmpty());
+		assertEquals(Collections.singletonList("later"), wheel.advance(START + 500));
+	}
+
+	@Test
+	public void testAdvanceAfterMoreThanATurn() {
+		TimingWheel<String> wheel = new TimingWheel<String>(100, 4, START);
+		wheel.schedule("first", START + 200);
+		wheel.schedule("second", START + 700);
+		wheel.advance(START);
+
+		assertEquals(Arrays.asList("first", "second"), wheel.advance(START + 2_000));
+	}
+
+	@Test
+	public void testPastDeadlineExpiresOnNextAdvance() {
+		TimingWheel<String> wheel = new TimingWheel<String>(100, 8, START);
+		wheel.advance(START + 1_000);
+		wheel.schedule("late", START + 500);
+
+		assertEquals(Collections.singletonList("late"), wheel.advance(START + 1_000));
+	}
+
+}
@@ -0,0 +1,146 @@
+package com.upgrade.challenge.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.upgrade.challenge.campsite.Campsite;
+import com.upgrade.challenge.campsite.CampsiteRegistry;
+import com.upgrade.challenge.events.OccupationChangedEvent;
+import com.upgrade.challenge.exception.AvailabilityException;
+import com.upgrade.challenge.model.BookingResponse;
+import com.upgrade.challenge.model.WaitlistRequest;
+import com.upgrade.challenge.model.dto.WaitlistEntry;
+
+public class WaitlistMatcherTest {
+
+	private static final Campsite CAMPSITE = new Campsite(Campsite.DEFAULT_ID, 10, 3, 0);
+
+	private WaitlistMatcher waitlistMatcher;
+
+	private WaitlistService waitlistService;
+
+	private LocalDate now = LocalDate.now();
+
+	@Before
+	public void setup() {
+		waitlistService = mock(WaitlistService.class);
+		CampsiteRegistry campsites = mock(CampsiteRegistry.class);
+		when(campsites.getAll()).thenReturn(Collections.singletonList(CAMPSITE));
+		when(campsites.get(Campsite.DEFAULT_ID)).thenReturn(CAMPSITE);
+		waitlistMatcher = new WaitlistMatcher();
+		ReflectionTestUtils.setField(waitlistMatcher, "waitlistService", waitlistService);
+		ReflectionTestUtils.setField(waitlistMatcher, "campsites", campsites);
+		waitlistMatcher.initialize();
+	}
+
+	@After
+	public void shutdown() {
+		waitlistMatcher.shutdown();
+	}
+
+	@Test
+	public void testReleaseServesOverlappingEntriesInOrder() {
+		when(waitlistService.getWaiting(CAMPSITE)).thenReturn(Arrays.asList(
+				entry(3L, now.plusDays(6), now.plusDays(7), true),
+				entry(2L, now.plusDays(3), now.plusDays(5), true),
+				entry(1L, now.plusDays(2), now.plusDays(4), true)));
+		when(waitlistService.book(CAMPSITE, 1L)).thenReturn(Optional.of(new BookingResponse()));
+		when(waitlistService.book(CAMPSITE, 2L)).thenThrow(new AvailabilityException("No availability"));
+		waitlistMatcher.load();
+
+		waitlistMatcher.onOccupationChanged(new OccupationChangedEvent(Campsite.DEFAULT_ID, now.plusDays(3), now.plusDays(4), -2));
+
+		verify(waitlistService, timeout(1000)).book(CAMPSITE, 2L);
+		InOrder order = inOrder(waitlistService);
+		order.verify(waitlistService).book(CAMPSITE, 1L);
+		order.verify(waitlistService).book(CAMPSITE, 2L);
+		verify(waitlistService, never()).book(CAMPSITE, 3L);
+		assertEquals(1, waitlistMatcher.getBookedEntries());
+		// The entry still not available keeps waiting.
+		assertEquals(2, waitlistMatcher.getWaitingEntries());
+	}
+
+	@Test
+	public void testOnlyTheFirstAvailableEntryIsNotified() {
+		when(waitlistService.getWaiting(CAMPSITE)).thenReturn(Arrays.asList(
+				entry(1L, now.plusDays(2), now.plusDays(4), false),
+				entry(2L, now.plusDays(2), now.plusDays(3), false)));
+		when(waitlistService.markNotified(CAMPSITE, 1L)).thenReturn(true);
+		waitlistMatcher.load();
+
+		waitlistMatcher.onOccupationChanged(new OccupationChangedEvent(Campsite.DEFAULT_ID, now.plusDays(2), now.plusDays(3), 0));
+
+		verify(waitlistService, timeout(1000)).markNotified(CAMPSITE, 1L);
+		verify(waitlistService, after(100).never()).markNotified(CAMPSITE, 2L);
+		assertEquals(1, waitlistMatcher.getNotifiedEntries());
+	}
+
+	@Test
+	public void testBlockedOccupationIsNotMatched() {
+		when(waitlistService.getWaiting(CAMPSITE)).thenReturn(Collections.singletonList(
+				entry(1L, now.plusDays(2), now.plusDays(4), true)));
+		waitlistMatcher.load();
+
+		waitlistMatcher.onOccupationChanged(new OccupationChangedEvent(Campsite.DEFAULT_ID, now.plusDays(2), now.plusDays(3), 2));
+
+		verify(waitlistService, after(100).never()).book(any(), anyLong());
+	}
+
+	@Test
+	public void testFailingEntryIsNotMatchedAgain() {
+		when(waitlistService.getWaiting(CAMPSITE)).thenReturn(Collections.singletonList(
+				entry(1L, now.plusDays(2), now.plusDays(4), true)));
+		when(waitlistService.book(CAMPSITE, 1L)).thenThrow(new IllegalStateException("Broken entry"));
+		waitlistMatcher.load();
+
+		waitlistMatcher.onOccupationChanged(new OccupationChangedEvent(Campsite.DEFAULT_ID, now.plusDays(2), now.plusDays(3), -2));
+		verify(waitlistService, timeout(1000)).book(CAMPSITE, 1L);
+		waitlistMatcher.onOccupationChanged(new OccupationChangedEvent(Campsite.DEFAULT_ID, now.plusDays(2), now.plusDays(3), -2));
+
+		verify(waitlistService, after(100).times(1)).book(CAMPSITE, 1L);
+		assertEquals(0, waitlistMatcher.getWaitingEntries());
+	}
+
+		@Test
+	public void testAddedEntryIsMatchedAtOnce() {
+		WaitlistEntry entry = entry(1L, now.plusDays(2), now.plusDays(4), true);
+		when(waitlistService.add(CAMPSITE, null)).thenReturn(entry);
+		when(waitlistService.book(CAMPSITE, 1L)).thenReturn(Optional.of(new BookingResponse()));
+
+		waitlistMatcher.add(CAMPSITE, null);
+
+		verify(waitlistService, timeout(1000)).book(CAMPSITE, 1L);
+	}
+
+	private static WaitlistEntry entry(Long id, LocalDate from, LocalDate to, boolean autoBook) {
+		WaitlistRequest waitlistRequest = new WaitlistRequest();
+		waitlistRequest.setFromDay(from);
+		waitlistRequest.setToDay(to);
+		waitlistRequest.setGuests(2);
+		waitlistRequest.setAutoBook(autoBook);
+		WaitlistEntry entry = new WaitlistEntry(Campsite.DEFAULT_ID, waitlistRequest);
+		entry.setId(id);
+		return entry;
+	}
+
+}
@@ -0,0 +1,165 @@
+package com.upgrade.challenge.services;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Optional;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.upgrade.challenge.campsite.Campsite;
+import com.upgrade.challenge.campsite.CampsiteRegistry;
+import com.upgrade.challenge.datasource.ReadRouting;
+import com.upgrade.challenge.datasource.ShardRouting;
+import com.upgrade.challenge.exception.AvailabilityException;
+import com.upgrade.challenge.exception.BookingException;
+import com.upgrade.challenge.model.BookingResponse;
+import com.upgrade.challenge.model.WaitlistRequest;
+import com.upgrade.challenge.model.WaitlistStatus;
+import com.upgrade.challenge.model.dto.WaitlistEntry;
+import com.upgrade.challenge.repository.BookingRepository;
+import com.upgrade.challenge.validator.BookingValidator;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+public class WaitlistServiceTest {
+
+	@TestConfiguration
+	static class WaitlistServiceTestContextConfiguration {
+		@Bean
+		public WaitlistService waitlistService() {
+			return new WaitlistService();
+		}
+
+		@Bean
+		public BookingMetrics bookingMetrics() {
+			return new BookingMetrics();
+		}
+
+		@Bean
+		public MeterRegistry meterRegistry() {
+			return new SimpleMeterRegistry();
+		}
+
+		@Bean
+		public ReadRouting readRouting() {
+			return new ReadRouting();
+		}
+
+		@Bean
+		public DailyAvailabilityService dailyAvailabilityService() {
+			return new DailyAvailabilityService();
+		}
+
+		@Bean
+		public BookingValidator validator() {
+			return new BookingValidator();
+		}
+
+		@Bean
+		public CapacityCalendar capacityCalendar() {
+			return new CapacityCalendar();
+		}
+
+		@Bean
+		public ShardRouting shardRouting() {
+			return new ShardRouting();
+		}
+	}
+
+	private static LocalDate now = LocalDate.parse(LocalDate.now().toString(), DateTimeFormatter.ISO_DATE);
+
+	private static Campsite campsite = new Campsite(Campsite.DEFAULT_ID, 10, 3, 0);
+
+	@Autowired
+	private WaitlistService waitlistService;
+
+	@Autowired
+	private BookingRepository bookingRepository;
+
+	@MockBean
+	private OccupationLedger ledger;
+
+	@MockBean
+	private DailyOccupationProvisioner provisioner;
+
+	@MockBean
+	private AvailabilityCache availabilityCache;
+
+	@MockBean
+	private CampsiteRegistry campsiteRegistry;
+
+	@Autowired
+	private CapacityCalendar capacityCalendar;
+
+	@Before
+	public void setup() {
+		capacityCalendar.load();
+	}
+
+	@Test
+	public void testBook() {
+		WaitlistEntry entry = waitlistService.add(campsite, request(now.plusDays(2), now.plusDays(4), 6, true));
+
+		Optional<BookingResponse> booking = waitlistService.book(campsite, entry.getId());
+
+		assertTrue(booking.isPresent());
+		WaitlistEntry bookedEntry = waitlistService.get(campsite, entry.getId());
+		assertEquals(WaitlistStatus.BOOKED, bookedEntry.getStatus());
+		assertEquals(booking.get().getId(), bookedEntry.getBookingId());
+		assertEquals(1, bookingRepository.count());
+		// A served entry is not served again.
+		assertFalse(waitlistService.book(campsite, entry.getId()).isPresent());
+	}
+
+	@Test(expected = AvailabilityException.class)
+	public void testBookWithoutAvailability() {
+		WaitlistEntry first = waitlistService.add(campsite, request(now.plusDays(2), now.plusDays(4), 6, true));
+		WaitlistEntry second = waitlistService.add(campsite, request(now.plusDays(3), now.plusDays(5), 5, true));
+		waitlistService.book(campsite, first.getId());
+
+		waitlistService.book(campsite, second.getId());
+	}
+
+	@Test
+	public void testMarkNotified() {
+		WaitlistEntry entry = waitlistService.add(campsite, request(now.plusDays(2), now.plusDays(4), 6, false));
+
+		assertTrue(waitlistService.markNotified(campsite, entry.getId()));
+
+		assertEquals(WaitlistStatus.NOTIFIED, waitlistService.get(campsite, entry.getId()).getStatus());
+		assertEquals(0, bookingRepository.count());
+	}
+
+	@Test(expected = BookingException.class)
+	public void testAddTooLongStay() {
+		waitlistService.add(campsite, request(now.plusDays(2), now.plusDays(6), 6, false));
+	}
+
+	private static WaitlistRequest request(LocalDate from, LocalDate to, int guests, boolean autoBook) {
+		WaitlistRequest waitlistRequest = new WaitlistRequest();
+		waitlistRequest.setFromDay(from);
+		waitlistRequest.setToDay(to);
+		waitlistRequest.setGuests(guests);
+		waitlistRequest.setFirstName("name");
+		waitlistRequest.setLastName("surname");
+		waitlistRequest.setEmail("some@email.com");
+		waitlistRequest.setAutoBook(autoBook);
+		return waitlistRequest;
+	}
+
+}
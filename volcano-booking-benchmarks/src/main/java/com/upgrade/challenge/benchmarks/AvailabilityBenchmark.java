@@ -0,0 +1,80 @@
+package com.upgrade.challenge.benchmarks;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.upgrade.challenge.campsite.Campsite;
+import com.upgrade.challenge.model.DailyAvailability;
+import com.upgrade.challenge.services.DailyAvailabilityService;
+
+/**
+ * The read paths: listing the availability of the default month and checking a stay before booking it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AvailabilityBenchmark {
+
+	@Param({ VolcanoBackend.STUB, VolcanoBackend.H2 })
+	private String backend;
+
+	@Param({ "true", "false" })
+	private boolean ledger;
+
+	@Param({ "0", "256" })
+	private int cacheSize;
+
+	private VolcanoBackend volcano;
+
+	private DailyAvailabilityService dailyAvailabilityService;
+
+	private Campsite campsite;
+
+	private LocalDate from;
+
+	private LocalDate to;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		volcano = VolcanoBackend.start(backend, ledger, cacheSize);
+		volcano.populate(4);
+		dailyAvailabilityService = volcano.getDailyAvailabilityService();
+		campsite = volcano.getCampsite();
+		from = LocalDate.now().plusDays(10);
+		to = from.plusDays(3);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		volcano.close();
+	}
+
+	@Benchmark
+	public List<DailyAvailability> getAvailability() {
+		return dailyAvailabilityService.getAvailability(campsite, null, null);
+	}
+
+	@Benchmark
+	public void validateAvailability() {
+		dailyAvailabilityService.validateAvailability(campsite, from, to, 2, true);
+	}
+
+}
@@ -0,0 +1,127 @@
+package com.upgrade.challenge.benchmarks;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import com.upgrade.challenge.campsite.Campsite;
+import com.upgrade.challenge.exception.AvailabilityException;
+import com.upgrade.challenge.services.DailyAvailabilityService;
+
+/**
+ * The write path: blocking a stay and releasing it again, so the occupation stays the same across
+ * iterations. The contended benchmarks run several threads on the same dates, where version conflicts
+ * are retried as {@code BookingService} does and counted next to the score.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BlockAvailabilityBenchmark {
+
+	@Param({ VolcanoBackend.STUB, VolcanoBackend.H2 })
+	private String backend;
+
+	private VolcanoBackend volcano;
+
+	private DailyAvailabilityService dailyAvailabilityService;
+
+	private Campsite campsite;
+
+	private final AtomicInteger threads = new AtomicInteger();
+
+	@Setup(Level.Trial)
+	public void setup() {
+		volcano = VolcanoBackend.start(backend, true, 256);
+		dailyAvailabilityService = volcano.getDailyAvailabilityService();
+		campsite = volcano.getCampsite();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		volcano.close();
+	}
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Attempts {
+
+		public long conflicts;
+
+		public long full;
+
+		private LocalDate sameFrom;
+
+		private LocalDate ownFrom;
+
+		@Setup(Level.Trial)
+		public void setup(BlockAvailabilityBenchmark benchmark) {
+			LocalDate tomorrow = LocalDate.now().plusDays(1);
+			sameFrom = tomorrow.plusDays(1);
+			// Every thread gets its own 3 days as long as the booking month allows it.
+			ownFrom = tomorrow.plusDays(3 * (benchmark.threads.getAndIncrement() % 9));
+		}
+
+	}
+
+	@Benchmark
+	public void blockAndRelease(Attempts attempts) {
+		blockAndRelease(attempts, attempts.sameFrom);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public void blockAndReleaseSameDates(Attempts attempts) {
+		blockAndRelease(attempts, attempts.sameFrom);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public void blockAndReleaseOwnDates(Attempts attempts) {
+		blockAndRelease(attempts, attempts.ownFrom);
+	}
+
+	private void blockAndRelease(Attempts attempts, LocalDate from) {
+		LocalDate to = from.plusDays(3);
+		while (true) {
+			try {
+				dailyAvailabilityService.blockAvailability(campsite, from, to, 1);
+				break;
+			} catch (ConcurrencyFailureException | DataIntegrityViolationException e) {
+				attempts.conflicts++;
+			} catch (AvailabilityException e) {
+				attempts.full++;
+				return;
+			}
+		}
+		while (true) {
+			try {
+				dailyAvailabilityService.releaseAvailability(campsite, from, to, 1);
+				return;
+			} catch (ConcurrencyFailureException e) {
+				attempts.conflicts++;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,62 @@
+package com.upgrade.challenge.benchmarks;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.upgrade.challenge.exception.BookingException;
+import com.upgrade.challenge.validator.BookingValidator;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BookingValidatorBenchmark {
+
+	private BookingValidator validator;
+
+	private LocalDate from;
+
+	private LocalDate to;
+
+	private LocalDate tooLate;
+
+	@Setup
+	public void setup() {
+		validator = VolcanoBackend.validator();
+		from = LocalDate.now().plusDays(2);
+		to = from.plusDays(3);
+		tooLate = to.plusDays(1);
+	}
+
+	@Benchmark
+	public void validateDatesInput() {
+		validator.validateDatesInput(from, to, true);
+	}
+
+	/**
+	 * Rejected stays pay for building the exception.
+	 */
+	@Benchmark
+	public BookingException validateDatesInputRejected() {
+		try {
+			validator.validateDatesInput(from, tooLate, true);
+			return null;
+		} catch (BookingException e) {
+			return e;
+		}
+	}
+
+}
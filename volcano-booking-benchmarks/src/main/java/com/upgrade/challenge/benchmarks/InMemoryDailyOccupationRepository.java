@@ -0,0 +1,198 @@
+package com.upgrade.challenge.benchmarks;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import com.upgrade.challenge.model.dto.DailyOccupation;
+import com.upgrade.challenge.repository.DailyOccupationRepository;
+
+/**
+ * Keeps the occupation rows of each campsite in a sorted map, returning copies as JPA returns detached entities.
+ * Saving checks the version and the unique campsite and date like the DB does, so concurrent bookings on the
+ * same dates conflict as they would against a real DB, without its cost.
+ */
+public class InMemoryDailyOccupationRepository implements DailyOccupationRepository {
+
+	private final Map<Long, ConcurrentSkipListMap<LocalDate, DailyOccupation>> campsites = new ConcurrentHashMap<Long, ConcurrentSkipListMap<LocalDate, DailyOccupation>>();
+
+	private final AtomicLong ids = new AtomicLong();
+
+	@Override
+	public Boolean existsByCampsiteIdAndDateBetweenAndGuestsGreaterThan(Long campsiteId, LocalDate from, LocalDate to,
+			Integer guests) {
+		return between(campsiteId, from, to).values().stream().anyMatch(row -> row.getGuests() > guests);
+	}
+
+	@Override
+	public List<DailyOccupation> findAllByCampsiteIdAndDateBetween(Long campsiteId, LocalDate from, LocalDate to) {
+		return findAllByCampsiteIdAndDateBetweenOrderByDateAsc(campsiteId, from, to);
+	}
+
+	@Override
+	public List<DailyOccupation> findAllByCampsiteIdAndDateBetweenOrderByDateAsc(Long campsiteId, LocalDate from,
+			LocalDate to) {
+		return between(campsiteId, from, to).values().stream().map(InMemoryDailyOccupationRepository::copy)
+				.collect(Collectors.toList());
+	}
+
+	@Override
+	public List<DailyOccupation> findAllByCampsiteIdInAndDateBetweenOrderByCampsiteIdAscDateAsc(
+			Collection<Long> campsiteIds, LocalDate from, LocalDate to) {
+		return campsiteIds.stream().sorted().distinct()
+				.flatMap(campsiteId -> findAllByCampsiteIdAndDateBetweenOrderByDateAsc(campsiteId, from, to).stream())
+				.collect(Collectors.toList());
+	}
+
+	@Override
+	public long countByCampsiteIdAndDateBetween(Long campsiteId, LocalDate from, LocalDate to) {
+		return between(campsiteId, from, to).size();
+	}
+
+	/**
+	 * There is no transaction to hold the locks until, and reserving and releasing are atomic already,
+	 * so the rows are only returned.
+	 */
+	@Override
+	public List<Long> lock(Long campsiteId, LocalDate from, LocalDate to) {
+		return between(campsiteId, from, to).values().stream().map(DailyOccupation::getId).collect(Collectors.toList());
+	}
+
+	@Override
+	public synchronized int reserve(Long campsiteId, LocalDate from, LocalDate to, Integer guests, Integer maxGuests) {
+		int updated = 0;
+		for (DailyOccupation row : between(campsiteId, from, to).values()) {
+			if (row.getGuests() <= maxGuests) {
+				rows(campsiteId).put(row.getDate(), copy(row, row.getGuests() + guests, row.getVersion() + 1));
+				updated++;
+			}
+		}
+		return updated;
+	}
+
+	@Override
+	public synchronized int release(Long campsiteId, LocalDate from, LocalDate to, Integer guests) {
+		int updated = 0;
+		for (DailyOccupation row : between(campsiteId, from, to).values()) {
+			rows(campsiteId).put(row.getDate(), copy(row, row.getGuests() - guests, row.getVersion() + 1));
+			updated++;
+		}
+		return updated;
+	}
+
+	@Override
+	public <S extends DailyOccupation> S save(S entity) {
+		saveAll(Collections.singletonList(entity));
+		return entity;
+	}
+
+	/**
+	 * Saves every entity or none of them, as a transaction would.
+	 */
+	@Override
+	public synchronized <S extends DailyOccupation> Iterable<S> saveAll(Iterable<S> entities) {
+		for (S entity : entities) {
+			DailyOccupation stored = rows(entity.getCampsiteId()).get(entity.getDate());
+			if (entity.getId() == null && stored != null) {
+				throw new DataIntegrityViolationException("Duplicate date " + entity.getDate());
+			}
+			if (entity.getId() != null && (stored == null || stored.getVersion() != entity.getVersion())) {
+				throw new ObjectOptimisticLockingFailureException(DailyOccupation.class, entity.getId());
+			}
+		}
+		for (S entity : entities) {
+			if (entity.getId() == null) {
+				entity.setId(ids.incrementAndGet());
+			} else {
+				entity.setVersion(entity.getVersion() + 1);
+			}
+			rows(entity.getCampsiteId()).put(entity.getDate(), copy(entity));
+		}
+		return entities;
+	}
+
+	@Override
+	public Optional<DailyOccupation> findById(Long id) {
+		return allRows().filter(row -> row.getId().longValue() == id).findFirst()
+				.map(InMemoryDailyOccupationRepository::copy);
+	}
+
+	@Override
+	public boolean existsById(Long id) {
+		return findById(id).isPresent();
+	}
+
+	@Override
+	public Iterable<DailyOccupation> findAll() {
+		return allRows().map(InMemoryDailyOccupationRepository::copy).collect(Collectors.toList());
+	}
+
+	@Override
+	public Iterable<DailyOccupation> findAllById(Iterable<Long> ids) {
+		List<DailyOccupation> found = new ArrayList<DailyOccupation>();
+		ids.forEach(id -> findById(id).ifPresent(found::add));
+		return found;
+	}
+
+	@Override
+	public long count() {
+		return allRows().count();
+	}
+
+	@Override
+	public void deleteById(Long id) {
+		campsites.values().forEach(rows -> rows.values().removeIf(row -> row.getId().longValue() == id));
+	}
+
+	@Override
+	public void delete(DailyOccupation entity) {
+		rows(entity.getCampsiteId()).remove(entity.getDate());
+	}
+
+	@Override
+	public void deleteAll(Iterable<? extends DailyOccupation> entities) {
+		entities.forEach(this::delete);
+	}
+
+	@Override
+	public void deleteAll() {
+		campsites.clear();
+	}
+
+	private ConcurrentSkipListMap<LocalDate, DailyOccupation> rows(Long campsiteId) {
+		return campsites.computeIfAbsent(campsiteId, id -> new ConcurrentSkipListMap<LocalDate, DailyOccupation>());
+	}
+
+	private Stream<DailyOccupation> allRows() {
+		return campsites.values().stream().flatMap(rows -> rows.values().stream());
+	}
+
+	private Map<LocalDate, DailyOccupation> between(Long campsiteId, LocalDate from, LocalDate to) {
+		return from.isAfter(to) ? new ConcurrentSkipListMap<LocalDate, DailyOccupation>()
+				: rows(campsiteId).subMap(from, true, to, true);
+	}
+
+	private static DailyOccupation copy(DailyOccupation row) {
+		return copy(row, row.getGuests(), row.getVersion());
+	}
+
+	private static DailyOccupation copy(DailyOccupation row, int guests, int version) {
+		DailyOccupation copy = new DailyOccupation(row.getCampsiteId(), row.getDate(), guests);
+		copy.setId(row.getId());
+		copy.setVersion(version);
+		return copy;
+	}
+
+}
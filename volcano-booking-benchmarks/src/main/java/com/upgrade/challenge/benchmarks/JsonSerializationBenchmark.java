@@ -0,0 +1,73 @@
+package com.upgrade.challenge.benchmarks;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.upgrade.challenge.model.BookingRequest;
+import com.upgrade.challenge.model.BookingResponse;
+import com.upgrade.challenge.model.DailyAvailability;
+
+/**
+ * The JSON bodies of the endpoints, with the mapper configured as Spring Boot does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+	private ObjectMapper mapper;
+
+	private BookingResponse booking;
+
+	private String bookingRequestJson;
+
+	private List<DailyAvailability> availability;
+
+	@Setup
+	public void setup() throws JsonProcessingException {
+		mapper = Jackson2ObjectMapperBuilder.json().featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+		LocalDate from = LocalDate.now().plusDays(2);
+		booking = new BookingResponse(Long.valueOf(33), from, from.plusDays(3), 3, "name", "surname", "some@email.com");
+		bookingRequestJson = mapper.writeValueAsString(booking);
+		availability = new ArrayList<DailyAvailability>();
+		for (int day = 0; day < 31; day++) {
+			availability.add(new DailyAvailability(from.plusDays(day), day % 10));
+		}
+	}
+
+	@Benchmark
+	public String serializeBookingResponse() throws JsonProcessingException {
+		return mapper.writeValueAsString(booking);
+	}
+
+	@Benchmark
+	public BookingRequest deserializeBookingRequest() throws JsonProcessingException {
+		return mapper.readValue(bookingRequestJson, BookingRequest.class);
+	}
+
+	@Benchmark
+	public String serializeAvailabilityMonth() throws JsonProcessingException {
+		return mapper.writeValueAsString(availability);
+	}
+
+}
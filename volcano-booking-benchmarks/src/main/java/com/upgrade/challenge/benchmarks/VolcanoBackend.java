@@ -0,0 +1,182 @@
+package com.upgrade.challenge.benchmarks;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.PayloadApplicationEvent;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.upgrade.challenge.VolcanoBookingApplication;
+import com.upgrade.challenge.campsite.Campsite;
+import com.upgrade.challenge.campsite.CampsiteRegistry;
+import com.upgrade.challenge.datasource.ReadRouting;
+import com.upgrade.challenge.datasource.ShardRouting;
+import com.upgrade.challenge.events.OccupationChangedEvent;
+import com.upgrade.challenge.services.AvailabilityCache;
+import com.upgrade.challenge.services.BookingMetrics;
+import com.upgrade.challenge.services.CapacityCalendar;
+import com.upgrade.challenge.services.DailyAvailabilityService;
+import com.upgrade.challenge.services.OccupationLedger;
+import com.upgrade.challenge.validator.BookingValidator;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * The services under benchmark, either wired by hand over {@link InMemoryDailyOccupationRepository}
+ * to measure the application code alone, or taken from the whole application running on an in-memory H2.
+ */
+public class VolcanoBackend implements AutoCloseable {
+
+	public static final String STUB = "stub";
+
+	public static final String H2 = "h2";
+
+	private static final AtomicInteger databases = new AtomicInteger();
+
+	private final DailyAvailabilityService dailyAvailabilityService;
+
+	private final BookingValidator validator;
+
+	private final Campsite campsite;
+
+	private final ConfigurableApplicationContext context;
+
+	private VolcanoBackend(DailyAvailabilityService dailyAvailabilityService, BookingValidator validator,
+			Campsite campsite, ConfigurableApplicationContext context) {
+		this.dailyAvailabilityService = dailyAvailabilityService;
+		this.validator = validator;
+		this.campsite = campsite;
+		this.context = context;
+	}
+
+	/**
+	 * @param backend {@link #STUB} or {@link #H2}
+	 * @param ledgerEnabled
+	 * @param cacheSize 0 to disable the availability cache
+	 */
+	public static VolcanoBackend start(String backend, boolean ledgerEnabled, int cacheSize) {
+		return H2.equals(backend) ? h2(ledgerEnabled, cacheSize) : stub(ledgerEnabled, cacheSize);
+	}
+
+	public static BookingValidator validator() {
+		BookingValidator validator = new BookingValidator();
+		ReflectionTestUtils.setField(validator, "MINIMUM_DAYS_AHEAD_OF_ARRIVAL", 1);
+		ReflectionTestUtils.setField(validator, "MONTHS_UP_TO_BOOKING", 1);
+		ReflectionTestUtils.setField(validator, "MAX_BOOKING_DAYS", 3);
+		ReflectionTestUtils.setField(validator, "MAX_CAPACITY", 10);
+		validator.initialize();
+		return validator;
+	}
+
+	private static VolcanoBackend stub(boolean ledgerEnabled, int cacheSize) {
+		InMemoryDailyOccupationRepository repository = new InMemoryDailyOccupationRepository();
+		BookingValidator validator = validator();
+
+		AvailabilityCache cache = new AvailabilityCache();
+		ReflectionTestUtils.setField(cache, "maxEntries", cacheSize);
+		cache.initialize();
+
+		ReadRouting readRouting = new ReadRouting();
+		ShardRouting shardRouting = new ShardRouting();
+		ReflectionTestUtils.setField(shardRouting, "shardUrls", new String[0]);
+
+		CampsiteRegistry campsites = new CampsiteRegistry();
+		ReflectionTestUtils.setField(campsites, "environment", new StandardEnvironment());
+		ReflectionTestUtils.setField(campsites, "validator", validator);
+		ReflectionTestUtils.setField(campsites, "shardRouting", shardRouting);
+		ReflectionTestUtils.setField(campsites, "ids", Collections.singletonList(Campsite.DEFAULT_ID));
+		campsites.initialize();
+
+		OccupationLedger ledger = new OccupationLedger();
+		ReflectionTestUtils.setField(ledger, "dailyOccupationRepository", repository);
+		ReflectionTestUtils.setField(ledger, "validator", validator);
+		ReflectionTestUtils.setField(ledger, "enabled", ledgerEnabled);
+		ReflectionTestUtils.setField(ledger, "readRouting", readRouting);
+		ReflectionTestUtils.setField(ledger, "shardRouting", shardRouting);
+		ReflectionTestUtils.setField(ledger, "campsites", campsites);
+		ReflectionTestUtils.setField(ledger, "eventPublisher", (ApplicationEventPublisher) event -> {
+			Object payload = event instanceof PayloadApplicationEvent ? ((PayloadApplicationEvent<?>) event).getPayload() : event;
+			if (payload instanceof OccupationChangedEvent) {
+				cache.onOccupationChanged((OccupationChangedEvent) payload);
+			}
+		});
+		ledger.load();
+
+		BookingMetrics metrics = new BookingMetrics();
+		ReflectionTestUtils.setField(metrics, "registry", new SimpleMeterRegistry());
+
+		DailyAvailabilityService service = new DailyAvailabilityService();
+		ReflectionTestUtils.setField(service, "dailyOccupationRepository", repository);
+		ReflectionTestUtils.setField(service, "validator", validator);
+		ReflectionTestUtils.setField(service, "ledger", ledger);
+		// Never loaded, so every day has the capacity of the campsite.
+		ReflectionTestUtils.setField(service, "capacityCalendar", new CapacityCalendar());
+		ReflectionTestUtils.setField(service, "availabilityCache", cache);
+		ReflectionTestUtils.setField(service, "metrics", metrics);
+		ReflectionTestUtils.setField(service, "readRouting", readRouting);
+		ReflectionTestUtils.setField(service, "reservationMode", "optimistic");
+		return new VolcanoBackend(service, validator, campsites.get(null), null);
+	}
+
+	private static VolcanoBackend h2(boolean ledgerEnabled, int cacheSize) {
+		Map<String, Object> properties = new HashMap<String, Object>();
+		properties.put("spring.datasource.url", "jdbc:h2:mem:volcano-benchmark-" + databases.incrementAndGet() + ";DB_CLOSE_DELAY=-1");
+		properties.put("spring.datasource.username", "sa");
+		properties.put("spring.datasource.hikari.minimumIdle", 4);
+		properties.put("spring.datasource.hikari.maximumPoolSize", 32);
+		properties.put("spring.datasource.hikari.registerMbeans", false);
+		properties.put("spring.jmx.enabled", false);
+		properties.put("volcano.node_id", 0);
+		properties.put("volcano.ledger_enabled", ledgerEnabled);
+		properties.put("volcano.availability_cache_size", cacheSize);
+		// Passed as arguments to override the MySQL settings of application.properties.
+		String[] arguments = properties.entrySet().stream().map(property -> "--" + property.getKey() + "=" + property.getValue())
+				.toArray(String[]::new);
+		ConfigurableApplicationContext context = new SpringApplicationBuilder(VolcanoBookingApplication.class)
+				.web(WebApplicationType.NONE).run(arguments);
+		return new VolcanoBackend(context.getBean(DailyAvailabilityService.class), context.getBean(BookingValidator.class),
+				context.getBean(CampsiteRegistry.class).get(null), context);
+	}
+
+	/**
+	 * Book the given guests every third day of the booking horizon, so the availability is not uniform.
+	 * @param guests
+	 */
+	public void populate(int guests) {
+		LocalDate tomorrow = LocalDate.now().plusDays(1);
+		for (int day = 0; day < 30; day += 3) {
+			dailyAvailabilityService.blockAvailability(campsite, tomorrow.plusDays(day), tomorrow.plusDays(day + 1), guests);
+		}
+	}
+
+	public DailyAvailabilityService getDailyAvailabilityService() {
+		return dailyAvailabilityService;
+	}
+
+	public BookingValidator getValidator() {
+		return validator;
+	}
+
+	/**
+	 * The default campsite, which every benchmark books.
+	 */
+	public Campsite getCampsite() {
+		return campsite;
+	}
+
+	@Override
+	public void close() {
+		if (context != null) {
+			context.close();
+		}
+	}
+
+}
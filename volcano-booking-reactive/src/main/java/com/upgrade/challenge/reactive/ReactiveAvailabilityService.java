@@ -0,0 +1,141 @@
+package com.upgrade.challenge.reactive;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+
+import com.upgrade.challenge.exception.AvailabilityException;
+import com.upgrade.challenge.id.Snowflake;
+import com.upgrade.challenge.model.DailyAvailability;
+import com.upgrade.challenge.validator.BookingValidator;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * The daily occupation on R2DBC. The stays are reserved with a single conditional update, as the "atomic"
+ * reservation mode of the servlet implementation does, so no thread waits for a version conflict.
+ */
+@Service
+public class ReactiveAvailabilityService {
+
+	@Autowired
+	private DatabaseClient databaseClient;
+
+	@Autowired
+	private BookingValidator validator;
+
+	@Autowired
+	private Snowflake snowflake;
+
+	private static final String SELECT_OCCUPATION = "select date, guests from daily_occupation"
+			+ " where date between :from and :to";
+
+	private static final String INSERT_OCCUPATION = "insert into daily_occupation (id, date, guests, version)"
+			+ " values (:id, :date, 0, 0)";
+
+	private static final String RESERVE = "update daily_occupation set guests = guests + :guests, version = version + 1"
+			+ " where date between :from and :to and guests <= :maxGuests";
+
+	private static final String RELEASE = "update daily_occupation set guests = guests - :guests, version = version + 1"
+			+ " where date between :from and :to";
+
+	private static final String NO_AVAILABILITY_EXCEPTION = "There is no availability for the selected dates - From: %s, To: %s and %s guest(s)."
+			+ " Please try again with differents dates.";
+
+	/**
+	 * The availability of every day between from (inclusive) and to (exclusive), with the same defaults
+	 * as the servlet implementation.
+	 * @param from
+	 * @param to
+	 */
+	public Mono<List<DailyAvailability>> getAvailability(LocalDate from, LocalDate to) {
+		return Mono.fromCallable(() -> resolveDates(from, to)).flatMap(dates -> occupation(dates[0], dates[1].minusDays(1))
+				.map(occupation -> {
+					List<DailyAvailability> availability = new ArrayList<DailyAvailability>();
+					for (LocalDate day = dates[0]; day.isBefore(dates[1]); day = day.plusDays(1)) {
+						availability.add(new DailyAvailability(day,
+								validator.getMaxCapacity() - occupation.getOrDefault(day, 0)));
+					}
+					return availability;
+				}));
+	}
+
+	/**
+	 * Add the guests to every day of the stay, creating the missing days first, or fail with an
+	 * {@link AvailabilityException} if any of them is full. It has to run in a transaction.
+	 * @param from
+	 * @param to
+	 * @param guests
+	 */
+	public Mono<Void> reserve(LocalDate from, LocalDate to, Integer guests) {
+		LocalDate endDate = to.minusDays(1);
+		long days = ChronoUnit.DAYS.between(from, to);
+		return provision(from, endDate)
+				.then(databaseClient.execute(RESERVE).bind("guests", guests).bind("from", from).bind("to", endDate)
+						.bind("maxGuests", validator.getMaxCapacity() - guests).fetch().rowsUpdated())
+				.flatMap(updated -> updated < days
+						? Mono.error(new AvailabilityException(String.format(NO_AVAILABILITY_EXCEPTION, from, to, guests)))
+						: Mono.empty());
+	}
+
+	/**
+	 * Remove the guests from every day of the stay.
+	 * @param from
+	 * @param to
+	 * @param guests
+	 */
+	public Mono<Void> release(LocalDate from, LocalDate to, Integer guests) {
+		return databaseClient.execute(RELEASE).bind("guests", guests).bind("from", from).bind("to", to.minusDays(1))
+				.fetch().rowsUpdated().then();
+	}
+
+	/**
+	 * Create the days without an occupation row. A day created meanwhile by another booking fails
+	 * on the unique date, and the caller retries.
+	 */
+	private Mono<Void> provision(LocalDate from, LocalDate to) {
+		return occupation(from, to).flatMapMany(occupation -> {
+			List<LocalDate> missingDays = new ArrayList<LocalDate>();
+			for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+				if (!occupation.containsKey(day)) {
+					missingDays.add(day);
+				}
+			}
+			return Flux.fromIterable(missingDays);
+		}).concatMap(day -> databaseClient.execute(INSERT_OCCUPATION).bind("id", snowflake.nextId()).bind("date", day)
+				.fetch().rowsUpdated()).then();
+	}
+
+	private Mono<Map<LocalDate, Integer>> occupation(LocalDate from, LocalDate to) {
+		return databaseClient.execute(SELECT_OCCUPATION).bind("from", from).bind("to", to)
+				.map(row -> new SimpleImmutableEntry<LocalDate, Integer>(row.get("date", LocalDate.class),
+						row.get("guests", Integer.class)))
+				.all().collectMap(Map.Entry::getKey, Map.Entry::getValue);
+	}
+
+	private LocalDate[] resolveDates(LocalDate from, LocalDate to) {
+		LocalDate now = LocalDate.now();
+		if (Objects.isNull(from) && Objects.isNull(to)) {
+			return new LocalDate[] { now.plusDays(validator.getMinimumDaysAheadOfArrival()),
+					now.plusMonths(validator.getMonthsUpToBooking()) };
+		}
+		if (Objects.isNull(from)) {
+			from = now.plusDays(validator.getMinimumDaysAheadOfArrival());
+		}
+		if (Objects.isNull(to)) {
+			to = now.plusMonths(validator.getMonthsUpToBooking());
+		}
+		validator.validateDatesInput(from, to, false);
+		return new LocalDate[] { from, to };
+	}
+
+}
@@ -0,0 +1,56 @@
+package com.upgrade.challenge.reactive;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.upgrade.challenge.model.BookingRequest;
+import com.upgrade.challenge.model.BookingResponse;
+
+import reactor.core.publisher.Mono;
+
+@Validated
+@RestController
+@RequestMapping(path="/booking")
+public class ReactiveBookingController {
+
+	@Autowired
+	private ReactiveBookingService bookingService;
+
+	@GetMapping(path = "/{bookingId}")
+	public Mono<BookingResponse> get(
+			@PathVariable(name = "bookingId", required = true) @Min(value = 1, message = "bookingId should be a positive number") Long bookingId) {
+
+		return bookingService.get(bookingId);
+	}
+
+	@PostMapping(path= "/")
+	public Mono<BookingResponse> book(@Valid @RequestBody BookingRequest booking) {
+
+		return bookingService.add(booking);
+	}
+
+	@PutMapping(path= "/{bookingId}")
+	public Mono<BookingResponse> edit(@PathVariable(name = "bookingId", required = true) @Min(value = 1, message = "bookingId should be a positive number") Long bookingId,
+			@Valid @RequestBody BookingRequest booking) {
+
+		return bookingService.edit(bookingId, booking);
+	}
+
+	@DeleteMapping(path= "/{bookingId}")
+	public Mono<Void> cancel(@PathVariable(name= "bookingId", required = true) @Min(value = 1, message = "bookingId should be a positive number") Long bookingId) {
+
+		return bookingService.delete(bookingId);
+	}
+
+}
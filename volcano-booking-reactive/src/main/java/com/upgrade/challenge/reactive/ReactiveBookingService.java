@@ -0,0 +1,118 @@
+package com.upgrade.challenge.reactive;
+
+import java.time.LocalDate;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import com.upgrade.challenge.exception.BookingNotFoundException;
+import com.upgrade.challenge.id.Snowflake;
+import com.upgrade.challenge.model.BookingRequest;
+import com.upgrade.challenge.model.BookingResponse;
+import com.upgrade.challenge.validator.BookingValidator;
+
+import io.r2dbc.spi.Row;
+import reactor.core.publisher.Mono;
+
+/**
+ * The bookings on R2DBC. Every mutation runs in its own transaction, retried when a missing day of
+ * occupation is created concurrently, without blocking a thread while it waits for the database.
+ */
+@Service
+public class ReactiveBookingService {
+
+	@Autowired
+	private DatabaseClient databaseClient;
+
+	@Autowired
+	private TransactionalOperator transactionalOperator;
+
+	@Autowired
+	private ReactiveAvailabilityService availabilityService;
+
+	@Autowired
+	private BookingValidator validator;
+
+	@Autowired
+	private Snowflake snowflake;
+
+	@Value("${volcano.retry_max_attempts:10}")
+	private int maxAttempts;
+
+	private static final String SELECT_BOOKING = "select id, from_day, to_day, guests, first_name, last_name, email"
+			+ " from booking where id = :id";
+
+	private static final String INSERT_BOOKING = "insert into booking (id, from_day, to_day, guests, first_name, last_name, email)"
+			+ " values (:id, :fromDay, :toDay, :guests, :firstName, :lastName, :email)";
+
+	private static final String UPDATE_BOOKING = "update booking set from_day = :fromDay, to_day = :toDay, guests = :guests,"
+			+ " first_name = :firstName, last_name = :lastName, email = :email where id = :id";
+
+	private static final String DELETE_BOOKING = "delete from booking where id = :id";
+
+	private String CANCEL = "cancel";
+	private String EDIT = "edit";
+
+	public Mono<BookingResponse> get(Long bookingId) {
+		return databaseClient.execute(SELECT_BOOKING).bind("id", bookingId).map(ReactiveBookingService::booking).one()
+				.switchIfEmpty(Mono.error(() -> new BookingNotFoundException(bookingId)));
+	}
+
+	public Mono<BookingResponse> add(BookingRequest bookingRequest) {
+		return mutation(Mono.defer(() -> {
+			validator.validateDatesInput(bookingRequest.getFromDay(), bookingRequest.getToDay(), true);
+			validator.validateGuestsInput(bookingRequest.getGuests());
+			BookingResponse booking = new BookingResponse(snowflake.nextId(), bookingRequest);
+			return availabilityService.reserve(booking.getFromDay(), booking.getToDay(), booking.getGuests())
+					.then(save(INSERT_BOOKING, booking)).thenReturn(booking);
+		}));
+	}
+
+	public Mono<BookingResponse> edit(Long bookingId, BookingRequest bookingRequest) {
+		return mutation(get(bookingId).flatMap(storedBooking -> {
+			validator.validatePastDate(storedBooking.getFromDay(), EDIT);
+			validator.validateDatesInput(bookingRequest.getFromDay(), bookingRequest.getToDay(), true);
+			validator.validateGuestsInput(bookingRequest.getGuests());
+			BookingResponse editedBooking = new BookingResponse(bookingId, bookingRequest);
+			return availabilityService
+					.release(storedBooking.getFromDay(), storedBooking.getToDay(), storedBooking.getGuests())
+					.then(availabilityService.reserve(editedBooking.getFromDay(), editedBooking.getToDay(),
+							editedBooking.getGuests()))
+					.then(save(UPDATE_BOOKING, editedBooking)).thenReturn(editedBooking);
+		}));
+	}
+
+	public Mono<Void> delete(Long bookingId) {
+		return mutation(get(bookingId).flatMap(booking -> {
+			validator.validatePastDate(booking.getFromDay(), CANCEL);
+			return availabilityService.release(booking.getFromDay(), booking.getToDay(), booking.getGuests())
+					.then(databaseClient.execute(DELETE_BOOKING).bind("id", bookingId).fetch().rowsUpdated());
+		})).then();
+	}
+
+	/**
+	 * Run the mutation in a transaction, again when a day of occupation was created concurrently.
+	 */
+	private <T> Mono<T> mutation(Mono<T> mutation) {
+		return mutation.as(transactionalOperator::transactional)
+				.retry(maxAttempts - 1, DataIntegrityViolationException.class::isInstance);
+	}
+
+	private Mono<Integer> save(String statement, BookingResponse booking) {
+		return databaseClient.execute(statement).bind("id", booking.getId()).bind("fromDay", booking.getFromDay())
+				.bind("toDay", booking.getToDay()).bind("guests", booking.getGuests())
+				.bind("firstName", booking.getFirstName()).bind("lastName", booking.getLastName())
+				.bind("email", booking.getEmail()).fetch().rowsUpdated();
+	}
+
+	private static BookingResponse booking(Row row) {
+		return new BookingResponse(row.get("id", Long.class), row.get("from_day", LocalDate.class),
+				row.get("to_day", LocalDate.class), row.get("guests", Integer.class), row.get("first_name", String.class),
+				row.get("last_name", String.class), row.get("email", String.class));
+	}
+
+}
@@ -0,0 +1,65 @@
+package com.upgrade.challenge.reactive;
+
+import java.util.stream.Collectors;
+
+import javax.validation.ConstraintViolationException;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.ObjectError;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.server.ServerWebInputException;
+
+import com.upgrade.challenge.exception.AvailabilityException;
+import com.upgrade.challenge.exception.BookingException;
+import com.upgrade.challenge.exception.BookingNotFoundException;
+import com.upgrade.challenge.exception.InputFormatException;
+
+/**
+ * The same statuses and bodies as the servlet implementation.
+ */
+@ControllerAdvice
+public class ReactiveExceptionHandler {
+
+	@ExceptionHandler(AvailabilityException.class)
+	public ResponseEntity<?> handleAvailabilityException(AvailabilityException e) {
+		return ResponseEntity.badRequest().body("Errors: " + e.getMessage());
+	}
+
+	@ExceptionHandler(BookingNotFoundException.class)
+	public ResponseEntity<?> handleBookingNotFoundException(BookingNotFoundException e) {
+		return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Errors: " + e.getMessage());
+	}
+
+	@ExceptionHandler(BookingException.class)
+	public ResponseEntity<?> handleBookingException(BookingException e) {
+		return ResponseEntity.badRequest().body("Errors: " + e.getMessage());
+	}
+
+	@ExceptionHandler(InputFormatException.class)
+	public ResponseEntity<?> handleInputFormatException(InputFormatException e) {
+		return ResponseEntity.badRequest().body("Errors: " + e.getMessage());
+	}
+
+	@ExceptionHandler(ConstraintViolationException.class)
+	public ResponseEntity<?> handleConstraintViolationException(ConstraintViolationException e) {
+		return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Errors: " + e.getMessage());
+	}
+
+	/**
+	 * The messages are sorted, as the validator does not report the constraints in a fixed order.
+	 */
+	@ExceptionHandler(WebExchangeBindException.class)
+	public ResponseEntity<?> handleWebExchangeBindException(WebExchangeBindException e) {
+		return ResponseEntity.badRequest().body("Errors: " + e.getBindingResult().getAllErrors().stream()
+				.map(ObjectError::getDefaultMessage).sorted().collect(Collectors.joining(", ")));
+	}
+
+	@ExceptionHandler(ServerWebInputException.class)
+	public ResponseEntity<?> handleServerWebInputException(ServerWebInputException e) {
+		return ResponseEntity.badRequest().body("Errors: " + e.getReason());
+	}
+
+}
@@ -0,0 +1,17 @@
+package com.upgrade.challenge.reactive;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Import;
+
+import com.upgrade.challenge.validator.BookingValidator;
+
+@SpringBootApplication
+@Import(BookingValidator.class)
+public class VolcanoReactiveApplication {
+
+	public static void main(String[] args) {
+		SpringApplication.run(VolcanoReactiveApplication.class, args);
+	}
+
+}
@@ -0,0 +1,4 @@
+create table if not exists booking (id bigint not null, email varchar(255), first_name varchar(255), from_day date,
+	guests integer, last_name varchar(255), to_day date, primary key (id));
+create table if not exists daily_occupation (id bigint not null, date date, guests integer, version integer not null,
+	primary key (id), constraint uk_daily_occupation_date unique (date));
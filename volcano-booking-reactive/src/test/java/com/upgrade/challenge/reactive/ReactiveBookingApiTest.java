@@ -0,0 +1,95 @@
+package com.upgrade.challenge.reactive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.upgrade.challenge.model.BookingRequest;
+import com.upgrade.challenge.model.BookingResponse;
+import com.upgrade.challenge.model.DailyAvailability;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+public class ReactiveBookingApiTest {
+
+	@Autowired
+	private WebTestClient client;
+
+	private LocalDate now = LocalDate.now();
+
+	@Test
+	public void testBookEditAndCancel() {
+		BookingResponse booking = book(createBookingRequest(now.plusDays(2), now.plusDays(4), 4));
+		assertAvailability(now.plusDays(2), 6, 6, 10);
+
+		client.get().uri("/booking/{bookingId}", booking.getId()).exchange().expectStatus().isOk()
+				.expectBody().jsonPath("$.email").isEqualTo("some@email.com");
+
+		client.put().uri("/booking/{bookingId}", booking.getId())
+				.bodyValue(createBookingRequest(now.plusDays(3), now.plusDays(5), 2)).exchange().expectStatus().isOk()
+				.expectBody().jsonPath("$.guests").isEqualTo(2);
+		assertAvailability(now.plusDays(2), 10, 8, 8);
+
+		client.delete().uri("/booking/{bookingId}", booking.getId()).exchange().expectStatus().isOk();
+		assertAvailability(now.plusDays(2), 10, 10, 10);
+		client.get().uri("/booking/{bookingId}", booking.getId()).exchange().expectStatus().isNotFound();
+	}
+
+	@Test
+	public void testNoAvailability() {
+		book(createBookingRequest(now.plusDays(10), now.plusDays(12), 8));
+
+		client.post().uri("/booking/").bodyValue(createBookingRequest(now.plusDays(11), now.plusDays(13), 3)).exchange()
+				.expectStatus().isBadRequest();
+		// The rejected booking left nothing behind.
+		assertAvailability(now.plusDays(11), 2, 10);
+	}
+
+	@Test
+	public void testInvalidRequest() {
+		BookingRequest bookingRequest = createBookingRequest(now.plusDays(2), now.plusDays(3), 0);
+		bookingRequest.setEmail(null);
+
+		client.post().uri("/booking/").bodyValue(bookingRequest).exchange().expectStatus().isBadRequest()
+				.expectBody(String.class).isEqualTo("Errors: email is required, guests should be a positive number");
+		client.post().uri("/booking/").bodyValue(createBookingRequest(now, now.plusDays(1), 1)).exchange()
+				.expectStatus().isBadRequest();
+	}
+
+	private BookingResponse book(BookingRequest bookingRequest) {
+		return client.post().uri("/booking/").bodyValue(bookingRequest).exchange().expectStatus().isOk()
+				.expectBody(BookingResponse.class).returnResult().getResponseBody();
+	}
+
+	private void assertAvailability(LocalDate from, int... availability) {
+		List<DailyAvailability> currentAvailability = client.get()
+				.uri("/availability/?from={from}&to={to}", from, from.plusDays(availability.length)).exchange()
+				.expectStatus().isOk().expectBodyList(DailyAvailability.class).returnResult().getResponseBody();
+		assertEquals(availability.length, currentAvailability.size());
+		for (int i = 0; i < availability.length; i++) {
+			assertEquals(from.plusDays(i), currentAvailability.get(i).getDate());
+			assertEquals(availability[i], (int) currentAvailability.get(i).getAvailability());
+		}
+	}
+
+	private static BookingRequest createBookingRequest(LocalDate from, LocalDate to, int guests) {
+		BookingRequest bookingRequest = new BookingRequest();
+		bookingRequest.setEmail("some@email.com");
+		bookingRequest.setFirstName("name");
+		bookingRequest.setLastName("surname");
+		bookingRequest.setFromDay(from);
+		bookingRequest.setToDay(to);
+		bookingRequest.setGuests(guests);
+		return bookingRequest;
+	}
+
+}